@@ -26,10 +26,16 @@ import static org.corant.shared.util.Strings.strip;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import org.corant.config.expression.ConfigELProcessor;
 import org.corant.config.source.MicroprofileConfigSources;
+import org.corant.config.source.SystemPropertiesConfigSource;
 import org.corant.config.spi.ConfigAdjuster;
 import org.corant.shared.normal.Names;
 import org.corant.shared.normal.Names.ConfigNames;
@@ -50,6 +56,18 @@ import org.eclipse.microprofile.config.spi.ConfigSource;
  * This class is used to organize and aggregate all configuration resources according to the
  * microprofile specification and provide a unified interface to caller.
  *
+ * <p>
+ * The resolved values can be cached by the property name, the cache is disabled by default and can
+ * be enabled with the property {@link ConfigNames#CFG_VALUE_CACHE_ENABLE}. Each cache entry holds
+ * the winning config source, the raw value, the expanded value and the property names that the
+ * expansion depends on. Since the microprofile config source has no change notification, the
+ * values of the system properties config source that the entry depends on are re-checked on each
+ * hit, the other sources are considered immutable. So the cache should be enabled only if the
+ * other config sources don't change at runtime, or the changes are reported through
+ * {@link #invalidate()} or {@link #invalidate(String...)}. The values that contain the EL
+ * expression are not cached, nor are the property names that are not found in any config source,
+ * so the cache size is bounded by the property names of the config sources.
+ *
  * @author bingo 下午6:04:42
  *
  */
@@ -67,6 +85,9 @@ public class CorantConfigSources {
   protected final String[] profilePrefixs;
   protected final ConfigELProcessor elProcessor;
   protected final boolean expressionsEnabled;
+  protected final boolean cacheEnabled;
+  protected final CorantConfigSource[] volatileSources;
+  protected final Map<String, CachedValue> cachedValues = new ConcurrentHashMap<>();
 
   /**
    * Build an instance
@@ -77,9 +98,26 @@ public class CorantConfigSources {
    */
   protected CorantConfigSources(List<CorantConfigSource> sources, boolean expressionsEnabled,
       String[] profiles) {
+    this(sources, expressionsEnabled, false, profiles);
+  }
+
+  /**
+   * Build an instance
+   *
+   * @param sources the processed configuration resources.
+   * @param expressionsEnabled whether to enable the el expression.
+   * @param cacheEnabled whether to cache the resolved values.
+   * @param profiles the parsed profiles.
+   */
+  protected CorantConfigSources(List<CorantConfigSource> sources, boolean expressionsEnabled,
+      boolean cacheEnabled, String[] profiles) {
     this.sources = sources;
     this.profiles = defaultObject(profiles, Strings.EMPTY_ARRAY);
     this.expressionsEnabled = expressionsEnabled;
+    this.cacheEnabled = cacheEnabled;
+    volatileSources = sources.stream()
+        .filter(cs -> cs.getDelegate() instanceof SystemPropertiesConfigSource)
+        .toArray(CorantConfigSource[]::new);
     if (isNotEmpty(profiles)) {
       String[] cps = new String[profiles.length];
       Arrays.setAll(cps, i -> PROFILE_SPECIFIC_PREFIX + profiles[i] + Names.NAME_SPACE_SEPARATOR);
@@ -101,6 +139,7 @@ public class CorantConfigSources {
     shouldNotNull(originalSources, "The config sources can not null!");
     MutableObject<String[]> profiles = new MutableObject<>(Strings.EMPTY_ARRAY);
     MutableBoolean enableExpressions = MutableBoolean.of(true);
+    MutableBoolean enableCache = MutableBoolean.of(false);
     List<Pair<String, ConfigSource>> profileSources = new ArrayList<>(originalSources.size());
     // collect the profile and source
     originalSources.stream().sorted(CONFIG_SOURCE_COMPARATOR.reversed()).forEachOrdered(cs -> {
@@ -117,6 +156,10 @@ public class CorantConfigSources {
       if (expressionEnabled != null) {
         enableExpressions.set(toBoolean(expressionEnabled));
       }
+      String cacheEnabled = cs.getValue(ConfigNames.CFG_VALUE_CACHE_ENABLE);
+      if (cacheEnabled != null) {
+        enableCache.set(toBoolean(cacheEnabled));
+      }
     });
     final ConfigAdjuster configAdjuster = ConfigAdjuster.resolve(classLoader);
     List<CorantConfigSource> sources = new ArrayList<>(originalSources.size());
@@ -144,7 +187,8 @@ public class CorantConfigSources {
     }
     // sorting the collected sources
     sources.sort(CONFIG_SOURCE_COMPARATOR);
-    return new CorantConfigSources(sources, enableExpressions.get(), profiles.get());
+    return new CorantConfigSources(sources, enableExpressions.get(), enableCache.get(),
+        profiles.get());
   }
 
   static String resolveSourceProfile(String sourceName) {
@@ -163,11 +207,10 @@ public class CorantConfigSources {
   }
 
   public ConfigValue getConfigValue(String propertyName, String defaultValue) {
-    Pair<ConfigSource, String> val = getSourceAndValue(propertyName);
-    if (!val.isEmpty()) {
-      return new CorantConfigValue(propertyName, val.getValue(),
-          defaultString(resolveValue(val.getValue()), defaultValue), val.getKey().getName(),
-          val.getKey().getOrdinal());
+    CachedValue val = getCachedValue(propertyName);
+    if (val.source != null) {
+      return new CorantConfigValue(propertyName, val.rawValue,
+          defaultString(val.value, defaultValue), val.source.getName(), val.source.getOrdinal());
     }
     return new CorantConfigValue(propertyName, null, defaultValue, null, 0);
   }
@@ -192,7 +235,41 @@ public class CorantConfigSources {
    * @return getValue
    */
   public String getValue(String propertyName) {
-    return resolveValue(retrieveValue(propertyName));
+    return getCachedValue(propertyName).value;
+  }
+
+  /**
+   * Invalidate all the cached values, the caller should invoke this method when the config sources
+   * changed.
+   */
+  public void invalidate() {
+    cachedValues.clear();
+  }
+
+  /**
+   * Invalidate the cached values of the given property names and the cached values that depend on
+   * them through the {@code ${...}} expressions, the given property names can be profile specific.
+   *
+   * @param propertyNames the changed property names
+   */
+  public void invalidate(String... propertyNames) {
+    if (isNotEmpty(propertyNames)) {
+      Set<String> names = new HashSet<>(propertyNames.length << 1);
+      for (String name : propertyNames) {
+        if (name != null) {
+          names.add(normalizeName(name));
+        }
+      }
+      cachedValues.values().removeIf(cv -> cv.dependsOn(names));
+    }
+  }
+
+  /**
+   *
+   * @return the cacheEnabled
+   */
+  public boolean isCacheEnabled() {
+    return cacheEnabled;
   }
 
   /**
@@ -203,6 +280,28 @@ public class CorantConfigSources {
     return expressionsEnabled;
   }
 
+  /**
+   * Returns the cached value of the given property name, resolve and cache it if the value isn't
+   * cached or the cached value is stale.
+   *
+   * @param propertyName the property name
+   */
+  protected CachedValue getCachedValue(String propertyName) {
+    if (!cacheEnabled) {
+      return resolveCachedValue(propertyName);
+    }
+    CachedValue cached = cachedValues.get(propertyName);
+    if (cached == null || !cached.isValid()) {
+      cached = resolveCachedValue(propertyName);
+      if (cached.cacheable) {
+        cachedValues.put(propertyName, cached);
+      } else {
+        cachedValues.remove(propertyName);
+      }
+    }
+    return cached;
+  }
+
   /**
    * Returns the processed value of the EL expression
    */
@@ -257,6 +356,67 @@ public class CorantConfigSources {
     return name;
   }
 
+  /**
+   * Resolve the source, the raw value and the expanded value of the given property name and
+   * collect the property names that the expansion depends on, the result is cacheable if the
+   * property is found and no EL expression was evaluated.
+   *
+   * @param propertyName the property name
+   */
+  protected CachedValue resolveCachedValue(String propertyName) {
+    final Pair<ConfigSource, String> val = getSourceAndValue(propertyName);
+    final Set<String> dependencies = new LinkedHashSet<>();
+    final MutableBoolean evaluated = MutableBoolean.of(false);
+    dependencies.add(propertyName);
+    String value = null;
+    if (!val.isEmpty()) {
+      if (expressionsEnabled) {
+        value = CorantConfigResolver.resolveValue(val.getValue(), (e, k) -> {
+          if (e) {
+            evaluated.set(true);
+            return evaluateValue(k);
+          }
+          dependencies.add(k);
+          return retrieveValue(k);
+        });
+      } else {
+        value = val.getValue();
+      }
+    }
+    final boolean cacheable = !val.isEmpty() && !evaluated.get();
+    final List<CorantConfigSource> vss = new ArrayList<>();
+    final List<String> vks = new ArrayList<>();
+    final List<String> vvs = new ArrayList<>();
+    if (volatileSources.length > 0 && cacheable) {
+      // snapshot the values of the volatile sources, use to check the staleness on cache hit
+      for (String name : dependencies) {
+        for (CorantConfigSource vs : volatileSources) {
+          for (String key : resolveLookupKeys(name)) {
+            vss.add(vs);
+            vks.add(key);
+            vvs.add(vs.getValue(key));
+          }
+        }
+      }
+    }
+    return new CachedValue(val.getKey(), val.getValue(), value,
+        dependencies.toArray(String[]::new), vss.toArray(CorantConfigSource[]::new),
+        vks.toArray(String[]::new), vvs.toArray(String[]::new), cacheable);
+  }
+
+  /**
+   * Returns the keys that may be used to find the value of the given property name in the config
+   * sources, include the profile specific keys.
+   */
+  protected String[] resolveLookupKeys(String propertyName) {
+    String[] keys = new String[profilePrefixs.length + 1];
+    for (int i = 0; i < profilePrefixs.length; i++) {
+      keys[i] = profilePrefixs[i] + propertyName;
+    }
+    keys[profilePrefixs.length] = propertyName;
+    return keys;
+  }
+
   /**
    * Returns the expanded value
    */
@@ -274,4 +434,55 @@ public class CorantConfigSources {
   protected String retrieveValue(String propertyName) {
     return getSourceAndValue(propertyName).getValue();
   }
+
+  /**
+   * corant-config
+   * <p>
+   * The cached resolved value.
+   *
+   * @author bingo 下午2:37:16
+   *
+   */
+  protected static class CachedValue {
+
+    protected final ConfigSource source;
+    protected final String rawValue;
+    protected final String value;
+    protected final String[] dependencies;
+    protected final CorantConfigSource[] volatileSources;
+    protected final String[] volatileKeys;
+    protected final String[] volatileValues;
+    protected final boolean cacheable;
+
+    protected CachedValue(ConfigSource source, String rawValue, String value,
+        String[] dependencies, CorantConfigSource[] volatileSources, String[] volatileKeys,
+        String[] volatileValues, boolean cacheable) {
+      this.source = source;
+      this.rawValue = rawValue;
+      this.value = value;
+      this.dependencies = dependencies;
+      this.volatileSources = volatileSources;
+      this.volatileKeys = volatileKeys;
+      this.volatileValues = volatileValues;
+      this.cacheable = cacheable;
+    }
+
+    protected boolean dependsOn(Set<String> propertyNames) {
+      for (String dependency : dependencies) {
+        if (propertyNames.contains(dependency)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    protected boolean isValid() {
+      for (int i = 0; i < volatileKeys.length; i++) {
+        if (!areEqual(volatileSources[i].getValue(volatileKeys[i]), volatileValues[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.corant.config.CorantConfigSourcesTest.MapConfigSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * corant-config
+ *
+ * <p>
+ * Compares the cold value lookup, which walks the profiles and the config sources on each call,
+ * with the cached value lookup, with three active profiles and ten config sources, three of which
+ * are profile specific. The plain and the profiled values are found in the lowest priority source,
+ * the expanded value references both of them. The missing value is never cached.
+ *
+ * @author bingo 下午2:52:33
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CorantConfigSourcesBenchmark {
+
+  static final String[] PROFILES = {"dev", "test", "prd"};
+  static final int GENERAL_SOURCES = 7;
+  static final int PROPERTIES_PER_SOURCE = 100;
+
+  @Param({"false", "true"})
+  boolean cacheEnabled;
+
+  CorantConfigSources sources;
+
+  public static void main(String... args) throws RunnerException {
+    new Runner(
+        new OptionsBuilder().include(CorantConfigSourcesBenchmark.class.getSimpleName()).build())
+            .run();
+  }
+
+  @Benchmark
+  public String getExpandedValue() {
+    return sources.getValue("corant.bench.expanded");
+  }
+
+  @Benchmark
+  public String getMissingValue() {
+    return sources.getValue("corant.bench.missing");
+  }
+
+  @Benchmark
+  public String getPlainValue() {
+    return sources.getValue("corant.bench.plain");
+  }
+
+  @Benchmark
+  public String getProfiledValue() {
+    return sources.getValue("corant.bench.profiled");
+  }
+
+  @Setup
+  public void setup() {
+    List<CorantConfigSource> list = new ArrayList<>();
+    for (int i = 0; i < GENERAL_SOURCES; i++) {
+      MapConfigSource source = new MapConfigSource("general-" + i, (i + 1) * 100);
+      fill(source);
+      if (i == 0) {
+        source.properties.put("corant.bench.plain", "plain");
+        source.properties.put("%test.corant.bench.profiled", "profiled");
+      } else if (i == GENERAL_SOURCES / 2) {
+        source.properties.put("corant.bench.expanded",
+            "${corant.bench.plain}/${corant.bench.profiled}");
+      }
+      list.add(new CorantConfigSource(source, null));
+    }
+    for (int i = 0; i < PROFILES.length; i++) {
+      MapConfigSource source = new MapConfigSource("profile-" + PROFILES[i], i * 100 + 150);
+      fill(source);
+      list.add(new CorantConfigSource(source, PROFILES[i]));
+    }
+    list.sort(CorantConfigSources.CONFIG_SOURCE_COMPARATOR);
+    sources = new CorantConfigSources(list, true, cacheEnabled, PROFILES);
+    if (!"plain/profiled".equals(getExpandedValue())) {
+      throw new IllegalStateException("Can't resolve the expanded value");
+    }
+  }
+
+  void fill(MapConfigSource source) {
+    for (int i = 0; i < PROPERTIES_PER_SOURCE; i++) {
+      source.properties.put("corant.bench." + source.getName() + ".p" + i, String.valueOf(i));
+    }
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.corant.config.source.SystemPropertiesConfigSource;
+import org.corant.shared.util.Strings;
+import org.eclipse.microprofile.config.spi.ConfigSource;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-config
+ *
+ * @author bingo 下午4:12:31
+ *
+ */
+public class CorantConfigSourcesTest extends TestCase {
+
+  static final String SYS_KEY = "corant.config.test.cache.system";
+
+  @Test
+  public void testCacheDisabledByDefault() {
+    MapConfigSource source = new MapConfigSource("map", 100);
+    source.properties.put("a", "1");
+    CorantConfigSources sources = of(false, source);
+    assertFalse(sources.isCacheEnabled());
+    assertEquals(sources.getValue("a"), "1");
+    source.properties.put("a", "2");
+    assertEquals(sources.getValue("a"), "2");
+  }
+
+  @Test
+  public void testCacheHits() {
+    MapConfigSource source = new MapConfigSource("map", 100);
+    source.properties.put("a", "1");
+    CorantConfigSources sources = of(true, source);
+    assertTrue(sources.isCacheEnabled());
+    assertEquals(sources.getValue("a"), "1");
+    int lookups = source.lookups.get();
+    for (int i = 0; i < 8; i++) {
+      assertEquals(sources.getValue("a"), "1");
+    }
+    assertEquals(source.lookups.get(), lookups);
+    // the non system properties sources are considered immutable until invalidated
+    source.properties.put("a", "2");
+    assertEquals(sources.getValue("a"), "1");
+    sources.invalidate("a");
+    assertEquals(sources.getValue("a"), "2");
+    source.properties.put("a", "3");
+    sources.invalidate();
+    assertEquals(sources.getValue("a"), "3");
+  }
+
+  @Test
+  public void testDependencyInvalidation() {
+    MapConfigSource source = new MapConfigSource("map", 100);
+    source.properties.put("a", "${b}-${c}");
+    source.properties.put("b", "1");
+    source.properties.put("c", "x");
+    CorantConfigSources sources = of(true, source);
+    assertEquals(sources.getValue("a"), "1-x");
+    source.properties.put("b", "2");
+    assertEquals(sources.getValue("a"), "1-x");
+    // invalidating a dependency invalidates the dependents
+    sources.invalidate("b");
+    assertEquals(sources.getValue("a"), "2-x");
+    assertEquals(sources.getValue("b"), "2");
+    source.properties.put("c", "y");
+    sources.invalidate("c");
+    assertEquals(sources.getValue("a"), "2-y");
+  }
+
+  @Test
+  public void testMissesNotCached() {
+    MapConfigSource source = new MapConfigSource("map", 100);
+    CorantConfigSources sources = of(true, source);
+    for (int i = 0; i < 64; i++) {
+      assertNull(sources.getValue("missing." + i));
+    }
+    assertTrue(sources.cachedValues.isEmpty());
+    // the missing property is visible once it is added without invalidating
+    source.properties.put("missing.0", "0");
+    assertEquals(sources.getValue("missing.0"), "0");
+    assertEquals(sources.cachedValues.size(), 1);
+  }
+
+  @Test
+  public void testSystemPropertyVisibility() {
+    MapConfigSource source = new MapConfigSource("map", 100);
+    source.properties.put(SYS_KEY, "map");
+    source.properties.put("a", "${" + SYS_KEY + "}");
+    CorantConfigSources sources = of(true, new SystemPropertiesConfigSource(), source);
+    try {
+      System.clearProperty(SYS_KEY);
+      assertEquals(sources.getValue(SYS_KEY), "map");
+      assertEquals(sources.getValue("a"), "map");
+      // the system properties are re-checked on each hit without invalidating
+      System.setProperty(SYS_KEY, "system");
+      assertEquals(sources.getValue(SYS_KEY), "system");
+      assertEquals(sources.getValue("a"), "system");
+      System.clearProperty(SYS_KEY);
+      assertEquals(sources.getValue(SYS_KEY), "map");
+      assertEquals(sources.getValue("a"), "map");
+    } finally {
+      System.clearProperty(SYS_KEY);
+    }
+  }
+
+  CorantConfigSources of(boolean cacheEnabled, ConfigSource... configSources) {
+    List<CorantConfigSource> list = new ArrayList<>();
+    for (ConfigSource cs : configSources) {
+      list.add(new CorantConfigSource(cs, null));
+    }
+    list.sort(CorantConfigSources.CONFIG_SOURCE_COMPARATOR);
+    return new CorantConfigSources(list, true, cacheEnabled, Strings.EMPTY_ARRAY);
+  }
+
+  /**
+   * corant-config
+   *
+   * @author bingo 下午4:15:08
+   *
+   */
+  static class MapConfigSource implements ConfigSource {
+    final Map<String, String> properties = new ConcurrentHashMap<>();
+    final AtomicInteger lookups = new AtomicInteger();
+    final String name;
+    final int ordinal;
+
+    MapConfigSource(String name, int ordinal) {
+      this.name = name;
+      this.ordinal = ordinal;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public int getOrdinal() {
+      return ordinal;
+    }
+
+    @Override
+    public Map<String, String> getProperties() {
+      return Collections.unmodifiableMap(properties);
+    }
+
+    @Override
+    public Set<String> getPropertyNames() {
+      return properties.keySet();
+    }
+
+    @Override
+    public String getValue(String propertyName) {
+      lookups.incrementAndGet();
+      return properties.get(propertyName);
+    }
+  }
+}
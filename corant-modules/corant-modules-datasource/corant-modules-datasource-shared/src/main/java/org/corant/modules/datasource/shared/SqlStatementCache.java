@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.datasource.shared;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * corant-modules-datasource-shared
+ *
+ * <p>
+ * A bounded cache use to cache the parsing results of the SQL statements, backed by a Caffeine
+ * cache, so the reads are lock free and the entries are evicted by the Caffeine's size based
+ * eviction policy. The same key is computed at most once at a time by
+ * {@link #get(Object, Function)}, the computing function must be side effect free. If the maximum
+ * size is less than 1, nothing is cached.
+ *
+ * @author bingo 下午3:12:48
+ *
+ */
+public class SqlStatementCache<K, V> {
+
+  protected final int maxSize;
+  protected final Cache<K, V> store;
+  protected final LongAdder hits = new LongAdder();
+  protected final LongAdder misses = new LongAdder();
+
+  /**
+   * Create a SQL statement cache
+   *
+   * @param maxSize the maximum number of the cached entries
+   */
+  public SqlStatementCache(int maxSize) {
+    this.maxSize = maxSize;
+    // run the maintenance in the calling threads, the SQL statement caches are small and the
+    // eviction is cheap, so the size is bounded without depending on the common pool
+    store = maxSize > 0
+        ? Caffeine.newBuilder().maximumSize(maxSize).executor(Runnable::run).recordStats().build()
+        : null;
+  }
+
+  /**
+   * Clear all cached entries, the statistics are retained.
+   */
+  public void clear() {
+    if (store != null) {
+      store.invalidateAll();
+    }
+  }
+
+  /**
+   * Returns the cached value of the given key, if the key is not cached, compute the value by the
+   * given function and cache it. The null value is not cached.
+   *
+   * @param key the key
+   * @param function the function use to compute the value
+   */
+  public V get(K key, Function<? super K, ? extends V> function) {
+    if (store == null) {
+      misses.increment();
+      return function.apply(key);
+    }
+    V value = store.getIfPresent(key);
+    if (value != null) {
+      hits.increment();
+      return value;
+    }
+    misses.increment();
+    return store.get(key, function);
+  }
+
+  /**
+   * Returns the number of the evicted entries
+   */
+  public long getEvictions() {
+    return store == null ? 0L : store.stats().evictionCount();
+  }
+
+  /**
+   * Returns the ratio of the hits to the total requests, returns 0 if there are no requests.
+   */
+  public double getHitRatio() {
+    long h = hits.sum();
+    long total = h + misses.sum();
+    return total == 0 ? 0d : (double) h / total;
+  }
+
+  /**
+   * Returns the number of the cache hits
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * Returns the cached value of the given key or null if the key is not cached.
+   *
+   * @param key the key
+   */
+  public V getIfPresent(K key) {
+    V value = store == null ? null : store.getIfPresent(key);
+    if (value != null) {
+      hits.increment();
+    } else {
+      misses.increment();
+    }
+    return value;
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Returns the number of the cache misses
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * Cache the given value with the given key, the null value is not cached.
+   *
+   * @param key the key
+   * @param value the value to be cached
+   */
+  public void put(K key, V value) {
+    if (store != null && value != null) {
+      store.put(key, value);
+    }
+  }
+
+  /**
+   * Returns the current number of the cached entries
+   */
+  public int size() {
+    if (store == null) {
+      return 0;
+    }
+    store.cleanUp();
+    return (int) store.estimatedSize();
+  }
+
+  @Override
+  public String toString() {
+    return "SqlStatementCache [maxSize=" + maxSize + ", size=" + size() + ", hits=" + getHits()
+        + ", misses=" + getMisses() + ", evictions=" + getEvictions() + ", hitRatio="
+        + getHitRatio() + "]";
+  }
+}
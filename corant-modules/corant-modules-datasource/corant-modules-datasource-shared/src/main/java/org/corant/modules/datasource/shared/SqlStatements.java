@@ -17,20 +17,20 @@ import static java.util.Collections.singletonList;
 import static org.corant.shared.util.Assertions.shouldBeTrue;
 import static org.corant.shared.util.Empties.isEmpty;
 import static org.corant.shared.util.Empties.isNotEmpty;
-import static org.corant.shared.util.Empties.sizeOf;
 import static org.corant.shared.util.Primitives.wrapArray;
 import static org.corant.shared.util.Streams.streamOf;
 import static org.corant.shared.util.Strings.defaultBlank;
 import static org.corant.shared.util.Strings.defaultString;
 import static org.corant.shared.util.Strings.isBlank;
-import static org.corant.shared.util.Strings.substring;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import org.corant.config.Configs;
 import org.corant.shared.exception.CorantRuntimeException;
 import org.corant.shared.exception.NotSupportedException;
 import org.corant.shared.ubiquity.Tuple.Pair;
@@ -72,11 +72,40 @@ import net.sf.jsqlparser.util.deparser.UpdateDeParser;
 /**
  * corant-modules-datasource-shared
  *
+ * <p>
+ * The parsing results of the SQL statements are cached in bounded caches, the maximum size of
+ * each cache can be set by the configuration property
+ * {@code corant.datasource.sql-statement.cache-size}, default is 1024, a value less than 1 disables
+ * the caches.
+ *
  * @author bingo 下午4:06:43
  *
  */
 public class SqlStatements {
 
+  static final int CACHE_SIZE =
+      Configs.getValue("corant.datasource.sql-statement.cache-size", Integer.class, 1024);
+  static final SqlStatementCache<String, ParsedStatement> parsedStatements =
+      new SqlStatementCache<>(CACHE_SIZE);
+  static final SqlStatementCache<List<Object>, String> countStatements =
+      new SqlStatementCache<>(CACHE_SIZE);
+
+  /**
+   * Returns the cache of the count statements resolved by
+   * {@link #resolveCountSql(String, String, String, Collection)}, mainly used for monitoring.
+   */
+  public static SqlStatementCache<List<Object>, String> getCountStatementCache() {
+    return countStatements;
+  }
+
+  /**
+   * Returns the cache of the parsed statements used by {@link #normalize(String, Map)} and
+   * {@link #normalize(String, Object...)}, mainly used for monitoring.
+   */
+  public static SqlStatementCache<String, ParsedStatement> getParsedStatementCache() {
+    return parsedStatements;
+  }
+
   /**
    * Converts the given named parameters(:name) prepared SQL statement and the given query
    * parameters maps to a normalized SQL prepared statement and its query parameters and return
@@ -106,16 +135,7 @@ public class SqlStatements {
    * @return a normalized SQL query statement and an ordered array of query parameters.
    */
   public static Pair<String, Object[]> normalize(String sql, Map<String, Object> namedParameters) {
-    try {
-      StringBuilder statement = new StringBuilder();
-      List<Object> useParams = new ArrayList<>();
-      ExpressionDeParser expressionDeParser =
-          new JdbcParameterExpressionDeParser(namedParameters, useParams);
-      normalize(CCJSqlParserUtil.parse(sql), statement, expressionDeParser);
-      return Pair.of(statement.toString(), useParams.toArray());
-    } catch (JSQLParserException ex) {
-      throw new CorantRuntimeException(ex);
-    }
+    return parse(sql).expand(namedParameters, Objects.EMPTY_ARRAY);
   }
 
   /**
@@ -150,16 +170,7 @@ public class SqlStatements {
         || streamOf(ordinaryParameters).noneMatch(p -> p instanceof Collection)) {
       return Pair.of(sql, ordinaryParameters);
     }
-    try {
-      StringBuilder statement = new StringBuilder();
-      List<Object> useParams = new ArrayList<>();
-      ExpressionDeParser expressionDeParser =
-          new JdbcParameterExpressionDeParser(ordinaryParameters, useParams);
-      normalize(CCJSqlParserUtil.parse(sql), statement, expressionDeParser);
-      return Pair.of(statement.toString(), useParams.toArray());
-    } catch (JSQLParserException ex) {
-      throw new CorantRuntimeException(ex);
-    }
+    return parse(sql).expand(null, ordinaryParameters);
   }
 
   /**
@@ -167,6 +178,10 @@ public class SqlStatements {
    * select statement may be optimized, such as removing order by clauses, removing the select
    * fields, etc.
    *
+   * <p>
+   * Note: The resolved count statements are cached, the given aggregation functions collection is
+   * a part of the cache key, so it should not be changed after calling.
+   *
    * @param sql the original select statement
    * @param countColumnExpression the count column expression
    * @param wrappedTableAlias the wrapped select statement table alias
@@ -176,33 +191,24 @@ public class SqlStatements {
    */
   public static String resolveCountSql(String sql, String countColumnExpression,
       String wrappedTableAlias, Collection<String> aggregateFunctions) throws JSQLParserException {
-    Select select = (Select) CCJSqlParserUtil.parse(sql);
-    SelectBody selectBody = select.getSelectBody();
-    reviseCountSqlSelectBody(selectBody);
-    if (isNotEmpty(select.getWithItemsList())) {
-      for (WithItem item : select.getWithItemsList()) {
-        if (item.getSubSelect() != null) {
-          reviseCountSqlSelectBody(item.getSubSelect().getSelectBody());
+    // the aggregate functions are copied, since the caller may mutate them after the key cached
+    final List<String> functions = aggregateFunctions == null ? null
+        : Collections.unmodifiableList(new ArrayList<>(aggregateFunctions));
+    List<Object> key = Arrays.asList(sql, countColumnExpression, wrappedTableAlias, functions);
+    try {
+      return countStatements.get(key, k -> {
+        try {
+          return doResolveCountSql(sql, countColumnExpression, wrappedTableAlias, functions);
+        } catch (JSQLParserException ex) {
+          throw new CorantRuntimeException(ex);
         }
+      });
+    } catch (CorantRuntimeException ex) {
+      if (ex.getCause() instanceof JSQLParserException) {
+        throw (JSQLParserException) ex.getCause();
       }
+      throw ex;
     }
-    final SelectExpressionItem countItem =
-        new SelectExpressionItem(new Column(countColumnExpression));
-    final List<SelectItem> countItems = singletonList(countItem);
-    if (canBeOptimized(selectBody, aggregateFunctions)) {
-      ((PlainSelect) selectBody).setSelectItems(countItems);
-    } else {
-      PlainSelect plainSelect = new PlainSelect();
-      SubSelect subSelect = new SubSelect();
-      subSelect.setSelectBody(selectBody);
-      if (wrappedTableAlias != null) {
-        subSelect.setAlias(new Alias(wrappedTableAlias, false));
-      }
-      plainSelect.setFromItem(subSelect);
-      plainSelect.setSelectItems(countItems);
-      select.setSelectBody(plainSelect);
-    }
-    return select.toString();
   }
 
   /**
@@ -261,6 +267,37 @@ public class SqlStatements {
     return true;
   }
 
+  static String doResolveCountSql(String sql, String countColumnExpression,
+      String wrappedTableAlias, Collection<String> aggregateFunctions) throws JSQLParserException {
+    Select select = (Select) CCJSqlParserUtil.parse(sql);
+    SelectBody selectBody = select.getSelectBody();
+    reviseCountSqlSelectBody(selectBody);
+    if (isNotEmpty(select.getWithItemsList())) {
+      for (WithItem item : select.getWithItemsList()) {
+        if (item.getSubSelect() != null) {
+          reviseCountSqlSelectBody(item.getSubSelect().getSelectBody());
+        }
+      }
+    }
+    final SelectExpressionItem countItem =
+        new SelectExpressionItem(new Column(countColumnExpression));
+    final List<SelectItem> countItems = singletonList(countItem);
+    if (canBeOptimized(selectBody, aggregateFunctions)) {
+      ((PlainSelect) selectBody).setSelectItems(countItems);
+    } else {
+      PlainSelect plainSelect = new PlainSelect();
+      SubSelect subSelect = new SubSelect();
+      subSelect.setSelectBody(selectBody);
+      if (wrappedTableAlias != null) {
+        subSelect.setAlias(new Alias(wrappedTableAlias, false));
+      }
+      plainSelect.setFromItem(subSelect);
+      plainSelect.setSelectItems(countItems);
+      select.setSelectBody(plainSelect);
+    }
+    return select.toString();
+  }
+
   static boolean containsParameterizedOrderbyElement(List<OrderByElement> orderbyElements) {
     return orderbyElements != null
         && orderbyElements.stream().anyMatch(e -> e.toString().indexOf('?') != -1);
@@ -320,6 +357,21 @@ public class SqlStatements {
     }
   }
 
+  static ParsedStatement parse(String sql) {
+    return parsedStatements.get(sql, k -> {
+      try {
+        StringBuilder statement = new StringBuilder();
+        ParameterRecordingExpressionDeParser expressionDeParser =
+            new ParameterRecordingExpressionDeParser();
+        normalize(CCJSqlParserUtil.parse(k), statement, expressionDeParser);
+        return new ParsedStatement(statement.toString(), expressionDeParser.positions,
+            expressionDeParser.references);
+      } catch (JSQLParserException ex) {
+        throw new CorantRuntimeException(ex);
+      }
+    });
+  }
+
   static void reviseCountSqlFromItem(FromItem fromItem) {
     if (fromItem instanceof SubJoin) {
       SubJoin subJoin = (SubJoin) fromItem;
@@ -389,76 +441,135 @@ public class SqlStatements {
       }
     }
   }
-
   /**
-   * corant-modules-query-sql
+   * corant-modules-datasource-shared
    *
-   * @author bingo 上午10:17:45
+   * <p>
+   * A parsed SQL statement template, contains the normalized SQL statement segments split by the
+   * parameters placeholders and the references (the name of the named parameter or the index of
+   * the ordinary parameter) of the parameters. Since the normalized SQL statement segments do not
+   * depend on the parameter values, expanding the parameters placeholders is only a string splice
+   * without parsing.
+   *
+   * @author bingo 下午3:26:17
    *
    */
-  static class JdbcParameterExpressionDeParser extends ExpressionDeParser {
-    private final Object[] ordinaryParameters;
-    private final Map<String, Object> namedParameters;
-    private final List<Object> useParams;
+  public static class ParsedStatement {
+
+    protected final String[] segments;
+    protected final Object[] references;
+    protected final int length;
 
-    JdbcParameterExpressionDeParser(Map<String, Object> parameters, List<Object> useParams) {
-      namedParameters = parameters;
-      ordinaryParameters = Objects.EMPTY_ARRAY;
-      this.useParams = useParams;
+    protected ParsedStatement(String statement, List<Integer> positions, List<Object> references) {
+      this.references = references.toArray();
+      segments = new String[positions.size() + 1];
+      int begin = 0;
+      for (int i = 0; i < positions.size(); i++) {
+        int end = positions.get(i);
+        segments[i] = statement.substring(begin, end);
+        begin = end;
+      }
+      segments[positions.size()] = statement.substring(begin);
+      length = statement.length();
     }
 
-    JdbcParameterExpressionDeParser(Object[] parameters, List<Object> useParams) {
-      ordinaryParameters = parameters;
-      namedParameters = null;
-      this.useParams = useParams;
+    /**
+     * Returns the number of the parameters placeholders in the normalized SQL statement before
+     * expanding.
+     */
+    public int getParameterSize() {
+      return references.length;
     }
 
     @Override
-    public void visit(JdbcNamedParameter jdbcParameter) {
-      String name = jdbcParameter.getName();
-      shouldBeTrue(namedParameters.containsKey(name),
-          "The named parameter [%s] in SQL does not match the given parameter!", name);
-      Object parameter = namedParameters.get(name);
-      List<Object> tempParams = resolveParameter(parameter);
-      int size = sizeOf(tempParams);
-      if (size > 1) {
-        buffer.append(substring("?,".repeat(size), 0, -1));
-      } else {
-        buffer.append("?");
+    public String toString() {
+      return String.join("?", segments);
+    }
+
+    /**
+     * Expand the parameters placeholders with the given parameters, returns the expanded SQL
+     * statement and its query parameters.
+     *
+     * @param namedParameters the named parameters use to resolve the named parameters
+     *        placeholders(:name)
+     * @param ordinaryParameters the ordinary parameters use to resolve the ordinary parameters
+     *        placeholders(?)
+     */
+    protected Pair<String, Object[]> expand(Map<String, Object> namedParameters,
+        Object[] ordinaryParameters) {
+      if (references.length == 0) {
+        return Pair.of(segments[0], Objects.EMPTY_ARRAY);
       }
-      useParams.addAll(tempParams);
+      StringBuilder statement = new StringBuilder(length + (references.length << 2));
+      List<Object> useParams = new ArrayList<>(references.length);
+      for (int i = 0; i < references.length; i++) {
+        statement.append(segments[i]);
+        Object parameter = resolveParameter(references[i], namedParameters, ordinaryParameters);
+        int size;
+        if (parameter instanceof Collection) {
+          size = ((Collection<?>) parameter).size();
+          useParams.addAll((Collection<?>) parameter);
+        } else if (parameter != null && parameter.getClass().isArray()) {
+          Object[] array = wrapArray(parameter);
+          size = array.length;
+          Collections.addAll(useParams, array);
+        } else {
+          size = 1;
+          useParams.add(parameter);
+        }
+        statement.append('?');
+        for (int j = 1; j < size; j++) {
+          statement.append(",?");
+        }
+      }
+      statement.append(segments[references.length]);
+      return Pair.of(statement.toString(), useParams.toArray());
     }
 
-    @Override
-    public void visit(JdbcParameter jdbcParameter) {
-      if (jdbcParameter.isUseFixedIndex()) {
-        super.visit(jdbcParameter);
-        return;
+    protected Object resolveParameter(Object reference, Map<String, Object> namedParameters,
+        Object[] ordinaryParameters) {
+      if (reference instanceof String) {
+        shouldBeTrue(namedParameters != null && namedParameters.containsKey(reference),
+            "The named parameter [%s] in SQL does not match the given parameter!", reference);
+        return namedParameters.get(reference);
       }
-      if (jdbcParameter.getIndex() > ordinaryParameters.length) {
+      int index = (Integer) reference;
+      if (index > ordinaryParameters.length) {
         throw new CorantRuntimeException("SQL placeholder does not match the given parameter!");
       }
-      Object parameter = ordinaryParameters[jdbcParameter.getIndex() - 1];
-      List<Object> tempParams = resolveParameter(parameter);
-      int size = sizeOf(tempParams);
-      if (size > 1) {
-        buffer.append(substring("?,".repeat(size), 0, -1));
-      } else {
-        buffer.append("?");
-      }
-      useParams.addAll(tempParams);
+      return ordinaryParameters[index - 1];
     }
+  }
 
-    protected List<Object> resolveParameter(Object parameter) {
-      List<Object> params = new ArrayList<>();
-      if (parameter instanceof Collection) {
-        params.addAll((Collection<?>) parameter);
-      } else if (parameter != null && parameter.getClass().isArray()) {
-        Collections.addAll(params, wrapArray(parameter));
-      } else {
-        params.add(parameter);
+  /**
+   * corant-modules-query-sql
+   *
+   * <p>
+   * Records the positions and the references of the parameters placeholders in the normalized SQL
+   * statement, the placeholders themselves are not written, the fixed index parameters (?1) are
+   * written as is.
+   *
+   * @author bingo 上午10:17:45
+   *
+   */
+  static class ParameterRecordingExpressionDeParser extends ExpressionDeParser {
+    final List<Integer> positions = new ArrayList<>();
+    final List<Object> references = new ArrayList<>();
+
+    @Override
+    public void visit(JdbcNamedParameter jdbcParameter) {
+      positions.add(buffer.length());
+      references.add(jdbcParameter.getName());
+    }
+
+    @Override
+    public void visit(JdbcParameter jdbcParameter) {
+      if (jdbcParameter.isUseFixedIndex()) {
+        super.visit(jdbcParameter);
+        return;
       }
-      return params;
+      positions.add(buffer.length());
+      references.add(jdbcParameter.getIndex());
     }
   }
 }
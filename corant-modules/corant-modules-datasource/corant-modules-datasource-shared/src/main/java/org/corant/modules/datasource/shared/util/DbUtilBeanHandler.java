@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.datasource.shared.util;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.apache.commons.dbutils.ResultSetHandler;
+
+/**
+ * corant-modules-datasource-shared
+ *
+ * <p>
+ * A result set handler that maps the next row to a bean of the given class by
+ * {@link DbUtilBeanRowMapper}, returns null if there are no more rows, so it can be used for the
+ * single row query and the streaming query that handles the rows one by one. If the bean class is
+ * not supported by the row mapper, the row is mapped to a map by {@link DbUtilBasicRowProcessor}.
+ * The row mapper is resolved on the first row, so an instance should be used for only one result
+ * set.
+ *
+ * <p>
+ * Note: This class is not thread safe.
+ *
+ * @author bingo 下午4:37:25
+ *
+ */
+public class DbUtilBeanHandler implements ResultSetHandler<Object> {
+
+  protected final Class<?> beanClass;
+  protected DbUtilBeanRowMapper<?> mapper;
+  protected boolean resolved;
+
+  public DbUtilBeanHandler(Class<?> beanClass) {
+    this.beanClass = beanClass;
+  }
+
+  @Override
+  public Object handle(ResultSet rs) throws SQLException {
+    if (!rs.next()) {
+      return null;
+    }
+    if (!resolved) {
+      mapper = DbUtilBeanRowMapper.of(beanClass, rs.getMetaData());
+      resolved = true;
+    }
+    return mapper != null ? mapper.map(rs) : DbUtilBasicRowProcessor.INST.toMap(rs);
+  }
+}
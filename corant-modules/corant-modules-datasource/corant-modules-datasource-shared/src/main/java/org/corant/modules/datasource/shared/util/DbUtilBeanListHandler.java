@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.datasource.shared.util;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.dbutils.ResultSetHandler;
+
+/**
+ * corant-modules-datasource-shared
+ *
+ * <p>
+ * A result set handler that maps the rows to the beans of the given class by
+ * {@link DbUtilBeanRowMapper}, if the bean class is not supported by the row mapper, the rows are
+ * mapped to maps by {@link DbUtilBasicRowProcessor}.
+ *
+ * @author bingo 下午4:02:36
+ *
+ */
+public class DbUtilBeanListHandler implements ResultSetHandler<List<Object>> {
+
+  protected final Class<?> beanClass;
+
+  public DbUtilBeanListHandler(Class<?> beanClass) {
+    this.beanClass = beanClass;
+  }
+
+  @Override
+  public List<Object> handle(ResultSet rs) throws SQLException {
+    List<Object> rows = new ArrayList<>();
+    DbUtilBeanRowMapper<?> mapper = DbUtilBeanRowMapper.of(beanClass, rs.getMetaData());
+    if (mapper != null) {
+      while (rs.next()) {
+        rows.add(mapper.map(rs));
+      }
+    } else {
+      while (rs.next()) {
+        rows.add(DbUtilBasicRowProcessor.INST.toMap(rs));
+      }
+    }
+    return rows;
+  }
+}
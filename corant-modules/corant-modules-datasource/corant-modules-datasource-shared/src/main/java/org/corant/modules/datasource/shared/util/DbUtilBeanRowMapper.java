@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.datasource.shared.util;
+
+import static org.corant.shared.util.Empties.isEmpty;
+import static org.corant.shared.util.Primitives.wrap;
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.corant.shared.conversion.Converter;
+import org.corant.shared.conversion.Converters;
+import org.corant.shared.exception.CorantRuntimeException;
+import org.corant.shared.util.Conversions;
+
+/**
+ * corant-modules-datasource-shared
+ *
+ * <p>
+ * A row mapper that maps the current row of the result set to a java bean directly, without the
+ * intermediate map. The mapper is built for a given bean class and the result set metadata, the
+ * column labels are matched with the bean property names exactly (the same as converting the row
+ * map to the bean by Jackson), the unmatched columns are ignored. The field processor, the property
+ * writer (setter method handle or field method handle) and the value converter of each column are
+ * resolved once and the mappers are cached by the bean class and the columns signature, the
+ * mappers are held in a {@link ClassValue} so the cached mappers don't prevent the bean classes
+ * from being unloaded.
+ *
+ * <p>
+ * The bean properties are resolved like Jackson's default visibility: the setters of any
+ * visibility, the public fields and the fields with a public getter. If the bean class can't be
+ * instantiated by a no-arg constructor, or it uses Jackson annotations, then it is not supported
+ * and {@link #of(Class, ResultSetMetaData)} returns null, the caller should fall back to the map
+ * mode.
+ *
+ * @author bingo 下午3:48:12
+ *
+ */
+public class DbUtilBeanRowMapper<T> {
+
+  static final ClassValue<Optional<BeanMetadata>> beanMetadatas = new ClassValue<>() {
+    @Override
+    protected Optional<BeanMetadata> computeValue(Class<?> type) {
+      return Optional.ofNullable(BeanMetadata.resolve(type));
+    }
+  };
+
+  static volatile ClassValue<Map<String, DbUtilBeanRowMapper<?>>> mappers = newMappers();
+
+  protected final MethodHandle constructor;
+  protected final ColumnWriter[] writers;
+
+  protected DbUtilBeanRowMapper(MethodHandle constructor, ColumnWriter[] writers) {
+    this.constructor = constructor;
+    this.writers = writers;
+  }
+
+  /**
+   * Returns a row mapper for the given bean class and the result set metadata, or null if the bean
+   * class is not supported.
+   *
+   * @param <T> the bean type
+   * @param beanClass the bean class
+   * @param metaData the result set metadata
+   * @throws SQLException if a database access error occurs
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> DbUtilBeanRowMapper<T> of(Class<T> beanClass, ResultSetMetaData metaData)
+      throws SQLException {
+    Optional<BeanMetadata> bean = beanMetadatas.get(beanClass);
+    if (bean.isEmpty()) {
+      return null;
+    }
+    final int cols = metaData.getColumnCount();
+    final String[] labels = new String[cols];
+    final int[] types = new int[cols];
+    final StringBuilder signature = new StringBuilder();
+    for (int i = 1; i <= cols; i++) {
+      String label = metaData.getColumnLabel(i);
+      if (isEmpty(label)) {
+        label = metaData.getColumnName(i);
+      }
+      labels[i - 1] = label;
+      types[i - 1] = metaData.getColumnType(i);
+      signature.append(label).append(':').append(types[i - 1]).append(',');
+    }
+    return (DbUtilBeanRowMapper<T>) mappers.get(beanClass)
+        .computeIfAbsent(signature.toString(), k -> build(bean.get(), labels, types));
+  }
+
+  /**
+   * Clear the cached mappers
+   */
+  public static void clear() {
+    mappers = newMappers();
+  }
+
+  static DbUtilBeanRowMapper<?> build(BeanMetadata bean, String[] labels, int[] types) {
+    List<ColumnWriter> writers = new ArrayList<>(labels.length);
+    for (int i = 0; i < labels.length; i++) {
+      BeanProperty property = bean.properties.get(labels[i]);
+      if (property != null) {
+        DbUtilBasicFieldProcessor processor = null;
+        for (DbUtilBasicFieldProcessor fp : DbUtilBasicRowProcessor.FIELD_PROCESSORS) {
+          if (fp.supports(labels[i], types[i])) {
+            processor = fp;
+            break;
+          }
+        }
+        writers.add(new ColumnWriter(i + 1, processor, property));
+      }
+    }
+    return new DbUtilBeanRowMapper<>(bean.constructor, writers.toArray(ColumnWriter[]::new));
+  }
+
+  static ClassValue<Map<String, DbUtilBeanRowMapper<?>>> newMappers() {
+    return new ClassValue<>() {
+      @Override
+      protected Map<String, DbUtilBeanRowMapper<?>> computeValue(Class<?> type) {
+        return new ConcurrentHashMap<>();
+      }
+    };
+  }
+
+  /**
+   * Map the current row of the given result set to a bean.
+   *
+   * @param rs the result set
+   * @throws SQLException if a database access error occurs
+   */
+  @SuppressWarnings("unchecked")
+  public T map(ResultSet rs) throws SQLException {
+    final Object bean;
+    try {
+      bean = constructor.invoke();
+    } catch (Throwable e) {
+      throw new CorantRuntimeException(e);
+    }
+    for (ColumnWriter writer : writers) {
+      writer.write(rs, bean);
+    }
+    return (T) bean;
+  }
+
+  /**
+   * corant-modules-datasource-shared
+   *
+   * @author bingo 下午3:51:26
+   *
+   */
+  static class BeanMetadata {
+    final MethodHandle constructor;
+    final Map<String, BeanProperty> properties;
+
+    BeanMetadata(MethodHandle constructor, Map<String, BeanProperty> properties) {
+      this.constructor = constructor;
+      this.properties = properties;
+    }
+
+    static boolean hasJacksonAnnotation(AccessibleObject object) {
+      for (Annotation annotation : object.getAnnotations()) {
+        if (annotation.annotationType().getName().startsWith("com.fasterxml.jackson")) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    static String propertyName(String methodName, int prefixLength) {
+      // the same as Jackson's legacy property name mangling
+      String name = methodName.substring(prefixLength);
+      int i = 0;
+      while (i < name.length() && Character.isUpperCase(name.charAt(i))) {
+        i++;
+      }
+      return name.substring(0, i).toLowerCase() + name.substring(i);
+    }
+
+    static BeanMetadata resolve(Class<?> beanClass) {
+      if (beanClass.isInterface() || beanClass.isArray() || beanClass.isPrimitive()
+          || Modifier.isAbstract(beanClass.getModifiers())
+          || beanClass.isMemberClass() && !Modifier.isStatic(beanClass.getModifiers())) {
+        return null;
+      }
+      for (Annotation annotation : beanClass.getAnnotations()) {
+        if (annotation.annotationType().getName().startsWith("com.fasterxml.jackson")) {
+          return null;
+        }
+      }
+      try {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        Constructor<?> ctor = beanClass.getDeclaredConstructor();
+        ctor.setAccessible(true);
+        MethodHandle constructor = lookup.unreflectConstructor(ctor);
+        Map<String, BeanProperty> properties = new HashMap<>();
+        Map<String, Boolean> getters = new HashMap<>();
+        for (Class<?> c = beanClass; c != null && c != Object.class; c = c.getSuperclass()) {
+          for (Method method : c.getDeclaredMethods()) {
+            if (hasJacksonAnnotation(method)) {
+              return null;
+            }
+            if (Modifier.isStatic(method.getModifiers()) || method.isBridge()
+                || method.isSynthetic()) {
+              continue;
+            }
+            String mn = method.getName();
+            if (method.getParameterCount() == 1 && mn.length() > 3 && mn.startsWith("set")) {
+              String name = propertyName(mn, 3);
+              if (!properties.containsKey(name)) {
+                method.setAccessible(true);
+                properties.put(name, new BeanProperty(lookup.unreflect(method),
+                    method.getParameterTypes()[0]));
+              }
+            } else if (method.getParameterCount() == 0 && Modifier.isPublic(method.getModifiers())
+                && method.getReturnType() != void.class) {
+              if (mn.length() > 3 && mn.startsWith("get")) {
+                getters.put(propertyName(mn, 3), Boolean.TRUE);
+              } else if (mn.length() > 2 && mn.startsWith("is")) {
+                getters.put(propertyName(mn, 2), Boolean.TRUE);
+              }
+            }
+          }
+        }
+        for (Class<?> c = beanClass; c != null && c != Object.class; c = c.getSuperclass()) {
+          for (Field field : c.getDeclaredFields()) {
+            if (hasJacksonAnnotation(field)) {
+              return null;
+            }
+            int mod = field.getModifiers();
+            if (Modifier.isStatic(mod) || Modifier.isFinal(mod) || Modifier.isTransient(mod)
+                || field.isSynthetic() || properties.containsKey(field.getName())) {
+              continue;
+            }
+            if (Modifier.isPublic(mod) || getters.containsKey(field.getName())) {
+              field.setAccessible(true);
+              properties.put(field.getName(),
+                  new BeanProperty(lookup.unreflectSetter(field), field.getType()));
+            }
+          }
+        }
+        return new BeanMetadata(constructor, properties);
+      } catch (NoSuchMethodException | IllegalAccessException | RuntimeException e) {
+        return null;
+      }
+    }
+  }
+
+  /**
+   * corant-modules-datasource-shared
+   *
+   * @author bingo 下午3:53:40
+   *
+   */
+  static class BeanProperty {
+    final MethodHandle writer;
+    final Class<?> type;
+    final Class<?> wrappedType;
+
+    BeanProperty(MethodHandle writer, Class<?> type) {
+      this.writer = writer;
+      this.type = type;
+      wrappedType = wrap(type);
+    }
+  }
+
+  /**
+   * corant-modules-datasource-shared
+   *
+   * @author bingo 下午3:55:08
+   *
+   */
+  static class ColumnWriter {
+    final int index;
+    final DbUtilBasicFieldProcessor processor;
+    final BeanProperty property;
+    // the converter and its source class are published together
+    volatile ColumnConverter converter;
+
+    ColumnWriter(int index, DbUtilBasicFieldProcessor processor, BeanProperty property) {
+      this.index = index;
+      this.processor = processor;
+      this.property = property;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Object convert(Object value) {
+      if (property.wrappedType.isInstance(value)) {
+        return value;
+      }
+      final Class<?> valueClass = value.getClass();
+      ColumnConverter useConverter = converter;
+      if (useConverter == null || valueClass != useConverter.sourceClass) {
+        // resolve once for the column value class, the column value class is always the same
+        useConverter = new ColumnConverter(valueClass,
+            (Converter) Converters.lookup(valueClass, property.wrappedType).orElse(null));
+        converter = useConverter;
+      }
+      return useConverter.converter != null ? useConverter.converter.convert(value, null)
+          : Conversions.toObject(value, property.wrappedType);
+    }
+
+    void write(ResultSet rs, Object bean) throws SQLException {
+      Object value = processor != null ? processor.convert(rs, index) : rs.getObject(index);
+      if (value == null) {
+        if (property.type.isPrimitive()) {
+          return;
+        }
+      } else {
+        value = convert(value);
+      }
+      try {
+        property.writer.invoke(bean, value);
+      } catch (SQLException | RuntimeException e) {
+        throw e;
+      } catch (Throwable e) {
+        throw new CorantRuntimeException(e);
+      }
+    }
+  }
+
+  /**
+   * corant-modules-datasource-shared
+   *
+   * @author bingo 下午3:57:19
+   *
+   */
+  static class ColumnConverter {
+    final Class<?> sourceClass;
+    final Converter<Object, Object> converter;
+
+    ColumnConverter(Class<?> sourceClass, Converter<Object, Object> converter) {
+      this.sourceClass = sourceClass;
+      this.converter = converter;
+    }
+  }
+}
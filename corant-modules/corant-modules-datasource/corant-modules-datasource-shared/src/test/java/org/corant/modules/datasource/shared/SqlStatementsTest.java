@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.datasource.shared;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.corant.shared.ubiquity.Tuple.Pair;
+import org.junit.Test;
+import junit.framework.TestCase;
+import net.sf.jsqlparser.JSQLParserException;
+
+/**
+ * corant-modules-datasource-shared
+ *
+ * @author bingo 下午3:48:21
+ *
+ */
+public class SqlStatementsTest extends TestCase {
+
+  @Test
+  public void testCountStatementCache() throws Exception {
+    final String sql = "SELECT id, name FROM t_person WHERE name = ? ORDER BY id";
+    final List<String> aggregateFunctions = Arrays.asList("SUM", "AVG");
+    SqlStatementCache<List<Object>, String> cache = SqlStatements.getCountStatementCache();
+    long hits = cache.getHits();
+    String countSql = SqlStatements.resolveCountSql(sql, null, null, "t", aggregateFunctions);
+    assertThat(countSql).contains("COUNT(1)").doesNotContain("ORDER BY");
+    assertThat(cache.getHits()).isEqualTo(hits);
+    assertThat(SqlStatements.resolveCountSql(sql, null, null, "t", aggregateFunctions))
+        .isSameAs(countSql);
+    assertThat(cache.getHits()).isEqualTo(hits + 1);
+    // the count column expression is a part of the key
+    assertThat(SqlStatements.resolveCountSql(sql, "id", "cnt", "t", aggregateFunctions))
+        .contains("COUNT(id) cnt");
+    assertThat(cache.getHits()).isEqualTo(hits + 1);
+  }
+
+  @Test
+  public void testCountStatementCacheKeyIsolation() throws Exception {
+    final String sql = "SELECT id, code FROM t_order WHERE code = ? ORDER BY id";
+    final List<String> aggregateFunctions = new ArrayList<>(Arrays.asList("SUM"));
+    SqlStatementCache<List<Object>, String> cache = SqlStatements.getCountStatementCache();
+    String countSql = SqlStatements.resolveCountSql(sql, null, null, "t", aggregateFunctions);
+    // mutating the caller's collection doesn't corrupt the cached key
+    aggregateFunctions.add("AVG");
+    long hits = cache.getHits();
+    assertThat(SqlStatements.resolveCountSql(sql, null, null, "t", Arrays.asList("SUM")))
+        .isSameAs(countSql);
+    assertThat(cache.getHits()).isEqualTo(hits + 1);
+    // the parsing error is thrown as is
+    try {
+      SqlStatements.resolveCountSql("SELECT FROM WHERE", null, null, "t", aggregateFunctions);
+      fail();
+    } catch (JSQLParserException ex) {
+      assertThat(ex).isNotNull();
+    }
+  }
+
+  @Test
+  public void testParsedStatementSplice() {
+    final String namedSql = "SELECT * FROM t_person WHERE name = :name AND id IN (:ids)";
+    final String ordinarySql = "SELECT * FROM t_person WHERE name = ? AND id IN (?)";
+    SqlStatementCache<String, ?> cache = SqlStatements.getParsedStatementCache();
+    Map<String, Object> params = new HashMap<>();
+    params.put("name", "bingo");
+    params.put("ids", Arrays.asList(1, 2, 3));
+    Pair<String, Object[]> named = SqlStatements.normalize(namedSql, params);
+    assertThat(named.getLeft()).contains("name = ?").contains("IN (?,?,?)")
+        .doesNotContain(":");
+    assertThat(named.getRight()).containsExactly("bingo", 1, 2, 3);
+    Pair<String, Object[]> ordinary =
+        SqlStatements.normalize(ordinarySql, "bingo", Arrays.asList(1, 2, 3));
+    assertThat(ordinary.getLeft()).isEqualTo(named.getLeft());
+    assertThat(ordinary.getRight()).containsExactly(named.getRight());
+
+    // the cached template is spliced again with the different sizes of the collection
+    long hits = cache.getHits();
+    params.put("ids", new Integer[] {4, 5});
+    Pair<String, Object[]> again = SqlStatements.normalize(namedSql, params);
+    assertThat(cache.getHits()).isEqualTo(hits + 1);
+    assertThat(again.getLeft()).contains("IN (?,?)").doesNotContain("IN (?,?,?)");
+    assertThat(again.getRight()).containsExactly("bingo", 4, 5);
+    assertThat(SqlStatements.parse(namedSql).getParameterSize()).isEqualTo(2);
+  }
+
+  @Test
+  public void testSqlStatementCache() {
+    SqlStatementCache<String, String> cache = new SqlStatementCache<>(2);
+    AtomicInteger computations = new AtomicInteger();
+    assertThat(cache.get("a", k -> {
+      computations.incrementAndGet();
+      return k.toUpperCase();
+    })).isEqualTo("A");
+    assertThat(cache.get("a", k -> {
+      computations.incrementAndGet();
+      return k.toUpperCase();
+    })).isEqualTo("A");
+    assertThat(computations.get()).isEqualTo(1);
+    assertThat(cache.getHits()).isEqualTo(1);
+    assertThat(cache.getMisses()).isEqualTo(1);
+    // the null value is not cached
+    assertThat(cache.get("b", k -> null)).isNull();
+    assertThat(cache.getIfPresent("b")).isNull();
+    for (int i = 0; i < 10; i++) {
+      cache.put(String.valueOf(i), String.valueOf(i));
+    }
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.getEvictions()).isEqualTo(9);
+    cache.clear();
+    assertThat(cache.size()).isZero();
+
+    SqlStatementCache<String, String> disabled = new SqlStatementCache<>(0);
+    disabled.put("a", "A");
+    assertThat(disabled.getIfPresent("a")).isNull();
+    assertThat(disabled.get("a", String::toUpperCase)).isEqualTo("A");
+    assertThat(disabled.size()).isZero();
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.datasource.shared.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.corant.shared.exception.NotSupportedException;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-datasource-shared
+ *
+ * @author bingo 上午9:52:14
+ *
+ */
+public class DbUtilBeanRowMapperTest extends TestCase {
+
+  static final String[] LABELS = {"id", "name", "amount", "count", "unknown"};
+  static final int[] TYPES = {Types.INTEGER, Types.VARCHAR, Types.DOUBLE, Types.INTEGER,
+      Types.VARCHAR};
+
+  @Test
+  public void testBeanHandler() throws Exception {
+    ResultSet rs = resultSet(LABELS, TYPES, Arrays.asList(new Object[] {1, "a", 1.5d, 2, "x"},
+        new Object[] {2, "b", 2.5d, null, "y"}));
+    DbUtilBeanHandler handler = new DbUtilBeanHandler(Person.class);
+    Person first = (Person) handler.handle(rs);
+    Person second = (Person) handler.handle(rs);
+    assertThat(first.getId()).isEqualTo(1L);
+    assertThat(second.getId()).isEqualTo(2L);
+    assertThat(second.count).isEqualTo(-1);
+    assertThat(handler.handle(rs)).isNull();
+  }
+
+  @Test
+  public void testCache() throws Exception {
+    ResultSetMetaData metaData = resultSet(LABELS, TYPES, List.of()).getMetaData();
+    DbUtilBeanRowMapper<Person> mapper = DbUtilBeanRowMapper.of(Person.class, metaData);
+    assertThat(DbUtilBeanRowMapper.of(Person.class, metaData)).isSameAs(mapper);
+    // the columns signature is a part of the key
+    ResultSetMetaData other =
+        resultSet(new String[] {"id"}, new int[] {Types.BIGINT}, List.of()).getMetaData();
+    assertThat(DbUtilBeanRowMapper.of(Person.class, other)).isNotSameAs(mapper);
+    DbUtilBeanRowMapper.clear();
+    assertThat(DbUtilBeanRowMapper.of(Person.class, metaData)).isNotSameAs(mapper);
+  }
+
+  @Test
+  public void testMap() throws Exception {
+    ResultSet rs = resultSet(LABELS, TYPES, Arrays.asList(new Object[] {1, "a", 1.5d, 2, "x"},
+        new Object[] {2, null, null, null, null}));
+    DbUtilBeanRowMapper<Person> mapper = DbUtilBeanRowMapper.of(Person.class, rs.getMetaData());
+    assertThat(rs.next()).isTrue();
+    Person person = mapper.map(rs);
+    // the column values are converted to the property types
+    assertThat(person.getId()).isEqualTo(1L);
+    assertThat(person.name).isEqualTo("a");
+    assertThat(person.getAmount()).isEqualByComparingTo(new BigDecimal("1.5"));
+    assertThat(person.count).isEqualTo(2);
+    assertThat(rs.next()).isTrue();
+    person = mapper.map(rs);
+    assertThat(person.getId()).isEqualTo(2L);
+    assertThat(person.name).isNull();
+    assertThat(person.getAmount()).isNull();
+    // the null value of the primitive property is skipped
+    assertThat(person.count).isEqualTo(-1);
+  }
+
+  @Test
+  public void testUnsupportedBeans() throws Exception {
+    ResultSet rs = resultSet(LABELS, TYPES, Arrays.<Object[]>asList(new Object[] {1, "a", 1.5d,
+        2, "x"}));
+    assertThat(DbUtilBeanRowMapper.of(Immutable.class, rs.getMetaData())).isNull();
+    assertThat(DbUtilBeanRowMapper.of(Map.class, rs.getMetaData())).isNull();
+    // the unsupported rows are mapped to maps
+    Object row = new DbUtilBeanHandler(Immutable.class).handle(rs);
+    assertThat(row).isInstanceOf(Map.class);
+    assertThat(((Map<?, ?>) row).get("name")).isEqualTo("a");
+  }
+
+  ResultSet resultSet(String[] labels, int[] types, List<Object[]> rows) {
+    ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+        getClass().getClassLoader(), new Class<?>[] {ResultSetMetaData.class}, (p, m, args) -> {
+          switch (m.getName()) {
+            case "getColumnCount":
+              return labels.length;
+            case "getColumnLabel":
+            case "getColumnName":
+              return labels[(Integer) args[0] - 1];
+            case "getColumnType":
+              return types[(Integer) args[0] - 1];
+            default:
+              throw new NotSupportedException();
+          }
+        });
+    int[] cursor = {-1};
+    return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] {ResultSet.class}, (p, m, args) -> {
+          switch (m.getName()) {
+            case "next":
+              return ++cursor[0] < rows.size();
+            case "isClosed":
+              return false;
+            case "getMetaData":
+              return metaData;
+            case "getObject":
+              return rows.get(cursor[0])[(Integer) args[0] - 1];
+            default:
+              throw new NotSupportedException();
+          }
+        });
+  }
+
+  /**
+   * corant-modules-datasource-shared
+   *
+   * @author bingo 上午9:55:37
+   *
+   */
+  public static class Immutable {
+    final String name;
+
+    public Immutable(String name) {
+      this.name = name;
+    }
+  }
+
+  /**
+   * corant-modules-datasource-shared
+   *
+   * @author bingo 上午9:54:02
+   *
+   */
+  public static class Person {
+    public String name;
+    int count = -1;
+    private Long id;
+    private BigDecimal amount;
+
+    public BigDecimal getAmount() {
+      return amount;
+    }
+
+    public int getCount() {
+      return count;
+    }
+
+    public Long getId() {
+      return id;
+    }
+
+    public void setId(Long id) {
+      this.id = id;
+    }
+  }
+}
@@ -13,6 +13,7 @@
  */
 package org.corant.modules.ddd;
 
+import java.io.Serializable;
 import java.util.function.Consumer;
 import java.util.logging.Logger;
 
@@ -39,6 +40,19 @@ public interface MessageDispatcher extends Consumer<Message[]> {
     return DUMMY_INST;
   }
 
+  /**
+   * Dispatch the given messages with their deduplication ids, the deduplication ids correspond to
+   * the messages one to one. This is used when the messages may be dispatched more than once, for
+   * example relaying from the outbox, the implementation can pass the ids to the message broker or
+   * the consumers for deduplication. The default implementation ignores the ids.
+   *
+   * @param messages the messages to dispatch
+   * @param deduplicationIds the deduplication ids of the messages
+   */
+  default void accept(Message[] messages, Serializable[] deduplicationIds) {
+    accept(messages);
+  }
+
   default void prepare() {}
 
 }
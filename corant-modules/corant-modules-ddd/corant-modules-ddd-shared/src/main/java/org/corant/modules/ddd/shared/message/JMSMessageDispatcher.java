@@ -19,6 +19,8 @@ import static org.corant.shared.util.Assertions.shouldNotNull;
 import static org.corant.shared.util.Empties.isNotEmpty;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Serializable;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -33,6 +35,8 @@ import javax.enterprise.inject.literal.NamedLiteral;
 import javax.inject.Inject;
 import javax.jms.Destination;
 import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import javax.jms.JMSProducer;
 import javax.transaction.Transactional;
 import org.corant.modules.ddd.Message;
 import org.corant.modules.ddd.Message.BinaryMessage;
@@ -46,6 +50,7 @@ import org.corant.shared.exception.NotSupportedException;
 import org.corant.shared.service.RequiredConfiguration;
 import org.corant.shared.service.RequiredConfiguration.ValuePredicate;
 import org.corant.shared.ubiquity.Sortable;
+import org.corant.shared.ubiquity.Tuple.Pair;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 /**
@@ -86,32 +91,43 @@ public class JMSMessageDispatcher implements MessageDispatcher {
       defaultValue = JMSNames.MSG_MARSHAL_SCHEMA_ZIP_BINARY)
   protected String binaryMarshallerName;
 
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.deduplication-property",
+      defaultValue = "_AMQ_DUPL_ID")
+  protected String deduplicationProperty;
+
   protected MessageMarshaller marshaller;
 
   protected MessageMarshaller binaryMarshaller;
 
   @Override
   public void accept(Message[] messages) {
-    for (Message msg : messages) {
-      for (MessageDestinationMetaData dest : from(msg.getClass())) {
-        send(dest.getConnectionFactoryId(), dest.isMulticast(), dest.getName(),
-            dest.getProperties(), msg);
-      }
-    }
+    send(messages, null);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The deduplication id is set to the JMS message string property that named by the
+   * configuration property {@code corant.ddd.message.deduplication-property}, the default value
+   * is {@code _AMQ_DUPL_ID}, the duplicate detection property of ActiveMQ Artemis, the consumers
+   * can also use it to make the message handling idempotent.
+   */
+  @Override
+  public void accept(Message[] messages, Serializable[] deduplicationIds) {
+    send(messages, deduplicationIds);
   }
 
   public void send(String broker, boolean multicast, String destination,
       Map<String, Object> properties, Message message) {
+    send(broker, multicast, destination, properties, message, null);
+  }
+
+  public void send(String broker, boolean multicast, String destination,
+      Map<String, Object> properties, Message message, Serializable deduplicationId) {
     JMSContext ctx = obtainJmsContext(broker);
-    final Destination dest = resolveDestination(message, ctx, multicast, destination);
-    logger.finer(() -> String.format("Resolved JMS message destination %s for domain message %s",
-        dest, message.getClass()));
-    final javax.jms.Message jmsMsg = createJMSMessage(ctx, message);
-    if (isNotEmpty(properties)) {
-      properties.forEach(uncheckedBiConsumer(jmsMsg::setObjectProperty));
-    }
-    onPreDispatch(jmsMsg);
-    ctx.createProducer().send(dest, jmsMsg);
+    send(ctx, ctx.createProducer(), multicast, destination, properties, message,
+        deduplicationId);
   }
 
   protected Destination createDestination(JMSContext ctx, boolean multicast, String destination) {
@@ -181,4 +197,50 @@ public class JMSMessageDispatcher implements MessageDispatcher {
     }
     return createDestination(ctx, multicast, destination);
   }
+
+  /**
+   * Send the given messages as a batch, the JMS context and the producer are obtained once per
+   * broker and reused for all messages of the batch, since this dispatcher is transactional the
+   * messages are sent in the same transaction and are committed once per batch.
+   *
+   * @param messages the messages to send
+   * @param deduplicationIds the deduplication ids of the messages, may be null
+   */
+  protected void send(Message[] messages, Serializable[] deduplicationIds) {
+    final Map<String, Pair<JMSContext, JMSProducer>> producers = new HashMap<>();
+    for (int i = 0; i < messages.length; i++) {
+      final Message msg = messages[i];
+      final Serializable deduplicationId = deduplicationIds == null ? null : deduplicationIds[i];
+      for (MessageDestinationMetaData dest : from(msg.getClass())) {
+        Pair<JMSContext, JMSProducer> producer =
+            producers.computeIfAbsent(dest.getConnectionFactoryId(), b -> {
+              JMSContext ctx = obtainJmsContext(b);
+              return Pair.of(ctx, ctx.createProducer());
+            });
+        send(producer.getLeft(), producer.getRight(), dest.isMulticast(), dest.getName(),
+            dest.getProperties(), msg, deduplicationId);
+      }
+    }
+  }
+
+  protected void send(JMSContext ctx, JMSProducer producer, boolean multicast,
+      String destination, Map<String, Object> properties, Message message,
+      Serializable deduplicationId) {
+    final Destination dest = resolveDestination(message, ctx, multicast, destination);
+    logger.finer(() -> String.format("Resolved JMS message destination %s for domain message %s",
+        dest, message.getClass()));
+    final javax.jms.Message jmsMsg = createJMSMessage(ctx, message);
+    if (isNotEmpty(properties)) {
+      properties.forEach(uncheckedBiConsumer(jmsMsg::setObjectProperty));
+    }
+    if (deduplicationId != null) {
+      try {
+        jmsMsg.setStringProperty(deduplicationProperty, deduplicationId.toString());
+      } catch (JMSException e) {
+        throw new CorantRuntimeException(e);
+      }
+    }
+    onPreDispatch(jmsMsg);
+    producer.send(dest, jmsMsg);
+  }
 }
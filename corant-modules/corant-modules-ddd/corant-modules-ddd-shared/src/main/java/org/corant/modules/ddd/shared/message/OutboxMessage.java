@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.ddd.shared.message;
+
+import java.io.Serializable;
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+import org.corant.modules.ddd.Aggregate.AggregateIdentifier;
+import org.corant.modules.ddd.Message;
+import org.corant.shared.util.Serializations;
+
+/**
+ * corant-modules-ddd-shared
+ *
+ * <p>
+ * The outbox message entity, the domain messages are serialized and persisted to the outbox table
+ * in the same local transaction as the business entities, and then are relayed to the message
+ * broker by the {@link OutboxMessageRelay} after the transaction is committed.
+ *
+ * <p>
+ * The identifier is generated by the snowflake identifier generator, it is used to order the
+ * messages of the same aggregate and as the deduplication id when dispatching.
+ *
+ * <p>
+ * The relays claim the messages by leasing them, the lease owner and the lease expiry are set when
+ * a relay claims the message and are cleared when the relay completes it, a message whose lease
+ * has expired can be claimed by another relay. A message that fails to dispatch the maximum
+ * attempts is marked as dead lettered, it is no longer dispatched and is retained in the outbox
+ * for inspection.
+ *
+ * <p>
+ * Note: This entity class must be included in the persistence unit that the outbox table
+ * belongs to, generally the same persistence unit as the aggregates.
+ *
+ * @author bingo 下午2:18:40
+ *
+ */
+@Entity
+@Table(name = "ct_ddd_outbox_message",
+    indexes = {@Index(name = "ix_ct_ddd_outbox_message_nt", columnList = "next_dispatch_time"),
+        @Index(name = "ix_ct_ddd_outbox_message_ak", columnList = "aggregate_key"),
+        @Index(name = "ix_ct_ddd_outbox_message_lo", columnList = "lease_owner")})
+public class OutboxMessage implements Serializable {
+
+  private static final long serialVersionUID = -2413460785542207512L;
+
+  @Id
+  private Long id;
+
+  @Column(name = "aggregate_key", length = 512)
+  private String aggregateKey;
+
+  @Column(name = "message_type", length = 512)
+  private String messageType;
+
+  @Lob
+  @Basic(fetch = FetchType.EAGER)
+  @Column(name = "payload")
+  private byte[] payload;
+
+  @Column(name = "created_time")
+  private long createdTime;
+
+  @Column(name = "next_dispatch_time")
+  private long nextDispatchTime;
+
+  @Column(name = "attempts")
+  private int attempts;
+
+  @Column(name = "lease_owner", length = 64)
+  private String leaseOwner;
+
+  @Column(name = "lease_expiry")
+  private long leaseExpiry;
+
+  @Column(name = "dead_lettered")
+  private boolean deadLettered;
+
+  public OutboxMessage(Long id, Message message, Object source) {
+    this.id = id;
+    if (source instanceof AggregateIdentifier) {
+      AggregateIdentifier ai = (AggregateIdentifier) source;
+      aggregateKey = ai.getType() + "#" + ai.getId();
+    }
+    messageType = message.getClass().getName();
+    payload = Serializations.serialize(message);
+    createdTime = System.currentTimeMillis();
+    nextDispatchTime = createdTime;
+  }
+
+  protected OutboxMessage() {}
+
+  /**
+   * Returns the aggregate key of the message, the messages with the same aggregate key are
+   * dispatched in the order of their identifiers; returns null if the message is not raised by an
+   * aggregate.
+   */
+  public String getAggregateKey() {
+    return aggregateKey;
+  }
+
+  /**
+   * Returns the number of the failed dispatching attempts
+   */
+  public int getAttempts() {
+    return attempts;
+  }
+
+  public long getCreatedTime() {
+    return createdTime;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  /**
+   * Returns the time (epoch milliseconds) the lease of the message expires, 0 if not leased.
+   */
+  public long getLeaseExpiry() {
+    return leaseExpiry;
+  }
+
+  /**
+   * Returns the owner of the lease, that is the relay round that claimed the message; returns null
+   * if the message is not leased.
+   */
+  public String getLeaseOwner() {
+    return leaseOwner;
+  }
+
+  public String getMessageType() {
+    return messageType;
+  }
+
+  /**
+   * Returns the next time (epoch milliseconds) the message can be dispatched.
+   */
+  public long getNextDispatchTime() {
+    return nextDispatchTime;
+  }
+
+  /**
+   * Returns the ordering key of the message, the messages with the same ordering key are
+   * dispatched in order.
+   */
+  public String getOrderingKey() {
+    return aggregateKey != null ? aggregateKey : String.valueOf(id);
+  }
+
+  /**
+   * Returns whether the message has failed the maximum dispatching attempts and is no longer
+   * dispatched.
+   */
+  public boolean isDeadLettered() {
+    return deadLettered;
+  }
+
+  /**
+   * Deserialize and returns the domain message
+   */
+  public Message toMessage() {
+    return (Message) Serializations.deserialize(payload);
+  }
+
+  @Override
+  public String toString() {
+    return "OutboxMessage [id=" + id + ", aggregateKey=" + aggregateKey + ", messageType="
+        + messageType + ", attempts=" + attempts + ", deadLettered=" + deadLettered + "]";
+  }
+
+  /**
+   * Record a failed dispatching attempt and release the lease, returns true if the message has
+   * reached the maximum attempts and is dead lettered.
+   *
+   * @param nextDispatchTime the next time (epoch milliseconds) the message can be dispatched
+   * @param maxAttempts the maximum dispatching attempts
+   */
+  boolean onDispatchFailed(long nextDispatchTime, int maxAttempts) {
+    attempts++;
+    this.nextDispatchTime = nextDispatchTime;
+    leaseOwner = null;
+    leaseExpiry = 0;
+    if (attempts >= maxAttempts) {
+      deadLettered = true;
+    }
+    return deadLettered;
+  }
+
+}
@@ -0,0 +1,506 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.ddd.shared.message;
+
+import static org.corant.context.Beans.find;
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import org.corant.context.ContainerEvents.PostContainerStartedEvent;
+import org.corant.modules.ddd.Message;
+import org.corant.modules.ddd.MessageDispatcher;
+import org.corant.modules.ddd.shared.repository.EntityManagers;
+import org.corant.modules.jta.shared.TransactionService;
+import org.corant.shared.retry.BackoffStrategy;
+import org.corant.shared.retry.BackoffStrategy.BackoffAlgorithm;
+import org.corant.shared.retry.BackoffStrategy.BackoffStrategyBuilder;
+import org.corant.shared.util.Objects;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * corant-modules-ddd-shared
+ *
+ * <p>
+ * The outbox message relay, claims the outbox messages in batches and dispatches them to the
+ * {@link MessageDispatcher} in the background, the dispatched messages are removed from the
+ * outbox.
+ *
+ * <p>
+ * The messages are claimed by leasing: the relay selects the due messages that aren't leased and
+ * whose aggregates have no backed off or leased messages, and sets its lease on them with a
+ * conditional update, so each message is claimed by only one relay at a time and the relay can be
+ * enabled on every node. After claiming, the claimed messages of an aggregate that has an earlier
+ * message not claimed by this relay are released, so the messages of the same aggregate are
+ * dispatched in order even if the relays on different nodes claim them at the same time. The
+ * lease of a relay that died expires after {@code corant.ddd.message.outbox.relay.lease}, then the
+ * messages are claimed again by the other relays, the lease should be longer than the dispatching
+ * of a batch, otherwise a message may be dispatched by two relays.
+ *
+ * <p>
+ * The claimed messages are distributed to lanes by their ordering key (the aggregate key), so the
+ * messages of the same aggregate are dispatched in order in the same lane, and the lanes are
+ * dispatched in parallel, each lane dispatches its messages in chunks. If a chunk fails, the rest
+ * of the lane is dispatched message by message to isolate the failing messages, a failing message
+ * is backed off and the later messages of its aggregate are left to the next round to keep the
+ * order, the messages of the other aggregates are dispatched. A message that fails
+ * {@code corant.ddd.message.outbox.relay.max-attempts} times is dead lettered, it is retained in
+ * the outbox but no longer dispatched and no longer blocks the later messages of its aggregate.
+ *
+ * <p>
+ * The next batch is claimed only after the previous batch is completed, the relay claims the next
+ * batch immediately if the previous batch is full, otherwise it waits for the signal of the
+ * committed unit of work or the relay interval. The messages are delivered at least once, the
+ * outbox message id is passed to the message dispatcher as the deduplication id, whether the
+ * duplicates are discarded depends on the message broker (e.g. the duplicate detection of the
+ * ActiveMQ Artemis), the message consumers should be idempotent for the other brokers.
+ *
+ * <p>
+ * Note: The outbox is only used by the JTA resource local unit of work, and the outbox message
+ * entity must be in the same persistence unit as the aggregates.
+ *
+ * @author bingo 下午2:41:06
+ *
+ */
+@ApplicationScoped
+public class OutboxMessageRelay {
+
+  protected final Logger logger = Logger.getLogger(this.getClass().getName());
+  protected final Semaphore signals = new Semaphore(0);
+  protected final LongAdder dispatchedCounts = new LongAdder();
+  protected final LongAdder failedCounts = new LongAdder();
+  protected final LongAdder deadLetteredCounts = new LongAdder();
+  protected final AtomicLong rounds = new AtomicLong();
+  protected final String relayId = UUID.randomUUID().toString();
+
+  @Inject
+  protected EntityManagers entityManagers;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.enable", defaultValue = "false")
+  protected boolean enable;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.relay.enable", defaultValue = "true")
+  protected boolean relayEnable;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.relay.batch-size", defaultValue = "512")
+  protected int batchSize;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.relay.dispatch-size", defaultValue = "64")
+  protected int dispatchSize;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.relay.parallelism", defaultValue = "4")
+  protected int parallelism;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.relay.max-attempts", defaultValue = "16")
+  protected int maxAttempts;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.relay.lease", defaultValue = "PT5M")
+  protected Duration lease;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.relay.interval", defaultValue = "PT1S")
+  protected Duration interval;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.relay.backoff-base", defaultValue = "PT1S")
+  protected Duration backoffBase;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.relay.backoff-max", defaultValue = "PT5M")
+  protected Duration backoffMax;
+
+  @Inject
+  @ConfigProperty(name = "corant.ddd.message.outbox.relay.termination-timeout",
+      defaultValue = "PT5S")
+  protected Duration terminationTimeout;
+
+  protected volatile boolean running;
+  protected BackoffStrategy backoffStrategy;
+  protected ExecutorService relayer;
+  protected ExecutorService dispatchers;
+
+  /**
+   * Release the claimed messages whose aggregates have earlier messages not claimed by the relay,
+   * returns the identifiers of the released messages, the released messages are removed from the
+   * given claimed messages.
+   *
+   * @param claimed the claimed messages in the identifier order
+   * @param earliestUnclaimed the aggregate keys and the identifiers of their earliest messages
+   *        that aren't claimed by the relay
+   */
+  static List<Long> releaseUnordered(List<OutboxMessage> claimed,
+      Map<String, Long> earliestUnclaimed) {
+    List<Long> released = new ArrayList<>();
+    if (!earliestUnclaimed.isEmpty()) {
+      claimed.removeIf(m -> {
+        Long earliest =
+            m.getAggregateKey() == null ? null : earliestUnclaimed.get(m.getAggregateKey());
+        if (earliest != null && earliest < m.getId()) {
+          released.add(m.getId());
+          return true;
+        }
+        return false;
+      });
+    }
+    return released;
+  }
+
+  /**
+   * Returns the number of the dead lettered messages since started
+   */
+  public long getDeadLetteredCount() {
+    return deadLetteredCounts.sum();
+  }
+
+  /**
+   * Returns the number of the dispatched messages since started
+   */
+  public long getDispatchedCount() {
+    return dispatchedCounts.sum();
+  }
+
+  /**
+   * Returns the number of the failed dispatching messages since started
+   */
+  public long getFailedCount() {
+    return failedCounts.sum();
+  }
+
+  public boolean isEnable() {
+    return enable;
+  }
+
+  public boolean isRelayEnable() {
+    return relayEnable;
+  }
+
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * Signal the relay that there are new outbox messages, generally called after the unit of work
+   * committed.
+   */
+  public void signal() {
+    if (running && signals.availablePermits() == 0) {
+      signals.release();
+    }
+  }
+
+  /**
+   * Claim a batch of the due outbox messages for the given relay round, returns the claimed
+   * messages in the identifier order.
+   *
+   * @param owner the lease owner, the relay round
+   * @param now the current time
+   */
+  protected List<OutboxMessage> claim(String owner, long now) {
+    final EntityManager em = entityManagers.getEntityManager(OutboxMessage.class);
+    final Set<String> blocked = new HashSet<>(em.createQuery(
+        "SELECT DISTINCT o.aggregateKey FROM OutboxMessage o WHERE o.aggregateKey IS NOT NULL AND o.deadLettered = false AND (o.nextDispatchTime > :now OR o.leaseExpiry > :now)",
+        String.class).setParameter("now", now).getResultList());
+    final List<Long> ids = new ArrayList<>();
+    for (Object[] candidate : em.createQuery(
+        "SELECT o.id, o.aggregateKey FROM OutboxMessage o WHERE o.deadLettered = false AND o.nextDispatchTime <= :now AND o.leaseExpiry <= :now ORDER BY o.id",
+        Object[].class).setParameter("now", now).setMaxResults(batchSize).getResultList()) {
+      if (candidate[1] == null || !blocked.contains(candidate[1])) {
+        ids.add((Long) candidate[0]);
+      }
+    }
+    if (ids.isEmpty()) {
+      return new ArrayList<>();
+    }
+    final long expiry = now + lease.toMillis();
+    for (int i = 0; i < ids.size(); i += dispatchSize) {
+      // the lease expiry is checked again, so if several relays select the same messages at the
+      // same time, only one of them leases each message
+      em.createQuery(
+          "UPDATE OutboxMessage o SET o.leaseOwner = :owner, o.leaseExpiry = :expiry WHERE o.id IN :ids AND o.leaseExpiry <= :now")
+          .setParameter("owner", owner).setParameter("expiry", expiry)
+          .setParameter("ids", ids.subList(i, Math.min(i + dispatchSize, ids.size())))
+          .setParameter("now", now).executeUpdate();
+    }
+    final List<OutboxMessage> claimed = new ArrayList<>(em
+        .createQuery("SELECT o FROM OutboxMessage o WHERE o.leaseOwner = :owner ORDER BY o.id",
+            OutboxMessage.class)
+        .setParameter("owner", owner).getResultList());
+    final List<String> keys = claimed.stream().map(OutboxMessage::getAggregateKey)
+        .filter(Objects::isNotNull).distinct().collect(Collectors.toList());
+    final Map<String, Long> earliestUnclaimed = new HashMap<>();
+    for (int i = 0; i < keys.size(); i += dispatchSize) {
+      for (Object[] earliest : em.createQuery(
+          "SELECT o.aggregateKey, MIN(o.id) FROM OutboxMessage o WHERE o.aggregateKey IN :keys AND o.deadLettered = false AND (o.leaseOwner IS NULL OR o.leaseOwner <> :owner) GROUP BY o.aggregateKey",
+          Object[].class)
+          .setParameter("keys", keys.subList(i, Math.min(i + dispatchSize, keys.size())))
+          .setParameter("owner", owner).getResultList()) {
+        earliestUnclaimed.put((String) earliest[0], (Long) earliest[1]);
+      }
+    }
+    final List<Long> released = releaseUnordered(claimed, earliestUnclaimed);
+    for (int i = 0; i < released.size(); i += dispatchSize) {
+      em.createQuery(
+          "UPDATE OutboxMessage o SET o.leaseOwner = NULL, o.leaseExpiry = 0 WHERE o.id IN :ids")
+          .setParameter("ids", released.subList(i, Math.min(i + dispatchSize, released.size())))
+          .executeUpdate();
+    }
+    return claimed;
+  }
+
+  /**
+   * Complete the relay round, remove the dispatched messages, back off or dead letter the failed
+   * messages and release the leases of the rest claimed messages.
+   *
+   * @param owner the lease owner, the relay round
+   * @param dispatched the identifiers of the dispatched messages
+   * @param failed the failed messages
+   * @param now the time of the relay round
+   */
+  protected void complete(String owner, Queue<Long> dispatched, Queue<OutboxMessage> failed,
+      long now) {
+    final EntityManager em = entityManagers.getEntityManager(OutboxMessage.class);
+    final List<Long> ids = new ArrayList<>(dispatched);
+    for (int i = 0; i < ids.size(); i += dispatchSize) {
+      em.createQuery("DELETE FROM OutboxMessage o WHERE o.id IN :ids")
+          .setParameter("ids", ids.subList(i, Math.min(i + dispatchSize, ids.size())))
+          .executeUpdate();
+    }
+    for (OutboxMessage fm : failed) {
+      OutboxMessage om = em.find(OutboxMessage.class, fm.getId());
+      if (om != null && om.onDispatchFailed(
+          now + backoffStrategy.computeBackoffMillis(om.getAttempts()), maxAttempts)) {
+        deadLetteredCounts.increment();
+        logger.severe(() -> String.format(
+            "The outbox message %s failed %s attempts and is dead lettered.", om, maxAttempts));
+      }
+    }
+    em.flush();
+    em.createQuery(
+        "UPDATE OutboxMessage o SET o.leaseOwner = NULL, o.leaseExpiry = 0 WHERE o.leaseOwner = :owner")
+        .setParameter("owner", owner).executeUpdate();
+  }
+
+  /**
+   * Dispatch a lane of the messages in chunks, if a chunk fails the rest of the lane is dispatched
+   * message by message, the failing messages are collected to the given failed queue and the
+   * later messages of their ordering keys are skipped.
+   *
+   * @param dispatcher the message dispatcher
+   * @param lane the messages of the lane in the identifier order
+   * @param dispatched the identifiers of the dispatched messages
+   * @param failed the failed messages
+   */
+  protected void dispatch(MessageDispatcher dispatcher, List<OutboxMessage> lane,
+      Queue<Long> dispatched, Queue<OutboxMessage> failed) {
+    final int chunkSize = Math.max(dispatchSize, 1);
+    int i = 0;
+    for (; i < lane.size(); i += chunkSize) {
+      List<OutboxMessage> chunk = lane.subList(i, Math.min(i + chunkSize, lane.size()));
+      try {
+        send(dispatcher, chunk);
+      } catch (Exception e) {
+        logger.log(Level.FINE, e, () -> String.format(
+            "Dispatch outbox messages occurred error, isolate the messages %s.", chunk));
+        break;
+      }
+      chunk.forEach(m -> dispatched.add(m.getId()));
+      dispatchedCounts.add(chunk.size());
+    }
+    final Set<String> blocked = new HashSet<>();
+    for (; i < lane.size(); i++) {
+      final OutboxMessage message = lane.get(i);
+      if (blocked.contains(message.getOrderingKey())) {
+        continue;
+      }
+      try {
+        send(dispatcher, Collections.singletonList(message));
+        dispatched.add(message.getId());
+        dispatchedCounts.increment();
+      } catch (Exception e) {
+        blocked.add(message.getOrderingKey());
+        failed.add(message);
+        failedCounts.increment();
+        logger.log(Level.WARNING, e, () -> String.format(
+            "Dispatch outbox message occurred error, the message %s will be retried later.",
+            message));
+      }
+    }
+  }
+
+  protected void onPostContainerStarted(@Observes PostContainerStartedEvent e) {
+    if (enable && relayEnable) {
+      start();
+    } else if (enable) {
+      logger.info(() -> "The outbox message relay is disabled on this node, the outbox messages"
+          + " are relayed by the other nodes that enabled the relay.");
+    }
+  }
+
+  @PreDestroy
+  protected void onPreDestroy() {
+    stop();
+  }
+
+  /**
+   * Relay a batch of the outbox messages, returns the number of the claimed messages.
+   */
+  protected int relay() throws InterruptedException {
+    final long now = System.currentTimeMillis();
+    final String owner = relayId + "#" + rounds.incrementAndGet();
+    final List<OutboxMessage> messages =
+        TransactionService.actuator().requiresNew().get(() -> claim(owner, now));
+    if (messages.isEmpty()) {
+      return 0;
+    }
+    final MessageDispatcher dispatcher =
+        find(MessageDispatcher.class).orElse(MessageDispatcher.empty());
+    final Queue<Long> dispatched = new ConcurrentLinkedQueue<>();
+    final Queue<OutboxMessage> failed = new ConcurrentLinkedQueue<>();
+    try {
+      if (parallelism > 1) {
+        List<List<OutboxMessage>> lanes = new ArrayList<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+          lanes.add(new ArrayList<>());
+        }
+        for (OutboxMessage message : messages) {
+          lanes.get(Math.floorMod(message.getOrderingKey().hashCode(), parallelism))
+              .add(message);
+        }
+        List<Future<?>> futures = new ArrayList<>(parallelism);
+        for (List<OutboxMessage> lane : lanes) {
+          if (!lane.isEmpty()) {
+            futures.add(dispatchers.submit(() -> dispatch(dispatcher, lane, dispatched, failed)));
+          }
+        }
+        for (Future<?> future : futures) {
+          try {
+            future.get();
+          } catch (ExecutionException ex) {
+            logger.log(Level.WARNING, ex, () -> "Dispatch outbox messages occurred error!");
+          }
+        }
+      } else {
+        dispatch(dispatcher, messages, dispatched, failed);
+      }
+    } finally {
+      // always complete the round to release the leases of the messages that aren't dispatched
+      TransactionService.actuator().requiresNew()
+          .run(() -> complete(owner, dispatched, failed, now));
+    }
+    return messages.size();
+  }
+
+  protected void run() {
+    while (running) {
+      int loaded = 0;
+      try {
+        loaded = relay();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      } catch (Exception e) {
+        logger.log(Level.WARNING, e, () -> "Relay outbox messages occurred error!");
+      }
+      if (loaded < batchSize) {
+        try {
+          signals.tryAcquire(interval.toMillis(), TimeUnit.MILLISECONDS);
+          signals.drainPermits();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Send a chunk of the outbox messages with their identifiers as the deduplication ids.
+   *
+   * @param dispatcher the message dispatcher
+   * @param chunk the messages to send
+   */
+  protected void send(MessageDispatcher dispatcher, List<OutboxMessage> chunk) {
+    Message[] messages = new Message[chunk.size()];
+    Serializable[] ids = new Serializable[chunk.size()];
+    for (int j = 0; j < messages.length; j++) {
+      messages[j] = chunk.get(j).toMessage();
+      ids[j] = chunk.get(j).getId();
+    }
+    dispatcher.accept(messages, ids);
+  }
+
+  protected synchronized void start() {
+    if (!running) {
+      backoffStrategy = new BackoffStrategyBuilder().algorithm(BackoffAlgorithm.EXPO_EQUAL_JITTER)
+          .baseDuration(backoffBase).maxDuration(backoffMax).build();
+      dispatchers = Executors.newFixedThreadPool(Math.max(parallelism, 1));
+      relayer = Executors.newSingleThreadExecutor();
+      running = true;
+      relayer.execute(this::run);
+      logger.info(() -> String.format(
+          "Started outbox message relay %s, batch size %s, dispatch size %s, parallelism %s, max attempts %s, lease %s.",
+          relayId, batchSize, dispatchSize, parallelism, maxAttempts, lease));
+    }
+  }
+
+  protected synchronized void stop() {
+    if (running) {
+      running = false;
+      signals.release();
+      final long ms = terminationTimeout.toMillis();
+      try {
+        relayer.shutdown();
+        dispatchers.shutdown();
+        if (!relayer.awaitTermination(ms, TimeUnit.MILLISECONDS)
+            || !dispatchers.awaitTermination(ms, TimeUnit.MILLISECONDS)) {
+          logger.log(Level.WARNING, () -> "Terminate outbox message relay timeout!");
+        }
+      } catch (InterruptedException e) {
+        logger.log(Level.WARNING, e, () -> "Can not terminate outbox message relay.");
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
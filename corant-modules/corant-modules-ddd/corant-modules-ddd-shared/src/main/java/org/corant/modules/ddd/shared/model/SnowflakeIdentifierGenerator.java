@@ -14,8 +14,12 @@
 package org.corant.modules.ddd.shared.model;
 
 import static org.corant.context.Beans.findAnyway;
+import static org.corant.shared.util.Assertions.shouldNotNull;
 import static org.corant.shared.util.Strings.isNotBlank;
+import java.lang.reflect.Field;
 import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
@@ -44,18 +48,23 @@ public class SnowflakeIdentifierGenerator {
   public static final String IG_SF_WK_ID = "corant.identifier.generator.snowflake.worker-id";
   public static final String IG_SF_DC_ID = "corant.identifier.generator.snowflake.datacenter-id";
   public static final String IG_SF_DL_TM = "corant.identifier.generator.snowflake.delayed-timing";
+  public static final String IG_SF_BK_SZ = "corant.identifier.generator.snowflake.block-size";
   static Logger logger = Logger.getLogger(SnowflakeIdentifierGenerator.class.getName());
 
   final boolean retainEntitySelfId = Configs.getValue(IG_SF_RESI, Boolean.TYPE, false);
   final String entityIdPropertyName = Configs.getValue(IG_SF_EIPN, String.class, "id");
+  final Map<Class<?>, Field> entityIdFields = new ConcurrentHashMap<>();
 
   TimeService specTimeGenerator;
   GeneralSnowflakeUUIDGenerator generator;
 
   public long generate(Object object) {
-    if (retainEntitySelfId) {
-      Object id;
-      if (object != null && (id = Fields.getFieldValue(entityIdPropertyName, object)) != null) {
+    if (retainEntitySelfId && object != null) {
+      // the entity id field is resolved once per entity class
+      Field field =
+          entityIdFields.computeIfAbsent(object.getClass(), c -> resolveEntityIdField(object));
+      Object id = Fields.getFieldValue(field, object);
+      if (id != null) {
         return (Long) id;
       }
     }
@@ -71,21 +80,28 @@ public class SnowflakeIdentifierGenerator {
     int workerId = Configs.getValue(IG_SF_WK_ID, Integer.class, -1);
     String ip = Configs.getValue(IG_SF_WK_IP, String.class);
     long delayedTiming = Configs.getValue(IG_SF_DL_TM, Long.class, 16000L);
+    int blockSize = Configs.getValue(IG_SF_BK_SZ, Integer.class, 1);
     if (workerId >= 0) {
       if (dataCenterId >= 0) {
-        generator = new SnowflakeD5W5S12UUIDGenerator(dataCenterId, workerId, delayedTiming);
+        generator =
+            new SnowflakeD5W5S12UUIDGenerator(dataCenterId, workerId, delayedTiming, blockSize);
       } else {
-        generator = new SnowflakeW10S12UUIDGenerator(workerId, delayedTiming);
+        generator = new SnowflakeW10S12UUIDGenerator(workerId, delayedTiming, blockSize);
       }
     } else if (isNotBlank(ip)) {
-      generator = new SnowflakeIpv4HostUUIDGenerator(ip, delayedTiming);
+      generator = new SnowflakeIpv4HostUUIDGenerator(ip, delayedTiming, blockSize);
     } else {
-      generator = new SnowflakeIpv4HostUUIDGenerator(delayedTiming);
+      generator = new SnowflakeIpv4HostUUIDGenerator(delayedTiming, blockSize);
     }
     logger.info(
         () -> String.format("Create global identifier generator %s.", generator.description()));
   }
 
+  Field resolveEntityIdField(Object object) {
+    return shouldNotNull(Fields.getField(object, entityIdPropertyName),
+        "Can't find any field named %s in %s.", entityIdPropertyName, object.getClass());
+  }
+
   public interface TimeService extends Sortable {
     long get(Object entity, boolean useEpochSeconds);
   }
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.ddd.shared.repository;
+
+import static org.corant.shared.util.Classes.tryAsClass;
+import java.io.Serializable;
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import org.hibernate.Session;
+
+/**
+ * corant-modules-ddd-shared
+ *
+ * <p>
+ * Load the entities by multiple primary keys with the Hibernate multiple identifiers load access,
+ * the persistence context is checked before the missing entities are loaded with the batched
+ * queries. The Hibernate classes are only referenced in this class, so that the repositories work
+ * without Hibernate.
+ *
+ * @author bingo 下午7:42:16
+ *
+ */
+final class HibernateMultipleIdsLoader {
+
+  static final boolean PRESENT = tryAsClass("org.hibernate.Session") != null;
+
+  private HibernateMultipleIdsLoader() {}
+
+  /**
+   * Returns the entities in the order of the given primary keys, the element is null if the entity
+   * is not found, returns null if the given entity manager is not a Hibernate session.
+   *
+   * @param <T> the entity type
+   * @param em the entity manager
+   * @param entityClass the entity class
+   * @param ids the distinct primary keys
+   * @param batchSize the maximum number of the primary keys of each query
+   */
+  @SuppressWarnings("unchecked")
+  static <T> List<T> multiLoad(EntityManager em, Class<T> entityClass, List<?> ids,
+      int batchSize) {
+    final Session session;
+    try {
+      session = em.unwrap(Session.class);
+    } catch (PersistenceException e) {
+      return null;
+    }
+    return session.byMultipleIds(entityClass).enableSessionCheck(true).enableOrderedReturn(true)
+        .withBatchSize(batchSize).multiLoad((List<Serializable>) ids);
+  }
+}
@@ -14,22 +14,29 @@
 package org.corant.modules.ddd.shared.repository;
 
 import static org.corant.shared.util.Classes.tryAsClass;
+import static org.corant.shared.util.Conversions.toObject;
 import static org.corant.shared.util.Empties.isEmpty;
 import static org.corant.shared.util.Objects.defaultObject;
 import static org.corant.shared.util.Objects.forceCast;
 import static org.corant.shared.util.Sets.linkedHashSetOf;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import javax.persistence.Cache;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import javax.persistence.FlushModeType;
 import javax.persistence.LockModeType;
+import javax.persistence.PersistenceUnitUtil;
 import javax.persistence.Query;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.metamodel.EntityType;
+import org.corant.config.Configs;
 import org.corant.modules.ddd.Aggregate;
 import org.corant.modules.ddd.Aggregate.AggregateIdentifier;
 import org.corant.modules.ddd.Entity;
@@ -50,6 +57,15 @@ public interface JPARepository extends Repository<Query> {
 
   Logger logger = Logger.getLogger(JPARepository.class.getName());
 
+  /**
+   * The maximum number of the primary keys of each {@code IN} query use to load the entities in
+   * {@link #select(Class, Serializable...)}, default is 500, it should not exceed the maximum
+   * number of the elements of the {@code IN} list or the bind parameters of the database, for
+   * example 1000 for Oracle and 2100 for SQL Server.
+   */
+  int SELECT_BATCH_SIZE =
+      Configs.getValue("corant.ddd.repository.select-batch-size", Integer.class, 500);
+
   /**
    * {@link EntityManager#clear()}
    */
@@ -411,7 +427,23 @@ public interface JPARepository extends Repository<Query> {
   }
 
   /**
-   * Retrieves the entities by primary keys
+   * Retrieves the entities by primary keys, the entities are returned in the order of the given
+   * primary keys, the duplicated or not found primary keys are ignored.
+   *
+   * <p>
+   * If the entity has a single id attribute, the entities are loaded in batches, each batch loads
+   * at most {@link #SELECT_BATCH_SIZE} entities, instead of one
+   * {@link EntityManager#find(Class, Object)} per primary key. If the persistence provider is
+   * Hibernate, the Hibernate multiple identifiers load access is used, the instances that already
+   * loaded in the persistence context are returned from there without querying; otherwise the
+   * entities are loaded with the JPQL {@code IN} queries, the loaded instances are still the
+   * managed instances of the persistence context. Same as {@link EntityManager#find(Class, Object)}
+   * the {@code IN} queries don't flush the persistence context.
+   *
+   * <p>
+   * Note: Unlike {@link EntityManager#find(Class, Object)}, the JPQL {@code IN} queries bypass the
+   * second-level cache, the entities are always loaded from the database, use
+   * {@link #get(Class, Serializable)} for the entities that mostly hit the second-level cache.
    *
    * @param <T> the result type
    * @param entityClass the entity class
@@ -421,10 +453,36 @@ public interface JPARepository extends Repository<Query> {
   default <T> List<T> select(Class<T> entityClass, Serializable... ids) {
     if (isEmpty(ids)) {
       return new ArrayList<>();
-    } else {
-      return linkedHashSetOf(ids).stream().map(i -> get(entityClass, i)).filter(Objects::isNotNull)
+    }
+    final Set<Serializable> idSet = linkedHashSetOf(ids);
+    idSet.remove(null);
+    final EntityType<T> et = getEntityManager().getMetamodel().entity(entityClass);
+    if (idSet.size() < 2 || !et.hasSingleIdAttribute()) {
+      return idSet.stream().map(i -> get(entityClass, i)).filter(Objects::isNotNull)
           .collect(Collectors.toList());
     }
+    final Class<?> idClass = et.getIdType().getJavaType();
+    final List<Object> useIds = idSet.stream().map(i -> toObject(i, idClass))
+        .distinct().collect(Collectors.toList());
+    final EntityManager em = getEntityManager();
+    final int batchSize = Math.max(SELECT_BATCH_SIZE, 1);
+    if (HibernateMultipleIdsLoader.PRESENT) {
+      List<T> loaded = HibernateMultipleIdsLoader.multiLoad(em, entityClass, useIds, batchSize);
+      if (loaded != null) {
+        return loaded.stream().filter(Objects::isNotNull).collect(Collectors.toList());
+      }
+    }
+    final String ql = "SELECT e FROM " + et.getName() + " e WHERE e."
+        + et.getId(idClass).getName() + " IN :ids";
+    final PersistenceUnitUtil util = getEntityManagerFactory().getPersistenceUnitUtil();
+    final Map<Object, T> entities = new HashMap<>(useIds.size() << 1);
+    for (int i = 0; i < useIds.size(); i += batchSize) {
+      em.createQuery(ql, entityClass).setFlushMode(FlushModeType.COMMIT)
+          .setParameter("ids", useIds.subList(i, Math.min(i + batchSize, useIds.size())))
+          .getResultList().forEach(e -> entities.put(util.getIdentifier(e), e));
+    }
+    return useIds.stream().map(entities::get).filter(Objects::isNotNull)
+        .collect(Collectors.toList());
   }
 
   @SuppressWarnings("unchecked")
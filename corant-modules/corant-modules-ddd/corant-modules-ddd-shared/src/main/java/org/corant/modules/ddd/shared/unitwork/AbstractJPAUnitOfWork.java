@@ -18,9 +18,8 @@ import static java.util.Collections.unmodifiableList;
 import static java.util.Collections.unmodifiableMap;
 import static org.corant.shared.util.Assertions.shouldBeTrue;
 import static org.corant.shared.util.Maps.transformValue;
-import static org.corant.shared.util.Objects.areEqual;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
@@ -83,7 +82,7 @@ public abstract class AbstractJPAUnitOfWork implements UnitOfWork, EntityManager
   protected final Map<AggregateIdentifier, Pair<Integer, Lifecycle>> evolutionaryAggregates =
       new LinkedHashMap<>();
   protected final Map<Object, Object> registeredVariables = new LinkedHashMap<>();
-  protected final LinkedList<WrappedMessage> registeredMessages = new LinkedList<>();
+  protected final WrappedMessageQueue registeredMessages = new WrappedMessageQueue();
 
   protected volatile boolean activated;
 
@@ -109,10 +108,10 @@ public abstract class AbstractJPAUnitOfWork implements UnitOfWork, EntityManager
           AggregateIdentifier ai = new DefaultAggregateIdentifier(aggregate);
           registeredAggregates.remove(ai);
           evolutionaryAggregates.remove(ai);
-          registeredMessages.removeIf(e -> areEqual(e.getSource(), ai));
+          registeredMessages.removeSource(ai);
         }
       } else if (obj instanceof Message) {
-        registeredMessages.removeIf(um -> areEqual(obj, um.delegate));
+        registeredMessages.removeMessage(obj);
       } else if (obj instanceof Map.Entry<?, ?>) {
         Map.Entry<?, ?> p = (Map.Entry<?, ?>) obj;
         registeredVariables.remove(p.getKey());
@@ -158,12 +157,12 @@ public abstract class AbstractJPAUnitOfWork implements UnitOfWork, EntityManager
   }
 
   /**
-   * Message queue collected by the current unit of work.
+   * Message queue collected by the current unit of work, ordered by the raised time.
    *
-   * @return the registered messages
+   * @return a snapshot of the registered messages
    */
   public List<WrappedMessage> getMessages() {
-    return unmodifiableList(registeredMessages);
+    return unmodifiableList(new ArrayList<>(registeredMessages));
   }
 
   @Override
@@ -216,11 +215,11 @@ public abstract class AbstractJPAUnitOfWork implements UnitOfWork, EntityManager
             evolutionaryAggregates.put(ai, Pair.of(evos, al));
           }
           for (Message message : aggregate.extractMessages(true)) {
-            WrappedMessage.mergeToQueue(registeredMessages, new WrappedMessage(message, ai));
+            registeredMessages.merge(new WrappedMessage(message, ai));
           }
         }
       } else if (obj instanceof Message) {
-        WrappedMessage.mergeToQueue(registeredMessages, new WrappedMessage((Message) obj));
+        registeredMessages.merge(new WrappedMessage((Message) obj));
       } else if (obj instanceof Map.Entry<?, ?>) {
         Map.Entry<?, ?> p = (Map.Entry<?, ?>) obj;
         registeredVariables.put(p.getKey(), p.getValue());
@@ -243,13 +242,8 @@ public abstract class AbstractJPAUnitOfWork implements UnitOfWork, EntityManager
   }
 
   protected boolean extractMessages(LinkedList<WrappedMessage> messages) {
-    if (!registeredMessages.isEmpty()) {
-      registeredMessages.stream().sorted(Comparator.comparing(WrappedMessage::getRaisedTime))
-          .forEach(messages::offer);
-      registeredMessages.clear();
-      return true;
-    }
-    return false;
+    // the registered messages are already ordered by the raised time
+    return registeredMessages.drainTo(messages);
   }
 
   protected UnitOfWorksManager getManager() {
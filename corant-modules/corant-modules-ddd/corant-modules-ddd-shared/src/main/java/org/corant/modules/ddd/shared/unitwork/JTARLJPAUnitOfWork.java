@@ -16,10 +16,13 @@ package org.corant.modules.ddd.shared.unitwork;
 import static org.corant.shared.util.Empties.sizeOf;
 import static org.corant.shared.util.Objects.defaultObject;
 import java.util.LinkedList;
+import javax.persistence.EntityManager;
 import javax.transaction.Transaction;
+import org.corant.modules.ddd.Aggregate.AggregateIdentifier;
 import org.corant.modules.ddd.Message;
 import org.corant.modules.ddd.MessageStorage;
 import org.corant.modules.ddd.SagaService;
+import org.corant.modules.ddd.shared.message.OutboxMessage;
 import org.corant.shared.exception.CorantRuntimeException;
 
 /**
@@ -36,6 +39,11 @@ import org.corant.shared.exception.CorantRuntimeException;
  * This solution cannot guarantee full consistency, usually this solution is used with SAGA /LRA and
  * other finally consistent components.
  * </p>
+ * <p>
+ * If the outbox is enabled, the messages are persisted to the outbox table with the business
+ * entities in the same local transaction, and are relayed by the outbox message relay in the
+ * background after the transaction is committed, the messages are delivered at least once.
+ * </p>
  *
  * @author bingo 上午11:38:39
  *
@@ -45,11 +53,13 @@ public class JTARLJPAUnitOfWork extends AbstractJTAJPAUnitOfWork {
   protected final MessageStorage messageStorage;
   protected final SagaService sagaService; // FIXME Is it right to do so?
   protected final LinkedList<Message> storedMessages = new LinkedList<>();
+  protected final boolean useOutbox;
 
   protected JTARLJPAUnitOfWork(JTARLJPAUnitOfWorksManager manager, Transaction transaction) {
     super(manager, transaction);
     messageStorage = manager.getMessageStorage();
     sagaService = defaultObject(manager.getSagaService(), SagaService::empty);
+    useOutbox = manager.isUseOutbox();
     messageDispatcher.prepare();
     messageStorage.prepare();
     sagaService.prepare();
@@ -59,8 +69,14 @@ public class JTARLJPAUnitOfWork extends AbstractJTAJPAUnitOfWork {
   @Override
   public void complete(boolean success) {
     if (success) {
-      int messageSize = sizeOf(storedMessages);
-      messageDispatcher.accept(storedMessages.toArray(new Message[messageSize]));
+      if (useOutbox) {
+        if (!storedMessages.isEmpty()) {
+          getManager().getOutboxMessageRelay().signal();
+        }
+      } else {
+        int messageSize = sizeOf(storedMessages);
+        messageDispatcher.accept(storedMessages.toArray(new Message[messageSize]));
+      }
     }
     super.complete(success);
   }
@@ -88,15 +104,32 @@ public class JTARLJPAUnitOfWork extends AbstractJTAJPAUnitOfWork {
     extractMessages(messages);
     int cycles = MAX_CHANGES_ITERATIONS;
     WrappedMessage wm;
+    EntityManager outbox = null;
     while ((wm = messages.poll()) != null) {
       final Message msg = wm.delegate;
-      storedMessages.add(messageStorage.apply(msg));
+      final Message stored = messageStorage.apply(msg);
+      storedMessages.add(stored);
+      if (useOutbox) {
+        if (outbox == null) {
+          outbox = getEntityManager(getManager().getOutboxPersistenceContext());
+        }
+        if (wm.getSource() instanceof AggregateIdentifier) {
+          getManager().checkOutboxPersistenceContext(
+              ((AggregateIdentifier) wm.getSource()).getTypeCls());
+        }
+        outbox.persist(new OutboxMessage(getManager().getIdentifierGenerator().generate(null),
+            stored, wm.getSource()));
+      }
       sagaService.trigger(msg);// FIXME Is it right to do so?
       if (extractMessages(messages) && --cycles < 0) {
         throw new CorantRuntimeException(
             "Reach max changes iterations [%s], can't handle messages! ", MAX_CHANGES_ITERATIONS);
       }
     }
+    if (outbox != null) {
+      // the entity managers may have been flushed before the unit of work completion
+      outbox.flush();
+    }
   }
 
 }
@@ -14,9 +14,13 @@
 package org.corant.modules.ddd.shared.unitwork;
 
 import static org.corant.context.Beans.find;
+import static org.corant.shared.util.Assertions.shouldBeTrue;
+import static org.corant.shared.util.Assertions.shouldNotNull;
 import static org.corant.shared.util.Empties.isNotEmpty;
 import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -28,6 +32,7 @@ import javax.enterprise.event.Observes;
 import javax.enterprise.inject.Any;
 import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
+import javax.persistence.PersistenceContext;
 import javax.transaction.Transaction;
 import org.corant.context.ContainerEvents.PostContainerStartedEvent;
 import org.corant.modules.ddd.Message;
@@ -36,6 +41,10 @@ import org.corant.modules.ddd.MessageStorage;
 import org.corant.modules.ddd.SagaService;
 import org.corant.modules.ddd.annotation.InfrastructureServices;
 import org.corant.modules.ddd.shared.annotation.JTARL;
+import org.corant.modules.ddd.shared.message.OutboxMessage;
+import org.corant.modules.ddd.shared.message.OutboxMessageRelay;
+import org.corant.modules.ddd.shared.model.SnowflakeIdentifierGenerator;
+import org.corant.modules.ddd.shared.repository.EntityManagers;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 /**
@@ -45,6 +54,11 @@ import org.eclipse.microprofile.config.inject.ConfigProperty;
  * The JTA JPA unit of works manager, use for create and destroy the {@link JTARLJPAUnitOfWork}
  * provide the necessary message storage service and message dispatch service for the unit of work.
  * </p>
+ * <p>
+ * If the outbox is enabled ({@code corant.ddd.message.outbox.enable=true}), the unit of work
+ * persists the messages to the outbox in the same local transaction and the messages are relayed
+ * by the {@link OutboxMessageRelay} instead of being dispatched after the transaction completed.
+ * </p>
  *
  * @author bingo 下午2:14:21
  *
@@ -55,6 +69,7 @@ import org.eclipse.microprofile.config.inject.ConfigProperty;
 public class JTARLJPAUnitOfWorksManager extends AbstractJTAJPAUnitOfWorksManager {
 
   protected final ExecutorService dispatcher = Executors.newSingleThreadExecutor();
+  protected final Map<Class<?>, Boolean> outboxAggregateClasses = new ConcurrentHashMap<>();
 
   @Inject
   protected UnitOfWorks unitOfWorks;
@@ -75,6 +90,42 @@ public class JTARLJPAUnitOfWorksManager extends AbstractJTAJPAUnitOfWorksManager
   @ConfigProperty(name = "corant.ddd.unitofwork.use-rl.termination-timeout", defaultValue = "PT5S")
   protected Duration terminationTimeout;
 
+  @Inject
+  protected OutboxMessageRelay outboxMessageRelay;
+
+  @Inject
+  protected EntityManagers entityManagers;
+
+  @Inject
+  protected SnowflakeIdentifierGenerator identifierGenerator;
+
+  /**
+   * Check whether the given aggregate class and the outbox message entity are in the same
+   * persistence unit, otherwise the outbox messages can't be persisted in the same local
+   * transaction as the aggregate.
+   *
+   * @param aggregateClass the aggregate class that raised the messages
+   */
+  public void checkOutboxPersistenceContext(Class<?> aggregateClass) {
+    if (aggregateClass != null) {
+      outboxAggregateClasses.computeIfAbsent(aggregateClass, c -> {
+        PersistenceContext outbox = getOutboxPersistenceContext();
+        PersistenceContext pc = entityManagers.getPersistenceContext(c);
+        shouldBeTrue(pc != null && outbox.unitName().equals(pc.unitName()),
+            "The aggregate %s and the outbox message entity must be in the same persistence unit %s!",
+            c.getName(), outbox.unitName());
+        return Boolean.TRUE;
+      });
+    }
+  }
+
+  /**
+   * Returns the identifier generator use to generate the outbox message id
+   */
+  public SnowflakeIdentifierGenerator getIdentifierGenerator() {
+    return identifierGenerator;
+  }
+
   @Override
   public MessageDispatcher getMessageDispatcher() {
     return msgs -> dispatcher
@@ -85,10 +136,26 @@ public class JTARLJPAUnitOfWorksManager extends AbstractJTAJPAUnitOfWorksManager
     return messageStorage.isResolvable() ? messageStorage.get() : MessageStorage.empty();
   }
 
+  /**
+   * Returns the persistence context that the outbox message entity belongs to.
+   */
+  public PersistenceContext getOutboxPersistenceContext() {
+    return shouldNotNull(entityManagers.getPersistenceContext(OutboxMessage.class),
+        "Can't find the persistence unit that contains the outbox message entity!");
+  }
+
+  public OutboxMessageRelay getOutboxMessageRelay() {
+    return outboxMessageRelay;
+  }
+
   public SagaService getSagaService() {
     return sagaService.isResolvable() ? sagaService.get() : SagaService.empty();
   }
 
+  public boolean isUseOutbox() {
+    return outboxMessageRelay.isEnable();
+  }
+
   @Override
   protected JTARLJPAUnitOfWork buildUnitOfWork(Transaction transaction) {
     return new JTARLJPAUnitOfWork(this, transaction);
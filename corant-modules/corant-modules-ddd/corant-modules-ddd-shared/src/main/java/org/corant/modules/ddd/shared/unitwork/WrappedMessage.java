@@ -16,8 +16,6 @@ package org.corant.modules.ddd.shared.unitwork;
 import static org.corant.shared.util.Assertions.shouldNotNull;
 import static org.corant.shared.util.Objects.areEqual;
 import java.time.Instant;
-import java.util.Queue;
-import java.util.logging.Logger;
 import org.corant.modules.ddd.MergableMessage;
 import org.corant.modules.ddd.Message;
 
@@ -29,8 +27,6 @@ import org.corant.modules.ddd.Message;
  */
 final class WrappedMessage {
 
-  static final Logger logger = Logger.getLogger(WrappedMessage.class.getName());
-
   final Message delegate;
   final Instant wrappedTime;
   final Object source;
@@ -55,34 +51,6 @@ final class WrappedMessage {
         && areEqual(m.getSource(), o.getSource());
   }
 
-  public static void mergeToQueue(Queue<WrappedMessage> queue, WrappedMessage newMsg) {
-    if (newMsg.delegate instanceof MergableMessage) {
-      WrappedMessage oldMgbMsg = null;
-      for (WrappedMessage queMsg : queue) {
-        if (isCorrelated(queMsg, newMsg)) {
-          oldMgbMsg = queMsg;
-          break;
-        }
-      }
-      final MergableMessage older = oldMgbMsg == null ? null : (MergableMessage) oldMgbMsg.delegate;
-      final MergableMessage newer = (MergableMessage) newMsg.delegate;
-      if (older == null || !newer.canMerge(older)) {
-        logger.fine(() -> String.format("Enqueue message %s.", newer));
-        queue.add(newMsg);
-      } else {
-        logger.fine(() -> String.format("Remove message %s from queue.", older));
-        queue.remove(oldMgbMsg);
-        if (newer.merge(older).isValid()) {
-          logger.fine(() -> String.format("Merge message %s to %s and enqueue it.", older, newer));
-          queue.add(newMsg);
-        }
-      }
-    } else {
-      logger.fine(() -> String.format("Enqueue message %s.", newMsg.delegate));
-      queue.add(newMsg);
-    }
-  }
-
   public Message getDelegate() {
     return delegate;
   }
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.ddd.shared.unitwork;
+
+import static org.corant.shared.util.Objects.areEqual;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.logging.Logger;
+import org.corant.modules.ddd.MergableMessage;
+import org.corant.shared.ubiquity.Tuple.Pair;
+
+/**
+ * corant-modules-ddd-shared
+ *
+ * <p>
+ * The message queue of the unit of work, the messages are kept in a doubly linked list ordered by
+ * the raised time, the messages with the same raised time are kept in insertion order. Since the
+ * messages are raised in order in most cases, the new message is appended to the tail directly,
+ * otherwise it is inserted by walking backward from the tail.
+ *
+ * <p>
+ * The queue maintains the following indexes for the merging and removal:
+ * <ul>
+ * <li>The correlation index, the mergeable messages are indexed by the message class and the
+ * message source in insertion order, so the correlated message can be found without walking the
+ * queue, and the first inserted correlated message is picked to merge regardless of the raised
+ * time.</li>
+ * <li>The source index, use to remove the messages of an aggregate.</li>
+ * <li>The type index, use to remove the messages that equals the given message, only the messages
+ * with the same class are checked.</li>
+ * </ul>
+ *
+ * <p>
+ * Note: This class is not thread safe.
+ *
+ * @author bingo 下午4:21:37
+ *
+ */
+final class WrappedMessageQueue extends AbstractCollection<WrappedMessage> {
+
+  static final Logger logger = Logger.getLogger(WrappedMessageQueue.class.getName());
+
+  final Map<Pair<Class<?>, Object>, List<Node>> correlations = new HashMap<>();
+  final Map<Object, Set<Node>> sources = new HashMap<>();
+  final Map<Class<?>, Set<Node>> types = new HashMap<>();
+  Node head;
+  Node tail;
+  int size;
+
+  @Override
+  public void clear() {
+    correlations.clear();
+    sources.clear();
+    types.clear();
+    head = tail = null;
+    size = 0;
+  }
+
+  /**
+   * Move all messages to the given collection in order and clear this queue, returns false if
+   * this queue is empty.
+   *
+   * @param collection the collection receive the messages
+   */
+  public boolean drainTo(Collection<? super WrappedMessage> collection) {
+    if (size == 0) {
+      return false;
+    }
+    for (Node node = head; node != null; node = node.next) {
+      collection.add(node.message);
+    }
+    clear();
+    return true;
+  }
+
+  @Override
+  public Iterator<WrappedMessage> iterator() {
+    return new Iterator<>() {
+      Node next = head;
+
+      @Override
+      public boolean hasNext() {
+        return next != null;
+      }
+
+      @Override
+      public WrappedMessage next() {
+        if (next == null) {
+          throw new NoSuchElementException();
+        }
+        WrappedMessage message = next.message;
+        next = next.next;
+        return message;
+      }
+    };
+  }
+
+  /**
+   * Merge the given message to this queue. If the given message is mergeable and there is a
+   * correlated message in the queue, and the given message can merge the correlated message, then
+   * the correlated message is removed and the given message that merged the correlated message is
+   * enqueued if it is still valid; otherwise the given message is enqueued directly.
+   *
+   * @param newMsg the message to merge
+   */
+  public void merge(WrappedMessage newMsg) {
+    if (newMsg.delegate instanceof MergableMessage) {
+      final List<Node> correlated = correlations.get(correlationKey(newMsg));
+      final Node oldNode = correlated == null || correlated.isEmpty() ? null : correlated.get(0);
+      final MergableMessage older =
+          oldNode == null ? null : (MergableMessage) oldNode.message.delegate;
+      final MergableMessage newer = (MergableMessage) newMsg.delegate;
+      if (older == null || !newer.canMerge(older)) {
+        logger.fine(() -> String.format("Enqueue message %s.", newer));
+        link(newMsg);
+      } else {
+        logger.fine(() -> String.format("Remove message %s from queue.", older));
+        unlink(oldNode);
+        if (newer.merge(older).isValid()) {
+          logger.fine(() -> String.format("Merge message %s to %s and enqueue it.", older, newer));
+          link(newMsg);
+        }
+      }
+    } else {
+      logger.fine(() -> String.format("Enqueue message %s.", newMsg.delegate));
+      link(newMsg);
+    }
+  }
+
+  /**
+   * Remove all messages whose delegate equals the given message.
+   *
+   * @param message the message to remove
+   */
+  public void removeMessage(Object message) {
+    if (message != null) {
+      Set<Node> nodes = types.get(message.getClass());
+      if (nodes != null) {
+        for (Node node : new ArrayList<>(nodes)) {
+          if (areEqual(message, node.message.delegate)) {
+            unlink(node);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Remove all messages that raised by the given source.
+   *
+   * @param source the message source, generally is an aggregate identifier
+   */
+  public void removeSource(Object source) {
+    Set<Node> nodes = sources.get(source);
+    if (nodes != null) {
+      new ArrayList<>(nodes).forEach(this::unlink);
+    }
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  Pair<Class<?>, Object> correlationKey(WrappedMessage message) {
+    return Pair.of(message.delegate.getClass(), message.getSource());
+  }
+
+  void link(WrappedMessage message) {
+    final Node node = new Node(message);
+    Node prev = tail;
+    while (prev != null && prev.message.getRaisedTime().isAfter(message.getRaisedTime())) {
+      prev = prev.prev;
+    }
+    node.prev = prev;
+    node.next = prev == null ? head : prev.next;
+    if (node.next == null) {
+      tail = node;
+    } else {
+      node.next.prev = node;
+    }
+    if (prev == null) {
+      head = node;
+    } else {
+      prev.next = node;
+    }
+    size++;
+    sources.computeIfAbsent(message.getSource(), k -> new LinkedHashSet<>()).add(node);
+    types.computeIfAbsent(message.delegate.getClass(), k -> new LinkedHashSet<>()).add(node);
+    if (message.delegate instanceof MergableMessage) {
+      // keep the correlated messages in insertion order, the first inserted one is merged first
+      correlations.computeIfAbsent(correlationKey(message), k -> new ArrayList<>(2)).add(node);
+    }
+  }
+
+  void unlink(Node node) {
+    if (node.prev == null) {
+      head = node.next;
+    } else {
+      node.prev.next = node.next;
+    }
+    if (node.next == null) {
+      tail = node.prev;
+    } else {
+      node.next.prev = node.prev;
+    }
+    node.prev = node.next = null;
+    size--;
+    final WrappedMessage message = node.message;
+    removeIndex(sources, message.getSource(), node);
+    removeIndex(types, message.delegate.getClass(), node);
+    if (message.delegate instanceof MergableMessage) {
+      Pair<Class<?>, Object> key = correlationKey(message);
+      List<Node> correlated = correlations.get(key);
+      if (correlated != null && correlated.remove(node) && correlated.isEmpty()) {
+        correlations.remove(key);
+      }
+    }
+  }
+
+  <K> void removeIndex(Map<K, Set<Node>> index, K key, Node node) {
+    Set<Node> nodes = index.get(key);
+    if (nodes != null && nodes.remove(node) && nodes.isEmpty()) {
+      index.remove(key);
+    }
+  }
+
+  /**
+   * corant-modules-ddd-shared
+   *
+   * @author bingo 下午4:25:12
+   *
+   */
+  static final class Node {
+    final WrappedMessage message;
+    Node prev;
+    Node next;
+
+    Node(WrappedMessage message) {
+      this.message = message;
+    }
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.ddd.shared.message;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.corant.shared.util.Sets.setOf;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import org.corant.modules.ddd.Aggregate.AggregateIdentifier;
+import org.corant.modules.ddd.Message;
+import org.corant.modules.ddd.MessageDispatcher;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-ddd-shared
+ *
+ * @author bingo 上午11:26:53
+ *
+ */
+public class OutboxMessageRelayTest extends TestCase {
+
+  @Test
+  public void testDeadLetter() {
+    OutboxMessage message = message(1L, "A", "a1");
+    assertThat(message.onDispatchFailed(10L, 3)).isFalse();
+    assertThat(message.onDispatchFailed(20L, 3)).isFalse();
+    assertThat(message.onDispatchFailed(30L, 3)).isTrue();
+    assertThat(message.isDeadLettered()).isTrue();
+    assertThat(message.getAttempts()).isEqualTo(3);
+    assertThat(message.getNextDispatchTime()).isEqualTo(30L);
+    assertThat(message.getLeaseOwner()).isNull();
+    assertThat(message.getLeaseExpiry()).isZero();
+  }
+
+  @Test
+  public void testDispatchInChunks() {
+    OutboxMessageRelay relay = relay(2);
+    List<List<String>> sends = new ArrayList<>();
+    List<OutboxMessage> lane = Arrays.asList(message(1L, "A", "a1"), message(2L, "A", "a2"),
+        message(3L, "B", "b1"), message(4L, null, "c1"), message(5L, "A", "a3"));
+    Queue<Long> dispatched = new ConcurrentLinkedQueue<>();
+    Queue<OutboxMessage> failed = new ConcurrentLinkedQueue<>();
+    relay.dispatch(dispatcher(sends, new HashSet<>()), lane, dispatched, failed);
+    assertThat(dispatched).containsExactly(1L, 2L, 3L, 4L, 5L);
+    assertThat(failed).isEmpty();
+    assertThat(sends).containsExactly(Arrays.asList("a1", "a2"), Arrays.asList("b1", "c1"),
+        Arrays.asList("a3"));
+    assertThat(relay.getDispatchedCount()).isEqualTo(5);
+  }
+
+  @Test
+  public void testDispatchIsolatesFailures() {
+    OutboxMessageRelay relay = relay(2);
+    List<List<String>> sends = new ArrayList<>();
+    List<OutboxMessage> lane = Arrays.asList(message(1L, "A", "a1"), message(2L, "A", "a2"),
+        message(3L, "B", "b1"), message(4L, null, "c1"), message(5L, "A", "a3"),
+        message(6L, "B", "b2"));
+    Queue<Long> dispatched = new ConcurrentLinkedQueue<>();
+    Queue<OutboxMessage> failed = new ConcurrentLinkedQueue<>();
+    relay.dispatch(dispatcher(sends, setOf("a2")), lane, dispatched, failed);
+    // the later message of the aggregate A is left to the next round to keep the order
+    assertThat(dispatched).containsExactly(1L, 3L, 4L, 6L);
+    assertThat(failed).extracting(OutboxMessage::getId).containsExactly(2L);
+    assertThat(sends).containsExactly(Arrays.asList("a1"), Arrays.asList("b1"),
+        Arrays.asList("c1"), Arrays.asList("b2"));
+    assertThat(relay.getDispatchedCount()).isEqualTo(4);
+    assertThat(relay.getFailedCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testReleaseUnordered() {
+    List<OutboxMessage> claimed =
+        new ArrayList<>(Arrays.asList(message(1L, "A", "a1"), message(3L, "B", "b2"),
+            message(4L, "A", "a3"), message(5L, null, "c1"), message(6L, "C", "c2")));
+    Map<String, Long> earliestUnclaimed = new HashMap<>();
+    // the message 2 of the aggregate B is claimed by another relay, the message 8 of the
+    // aggregate C is later than the claimed messages
+    earliestUnclaimed.put("A", 2L);
+    earliestUnclaimed.put("B", 2L);
+    earliestUnclaimed.put("C", 8L);
+    List<Long> released = OutboxMessageRelay.releaseUnordered(claimed, earliestUnclaimed);
+    assertThat(released).containsExactly(3L, 4L);
+    assertThat(claimed).extracting(OutboxMessage::getId).containsExactly(1L, 5L, 6L);
+    assertThat(OutboxMessageRelay.releaseUnordered(claimed, new HashMap<>())).isEmpty();
+    assertThat(claimed).hasSize(3);
+  }
+
+  MessageDispatcher dispatcher(List<List<String>> sends, Set<String> failures) {
+    return messages -> {
+      List<String> names = Arrays.stream(messages).map(m -> ((TestMessage) m).name)
+          .collect(Collectors.toList());
+      if (names.stream().anyMatch(failures::contains)) {
+        throw new IllegalStateException("Dispatch failed " + names);
+      }
+      sends.add(names);
+    };
+  }
+
+  OutboxMessage message(Long id, String aggregate, String name) {
+    return new OutboxMessage(id, new TestMessage(name),
+        aggregate == null ? null : new TestAggregateIdentifier(aggregate));
+  }
+
+  OutboxMessageRelay relay(int dispatchSize) {
+    OutboxMessageRelay relay = new OutboxMessageRelay();
+    relay.dispatchSize = dispatchSize;
+    return relay;
+  }
+
+  /**
+   * corant-modules-ddd-shared
+   *
+   * @author bingo 上午11:31:08
+   *
+   */
+  static class TestAggregateIdentifier implements AggregateIdentifier {
+
+    private static final long serialVersionUID = 4387420566212930871L;
+
+    final String id;
+
+    TestAggregateIdentifier(String id) {
+      this.id = id;
+    }
+
+    @Override
+    public Serializable getId() {
+      return id;
+    }
+
+    @Override
+    public String getType() {
+      return "TestAggregate";
+    }
+  }
+
+  /**
+   * corant-modules-ddd-shared
+   *
+   * @author bingo 上午11:29:40
+   *
+   */
+  static class TestMessage implements Message {
+
+    private static final long serialVersionUID = -6207458361590313724L;
+
+    final String name;
+
+    TestMessage(String name) {
+      this.name = name;
+    }
+  }
+}
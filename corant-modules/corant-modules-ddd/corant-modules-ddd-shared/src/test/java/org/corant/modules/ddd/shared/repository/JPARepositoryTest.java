@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.ddd.shared.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.io.Serializable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+import javax.persistence.PersistenceUnitUtil;
+import javax.persistence.TypedQuery;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.persistence.metamodel.Type;
+import org.corant.shared.exception.NotSupportedException;
+import org.hibernate.MultiIdentifierLoadAccess;
+import org.hibernate.Session;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-ddd-shared
+ *
+ * @author bingo 下午7:55:03
+ *
+ */
+public class JPARepositoryTest extends TestCase {
+
+  @Test
+  public void testSelectByInQueries() {
+    Store store = new Store(1200, 5L, 600L);
+    List<Serializable> ids = new ArrayList<>(List.of(3L, 1L, 3L, 5L, 2L));
+    ids.add(null);
+    LongStream.rangeClosed(4, 1200).forEach(ids::add);
+    List<Item> items = store.repository().select(Item.class, ids.toArray(Serializable[]::new));
+    List<Long> expected = new ArrayList<>(List.of(3L, 1L, 2L));
+    LongStream.rangeClosed(4, 1200).filter(i -> i != 5L && i != 600L).forEach(expected::add);
+    // the results keep the order of the first occurrences, the duplicated and missing are ignored
+    assertThat(ids(items)).isEqualTo(expected);
+    assertThat(store.queriedBatches).hasSize(3);
+    assertThat(store.queriedBatches.get(0)).hasSize(JPARepository.SELECT_BATCH_SIZE);
+    assertThat(store.queriedBatches.stream().mapToInt(List::size).sum()).isEqualTo(1200);
+  }
+
+  @Test
+  public void testSelectByMultiLoad() {
+    Store store = new Store(10, 4L);
+    store.session = true;
+    List<Item> items = store.repository().select(Item.class, 9L, 4L, 1L, 9L, 12L, 2L);
+    assertThat(ids(items)).containsExactly(9L, 1L, 2L);
+    assertThat(store.sessionCheck).isTrue();
+    assertThat(store.multiLoadIds).containsExactly(9L, 4L, 1L, 12L, 2L);
+    assertThat(store.queriedBatches).isEmpty();
+  }
+
+  @Test
+  public void testSelectSingleId() {
+    Store store = new Store(10);
+    assertThat(ids(store.repository().select(Item.class, 7L, 7L, null))).containsExactly(7L);
+    assertThat(store.repository().select(Item.class, 11L)).isEmpty();
+    assertThat(store.repository().select(Item.class)).isEmpty();
+    assertThat(store.queriedBatches).isEmpty();
+  }
+
+  static List<Long> ids(List<Item> items) {
+    return items.stream().map(i -> i.id).collect(Collectors.toList());
+  }
+
+  @SuppressWarnings("unchecked")
+  static <T> T proxy(Class<T> cls, InvocationHandler handler) {
+    return (T) Proxy.newProxyInstance(JPARepositoryTest.class.getClassLoader(),
+        new Class<?>[] {cls}, handler);
+  }
+
+  /**
+   * corant-modules-ddd-shared
+   *
+   * @author bingo 下午7:57:31
+   *
+   */
+  static class Item {
+    final Long id;
+
+    Item(Long id) {
+      this.id = id;
+    }
+  }
+
+  /**
+   * corant-modules-ddd-shared
+   *
+   * <p>
+   * An in-memory entity store stands in for the persistence context, the {@code IN} queries
+   * return the found entities in the reverse order of the primary keys, so that the ordering is
+   * done by the repository.
+   *
+   * @author bingo 下午7:59:46
+   *
+   */
+  static class Store {
+    final Map<Long, Item> items = new LinkedHashMap<>();
+    final List<List<?>> queriedBatches = new ArrayList<>();
+    final List<Object> multiLoadIds = new ArrayList<>();
+    boolean session;
+    boolean sessionCheck;
+
+    Store(long size, Long... missingIds) {
+      LongStream.rangeClosed(1, size).forEach(i -> items.put(i, new Item(i)));
+      for (Long id : missingIds) {
+        items.remove(id);
+      }
+    }
+
+    EntityManager entityManager() {
+      SingularAttribute<?, ?> idAttribute = proxy(SingularAttribute.class, (p, m, args) -> {
+        if ("getName".equals(m.getName())) {
+          return "id";
+        }
+        throw new NotSupportedException();
+      });
+      Type<?> idType = proxy(Type.class, (p, m, args) -> {
+        if ("getJavaType".equals(m.getName())) {
+          return Long.class;
+        }
+        throw new NotSupportedException();
+      });
+      EntityType<?> entityType = proxy(EntityType.class, (p, m, args) -> {
+        switch (m.getName()) {
+          case "hasSingleIdAttribute":
+            return true;
+          case "getIdType":
+            return idType;
+          case "getId":
+            return idAttribute;
+          case "getName":
+            return "Item";
+          default:
+            throw new NotSupportedException();
+        }
+      });
+      Metamodel metamodel = proxy(Metamodel.class, (p, m, args) -> {
+        if ("entity".equals(m.getName())) {
+          return entityType;
+        }
+        throw new NotSupportedException();
+      });
+      PersistenceUnitUtil util = proxy(PersistenceUnitUtil.class, (p, m, args) -> {
+        if ("getIdentifier".equals(m.getName())) {
+          return ((Item) args[0]).id;
+        }
+        throw new NotSupportedException();
+      });
+      EntityManagerFactory emf = proxy(EntityManagerFactory.class, (p, m, args) -> {
+        if ("getPersistenceUnitUtil".equals(m.getName())) {
+          return util;
+        }
+        throw new NotSupportedException();
+      });
+      return proxy(EntityManager.class, (p, m, args) -> {
+        switch (m.getName()) {
+          case "getMetamodel":
+            return metamodel;
+          case "getEntityManagerFactory":
+            return emf;
+          case "find":
+            return items.get(args[1]);
+          case "createQuery":
+            return query();
+          case "unwrap":
+            if (session && args[0] == Session.class) {
+              return session();
+            }
+            throw new PersistenceException("Can't unwrap " + args[0]);
+          default:
+            throw new NotSupportedException();
+        }
+      });
+    }
+
+    TypedQuery<?> query() {
+      List<?>[] batch = new List<?>[1];
+      return proxy(TypedQuery.class, (p, m, args) -> {
+        switch (m.getName()) {
+          case "setFlushMode":
+            return p;
+          case "setParameter":
+            batch[0] = (List<?>) args[1];
+            queriedBatches.add(batch[0]);
+            return p;
+          case "getResultList":
+            List<Item> results = batch[0].stream().map(items::get).filter(i -> i != null)
+                .collect(Collectors.toList());
+            Collections.reverse(results);
+            return results;
+          default:
+            throw new NotSupportedException();
+        }
+      });
+    }
+
+    JPARepository repository() {
+      EntityManager em = entityManager();
+      return () -> em;
+    }
+
+    Session session() {
+      MultiIdentifierLoadAccess<?> access =
+          proxy(MultiIdentifierLoadAccess.class, (p, m, args) -> {
+        switch (m.getName()) {
+          case "enableSessionCheck":
+            sessionCheck = (Boolean) args[0];
+            return p;
+          case "enableOrderedReturn":
+          case "withBatchSize":
+            return p;
+          case "multiLoad":
+            // the ordered return of the multiple identifiers load access, null for the missing
+            multiLoadIds.addAll((List<?>) args[0]);
+            return ((List<?>) args[0]).stream().map(items::get).collect(Collectors.toList());
+          default:
+            throw new NotSupportedException();
+        }
+      });
+      return proxy(Session.class, (p, m, args) -> {
+        if ("byMultipleIds".equals(m.getName())) {
+          return access;
+        }
+        throw new NotSupportedException();
+      });
+    }
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.ddd.shared.unitwork;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.corant.modules.ddd.MergableMessage;
+import org.corant.modules.ddd.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * corant-modules-ddd-shared
+ *
+ * <p>
+ * Compares merging the messages of a unit of work into the indexed {@link WrappedMessageQueue}
+ * with merging them into a linked list by scanning for the correlated message and sorting the
+ * list on extraction, as the unit of work did before. Each invocation merges 10k messages raised
+ * by the given number of sources, half of the messages are mergeable.
+ *
+ * @author bingo 上午11:05:29
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WrappedMessageQueueBenchmark {
+
+  @Param({"10000"})
+  int messages;
+
+  @Param({"10", "1000"})
+  int sources;
+
+  WrappedMessage[] wrappedMessages;
+
+  public static void main(String... args) throws RunnerException {
+    new Runner(
+        new OptionsBuilder().include(WrappedMessageQueueBenchmark.class.getSimpleName()).build())
+            .run();
+  }
+
+  @Benchmark
+  public List<WrappedMessage> indexedQueue() {
+    WrappedMessageQueue queue = new WrappedMessageQueue();
+    for (WrappedMessage message : wrappedMessages) {
+      queue.merge(message);
+    }
+    List<WrappedMessage> extracted = new ArrayList<>(queue.size());
+    queue.drainTo(extracted);
+    return extracted;
+  }
+
+  @Benchmark
+  public List<WrappedMessage> linkedList() {
+    LinkedList<WrappedMessage> queue = new LinkedList<>();
+    for (WrappedMessage message : wrappedMessages) {
+      mergeToList(queue, message);
+    }
+    List<WrappedMessage> extracted = new ArrayList<>(queue.size());
+    queue.stream().sorted(Comparator.comparing(WrappedMessage::getRaisedTime))
+        .forEach(extracted::add);
+    queue.clear();
+    return extracted;
+  }
+
+  @Setup
+  public void setup() {
+    final Instant now = Instant.now();
+    wrappedMessages = new WrappedMessage[messages];
+    for (int i = 0; i < messages; i++) {
+      String source = "source-" + i % sources;
+      BenchmarkMessage message =
+          i % 2 == 0 ? new BenchmarkMergableMessage(i) : new BenchmarkMessage(i);
+      // a few messages are raised out of order
+      Instant raisedTime = now.plusMillis(i % 64 == 0 ? i - 32 : i);
+      wrappedMessages[i] = new WrappedMessage(message, raisedTime, source);
+    }
+  }
+
+  void mergeToList(LinkedList<WrappedMessage> queue, WrappedMessage newMsg) {
+    if (newMsg.delegate instanceof MergableMessage) {
+      WrappedMessage oldMgbMsg = null;
+      for (WrappedMessage queMsg : queue) {
+        if (WrappedMessage.isCorrelated(queMsg, newMsg)) {
+          oldMgbMsg = queMsg;
+          break;
+        }
+      }
+      final MergableMessage older = oldMgbMsg == null ? null : (MergableMessage) oldMgbMsg.delegate;
+      final MergableMessage newer = (MergableMessage) newMsg.delegate;
+      if (older == null || !newer.canMerge(older)) {
+        queue.add(newMsg);
+      } else {
+        queue.remove(oldMgbMsg);
+        if (newer.merge(older).isValid()) {
+          queue.add(newMsg);
+        }
+      }
+    } else {
+      queue.add(newMsg);
+    }
+  }
+
+  /**
+   * corant-modules-ddd-shared
+   *
+   * @author bingo 上午11:09:14
+   *
+   */
+  static class BenchmarkMergableMessage extends BenchmarkMessage implements MergableMessage {
+
+    private static final long serialVersionUID = -4021785541032926614L;
+
+    BenchmarkMergableMessage(int sequence) {
+      super(sequence);
+    }
+  }
+
+  /**
+   * corant-modules-ddd-shared
+   *
+   * @author bingo 上午11:08:52
+   *
+   */
+  static class BenchmarkMessage implements Message {
+
+    private static final long serialVersionUID = 6180385012653457105L;
+
+    final int sequence;
+
+    BenchmarkMessage(int sequence) {
+      this.sequence = sequence;
+    }
+  }
+}
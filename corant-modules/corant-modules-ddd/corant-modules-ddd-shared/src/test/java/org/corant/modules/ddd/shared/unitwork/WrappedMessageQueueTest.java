@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.ddd.shared.unitwork;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import org.corant.modules.ddd.MergableMessage;
+import org.corant.modules.ddd.Message;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-ddd-shared
+ *
+ * @author bingo 上午10:42:17
+ *
+ */
+public class WrappedMessageQueueTest extends TestCase {
+
+  static final Instant T0 = Instant.parse("2021-01-01T00:00:00Z");
+
+  @Test
+  public void testDrainTo() {
+    WrappedMessageQueue queue = new WrappedMessageQueue();
+    List<WrappedMessage> drained = new ArrayList<>();
+    assertThat(queue.drainTo(drained)).isFalse();
+    queue.merge(wrap(new NamedMessage("a"), 1, "s1"));
+    queue.merge(wrap(new CountMessage("c", 1), 2, "s1"));
+    assertThat(queue.drainTo(drained)).isTrue();
+    assertThat(names(drained)).containsExactly("a", "c");
+    assertThat(queue).isEmpty();
+    assertThat(queue.sources).isEmpty();
+    assertThat(queue.types).isEmpty();
+    assertThat(queue.correlations).isEmpty();
+  }
+
+  @Test
+  public void testInsertionOrdering() {
+    WrappedMessageQueue queue = new WrappedMessageQueue();
+    queue.merge(wrap(new NamedMessage("b"), 2, "s1"));
+    queue.merge(wrap(new NamedMessage("a"), 1, "s1"));
+    queue.merge(wrap(new NamedMessage("d"), 3, "s2"));
+    // the messages with the same raised time are kept in insertion order
+    queue.merge(wrap(new NamedMessage("a2"), 1, "s2"));
+    queue.merge(wrap(new NamedMessage("c"), 2, "s2"));
+    queue.merge(wrap(new NamedMessage("e"), 4, "s1"));
+    assertThat(names(queue)).containsExactly("a", "a2", "b", "c", "d", "e");
+    assertThat(queue).hasSize(6);
+  }
+
+  @Test
+  public void testMerge() {
+    WrappedMessageQueue queue = new WrappedMessageQueue();
+    CountMessage first = new CountMessage("c", 1);
+    queue.merge(wrap(first, 1, "s1"));
+    queue.merge(wrap(new NamedMessage("n"), 2, "s1"));
+    queue.merge(wrap(new CountMessage("c", 2), 3, "s2"));
+    CountMessage merged = new CountMessage("c", 3);
+    queue.merge(wrap(merged, 4, "s1"));
+    // the correlated message of the same class and source is removed and merged
+    assertThat(queue).hasSize(3);
+    assertThat(merged.count).isEqualTo(4);
+    assertThat(names(queue)).containsExactly("n", "c", "c");
+    assertThat(queue.iterator().next().getDelegate()).isInstanceOf(NamedMessage.class);
+    // the merged message that is no longer valid is discarded
+    queue.merge(wrap(new CountMessage("c", -4), 5, "s1"));
+    assertThat(queue).hasSize(2);
+    assertThat(queue.correlations).hasSize(1);
+    // the message that can't merge the correlated message is enqueued directly
+    CountMessage unmergeable = new CountMessage("c", 5);
+    unmergeable.mergeable = false;
+    queue.merge(wrap(unmergeable, 6, "s2"));
+    assertThat(queue).hasSize(3);
+    assertThat(queue.correlations.values().iterator().next()).hasSize(2);
+    // the first inserted correlated message is merged first
+    CountMessage last = new CountMessage("c", 1);
+    queue.merge(wrap(last, 7, "s2"));
+    assertThat(last.count).isEqualTo(3);
+    assertThat(queue).hasSize(3);
+  }
+
+  @Test
+  public void testRemove() {
+    WrappedMessageQueue queue = new WrappedMessageQueue();
+    queue.merge(wrap(new NamedMessage("a"), 1, "s1"));
+    queue.merge(wrap(new CountMessage("b", 1), 2, "s1"));
+    queue.merge(wrap(new NamedMessage("a"), 3, "s2"));
+    queue.merge(wrap(new NamedMessage("c"), 4, "s2"));
+    queue.merge(wrap(new CountMessage("d", 1), 5, "s2"));
+    queue.removeMessage(new NamedMessage("a"));
+    assertThat(names(queue)).containsExactly("b", "c", "d");
+    queue.removeSource("s2");
+    assertThat(names(queue)).containsExactly("b");
+    assertThat(queue.sources).containsOnlyKeys("s1");
+    assertThat(queue.types).containsOnlyKeys(CountMessage.class);
+    assertThat(queue.correlations).hasSize(1);
+    queue.removeSource("s1");
+    assertThat(queue).isEmpty();
+    assertThat(queue.head).isNull();
+    assertThat(queue.tail).isNull();
+    assertThat(queue.sources).isEmpty();
+    assertThat(queue.types).isEmpty();
+    assertThat(queue.correlations).isEmpty();
+    // the queue can be reused after removing all messages
+    queue.merge(wrap(new NamedMessage("e"), 1, "s1"));
+    assertThat(names(queue)).containsExactly("e");
+  }
+
+  List<String> names(Iterable<WrappedMessage> messages) {
+    List<String> names = new ArrayList<>();
+    for (WrappedMessage message : messages) {
+      Message delegate = message.getDelegate();
+      names.add(delegate instanceof CountMessage ? ((CountMessage) delegate).name
+          : ((NamedMessage) delegate).name);
+    }
+    return names;
+  }
+
+  WrappedMessage wrap(Message message, int seconds, Object source) {
+    return new WrappedMessage(message, T0.plusSeconds(seconds), source);
+  }
+
+  /**
+   * corant-modules-ddd-shared
+   *
+   * @author bingo 上午10:46:03
+   *
+   */
+  static class CountMessage implements MergableMessage {
+
+    private static final long serialVersionUID = 1416358209731402275L;
+
+    final String name;
+    int count;
+    boolean mergeable = true;
+
+    CountMessage(String name, int count) {
+      this.name = name;
+      this.count = count;
+    }
+
+    @Override
+    public boolean canMerge(MergableMessage other) {
+      return mergeable;
+    }
+
+    @Override
+    public boolean isValid() {
+      return count != 0;
+    }
+
+    @Override
+    public MergableMessage merge(MergableMessage other) {
+      count += ((CountMessage) other).count;
+      return this;
+    }
+  }
+
+  /**
+   * corant-modules-ddd-shared
+   *
+   * @author bingo 上午10:48:35
+   *
+   */
+  static class NamedMessage implements Message {
+
+    private static final long serialVersionUID = -1962730583957205338L;
+
+    final String name;
+
+    NamedMessage(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof NamedMessage && Objects.equals(name, ((NamedMessage) obj).name);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(name);
+    }
+  }
+}
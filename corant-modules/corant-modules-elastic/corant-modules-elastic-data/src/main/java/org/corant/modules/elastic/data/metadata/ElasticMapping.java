@@ -139,6 +139,21 @@ public class ElasticMapping implements Iterable<ElasticMapping> {
     return children.iterator();
   }
 
+  /**
+   * Convert elastic document to JSON source bytes. If this mapping has no join field, the document
+   * is serialized directly without the intermediate map; otherwise the document is converted by
+   * {@link #toMap(ElasticDocument)} to add the join field.
+   *
+   * @param doc the elastic document
+   * @return the JSON source bytes
+   */
+  public byte[] toJsonSource(ElasticDocument doc) {
+    if (getJoinFiledName() == null) {
+      return ElasticObjectMapper.toJsonBytes(doc);
+    }
+    return ElasticObjectMapper.toJsonBytes(toMap(doc));
+  }
+
   /**
    * Convert elastic document to map object.
    *
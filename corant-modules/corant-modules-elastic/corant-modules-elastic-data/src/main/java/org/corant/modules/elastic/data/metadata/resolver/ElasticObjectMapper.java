@@ -24,6 +24,7 @@ import java.util.Map;
 import java.util.TimeZone;
 import org.corant.shared.exception.CorantRuntimeException;
 import org.corant.shared.util.Primitives;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -92,6 +93,21 @@ public class ElasticObjectMapper {
     SIMPLE_TYPE_WRAPPER_MAP.put(type, clazz);
   }
 
+  /**
+   * Serialize the document to JSON bytes directly, the result is the same as serializing the map
+   * converted by {@link #toMap(Object)}, but without the intermediate map.
+   *
+   * @param document the document to serialize
+   * @return the JSON bytes
+   */
+  public static byte[] toJsonBytes(Object document) {
+    try {
+      return ESJOM.writeValueAsBytes(document);
+    } catch (JsonProcessingException e) {
+      throw new CorantRuntimeException(e);
+    }
+  }
+
   public static Map<String, Object> toMap(Object document) {
     if (document != null) {
       return ESJOM.convertValue(document, new TypeReference<Map<String, Object>>() {});
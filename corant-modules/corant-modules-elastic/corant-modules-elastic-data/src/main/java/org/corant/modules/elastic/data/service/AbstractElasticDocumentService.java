@@ -83,8 +83,13 @@ public abstract class AbstractElasticDocumentService implements ElasticDocumentS
       ElasticMapping mapping = resolveMapping(docCls);
       List<ElasticDocument> docs = entry.getValue();
       for (ElasticDocument doc : docs) {
-        requestBuilder.add(indexRequestBuilder(indexing.getName(), doc.getId(), doc.getRId(),
-            mapping.toMap(doc), false, 0L, null).request());
+        IndexRequestBuilder rb = getTransportClient()
+            .prepareIndex(indexing.getName(), Elastic6Constants.TYP_NME, doc.getId())
+            .setSource(mapping.toJsonSource(doc), XContentType.JSON);
+        if (isNotBlank(doc.getRId())) {
+          rb.setRouting(doc.getRId());
+        }
+        requestBuilder.add(rb.request());
       }
     }
     docMap.clear();
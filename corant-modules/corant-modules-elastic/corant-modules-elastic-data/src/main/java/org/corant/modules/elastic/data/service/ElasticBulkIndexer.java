@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.elastic.data.service;
+
+import static org.corant.shared.util.Assertions.shouldBeTrue;
+import static org.corant.shared.util.Assertions.shouldNotNull;
+import static org.corant.shared.util.Objects.max;
+import static org.corant.shared.util.Strings.isNotBlank;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.corant.modules.elastic.data.Elastic6Constants;
+import org.corant.modules.elastic.data.metadata.ElasticIndexing;
+import org.corant.modules.elastic.data.metadata.ElasticMapping;
+import org.corant.modules.elastic.data.model.ElasticDocument;
+import org.corant.modules.elastic.data.model.ElasticVersionedDocument;
+import org.corant.shared.exception.CorantRuntimeException;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.VersionType;
+
+/**
+ * corant-modules-elastic-data
+ *
+ * <p>
+ * An asynchronous bulk indexer based on the elastic {@link BulkProcessor}, the added documents are
+ * accumulated and flushed as a bulk request when the number of actions, the size in bytes or the
+ * flush interval reaches the configured limit. The number of the concurrent in-flight bulk requests
+ * is bounded, if the limit is reached the {@code add} methods block until an in-flight request
+ * completes, this provides the backpressure to the producer. The items rejected by the cluster
+ * because of the full thread pool queue are retried with exponential backoff, the other failed
+ * items are logged and counted and passed to the failure handler if set.
+ *
+ * <p>
+ * The documents are serialized to JSON source bytes directly, without the intermediate map.
+ *
+ * <p>
+ * Use example:
+ *
+ * <pre>
+ * try (ElasticBulkIndexer indexer = documentService.bulkIndexer().bulkActions(2000).build()) {
+ *   documents.forEach(indexer::add);
+ * }
+ * </pre>
+ *
+ * @author bingo 下午4:06:25
+ *
+ */
+public class ElasticBulkIndexer implements AutoCloseable {
+
+  public static final int DEFAULT_BULK_ACTIONS = 1000;
+  public static final long DEFAULT_BULK_SIZE_BYTES = 5L * 1024 * 1024;
+  public static final int DEFAULT_CONCURRENT_REQUESTS = 2;
+  public static final Duration DEFAULT_RETRY_DELAY = Duration.ofMillis(50);
+  public static final int DEFAULT_RETRY_TIMES = 8;
+  public static final Duration DEFAULT_CLOSE_TIMEOUT = Duration.ofMinutes(1);
+
+  protected final Logger logger = Logger.getLogger(getClass().getName());
+  protected final ElasticDocumentService service;
+  protected final BulkProcessor processor;
+  protected final Duration closeTimeout;
+  protected final Consumer<BulkItemResponse> failureHandler;
+  protected final LongAdder succeededCount = new LongAdder();
+  protected final LongAdder failedCount = new LongAdder();
+
+  public ElasticBulkIndexer(ElasticBulkIndexerBuilder builder) {
+    shouldNotNull(builder);
+    service = shouldNotNull(builder.service);
+    closeTimeout = builder.closeTimeout;
+    failureHandler = builder.failureHandler;
+    BulkProcessor.Builder pb =
+        BulkProcessor.builder(shouldNotNull(service.getTransportClient()), new Listener())
+            .setBulkActions(builder.bulkActions)
+            .setBulkSize(new ByteSizeValue(builder.bulkSizeBytes, ByteSizeUnit.BYTES))
+            .setConcurrentRequests(builder.concurrentRequests)
+            .setBackoffPolicy(builder.retryTimes > 0
+                ? BackoffPolicy.exponentialBackoff(
+                    TimeValue.timeValueMillis(builder.retryDelay.toMillis()), builder.retryTimes)
+                : BackoffPolicy.noBackoff());
+    if (builder.flushInterval != null) {
+      pb.setFlushInterval(TimeValue.timeValueMillis(builder.flushInterval.toMillis()));
+    }
+    processor = pb.build();
+  }
+
+  public static ElasticBulkIndexerBuilder builder(ElasticDocumentService service) {
+    return new ElasticBulkIndexerBuilder(service);
+  }
+
+  /**
+   * Add the given document to index, the index name and the source are resolved by the document
+   * class, if the document is versioned and the version type of the mapping is not internal then
+   * the document version is used.
+   *
+   * @param document the document to index
+   * @return this indexer
+   */
+  public ElasticBulkIndexer add(ElasticDocument document) {
+    shouldNotNull(document);
+    final Class<?> docCls = document.getClass();
+    final ElasticIndexing indexing = shouldNotNull(service.resolveIndexing(docCls));
+    final ElasticMapping mapping = shouldNotNull(service.resolveMapping(docCls));
+    final IndexRequest request =
+        new IndexRequest(indexing.getName(), Elastic6Constants.TYP_NME, document.getId())
+            .source(mapping.toJsonSource(document), XContentType.JSON);
+    if (isNotBlank(document.getRId())) {
+      request.routing(document.getRId());
+    }
+    if (document instanceof ElasticVersionedDocument && mapping.getVersionType() != null
+        && mapping.getVersionType() != VersionType.INTERNAL) {
+      long version = ((ElasticVersionedDocument) document).getVn();
+      shouldBeTrue(version > 0);
+      request.version(version).versionType(mapping.getVersionType());
+    }
+    return add(request);
+  }
+
+  /**
+   * Add the given index request.
+   *
+   * @param request the index request
+   * @return this indexer
+   */
+  public ElasticBulkIndexer add(IndexRequest request) {
+    processor.add(request);
+    return this;
+  }
+
+  /**
+   * Add the given map object to index.
+   *
+   * @param indexName the index name
+   * @param id the document id
+   * @param obj the map object to index
+   * @return this indexer
+   */
+  @SuppressWarnings("unchecked")
+  public ElasticBulkIndexer add(String indexName, String id, Map<?, ?> obj) {
+    return add(new IndexRequest(indexName, Elastic6Constants.TYP_NME, id)
+        .source((Map<String, ?>) obj, XContentType.SMILE));
+  }
+
+  /**
+   * Flush the accumulated documents and wait for all the in-flight bulk requests to complete
+   * within the close timeout.
+   */
+  @Override
+  public void close() {
+    try {
+      if (!processor.awaitClose(closeTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+        logger.warning(() -> String.format(
+            "The bulk indexer was closed before all bulk requests completed within %s.",
+            closeTimeout));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CorantRuntimeException(e);
+    }
+  }
+
+  /**
+   * Flush the accumulated documents asynchronously.
+   */
+  public void flush() {
+    processor.flush();
+  }
+
+  /**
+   * Returns the number of failed items.
+   */
+  public long getFailedCount() {
+    return failedCount.sum();
+  }
+
+  /**
+   * Returns the number of succeeded items.
+   */
+  public long getSucceededCount() {
+    return succeededCount.sum();
+  }
+
+  /**
+   * corant-modules-elastic-data
+   *
+   * @author bingo 下午4:06:25
+   *
+   */
+  public static class ElasticBulkIndexerBuilder {
+    protected final ElasticDocumentService service;
+    protected int bulkActions = DEFAULT_BULK_ACTIONS;
+    protected long bulkSizeBytes = DEFAULT_BULK_SIZE_BYTES;
+    protected Duration flushInterval;
+    protected int concurrentRequests = DEFAULT_CONCURRENT_REQUESTS;
+    protected Duration retryDelay = DEFAULT_RETRY_DELAY;
+    protected int retryTimes = DEFAULT_RETRY_TIMES;
+    protected Duration closeTimeout = DEFAULT_CLOSE_TIMEOUT;
+    protected Consumer<BulkItemResponse> failureHandler;
+
+    public ElasticBulkIndexerBuilder(ElasticDocumentService service) {
+      this.service = service;
+    }
+
+    public ElasticBulkIndexer build() {
+      return new ElasticBulkIndexer(this);
+    }
+
+    /**
+     * The number of actions to flush a bulk request, -1 to disable it.
+     */
+    public ElasticBulkIndexerBuilder bulkActions(int bulkActions) {
+      this.bulkActions = bulkActions;
+      return this;
+    }
+
+    /**
+     * The size in bytes to flush a bulk request, -1 to disable it.
+     */
+    public ElasticBulkIndexerBuilder bulkSizeBytes(long bulkSizeBytes) {
+      this.bulkSizeBytes = bulkSizeBytes;
+      return this;
+    }
+
+    public ElasticBulkIndexerBuilder closeTimeout(Duration closeTimeout) {
+      this.closeTimeout = shouldNotNull(closeTimeout);
+      return this;
+    }
+
+    /**
+     * The maximum number of the concurrent in-flight bulk requests, 0 means the bulk requests are
+     * executed synchronously in the adding thread.
+     */
+    public ElasticBulkIndexerBuilder concurrentRequests(int concurrentRequests) {
+      this.concurrentRequests = max(concurrentRequests, 0);
+      return this;
+    }
+
+    public ElasticBulkIndexerBuilder failureHandler(Consumer<BulkItemResponse> failureHandler) {
+      this.failureHandler = failureHandler;
+      return this;
+    }
+
+    /**
+     * The interval to flush the accumulated documents, null to disable it.
+     */
+    public ElasticBulkIndexerBuilder flushInterval(Duration flushInterval) {
+      this.flushInterval = flushInterval;
+      return this;
+    }
+
+    /**
+     * The initial delay of the exponential backoff to retry the rejected items.
+     */
+    public ElasticBulkIndexerBuilder retryDelay(Duration retryDelay) {
+      this.retryDelay = shouldNotNull(retryDelay);
+      return this;
+    }
+
+    /**
+     * The maximum retry times of the rejected items, 0 to disable the retry.
+     */
+    public ElasticBulkIndexerBuilder retryTimes(int retryTimes) {
+      this.retryTimes = max(retryTimes, 0);
+      return this;
+    }
+  }
+
+  /**
+   * corant-modules-elastic-data
+   *
+   * @author bingo 下午4:06:25
+   *
+   */
+  protected class Listener implements BulkProcessor.Listener {
+
+    @Override
+    public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+      for (BulkItemResponse item : response.getItems()) {
+        if (item.isFailed()) {
+          failedCount.increment();
+          logger.log(Level.WARNING, item.getFailure().getCause(), item::getFailureMessage);
+          if (failureHandler != null) {
+            failureHandler.accept(item);
+          }
+        } else {
+          succeededCount.increment();
+        }
+      }
+    }
+
+    @Override
+    public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+      failedCount.add(request.numberOfActions());
+      logger.log(Level.WARNING, failure,
+          () -> String.format("Bulk request %s with %s actions failed.", executionId,
+              request.numberOfActions()));
+    }
+
+    @Override
+    public void beforeBulk(long executionId, BulkRequest request) {
+      logger.fine(() -> String.format("Executing bulk request %s with %s actions.", executionId,
+          request.numberOfActions()));
+    }
+  }
+}
@@ -27,6 +27,7 @@ import org.corant.modules.elastic.data.metadata.resolver.ElasticIndexingResolver
 import org.corant.modules.elastic.data.metadata.resolver.ElasticObjectMapper;
 import org.corant.modules.elastic.data.model.ElasticDocument;
 import org.corant.modules.elastic.data.model.ElasticVersionedDocument;
+import org.corant.modules.elastic.data.service.ElasticBulkIndexer.ElasticBulkIndexerBuilder;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
 import org.elasticsearch.action.support.WriteRequest.RefreshPolicy;
 import org.elasticsearch.client.transport.TransportClient;
@@ -69,6 +70,17 @@ public interface ElasticDocumentService {
    */
   int bulkIndex(String indexName, List<Map<?, ?>> objs, boolean flush);
 
+  /**
+   * Returns a builder of the asynchronous bulk indexer, use for the mass document indexing, the
+   * built indexer should be closed after using.
+   *
+   * @return the bulk indexer builder
+   * @see ElasticBulkIndexer
+   */
+  default ElasticBulkIndexerBuilder bulkIndexer() {
+    return ElasticBulkIndexer.builder(this);
+  }
+
   /**
    * Delete document indexing by index name and document id, no flush immediately.
    *
@@ -20,6 +20,8 @@ import static org.corant.shared.util.Streams.copy;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.StreamingOutput;
@@ -48,6 +50,7 @@ public class StreamResponseBuilder {
   protected Resource resource;
   protected File[] files = FileUtils.EMPTY_ARRAY;
   protected HttpStreamOutput output;
+  protected HttpServletResponse servletResponse;
 
   protected boolean supportRange =
       Configs.getValue("corant.modules.jaxrs.stream.support-range", Boolean.class, true);
@@ -91,8 +94,8 @@ public class StreamResponseBuilder {
         ResponseBuilder responseBuilder = Response.status(outputResult.getStatus());
         outputResult.getHeaders().forEach(responseBuilder::header);
         return responseBuilder.entity((StreamingOutput) os -> {
-          try (InputStream is = resource.openInputStream()) {
-            outputResult.getWriter().accept(is, os);
+          try {
+            outputResult.write(resource, resolveOutputStream(os));
           } catch (IOException e) {
             throw new CorantRuntimeException(e);
           }
@@ -114,4 +117,37 @@ public class StreamResponseBuilder {
       return responseBuilder.entity((StreamingOutput) os -> Compressors.zip(os, files)).build();
     }
   }
+
+  /**
+   * Use the output stream of the given servlet response to write the ranges of the resource, so
+   * that the container can transfer the file content without copying it through the heap, e.g. the
+   * Undertow servlet output stream, see {@link HttpStreamOutput#toWritableChannel(OutputStream)}.
+   *
+   * <p>
+   * Note: The JAX-RS entity stream is bypassed, so it must not be used when the entity stream is
+   * transformed, e.g. by the GZIP writer interceptors.
+   *
+   * @param servletResponse the servlet response of the current request
+   * @return this builder
+   */
+  public StreamResponseBuilder servletResponse(HttpServletResponse servletResponse) {
+    this.servletResponse = servletResponse;
+    return this;
+  }
+
+  /**
+   * Returns the output stream to write the ranges of the resource to, if the servlet response is
+   * set, the given JAX-RS entity stream is flushed to commit the response headers and the output
+   * stream of the servlet response is returned, otherwise returns the given entity stream.
+   *
+   * @param os the JAX-RS entity stream
+   * @throws IOException if an I/O error occurs
+   */
+  protected OutputStream resolveOutputStream(OutputStream os) throws IOException {
+    if (servletResponse == null) {
+      return os;
+    }
+    os.flush();
+    return servletResponse.getOutputStream();
+  }
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jcache.caffeine;
+
+import static org.corant.shared.util.Sets.immutableSetBuilder;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.corant.config.Configs;
+import org.corant.config.CorantConfigResolver;
+import org.corant.shared.util.Classes;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.util.DefaultInstantiatorStrategy;
+import com.esotericsoftware.kryo.util.Pool;
+
+/**
+ * corant-modules-jcache-caffeine
+ *
+ * <p>
+ * A store-by-value copier that deep copies the values with the pooled Kryo instances, the object
+ * graph is copied structurally in memory without the serialization round trip. The classes that
+ * Kryo fails to copy, or the classes configured as below, fall back to the Java serialization
+ * round trip of {@link CaffeineJavaSerializationCopier}; the immutable classes are not copied.
+ *
+ * <pre>
+ * corant.jcache.caffeine.*.store-by-value.strategy = org.corant.modules.jcache.caffeine.CaffeineKryoCopier
+ * corant.jcache.caffeine.*.store-by-value.java-serialization-classes = A,B,C,D
+ * corant.jcache.caffeine.kryo-copier.pool-size = 64
+ * </pre>
+ *
+ * <p>
+ * Note: Unlike the Java serialization, the Kryo copying doesn't invoke the
+ * {@code writeObject/readObject/readResolve} methods, the classes that depend on them should be
+ * configured to use the Java serialization.
+ *
+ * @author bingo 下午5:03:27
+ *
+ */
+public class CaffeineKryoCopier extends CaffeineJavaSerializationCopier {
+
+  public static final String POOL_SIZE_KEY =
+      CaffeineJCacheExtension.CORANT_CAFFE_PREFIX + "kryo-copier.pool-size";
+
+  protected static final Logger logger = Logger.getLogger(CaffeineKryoCopier.class.getName());
+
+  protected static final Pool<Kryo> kryoPool =
+      new Pool<>(true, false, Configs.getValue(POOL_SIZE_KEY, Integer.class,
+          Runtime.getRuntime().availableProcessors() * 4)) {
+        @Override
+        protected Kryo create() {
+          Kryo kryo = new Kryo();
+          kryo.setRegistrationRequired(false);
+          kryo.setCopyReferences(true);
+          kryo.setInstantiatorStrategy(
+              new DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+          return kryo;
+        }
+      };
+
+  @SuppressWarnings("rawtypes")
+  protected final Set<Class> javaSerializationClasses = immutableSetBuilder(Configs
+      .searchValues(CaffeineJCacheExtension.CORANT_CAFFE_PREFIX
+          + "*store-by-value.java-serialization-classes")
+      .map(CorantConfigResolver::splitValue).flatMap(Arrays::stream).map(Classes::asClass)
+      .toArray(Class[]::new)).build();
+
+  // the classes that Kryo failed to copy
+  protected final Set<Class<?>> kryoUnsupportedClasses = ConcurrentHashMap.newKeySet();
+
+  public CaffeineKryoCopier() {}
+
+  public CaffeineKryoCopier(Set<Class<?>> immutableClasses,
+      Map<Class<?>, Function<Object, Object>> deepCopyStrategies) {
+    super(immutableClasses, deepCopyStrategies);
+  }
+
+  @Override
+  protected <T> T roundtrip(T object, ClassLoader classLoader) {
+    final Class<?> clazz = object.getClass();
+    if (javaSerializationClasses.contains(clazz) || kryoUnsupportedClasses.contains(clazz)) {
+      return super.roundtrip(object, classLoader);
+    }
+    final Kryo kryo = kryoPool.obtain();
+    try {
+      return kryo.copy(object);
+    } catch (RuntimeException e) {
+      kryoUnsupportedClasses.add(clazz);
+      logger.log(Level.FINE, e, () -> String
+          .format("Kryo can't copy %s, fall back to the Java serialization.", clazz.getName()));
+      return super.roundtrip(object, classLoader);
+    } finally {
+      kryoPool.free(kryo);
+    }
+  }
+
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jcache.caffeine;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * corant-modules-jcache-caffeine
+ *
+ * <p>
+ * Compares the store-by-value copying of a DTO graph with the Java serialization round trip of
+ * {@link CaffeineJavaSerializationCopier} and the Kryo structural copying of
+ * {@link CaffeineKryoCopier}. The graph is an order with a customer, an attribute map and the
+ * given number of order lines, each line refers to the shared customer and holds a list of tags.
+ *
+ * @author bingo 上午11:06:42
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CaffeineCopierBenchmark {
+
+  @Param({"10", "100", "1000"})
+  int lines;
+
+  CaffeineJavaSerializationCopier javaSerializationCopier;
+  CaffeineKryoCopier kryoCopier;
+  ClassLoader classLoader;
+  Order order;
+
+  public static void main(String... args) throws RunnerException {
+    new Runner(
+        new OptionsBuilder().include(CaffeineCopierBenchmark.class.getSimpleName()).build())
+            .run();
+  }
+
+  static Order order(int lines) {
+    Customer customer = new Customer();
+    customer.id = 1L;
+    customer.name = "customer";
+    customer.registered = Instant.ofEpochMilli(1_600_000_000_000L);
+    Order order = new Order();
+    order.id = 1L;
+    order.customer = customer;
+    order.created = Instant.ofEpochMilli(1_600_000_000_000L);
+    for (int i = 0; i < lines; i++) {
+      OrderLine line = new OrderLine();
+      line.sku = "sku-" + i;
+      line.quantity = i + 1;
+      line.price = BigDecimal.valueOf(i * 100 + 99, 2);
+      line.customer = customer;
+      line.tags.add("tag-" + i % 7);
+      line.tags.add("tag-" + i % 11);
+      order.lines.add(line);
+      order.attributes.put("attribute-" + i, i);
+    }
+    return order;
+  }
+
+  @Benchmark
+  public Order javaSerializationCopy() {
+    return javaSerializationCopier.copy(order, classLoader);
+  }
+
+  @Benchmark
+  public Order kryoCopy() {
+    return kryoCopier.copy(order, classLoader);
+  }
+
+  @Setup
+  public void setup() {
+    javaSerializationCopier = new CaffeineJavaSerializationCopier();
+    kryoCopier = new CaffeineKryoCopier();
+    classLoader = getClass().getClassLoader();
+    order = order(lines);
+    Order copied = kryoCopy();
+    if (copied == order || !order.equals(copied) || !order.equals(javaSerializationCopy())) {
+      throw new IllegalStateException("The copies aren't equal to the original");
+    }
+  }
+
+  /**
+   * corant-modules-jcache-caffeine
+   *
+   * @author bingo 上午11:08:15
+   *
+   */
+  public static class Customer implements Serializable {
+
+    private static final long serialVersionUID = 4183615329815728532L;
+
+    Long id;
+    String name;
+    Instant registered;
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Customer)) {
+        return false;
+      }
+      Customer other = (Customer) obj;
+      return Objects.equals(id, other.id) && Objects.equals(name, other.name)
+          && Objects.equals(registered, other.registered);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(id, name, registered);
+    }
+  }
+
+  /**
+   * corant-modules-jcache-caffeine
+   *
+   * @author bingo 上午11:09:37
+   *
+   */
+  public static class Order implements Serializable {
+
+    private static final long serialVersionUID = -2315741360951487735L;
+
+    Long id;
+    Customer customer;
+    Instant created;
+    List<OrderLine> lines = new ArrayList<>();
+    Map<String, Object> attributes = new LinkedHashMap<>();
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Order)) {
+        return false;
+      }
+      Order other = (Order) obj;
+      return Objects.equals(id, other.id) && Objects.equals(customer, other.customer)
+          && Objects.equals(created, other.created) && Objects.equals(lines, other.lines)
+          && Objects.equals(attributes, other.attributes);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(id, customer, created, lines, attributes);
+    }
+  }
+
+  /**
+   * corant-modules-jcache-caffeine
+   *
+   * @author bingo 上午11:10:52
+   *
+   */
+  public static class OrderLine implements Serializable {
+
+    private static final long serialVersionUID = 6892012254416732871L;
+
+    String sku;
+    int quantity;
+    BigDecimal price;
+    Customer customer;
+    List<String> tags = new ArrayList<>();
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof OrderLine)) {
+        return false;
+      }
+      OrderLine other = (OrderLine) obj;
+      return quantity == other.quantity && Objects.equals(sku, other.sku)
+          && Objects.equals(price, other.price) && Objects.equals(customer, other.customer)
+          && Objects.equals(tags, other.tags);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(sku, quantity, price, customer, tags);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jcache.caffeine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.corant.modules.jcache.caffeine.CaffeineCopierBenchmark.Order;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-jcache-caffeine
+ *
+ * @author bingo 上午11:32:08
+ *
+ */
+public class CaffeineKryoCopierTest extends TestCase {
+
+  final ClassLoader classLoader = getClass().getClassLoader();
+
+  @Test
+  public void testDeepCopy() {
+    Order order = CaffeineCopierBenchmark.order(8);
+    Order copied = new CaffeineKryoCopier().copy(order, classLoader);
+    assertThat(copied).isNotSameAs(order).isEqualTo(order);
+    assertThat(copied.lines).isNotSameAs(order.lines);
+    assertThat(copied.lines.get(0)).isNotSameAs(order.lines.get(0));
+    assertThat(copied.attributes).isNotSameAs(order.attributes);
+    // the shared references are kept shared in the copied graph
+    assertThat(copied.customer).isNotSameAs(order.customer);
+    assertThat(copied.lines)
+        .allSatisfy(line -> assertThat(line.customer).isSameAs(copied.customer));
+    copied.lines.get(0).tags.add("changed");
+    assertThat(order.lines.get(0).tags).doesNotContain("changed");
+  }
+
+  @Test
+  public void testImmutableNotCopied() {
+    String value = new String("value");
+    assertThat(new CaffeineKryoCopier().copy(value, classLoader)).isSameAs(value);
+  }
+
+  @Test
+  public void testSameAsJavaSerializationCopy() {
+    Order order = CaffeineCopierBenchmark.order(32);
+    assertThat(new CaffeineKryoCopier().copy(order, classLoader))
+        .isEqualTo(new CaffeineJavaSerializationCopier().copy(order, classLoader));
+  }
+}
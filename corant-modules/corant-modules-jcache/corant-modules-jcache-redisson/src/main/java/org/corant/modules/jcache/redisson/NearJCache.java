@@ -0,0 +1,516 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jcache.redisson;
+
+import static org.corant.shared.util.Primitives.isPrimitiveOrWrapper;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.configuration.CacheEntryListenerConfiguration;
+import javax.cache.configuration.Configuration;
+import javax.cache.integration.CompletionListener;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorException;
+import javax.cache.processor.EntryProcessorResult;
+import org.corant.shared.exception.CorantRuntimeException;
+import org.corant.shared.util.Serializations;
+import org.corant.shared.util.Serializations.ObjectInputStreamWithLoader;
+
+/**
+ * corant-modules-jcache-redisson
+ *
+ * <p>
+ * A two-level near cache, the reads go through a bounded local Caffeine cache (L1) to the shared
+ * Redisson cache (L2), the writes and removes go to the L2 and evict the L1 entries, then an
+ * invalidation message is published through the {@link NearJCacheManager}, so that the other nodes
+ * evict their L1 entries.
+ *
+ * <p>
+ * Note: The L1 entries may be stale until the invalidation message is received, the staleness is
+ * bounded by the L1 expiration. The invalidation lag is measured with the publisher's clock, so it
+ * is only meaningful if the clocks of the nodes are synchronized.
+ *
+ * <p>
+ * If the L2 cache is configured as store-by-value, the L1 holds the Java serialized form of the
+ * mutable values and each L1 hit deserializes it once, so that the callers never share an instance,
+ * the immutable values are held as they are, the values that can't be serialized are not cached in
+ * the L1.
+ *
+ * @author bingo 下午3:42:18
+ *
+ */
+public class NearJCache<K, V> implements Cache<K, V> {
+
+  protected static final Logger logger = Logger.getLogger(NearJCache.class.getName());
+
+  protected final NearJCacheManager manager;
+  protected final Cache<K, V> l2;
+  protected final com.github.benmanes.caffeine.cache.Cache<K, Object> l1;
+  // increased before each L1 eviction, use to discard the L1 fills that raced with the eviction
+  protected final AtomicLong generation = new AtomicLong();
+  protected final LongAdder invalidations = new LongAdder();
+  protected final LongAdder invalidationLags = new LongAdder();
+  protected final AtomicLong maxInvalidationLag = new AtomicLong();
+  protected final boolean storeByValue;
+
+  @SuppressWarnings("unchecked")
+  public NearJCache(NearJCacheManager manager, Cache<K, V> l2,
+      com.github.benmanes.caffeine.cache.Cache<K, Object> l1) {
+    this(manager, l2, l1, l2.getConfiguration(Configuration.class).isStoreByValue());
+  }
+
+  /**
+   * @param manager the near cache manager
+   * @param l2 the shared cache
+   * @param l1 the local cache, holds the values or the serialized values
+   * @param storeByValue whether to hold the serialized mutable values in the L1
+   */
+  public NearJCache(NearJCacheManager manager, Cache<K, V> l2,
+      com.github.benmanes.caffeine.cache.Cache<K, Object> l1, boolean storeByValue) {
+    this.manager = manager;
+    this.l2 = l2;
+    this.l1 = l1;
+    this.storeByValue = storeByValue;
+  }
+
+  @Override
+  public void clear() {
+    l2.clear();
+    evictAll(true);
+  }
+
+  @Override
+  public void close() {
+    l1.invalidateAll();
+    l2.close();
+  }
+
+  @Override
+  public boolean containsKey(K key) {
+    return l1.getIfPresent(key) != null || l2.containsKey(key);
+  }
+
+  @Override
+  public void deregisterCacheEntryListener(
+      CacheEntryListenerConfiguration<K, V> cacheEntryListenerConfiguration) {
+    l2.deregisterCacheEntryListener(cacheEntryListenerConfiguration);
+  }
+
+  @Override
+  public V get(K key) {
+    final Object held = l1.getIfPresent(key);
+    if (held != null) {
+      return fromL1(held);
+    }
+    final long gen = generation.get();
+    final V loaded = l2.get(key);
+    if (loaded == null) {
+      return null;
+    }
+    final Object fill = toL1(loaded);
+    if (fill != null) {
+      l1.put(key, fill);
+      if (gen != generation.get()) {
+        l1.invalidate(key);
+      }
+    }
+    return loaded;
+  }
+
+  @Override
+  public Map<K, V> getAll(Set<? extends K> keys) {
+    final Map<K, V> result = new HashMap<>(keys.size() << 1);
+    l1.getAllPresent(keys).forEach((k, v) -> result.put(k, fromL1(v)));
+    if (result.size() < keys.size()) {
+      final Set<K> missing = new HashSet<>(keys);
+      missing.removeAll(result.keySet());
+      final long gen = generation.get();
+      final Map<K, V> loaded = l2.getAll(missing);
+      final Map<K, Object> fills = new HashMap<>(loaded.size() << 1);
+      loaded.forEach((k, v) -> {
+        Object fill = toL1(v);
+        if (fill != null) {
+          fills.put(k, fill);
+        }
+        result.put(k, v);
+      });
+      l1.putAll(fills);
+      if (gen != generation.get()) {
+        l1.invalidateAll(fills.keySet());
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public V getAndPut(K key, V value) {
+    try {
+      return l2.getAndPut(key, value);
+    } finally {
+      evict(key);
+    }
+  }
+
+  @Override
+  public V getAndRemove(K key) {
+    try {
+      return l2.getAndRemove(key);
+    } finally {
+      evict(key);
+    }
+  }
+
+  @Override
+  public V getAndReplace(K key, V value) {
+    try {
+      return l2.getAndReplace(key, value);
+    } finally {
+      evict(key);
+    }
+  }
+
+  /**
+   * Returns the average invalidation lag in milliseconds of the received invalidation messages.
+   */
+  public double getAverageInvalidationLag() {
+    long count = invalidations.sum();
+    return count == 0 ? 0 : (double) invalidationLags.sum() / count;
+  }
+
+  @Override
+  public CacheManager getCacheManager() {
+    return manager;
+  }
+
+  @Override
+  public <C extends Configuration<K, V>> C getConfiguration(Class<C> clazz) {
+    return l2.getConfiguration(clazz);
+  }
+
+  /**
+   * Returns the number of the received invalidation messages.
+   */
+  public long getInvalidationCount() {
+    return invalidations.sum();
+  }
+
+  /**
+   * Returns the L1 hit ratio.
+   */
+  public double getL1HitRatio() {
+    return l1.stats().hitRate();
+  }
+
+  /**
+   * Returns the maximum invalidation lag in milliseconds of the received invalidation messages.
+   */
+  public long getMaxInvalidationLag() {
+    return maxInvalidationLag.get();
+  }
+
+  @Override
+  public String getName() {
+    return l2.getName();
+  }
+
+  @Override
+  public <T> T invoke(K key, EntryProcessor<K, V, T> entryProcessor, Object... arguments)
+      throws EntryProcessorException {
+    try {
+      return l2.invoke(key, entryProcessor, arguments);
+    } finally {
+      evict(key);
+    }
+  }
+
+  @Override
+  public <T> Map<K, EntryProcessorResult<T>> invokeAll(Set<? extends K> keys,
+      EntryProcessor<K, V, T> entryProcessor, Object... arguments) {
+    try {
+      return l2.invokeAll(keys, entryProcessor, arguments);
+    } finally {
+      evictAll(keys);
+    }
+  }
+
+  @Override
+  public boolean isClosed() {
+    return l2.isClosed();
+  }
+
+  @Override
+  public Iterator<Entry<K, V>> iterator() {
+    final Iterator<Entry<K, V>> it = l2.iterator();
+    return new Iterator<>() {
+      Entry<K, V> last;
+
+      @Override
+      public boolean hasNext() {
+        return it.hasNext();
+      }
+
+      @Override
+      public Entry<K, V> next() {
+        return last = it.next();
+      }
+
+      @Override
+      public void remove() {
+        it.remove();
+        evict(last.getKey());
+      }
+    };
+  }
+
+  @Override
+  public void loadAll(Set<? extends K> keys, boolean replaceExistingValues,
+      CompletionListener completionListener) {
+    // the loading may be asynchronous, evict the L1 entries after the L2 entries were loaded
+    final Set<K> loadKeys = new HashSet<>(keys);
+    l2.loadAll(keys, replaceExistingValues, new CompletionListener() {
+      @Override
+      public void onCompletion() {
+        evictAll(loadKeys);
+        if (completionListener != null) {
+          completionListener.onCompletion();
+        }
+      }
+
+      @Override
+      public void onException(Exception e) {
+        evictAll(loadKeys);
+        if (completionListener != null) {
+          completionListener.onException(e);
+        }
+      }
+    });
+  }
+
+  @Override
+  public void put(K key, V value) {
+    try {
+      l2.put(key, value);
+    } finally {
+      evict(key);
+    }
+  }
+
+  @Override
+  public void putAll(Map<? extends K, ? extends V> map) {
+    try {
+      l2.putAll(map);
+    } finally {
+      evictAll(map.keySet());
+    }
+  }
+
+  @Override
+  public boolean putIfAbsent(K key, V value) {
+    boolean put = l2.putIfAbsent(key, value);
+    if (put) {
+      evict(key);
+    }
+    return put;
+  }
+
+  @Override
+  public void registerCacheEntryListener(
+      CacheEntryListenerConfiguration<K, V> cacheEntryListenerConfiguration) {
+    l2.registerCacheEntryListener(cacheEntryListenerConfiguration);
+  }
+
+  @Override
+  public boolean remove(K key) {
+    try {
+      return l2.remove(key);
+    } finally {
+      evict(key);
+    }
+  }
+
+  @Override
+  public boolean remove(K key, V oldValue) {
+    try {
+      return l2.remove(key, oldValue);
+    } finally {
+      evict(key);
+    }
+  }
+
+  @Override
+  public void removeAll() {
+    try {
+      l2.removeAll();
+    } finally {
+      evictAll(true);
+    }
+  }
+
+  @Override
+  public void removeAll(Set<? extends K> keys) {
+    try {
+      l2.removeAll(keys);
+    } finally {
+      evictAll(keys);
+    }
+  }
+
+  @Override
+  public boolean replace(K key, V value) {
+    try {
+      return l2.replace(key, value);
+    } finally {
+      evict(key);
+    }
+  }
+
+  @Override
+  public boolean replace(K key, V oldValue, V newValue) {
+    try {
+      return l2.replace(key, oldValue, newValue);
+    } finally {
+      evict(key);
+    }
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> clazz) {
+    if (clazz.isAssignableFrom(getClass())) {
+      return clazz.cast(this);
+    }
+    return l2.unwrap(clazz);
+  }
+
+  protected void evict(K key) {
+    generation.incrementAndGet();
+    l1.invalidate(key);
+    manager.publish(getName(), new Object[] {key});
+  }
+
+  protected void evictAll(boolean publish) {
+    generation.incrementAndGet();
+    l1.invalidateAll();
+    if (publish) {
+      manager.publish(getName(), null);
+    }
+  }
+
+  protected void evictAll(Collection<? extends K> keys) {
+    generation.incrementAndGet();
+    l1.invalidateAll(keys);
+    manager.publish(getName(), keys.toArray());
+  }
+
+  protected boolean isImmutable(Class<?> clazz) {
+    return isPrimitiveOrWrapper(clazz) || clazz == String.class || clazz == BigDecimal.class
+        || clazz == BigInteger.class || clazz == UUID.class || clazz.isEnum()
+        || clazz.getName().startsWith("java.time.");
+  }
+
+  /**
+   * Evict the L1 entries of the invalidation message that published by the other node.
+   *
+   * @param invalidation the invalidation message
+   */
+  @SuppressWarnings("unchecked")
+  protected void onInvalidation(NearJCacheInvalidation invalidation) {
+    generation.incrementAndGet();
+    if (invalidation.getKeys() == null) {
+      l1.invalidateAll();
+    } else {
+      for (Object key : invalidation.getKeys()) {
+        l1.invalidate((K) key);
+      }
+    }
+    long lag = Math.max(System.currentTimeMillis() - invalidation.getTimestamp(), 0);
+    invalidations.increment();
+    invalidationLags.add(lag);
+    maxInvalidationLag.accumulateAndGet(lag, Math::max);
+  }
+
+  /**
+   * Returns the value that can be returned to the caller from the given L1 entry, the serialized
+   * value is deserialized.
+   *
+   * @param held the L1 entry
+   */
+  @SuppressWarnings("unchecked")
+  protected V fromL1(Object held) {
+    if (!(held instanceof SerializedValue)) {
+      return (V) held;
+    }
+    try (ObjectInputStreamWithLoader ois =
+        new ObjectInputStreamWithLoader(new ByteArrayInputStream(((SerializedValue) held).bytes),
+            manager.getClassLoader())) {
+      return (V) ois.readObject();
+    } catch (IOException | ClassNotFoundException e) {
+      throw new CorantRuntimeException(e);
+    }
+  }
+
+  /**
+   * Returns the L1 entry of the given L2 value, the value itself if the cache is store-by-reference
+   * or the value is immutable, otherwise the serialized value, or null if the value can't be
+   * serialized and shouldn't be cached in the L1.
+   *
+   * @param value the L2 value
+   */
+  protected Object toL1(V value) {
+    if (!storeByValue || isImmutable(value.getClass())) {
+      return value;
+    }
+    if (value instanceof Serializable) {
+      try {
+        return new SerializedValue(Serializations.serialize(value));
+      } catch (RuntimeException e) {
+        logger.log(Level.FINE, e, () -> String.format(
+            "Can't serialize %s, skip the near cache %s L1.", value.getClass().getName(),
+            getName()));
+      }
+    }
+    return null;
+  }
+
+  /**
+   * corant-modules-jcache-redisson
+   *
+   * <p>
+   * The Java serialized form of a mutable value held in the L1.
+   *
+   * @author bingo 下午4:18:52
+   *
+   */
+  protected static class SerializedValue {
+    protected final byte[] bytes;
+
+    protected SerializedValue(byte[] bytes) {
+      this.bytes = bytes;
+    }
+  }
+}
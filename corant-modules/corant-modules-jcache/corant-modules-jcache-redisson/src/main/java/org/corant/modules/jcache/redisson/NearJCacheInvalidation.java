@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jcache.redisson;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * corant-modules-jcache-redisson
+ *
+ * <p>
+ * The near cache invalidation message, published when the entries of a cache are written or
+ * removed, so that the other nodes evict the local entries.
+ *
+ * @author bingo 下午3:51:36
+ *
+ */
+public class NearJCacheInvalidation implements Serializable {
+
+  private static final long serialVersionUID = -3046462781257493064L;
+
+  protected final String origin;
+  protected final String cacheName;
+  protected final Object[] keys;
+  protected final long timestamp;
+
+  /**
+   * @param origin the node id of the publisher
+   * @param cacheName the cache name
+   * @param keys the invalidated keys, null means all the entries of the cache are invalidated
+   * @param timestamp the publishing time in milliseconds
+   */
+  public NearJCacheInvalidation(String origin, String cacheName, Object[] keys, long timestamp) {
+    this.origin = origin;
+    this.cacheName = cacheName;
+    this.keys = keys;
+    this.timestamp = timestamp;
+  }
+
+  public String getCacheName() {
+    return cacheName;
+  }
+
+  /**
+   * Returns the invalidated keys, null means all the entries of the cache are invalidated.
+   */
+  public Object[] getKeys() {
+    return keys;
+  }
+
+  public String getOrigin() {
+    return origin;
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  @Override
+  public String toString() {
+    return "NearJCacheInvalidation [origin=" + origin + ", cacheName=" + cacheName + ", keys="
+        + Arrays.toString(keys) + ", timestamp=" + timestamp + "]";
+  }
+
+}
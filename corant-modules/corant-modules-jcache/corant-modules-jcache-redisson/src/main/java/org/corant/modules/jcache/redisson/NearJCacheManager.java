@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jcache.redisson;
+
+import static org.corant.shared.util.Assertions.shouldNotNull;
+import static org.corant.shared.util.Objects.forceCast;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.Configuration;
+import javax.cache.configuration.Factory;
+import javax.cache.expiry.ExpiryPolicy;
+import javax.cache.spi.CachingProvider;
+import org.corant.config.Configs;
+import org.corant.shared.normal.Names;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * corant-modules-jcache-redisson
+ *
+ * <p>
+ * The near cache manager, the caches created or retrieved by the delegate cache manager are
+ * wrapped with {@link NearJCache}, the invalidation messages of the caches are published and
+ * received through the given {@link InvalidationTopic}.
+ *
+ * <p>
+ * The L1 of each cache can be configured with the properties below, the per-cache properties take
+ * precedence over the global ones:
+ *
+ * <pre>
+ * corant.jcache.redisson.near-cache.l1-max-size = 10000
+ * corant.jcache.redisson.near-cache.l1-expire-after-write = PT10M
+ * corant.jcache.redisson.near-cache.[cache name].l1-max-size
+ * corant.jcache.redisson.near-cache.[cache name].l1-expire-after-write
+ * </pre>
+ *
+ * <p>
+ * The L1 expiration is capped by the creation expiry duration of the L2 expiry policy, so that the
+ * L1 entries don't outlive the L2 entries.
+ *
+ * @author bingo 下午3:47:05
+ *
+ */
+public class NearJCacheManager implements CacheManager {
+
+  public static final String CFG_PREFIX = Names.CORANT_PREFIX + "jcache.redisson.near-cache.";
+  public static final String CFG_L1_MAX_SIZE = "l1-max-size";
+  public static final String CFG_L1_EXPIRE_AFTER_WRITE = "l1-expire-after-write";
+  public static final long DEFAULT_L1_MAX_SIZE = 10000L;
+  public static final Duration DEFAULT_L1_EXPIRE_AFTER_WRITE = Duration.ofMinutes(10);
+
+  protected final Logger logger = Logger.getLogger(getClass().getName());
+  protected final String nodeId = UUID.randomUUID().toString();
+  protected final Map<String, NearJCache<?, ?>> caches = new ConcurrentHashMap<>();
+  protected final CacheManager delegate;
+  protected final CachingProvider provider;
+  protected final InvalidationTopic topic;
+
+  /**
+   * @param delegate the L2 cache manager
+   * @param provider the caching provider
+   * @param topic the topic use to publish and receive the invalidation messages
+   */
+  public NearJCacheManager(CacheManager delegate, CachingProvider provider,
+      InvalidationTopic topic) {
+    this.delegate = shouldNotNull(delegate);
+    this.provider = provider;
+    this.topic = shouldNotNull(topic);
+    topic.subscribe(this::onInvalidation);
+  }
+
+  @Override
+  public void close() {
+    try {
+      topic.close();
+    } finally {
+      caches.values().forEach(c -> c.l1.invalidateAll());
+      caches.clear();
+      delegate.close();
+    }
+  }
+
+  @Override
+  public <K, V, C extends Configuration<K, V>> Cache<K, V> createCache(String cacheName,
+      C configuration) throws IllegalArgumentException {
+    return wrap(cacheName, delegate.createCache(cacheName, configuration));
+  }
+
+  @Override
+  public void destroyCache(String cacheName) {
+    NearJCache<?, ?> cache = caches.remove(cacheName);
+    if (cache != null) {
+      cache.l1.invalidateAll();
+    }
+    delegate.destroyCache(cacheName);
+    publish(cacheName, null);
+  }
+
+  @Override
+  public void enableManagement(String cacheName, boolean enabled) {
+    delegate.enableManagement(cacheName, enabled);
+  }
+
+  @Override
+  public void enableStatistics(String cacheName, boolean enabled) {
+    delegate.enableStatistics(cacheName, enabled);
+  }
+
+  @Override
+  public <K, V> Cache<K, V> getCache(String cacheName) {
+    Cache<K, V> cache = delegate.getCache(cacheName);
+    return cache == null ? null : wrap(cacheName, cache);
+  }
+
+  @Override
+  public <K, V> Cache<K, V> getCache(String cacheName, Class<K> keyType, Class<V> valueType) {
+    Cache<K, V> cache = delegate.getCache(cacheName, keyType, valueType);
+    return cache == null ? null : wrap(cacheName, cache);
+  }
+
+  @Override
+  public Iterable<String> getCacheNames() {
+    return delegate.getCacheNames();
+  }
+
+  @Override
+  public CachingProvider getCachingProvider() {
+    return provider;
+  }
+
+  @Override
+  public ClassLoader getClassLoader() {
+    return delegate.getClassLoader();
+  }
+
+  public String getNodeId() {
+    return nodeId;
+  }
+
+  @Override
+  public Properties getProperties() {
+    return delegate.getProperties();
+  }
+
+  @Override
+  public URI getURI() {
+    return delegate.getURI();
+  }
+
+  @Override
+  public boolean isClosed() {
+    return delegate.isClosed();
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> clazz) {
+    if (clazz.isAssignableFrom(getClass())) {
+      return clazz.cast(this);
+    }
+    return delegate.unwrap(clazz);
+  }
+
+  protected <K> com.github.benmanes.caffeine.cache.Cache<K, Object> createL1(String cacheName,
+      Cache<K, ?> l2) {
+    long maxSize = Configs.getValue(CFG_PREFIX + cacheName + "." + CFG_L1_MAX_SIZE, Long.class,
+        Configs.getValue(CFG_PREFIX + CFG_L1_MAX_SIZE, Long.class, DEFAULT_L1_MAX_SIZE));
+    Duration expireAfterWrite = resolveL1ExpireAfterWrite(l2, Configs.getValue(
+        CFG_PREFIX + cacheName + "." + CFG_L1_EXPIRE_AFTER_WRITE, Duration.class,
+        Configs.getValue(CFG_PREFIX + CFG_L1_EXPIRE_AFTER_WRITE, Duration.class,
+            DEFAULT_L1_EXPIRE_AFTER_WRITE)));
+    logger.fine(() -> String.format("Create near cache %s L1 with max size %s, expire after %s.",
+        cacheName, maxSize, expireAfterWrite));
+    return Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(expireAfterWrite)
+        .recordStats().build();
+  }
+
+  protected void onInvalidation(NearJCacheInvalidation invalidation) {
+    if (invalidation != null && !nodeId.equals(invalidation.getOrigin())) {
+      NearJCache<?, ?> cache = caches.get(invalidation.getCacheName());
+      if (cache != null) {
+        cache.onInvalidation(invalidation);
+      }
+    }
+  }
+
+  /**
+   * Publish the invalidation message, if the publishing fails the other nodes may read the stale
+   * L1 entries until the entries expire.
+   *
+   * @param cacheName the cache name
+   * @param keys the invalidated keys, null means all the entries are invalidated
+   */
+  protected void publish(String cacheName, Object[] keys) {
+    try {
+      topic.publish(
+          new NearJCacheInvalidation(nodeId, cacheName, keys, System.currentTimeMillis()));
+    } catch (RuntimeException e) {
+      logger.log(Level.WARNING, e,
+          () -> String.format("Publish near cache %s invalidation occurred error!", cacheName));
+    }
+  }
+
+  /**
+   * Returns the L1 expiration that capped by the creation expiry duration of the given L2 cache
+   * expiry policy, the eternal or unknown L2 expiry doesn't cap the given expiration.
+   *
+   * @param l2 the L2 cache
+   * @param expireAfterWrite the configured L1 expiration
+   */
+  @SuppressWarnings("unchecked")
+  protected Duration resolveL1ExpireAfterWrite(Cache<?, ?> l2, Duration expireAfterWrite) {
+    Configuration<?, ?> configuration = l2.getConfiguration(Configuration.class);
+    if (configuration instanceof CompleteConfiguration) {
+      Factory<ExpiryPolicy> factory =
+          ((CompleteConfiguration<?, ?>) configuration).getExpiryPolicyFactory();
+      javax.cache.expiry.Duration expiry =
+          factory == null ? null : factory.create().getExpiryForCreation();
+      if (expiry != null && !expiry.isEternal()) {
+        Duration l2Expiry = expiry.isZero() ? Duration.ZERO
+            : Duration.ofNanos(expiry.getTimeUnit().toNanos(expiry.getDurationAmount()));
+        if (l2Expiry.compareTo(expireAfterWrite) < 0) {
+          return l2Expiry;
+        }
+      }
+    }
+    return expireAfterWrite;
+  }
+
+  protected <K, V> Cache<K, V> wrap(String cacheName, Cache<K, V> cache) {
+    return forceCast(caches.compute(cacheName, (k, v) -> v != null && v.l2 == cache ? v
+        : new NearJCache<>(this, cache, createL1(k, cache))));
+  }
+
+  /**
+   * corant-modules-jcache-redisson
+   *
+   * <p>
+   * The topic use to publish and receive the near cache invalidation messages across the nodes.
+   *
+   * @author bingo 下午3:49:21
+   *
+   */
+  public interface InvalidationTopic extends AutoCloseable {
+
+    @Override
+    void close();
+
+    void publish(NearJCacheInvalidation invalidation);
+
+    void subscribe(Consumer<NearJCacheInvalidation> listener);
+  }
+}
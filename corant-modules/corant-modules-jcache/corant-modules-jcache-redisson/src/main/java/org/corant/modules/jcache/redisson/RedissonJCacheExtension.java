@@ -18,6 +18,7 @@ import javax.cache.Caching;
 import javax.enterprise.event.Observes;
 import javax.enterprise.inject.spi.BeforeBeanDiscovery;
 import javax.enterprise.inject.spi.Extension;
+import org.corant.config.Configs;
 import org.corant.shared.exception.CorantRuntimeException;
 import org.corant.shared.util.Systems;
 
@@ -29,12 +30,26 @@ import org.corant.shared.util.Systems;
  */
 public class RedissonJCacheExtension implements Extension {
   public static final String CACHE_PROVIDER_NAME = RedissonJCachingProvider.class.getName();
+  public static final String NEAR_CACHE_PROVIDER_NAME =
+      RedissonNearJCachingProvider.class.getName();
+  public static final String NEAR_CACHE_ENABLE_KEY = NearJCacheManager.CFG_PREFIX + "enable";
 
+  /**
+   * Set the Redisson caching provider, if the property
+   * '<b>corant.jcache.redisson.near-cache.enable</b>' is true then the two-level near caching
+   * provider {@link RedissonNearJCachingProvider} is used.
+   *
+   * @param e onBeforeBeanDiscovery
+   */
   public void onBeforeBeanDiscovery(@Observes BeforeBeanDiscovery e) {
+    final String providerName =
+        Configs.getValue(NEAR_CACHE_ENABLE_KEY, Boolean.class, Boolean.FALSE)
+            ? NEAR_CACHE_PROVIDER_NAME
+            : CACHE_PROVIDER_NAME;
     if (isEmpty(Systems.getProperty(Caching.JAVAX_CACHE_CACHING_PROVIDER))) {
-      Systems.setProperty(Caching.JAVAX_CACHE_CACHING_PROVIDER, CACHE_PROVIDER_NAME);
+      Systems.setProperty(Caching.JAVAX_CACHE_CACHING_PROVIDER, providerName);
     } else if (!Systems.getProperty(Caching.JAVAX_CACHE_CACHING_PROVIDER)
-        .equals(CACHE_PROVIDER_NAME)) {
+        .equals(providerName)) {
       throw new CorantRuntimeException(
           "Found another caching provider %s, the caching provider in current implementation is exclusive!",
           Systems.getProperty(Caching.JAVAX_CACHE_CACHING_PROVIDER));
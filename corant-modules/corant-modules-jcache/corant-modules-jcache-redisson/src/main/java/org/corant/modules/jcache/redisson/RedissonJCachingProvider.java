@@ -158,7 +158,7 @@ public class RedissonJCachingProvider implements CachingProvider {
     return false;
   }
 
-  protected JCacheManager createCacheManager(Redisson redisson, ClassLoader classLoader,
+  protected CacheManager createCacheManager(Redisson redisson, ClassLoader classLoader,
       Properties properties, URI uri) {
     Constructor<?> cst = AccessController.doPrivileged((PrivilegedAction<Constructor<?>>) () -> {
       Constructor<?> c = JCacheManager.class.getDeclaredConstructors()[0];
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jcache.redisson;
+
+import java.net.URI;
+import java.util.Properties;
+import java.util.function.Consumer;
+import javax.cache.CacheManager;
+import org.corant.config.Configs;
+import org.corant.modules.jcache.redisson.NearJCacheManager.InvalidationTopic;
+import org.redisson.Redisson;
+import org.redisson.api.RTopic;
+
+/**
+ * corant-modules-jcache-redisson
+ *
+ * <p>
+ * The two-level near caching provider, the caches read through a local Caffeine cache (L1) to the
+ * Redisson cache (L2), the invalidation messages are published on a Redis topic, the topic name can
+ * be configured with the property '<b>corant.jcache.redisson.near-cache.topic</b>'.
+ *
+ * @see NearJCacheManager
+ * @author bingo 下午3:53:10
+ *
+ */
+public class RedissonNearJCachingProvider extends RedissonJCachingProvider {
+
+  public static final String CFG_TOPIC = NearJCacheManager.CFG_PREFIX + "topic";
+  public static final String DEFAULT_TOPIC = "corant:jcache:near-cache:invalidation";
+
+  @Override
+  protected CacheManager createCacheManager(Redisson redisson, ClassLoader classLoader,
+      Properties properties, URI uri) {
+    String topicName = Configs.getValue(CFG_TOPIC, String.class, DEFAULT_TOPIC);
+    return new NearJCacheManager(super.createCacheManager(redisson, classLoader, properties, uri),
+        this, new RedissonInvalidationTopic(redisson.getTopic(topicName)));
+  }
+
+  /**
+   * corant-modules-jcache-redisson
+   *
+   * @author bingo 下午3:54:48
+   *
+   */
+  public static class RedissonInvalidationTopic implements InvalidationTopic {
+
+    protected final RTopic topic;
+    protected volatile Integer listenerId;
+
+    public RedissonInvalidationTopic(RTopic topic) {
+      this.topic = topic;
+    }
+
+    @Override
+    public void close() {
+      Integer id = listenerId;
+      if (id != null) {
+        listenerId = null;
+        topic.removeListener(id);
+      }
+    }
+
+    @Override
+    public void publish(NearJCacheInvalidation invalidation) {
+      topic.publish(invalidation);
+    }
+
+    @Override
+    public void subscribe(Consumer<NearJCacheInvalidation> listener) {
+      listenerId = topic.addListener(NearJCacheInvalidation.class,
+          (channel, message) -> listener.accept(message));
+    }
+  }
+}
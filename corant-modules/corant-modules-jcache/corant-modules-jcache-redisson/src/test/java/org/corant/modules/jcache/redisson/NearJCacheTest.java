@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jcache.redisson;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.expiry.CreatedExpiryPolicy;
+import javax.cache.integration.CompletionListener;
+import org.corant.modules.jcache.redisson.NearJCacheManager.InvalidationTopic;
+import org.corant.shared.util.Serializations;
+import org.junit.Test;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-jcache-redisson
+ *
+ * @author bingo 下午5:26:40
+ *
+ */
+public class NearJCacheTest extends TestCase {
+
+  static final String CACHE_NAME = "test";
+
+  @Test
+  public void testInvalidationAcrossNodes() {
+    SharedCache l2 = new SharedCache(true);
+    InMemoryTopic topic = new InMemoryTopic();
+    Cache<String, List<String>> nodeA = node(l2, topic).getCache(CACHE_NAME);
+    Cache<String, List<String>> nodeB = node(l2, topic).getCache(CACHE_NAME);
+    nodeA.put("a", list("x"));
+    assertThat(nodeA.get("a")).containsExactly("x");
+    assertThat(nodeB.get("a")).containsExactly("x");
+    // the node B writes, the node A evicts the L1 entry on the invalidation message
+    nodeB.put("a", list("y"));
+    assertThat(nodeA.get("a")).containsExactly("y");
+    assertThat(nodeA.unwrap(NearJCache.class).getInvalidationCount()).isEqualTo(1);
+    assertThat(nodeB.unwrap(NearJCache.class).getInvalidationCount()).isEqualTo(1);
+    nodeA.removeAll();
+    assertThat(nodeB.get("a")).isNull();
+  }
+
+  @Test
+  public void testL1ExpiryCappedByL2() {
+    SharedCache l2 = new SharedCache(true);
+    NearJCacheManager manager = node(l2, new InMemoryTopic());
+    Duration configured = Duration.ofMinutes(10);
+    // the eternal L2 expiry doesn't cap the L1 expiration
+    assertThat(manager.resolveL1ExpireAfterWrite(l2.cache, configured)).isEqualTo(configured);
+    l2.configuration.setExpiryPolicyFactory(
+        CreatedExpiryPolicy.factoryOf(new javax.cache.expiry.Duration(TimeUnit.SECONDS, 5)));
+    assertThat(manager.resolveL1ExpireAfterWrite(l2.cache, configured))
+        .isEqualTo(Duration.ofSeconds(5));
+    assertThat(manager.resolveL1ExpireAfterWrite(l2.cache, Duration.ofSeconds(1)))
+        .isEqualTo(Duration.ofSeconds(1));
+  }
+
+  @Test
+  public void testL1HoldsSerializedValues() {
+    SharedCache l2 = new SharedCache(true);
+    Cache<String, Object> cache = node(l2, new InMemoryTopic()).getCache(CACHE_NAME);
+    cache.put("a", list("x"));
+    cache.put("b", "b");
+    assertThat(cache.get("a")).isEqualTo(list("x"));
+    assertThat(cache.get("b")).isEqualTo("b");
+    NearJCache<?, ?> near = cache.unwrap(NearJCache.class);
+    // the mutable value is held serialized and deserialized on each hit, the immutable isn't
+    assertThat(near.l1.getIfPresent("a")).isInstanceOf(NearJCache.SerializedValue.class);
+    assertThat(near.l1.getIfPresent("b")).isEqualTo("b");
+    assertThat(cache.get("a")).isNotSameAs(cache.get("a")).isEqualTo(list("x"));
+  }
+
+  @Test
+  public void testLoadAllEvictsOnCompletion() {
+    SharedCache l2 = new SharedCache(true);
+    Cache<String, List<String>> cache = node(l2, new InMemoryTopic()).getCache(CACHE_NAME);
+    cache.put("a", list("x"));
+    assertThat(cache.get("a")).containsExactly("x");
+    AtomicBoolean completed = new AtomicBoolean();
+    cache.loadAll(Set.of("a"), true, new CompletionListener() {
+      @Override
+      public void onCompletion() {
+        completed.set(true);
+      }
+
+      @Override
+      public void onException(Exception e) {
+        fail();
+      }
+    });
+    // the loader writes the L2 asynchronously, the L1 entry is evicted after it completes
+    l2.store.put("a", Serializations.serialize(list("y")));
+    assertThat(cache.get("a")).containsExactly("x");
+    l2.loadListener.onCompletion();
+    assertThat(completed.get()).isTrue();
+    assertThat(cache.get("a")).containsExactly("y");
+  }
+
+  @Test
+  public void testStoreByReference() {
+    SharedCache l2 = new SharedCache(false);
+    Cache<String, List<String>> cache = node(l2, new InMemoryTopic()).getCache(CACHE_NAME);
+    cache.put("a", list("x"));
+    List<String> first = cache.get("a");
+    assertThat(cache.get("a")).isSameAs(first);
+  }
+
+  @Test
+  public void testStoreByValue() {
+    SharedCache l2 = new SharedCache(true);
+    Cache<String, List<String>> cache = node(l2, new InMemoryTopic()).getCache(CACHE_NAME);
+    cache.put("a", list("x"));
+    cache.put("b", list("z"));
+    List<String> first = cache.get("a");
+    first.add("y");
+    List<String> second = cache.get("a");
+    assertThat(second).isNotSameAs(first).containsExactly("x");
+    second.add("y");
+    assertThat(cache.get("a")).containsExactly("x");
+    assertThat(cache.unwrap(NearJCache.class).getL1HitRatio()).isGreaterThan(0);
+    Map<String, List<String>> all = cache.getAll(Set.of("a", "b"));
+    all.get("a").add("y");
+    all.get("b").add("y");
+    assertThat(cache.getAll(Set.of("a", "b"))).containsEntry("a", list("x"))
+        .containsEntry("b", list("z"));
+    // the immutable values are not copied
+    Cache<String, String> strings = node(l2, new InMemoryTopic()).getCache(CACHE_NAME);
+    strings.put("c", "c");
+    assertThat(strings.get("c")).isSameAs(strings.get("c"));
+  }
+
+  List<String> list(String... values) {
+    return new ArrayList<>(Arrays.asList(values));
+  }
+
+  NearJCacheManager node(SharedCache l2, InMemoryTopic topic) {
+    return new NearJCacheManager(l2.manager(), null, topic) {
+      @Override
+      protected <K> com.github.benmanes.caffeine.cache.Cache<K, Object> createL1(
+          String cacheName, Cache<K, ?> l2) {
+        return Caffeine.newBuilder().maximumSize(100).recordStats().build();
+      }
+    };
+  }
+
+  /**
+   * corant-modules-jcache-redisson
+   * <p>
+   * The in-JVM topic stand-in, the messages are delivered synchronously.
+   *
+   * @author bingo 下午5:28:14
+   *
+   */
+  static class InMemoryTopic implements InvalidationTopic {
+
+    final List<Consumer<NearJCacheInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void close() {
+      listeners.clear();
+    }
+
+    @Override
+    public void publish(NearJCacheInvalidation invalidation) {
+      listeners.forEach(listener -> listener.accept(invalidation));
+    }
+
+    @Override
+    public void subscribe(Consumer<NearJCacheInvalidation> listener) {
+      listeners.add(listener);
+    }
+  }
+
+  /**
+   * corant-modules-jcache-redisson
+   * <p>
+   * The shared L2 cache stand-in, the values are stored serialized like the Redisson cache, the
+   * {@code loadAll} doesn't complete until the test completes it.
+   *
+   * @author bingo 下午5:30:57
+   *
+   */
+  static class SharedCache implements InvocationHandler {
+
+    final Map<Object, byte[]> store = new ConcurrentHashMap<>();
+    final MutableConfiguration<Object, Object> configuration = new MutableConfiguration<>();
+    final Cache<?, ?> cache;
+    volatile CompletionListener loadListener;
+
+    SharedCache(boolean storeByValue) {
+      configuration.setStoreByValue(storeByValue);
+      cache = (Cache<?, ?>) Proxy.newProxyInstance(getClass().getClassLoader(),
+          new Class<?>[] {Cache.class}, this);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+      switch (method.getName()) {
+        case "getName":
+          return CACHE_NAME;
+        case "getConfiguration":
+          return configuration;
+        case "get":
+          return Serializations.deserialize(store.get(args[0]));
+        case "getAll":
+          Map<Object, Object> values = new HashMap<>();
+          for (Object key : (Set<?>) args[0]) {
+            byte[] value = store.get(key);
+            if (value != null) {
+              values.put(key, Serializations.deserialize(value));
+            }
+          }
+          return values;
+        case "put":
+          store.put(args[0], Serializations.serialize(args[1]));
+          return null;
+        case "removeAll":
+          store.clear();
+          return null;
+        case "loadAll":
+          loadListener = (CompletionListener) args[2];
+          return null;
+        case "isClosed":
+          return false;
+        case "close":
+          return null;
+        default:
+          throw new UnsupportedOperationException(method.getName());
+      }
+    }
+
+    CacheManager manager() {
+      return (CacheManager) Proxy.newProxyInstance(getClass().getClassLoader(),
+          new Class<?>[] {CacheManager.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+              case "getCache":
+                return cache;
+              case "getClassLoader":
+                return SharedCache.class.getClassLoader();
+              case "close":
+                return null;
+              default:
+                throw new UnsupportedOperationException(method.getName());
+            }
+          });
+    }
+  }
+}
@@ -1,7 +1,16 @@
 package org.corant.modules.jcache.shared;
 
+import static org.corant.shared.util.Strings.isNotBlank;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.cache.Caching;
+import javax.cache.annotation.CacheDefaults;
+import javax.cache.annotation.CacheResult;
 import javax.cache.spi.CachingProvider;
 import javax.enterprise.event.Observes;
 import javax.enterprise.inject.spi.AfterBeanDiscovery;
@@ -9,6 +18,8 @@ import javax.enterprise.inject.spi.AfterTypeDiscovery;
 import javax.enterprise.inject.spi.BeanManager;
 import javax.enterprise.inject.spi.BeforeShutdown;
 import javax.enterprise.inject.spi.Extension;
+import javax.enterprise.inject.spi.ProcessAnnotatedType;
+import javax.enterprise.inject.spi.WithAnnotations;
 import org.corant.shared.exception.NotSupportedException;
 import org.corant.shared.util.Fields;
 import org.eclipse.microprofile.config.ConfigProvider;
@@ -30,8 +41,35 @@ public class JCacheExtension implements Extension {
       .getOptionalValue("corant.jcache.enable-global-annotation", Boolean.class)
       .orElse(Boolean.FALSE);
 
+  private Set<String> singleFlightCacheNames = new HashSet<>(ConfigProvider.getConfig()
+      .getOptionalValues(SingleFlightCacheResultInterceptor.CFG_PREFIX + "cache-names",
+          String.class)
+      .orElse(Collections.emptyList()));
+
   protected CachingProvider cachingProvider;
 
+  /**
+   * Returns the cache name of the given {@link CacheResult} method, if the cache name isn't
+   * specified by the annotation or the {@link CacheDefaults} of the declaring class, returns the
+   * default cache name that consists of the fully qualified class name, the method name and the
+   * parameter types, e.g. {@code com.foo.Bar.find(java.lang.String,int)}.
+   *
+   * @param method the method annotated with {@link CacheResult}
+   */
+  public static String resolveCacheName(Method method) {
+    CacheResult cacheResult = method.getAnnotation(CacheResult.class);
+    if (cacheResult != null && isNotBlank(cacheResult.cacheName())) {
+      return cacheResult.cacheName();
+    }
+    CacheDefaults defaults = method.getDeclaringClass().getAnnotation(CacheDefaults.class);
+    if (defaults != null && isNotBlank(defaults.cacheName())) {
+      return defaults.cacheName();
+    }
+    return method.getDeclaringClass().getName() + "." + method.getName()
+        + Stream.of(method.getParameterTypes()).map(Class::getName)
+            .collect(Collectors.joining(",", "(", ")"));
+  }
+
   public static Object unwrapKey(Object key) {
     if (key instanceof CorantGeneratedCacheKey) {
       return ((CorantGeneratedCacheKey) key).get(0);
@@ -79,6 +117,17 @@ public class JCacheExtension implements Extension {
     }
   }
 
+  protected void onProcessCacheResultAnnotatedType(
+      @Observes @WithAnnotations(CacheResult.class) ProcessAnnotatedType<?> event) {
+    if (!singleFlightCacheNames.isEmpty()) {
+      event.configureAnnotatedType()
+          .filterMethods(m -> m.isAnnotationPresent(CacheResult.class)
+              && !m.isAnnotationPresent(SingleFlightCacheResult.class)
+              && singleFlightCacheNames.contains(resolveCacheName(m.getJavaMember())))
+          .forEach(m -> m.add(SingleFlightCacheResult.INSTANCE));
+    }
+  }
+
   protected void beforeShutdown(@Observes BeforeShutdown beforeShutdown) {
     if (cachingProvider != null) {
       cachingProvider.close();
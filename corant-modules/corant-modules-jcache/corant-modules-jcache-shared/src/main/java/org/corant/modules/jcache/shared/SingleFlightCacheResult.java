@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jcache.shared;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+import static org.corant.shared.util.Strings.EMPTY;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import javax.enterprise.util.AnnotationLiteral;
+import javax.enterprise.util.Nonbinding;
+import javax.interceptor.InterceptorBinding;
+
+/**
+ * corant-modules-jcache-shared
+ *
+ * <p>
+ * Use with {@link javax.cache.annotation.CacheResult}, the concurrent invocations with the same
+ * cache name and cache key are coalesced into one invocation, the other callers wait for the
+ * result of the invocation in flight. This annotation can also be added to the
+ * {@code @CacheResult} methods by the cache names configured with the property
+ * '<b>corant.jcache.single-flight.cache-names</b>'.
+ *
+ * @see SingleFlightCacheResultInterceptor
+ * @author bingo 下午4:21:36
+ *
+ */
+@InterceptorBinding
+@Inherited
+@Target({TYPE, METHOD})
+@Retention(RUNTIME)
+public @interface SingleFlightCacheResult {
+
+  SingleFlightCacheResultLiteral INSTANCE = new SingleFlightCacheResultLiteral(EMPTY, EMPTY);
+
+  /**
+   * The name of the managed executor service use to refresh the entries asynchronously.
+   */
+  @Nonbinding
+  String executor() default EMPTY;
+
+  /**
+   * The ISO-8601 duration after the entry was loaded, the entry is reloaded asynchronously by the
+   * next invocation while the old value is still served, it should be less than the expiry of the
+   * cache. Empty means the refresh-ahead is disabled; the property
+   * '<b>corant.jcache.single-flight.[cache name].refresh-ahead</b>' takes precedence over it.
+   */
+  @Nonbinding
+  String refreshAhead() default EMPTY;
+
+  /**
+   * corant-modules-jcache-shared
+   *
+   * @author bingo 下午4:21:36
+   *
+   */
+  class SingleFlightCacheResultLiteral extends AnnotationLiteral<SingleFlightCacheResult>
+      implements SingleFlightCacheResult {
+
+    private static final long serialVersionUID = -6224938416578106187L;
+
+    private final String executor;
+    private final String refreshAhead;
+
+    private SingleFlightCacheResultLiteral(String executor, String refreshAhead) {
+      this.executor = executor;
+      this.refreshAhead = refreshAhead;
+    }
+
+    public static SingleFlightCacheResultLiteral of(String executor, String refreshAhead) {
+      return new SingleFlightCacheResultLiteral(executor, refreshAhead);
+    }
+
+    @Override
+    public String executor() {
+      return executor;
+    }
+
+    @Override
+    public String refreshAhead() {
+      return refreshAhead;
+    }
+  }
+}
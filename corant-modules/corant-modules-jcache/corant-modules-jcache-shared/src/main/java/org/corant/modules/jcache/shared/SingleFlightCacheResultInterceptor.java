@@ -0,0 +1,393 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jcache.shared;
+
+import static org.corant.context.Beans.findNamed;
+import static org.corant.shared.util.Strings.isNotBlank;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Priority;
+import javax.cache.Cache;
+import javax.cache.annotation.CacheDefaults;
+import javax.cache.annotation.CacheKey;
+import javax.cache.annotation.CacheKeyGenerator;
+import javax.cache.annotation.CacheResolverFactory;
+import javax.cache.annotation.CacheResult;
+import javax.cache.annotation.GeneratedCacheKey;
+import javax.cache.spi.CachingProvider;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.inject.Inject;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+import org.corant.config.Configs;
+import org.corant.context.AbstractInterceptor;
+import org.corant.context.qualifier.Qualifiers;
+import org.corant.shared.exception.CorantRuntimeException;
+import org.corant.shared.util.Conversions;
+import org.jsr107.ri.annotations.DefaultGeneratedCacheKey;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * corant-modules-jcache-shared
+ *
+ * <p>
+ * The single flight interceptor of the {@link CacheResult} methods, it's invoked before the
+ * {@code @CacheResult} interceptor, the concurrent invocations with the same cache name and key
+ * parameters share one invocation of the {@code @CacheResult} interceptor, so that on a cache miss
+ * only one caller invokes the annotated method and the others wait for its result. The re-entrant
+ * invocation with the same key in the thread that invokes the annotated method isn't coalesced, it
+ * proceeds directly instead of waiting for itself.
+ *
+ * <p>
+ * If the refresh-ahead is enabled, the invocations that find the entry was loaded longer than the
+ * refresh-ahead duration ago trigger an asynchronous reload, the annotated method is invoked on the
+ * bean instance directly and the result is put into the cache, the old value is still served until
+ * the reload completes. The refresh-ahead only supports the caches resolved by the default cache
+ * resolver factory with the default key generator or {@link CorantCacheKeyGenerator}. Since the
+ * JCache API doesn't expose the entry expiry, the load time is the time of the first invocation
+ * that observed the entry, the refresh-ahead duration should be less than the cache expiry. The
+ * load times are tracked in a bounded cache, the least used keys are evicted and are not refreshed
+ * ahead until they are observed again. The cache name, the key parameter indexes and the
+ * refresh-ahead duration are resolved once per method, the later changes of the property are not
+ * applied.
+ *
+ * <p>
+ * Note: The reload is invoked in a managed executor thread, the annotated method shouldn't depend
+ * on the request context. The reload invokes the annotated method on the intercepted target
+ * instance rather than the contextual reference, since the {@code @CacheResult} interceptor would
+ * answer the invocation through the contextual reference from the cache, so the other interceptors
+ * of the method, e.g. the transaction or the security interceptors, are not applied to the reload.
+ *
+ * @author bingo 下午4:21:36
+ *
+ */
+@Interceptor
+@SingleFlightCacheResult
+@Priority(Interceptor.Priority.PLATFORM_BEFORE)
+public class SingleFlightCacheResultInterceptor extends AbstractInterceptor {
+
+  public static final String CFG_PREFIX = "corant.jcache.single-flight.";
+  public static final String CFG_REFRESH_AHEAD = "refresh-ahead";
+  public static final int MAX_LOAD_TIMES =
+      Configs.getValue(CFG_PREFIX + "max-tracked-keys", Integer.class, 65536);
+
+  protected static final Logger logger =
+      Logger.getLogger(SingleFlightCacheResultInterceptor.class.getName());
+
+  static final Map<FlightKey, Flight> FLIGHTS = new ConcurrentHashMap<>();
+  static final Map<Method, FlightMethod> METHODS = new ConcurrentHashMap<>();
+  static final com.github.benmanes.caffeine.cache.Cache<FlightKey, Long> LOAD_TIMES =
+      Caffeine.newBuilder().maximumSize(MAX_LOAD_TIMES).executor(Runnable::run).build();
+  static final Set<FlightKey> REFRESHING = ConcurrentHashMap.newKeySet();
+
+  @Inject
+  protected CachingProvider cachingProvider;
+
+  @AroundInvoke
+  public Object singleFlightInvocation(final InvocationContext ctx) throws Exception {
+    final Method method = ctx.getMethod();
+    final CacheResult cacheResult = method == null ? null : method.getAnnotation(CacheResult.class);
+    if (cacheResult == null || cacheResult.skipGet()) {
+      return ctx.proceed();
+    }
+    final FlightMethod flightMethod = getFlightMethod(ctx, method, cacheResult);
+    final Object[] keyParameters = flightMethod.keyParameters(ctx.getParameters());
+    final FlightKey key =
+        new FlightKey(flightMethod.cacheName, new CorantGeneratedCacheKey(keyParameters));
+    final Duration refreshAhead = flightMethod.refreshAhead;
+    if (refreshAhead != null) {
+      Long loadTime = LOAD_TIMES.getIfPresent(key);
+      if (loadTime != null && System.currentTimeMillis() - loadTime >= refreshAhead.toMillis()) {
+        refresh(ctx, flightMethod, key, keyParameters);
+      }
+    }
+    final Object result = load(ctx, key);
+    if (refreshAhead != null && result != null) {
+      LOAD_TIMES.asMap().putIfAbsent(key, System.currentTimeMillis());
+    }
+    return result;
+  }
+
+  /**
+   * Returns the resolved cache name, key parameter indexes and refresh-ahead duration of the given
+   * method, they are resolved on the first invocation of the method.
+   */
+  protected FlightMethod getFlightMethod(InvocationContext ctx, Method method,
+      CacheResult cacheResult) {
+    FlightMethod flightMethod = METHODS.get(method);
+    if (flightMethod == null) {
+      flightMethod = METHODS.computeIfAbsent(method, m -> resolveFlightMethod(m, cacheResult,
+          getInterceptorAnnotation(ctx, SingleFlightCacheResult.class)));
+    }
+    return flightMethod;
+  }
+
+  /**
+   * Invoke the given invocation context if there isn't an invocation with the same key in flight,
+   * otherwise wait for the result of the invocation in flight. If the invocation in flight was
+   * started by the current thread, the given invocation context is invoked directly.
+   */
+  protected Object load(InvocationContext ctx, FlightKey key) throws Exception {
+    final Flight flight = new Flight();
+    final Flight inFlight = FLIGHTS.putIfAbsent(key, flight);
+    if (inFlight != null) {
+      if (inFlight.owner == Thread.currentThread()) {
+        // the re-entrant invocation, waiting for the flight of its own would never complete
+        return ctx.proceed();
+      }
+      try {
+        return inFlight.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CorantRuntimeException(e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof Exception) {
+          throw (Exception) cause;
+        } else if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new CorantRuntimeException(cause);
+      }
+    }
+    try {
+      Object result = ctx.proceed();
+      flight.complete(result);
+      return result;
+    } catch (Exception | Error e) {
+      flight.completeExceptionally(e);
+      throw e;
+    } finally {
+      FLIGHTS.remove(key, flight);
+    }
+  }
+
+  /**
+   * Reload the entry of the given key asynchronously and put the result into the cache, the
+   * annotated method is invoked on the intercepted target instance, see the class documentation.
+   */
+  protected void refresh(InvocationContext ctx, FlightMethod flightMethod, FlightKey key,
+      Object[] keyParameters) {
+    final GeneratedCacheKey cacheKey = flightMethod.cacheKey(keyParameters);
+    if (cacheKey == null || !REFRESHING.add(key)) {
+      return;
+    }
+    final Method method = ctx.getMethod();
+    final Object target = ctx.getTarget();
+    final Object[] parameters = ctx.getParameters();
+    try {
+      findNamed(ManagedExecutorService.class, flightMethod.executor).orElseThrow().execute(() -> {
+        try {
+          Cache<Object, Object> cache = cachingProvider.getCacheManager().getCache(key.cacheName);
+          if (cache != null) {
+            method.setAccessible(true);
+            Object result = method.invoke(target, parameters);
+            if (result != null) {
+              cache.put(cacheKey, result);
+              LOAD_TIMES.put(key, System.currentTimeMillis());
+            }
+          }
+        } catch (InvocationTargetException | IllegalAccessException | RuntimeException e) {
+          logger.log(Level.WARNING, e,
+              () -> String.format("Refresh cache %s entry occurred error!", key.cacheName));
+        } finally {
+          REFRESHING.remove(key);
+        }
+      });
+    } catch (RuntimeException e) {
+      REFRESHING.remove(key);
+      logger.log(Level.WARNING, e,
+          () -> String.format("Submit cache %s refreshing occurred error!", key.cacheName));
+    }
+  }
+
+  /**
+   * Returns the cache key generator class of the {@code @CacheResult} interceptor if the
+   * refresh-ahead can generate the same cache key, or null if the cache key generator or the cache
+   * resolver factory is customized.
+   */
+  protected Class<? extends CacheKeyGenerator> resolveCacheKeyGenerator(Method method,
+      CacheResult cacheResult) {
+    final CacheDefaults defaults = method.getDeclaringClass().getAnnotation(CacheDefaults.class);
+    Class<? extends CacheResolverFactory> resolverFactory = cacheResult.cacheResolverFactory();
+    Class<? extends CacheKeyGenerator> keyGenerator = cacheResult.cacheKeyGenerator();
+    if (defaults != null) {
+      if (resolverFactory == CacheResolverFactory.class) {
+        resolverFactory = defaults.cacheResolverFactory();
+      }
+      if (keyGenerator == CacheKeyGenerator.class) {
+        keyGenerator = defaults.cacheKeyGenerator();
+      }
+    }
+    if (resolverFactory != CacheResolverFactory.class) {
+      return null;
+    }
+    return keyGenerator == CacheKeyGenerator.class || keyGenerator == CorantCacheKeyGenerator.class
+        ? keyGenerator
+        : null;
+  }
+
+  protected FlightMethod resolveFlightMethod(Method method, CacheResult cacheResult,
+      SingleFlightCacheResult ann) {
+    final String cacheName = JCacheExtension.resolveCacheName(method);
+    return new FlightMethod(cacheName, resolveKeyParameterIndexes(method),
+        resolveCacheKeyGenerator(method, cacheResult), resolveRefreshAhead(cacheName, ann),
+        ann == null ? Qualifiers.EMPTY_NAME : ann.executor());
+  }
+
+  /**
+   * Returns the indexes of the parameters annotated with {@link CacheKey}, or null if there isn't
+   * any, which means all the parameters are the key parameters.
+   */
+  protected int[] resolveKeyParameterIndexes(Method method) {
+    final Annotation[][] annotations = method.getParameterAnnotations();
+    final List<Integer> indexes = new ArrayList<>(annotations.length);
+    for (int i = 0; i < annotations.length; i++) {
+      for (Annotation annotation : annotations[i]) {
+        if (annotation.annotationType() == CacheKey.class) {
+          indexes.add(i);
+          break;
+        }
+      }
+    }
+    return indexes.isEmpty() ? null : indexes.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  protected Duration resolveRefreshAhead(String cacheName, SingleFlightCacheResult ann) {
+    Duration refreshAhead =
+        Configs.getValue(CFG_PREFIX + cacheName + "." + CFG_REFRESH_AHEAD, Duration.class);
+    if (refreshAhead == null && ann != null && isNotBlank(ann.refreshAhead())) {
+      refreshAhead = Conversions.toDuration(ann.refreshAhead());
+    }
+    return refreshAhead != null && !refreshAhead.isNegative() && !refreshAhead.isZero()
+        ? refreshAhead
+        : null;
+  }
+
+  /**
+   * corant-modules-jcache-shared
+   *
+   * @author bingo 下午4:24:03
+   *
+   */
+  static class Flight extends CompletableFuture<Object> {
+
+    final Thread owner = Thread.currentThread();
+  }
+
+  /**
+   * corant-modules-jcache-shared
+   *
+   * @author bingo 下午4:25:47
+   *
+   */
+  static class FlightKey {
+
+    final String cacheName;
+    final CorantGeneratedCacheKey key;
+    final int hash;
+
+    FlightKey(String cacheName, CorantGeneratedCacheKey key) {
+      this.cacheName = cacheName;
+      this.key = key;
+      hash = Objects.hash(cacheName, key);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (obj == null || getClass() != obj.getClass()) {
+        return false;
+      }
+      FlightKey other = (FlightKey) obj;
+      return hash == other.hash && cacheName.equals(other.cacheName) && key.equals(other.key);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /**
+   * corant-modules-jcache-shared
+   *
+   * <p>
+   * The resolved cache name, key parameter indexes, cache key generator and refresh-ahead duration
+   * of a {@code @CacheResult} method.
+   *
+   * @author bingo 下午4:27:19
+   *
+   */
+  static class FlightMethod {
+
+    final String cacheName;
+    final int[] keyParameterIndexes;
+    final Class<? extends CacheKeyGenerator> keyGenerator;
+    final Duration refreshAhead;
+    final String executor;
+
+    FlightMethod(String cacheName, int[] keyParameterIndexes,
+        Class<? extends CacheKeyGenerator> keyGenerator, Duration refreshAhead, String executor) {
+      this.cacheName = cacheName;
+      this.keyParameterIndexes = keyParameterIndexes;
+      this.keyGenerator = keyGenerator;
+      this.refreshAhead = refreshAhead;
+      this.executor = executor;
+    }
+
+    /**
+     * Returns the cache key that generated by the {@code @CacheResult} interceptor, or null if the
+     * cache key generator or the cache resolver factory is customized.
+     */
+    GeneratedCacheKey cacheKey(Object[] keyParameters) {
+      if (keyGenerator == CacheKeyGenerator.class) {
+        return new DefaultGeneratedCacheKey(keyParameters);
+      } else if (keyGenerator == CorantCacheKeyGenerator.class) {
+        return new CorantGeneratedCacheKey(keyParameters);
+      }
+      return null;
+    }
+
+    /**
+     * Returns the parameters annotated with {@link CacheKey}, if there isn't any then returns all
+     * the parameters.
+     */
+    Object[] keyParameters(Object[] parameters) {
+      if (keyParameterIndexes == null) {
+        return parameters;
+      }
+      final Object[] keyParameters = new Object[keyParameterIndexes.length];
+      for (int i = 0; i < keyParameterIndexes.length; i++) {
+        keyParameters[i] = parameters[keyParameterIndexes[i]];
+      }
+      return keyParameters;
+    }
+  }
+}
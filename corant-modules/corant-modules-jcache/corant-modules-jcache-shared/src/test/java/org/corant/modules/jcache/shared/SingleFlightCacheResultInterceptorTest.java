@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jcache.shared;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.cache.annotation.CacheKey;
+import javax.cache.annotation.CacheResult;
+import javax.interceptor.InvocationContext;
+import org.corant.context.Contexts;
+import org.corant.context.proxy.InvocationContextImpl;
+import org.corant.context.proxy.MethodInvoker;
+import org.corant.modules.jcache.shared.SingleFlightCacheResultInterceptor.Flight;
+import org.corant.modules.jcache.shared.SingleFlightCacheResultInterceptor.FlightKey;
+import org.corant.modules.jcache.shared.SingleFlightCacheResultInterceptor.FlightMethod;
+import org.corant.shared.exception.CorantRuntimeException;
+import org.jsr107.ri.annotations.DefaultGeneratedCacheKey;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-jcache-shared
+ *
+ * @author bingo 下午5:48:12
+ *
+ */
+public class SingleFlightCacheResultInterceptorTest extends TestCase {
+
+  final SingleFlightCacheResultInterceptor interceptor = new SingleFlightCacheResultInterceptor();
+
+  @Test
+  public void testKeyParameterIndexes() throws Exception {
+    final Method method = Service.class.getMethod("keyed", String.class, String.class);
+    final MethodInvoker invoker = (target, args) -> args[1];
+    assertThat(interceptor.singleFlightInvocation(context(method, invoker, "a", "b")))
+        .isEqualTo("b");
+    FlightMethod flightMethod = SingleFlightCacheResultInterceptor.METHODS.get(method);
+    assertThat(flightMethod.cacheName).isEqualTo("single-flight-keyed");
+    assertThat(flightMethod.keyParameterIndexes).containsExactly(1);
+    assertThat(flightMethod.keyParameters(new Object[] {"a", "b"})).containsExactly("b");
+    assertThat(flightMethod.cacheKey(new Object[] {"b"}))
+        .isEqualTo(new DefaultGeneratedCacheKey(new Object[] {"b"}));
+    assertThat(flightMethod.refreshAhead).isNull();
+    assertThat(interceptor.getFlightMethod(null, method, null)).isSameAs(flightMethod);
+  }
+
+  @Test
+  public void testParallelMissesInvokeOnce() throws Exception {
+    final int threads = 16;
+    final Method method = Service.class.getMethod("parallel", String.class);
+    final FlightKey key = new FlightKey("single-flight-parallel",
+        new CorantGeneratedCacheKey(new Object[] {"k"}));
+    final AtomicInteger invocations = new AtomicInteger();
+    final MethodInvoker invoker = (target, args) -> {
+      invocations.incrementAndGet();
+      // hold the flight until all the other callers are waiting for it
+      final Flight flight = SingleFlightCacheResultInterceptor.FLIGHTS.get(key);
+      final long deadline = System.currentTimeMillis() + 10000;
+      while (flight.getNumberOfDependents() < threads - 1
+          && System.currentTimeMillis() < deadline) {
+        Thread.onSpinWait();
+      }
+      return "v";
+    };
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      final CountDownLatch start = new CountDownLatch(1);
+      final List<Future<Object>> results = new ArrayList<>(threads);
+      for (int i = 0; i < threads; i++) {
+        results.add(executor.submit(() -> {
+          start.await();
+          return interceptor.singleFlightInvocation(context(method, invoker, "k"));
+        }));
+      }
+      start.countDown();
+      for (Future<Object> result : results) {
+        assertThat(result.get(30, TimeUnit.SECONDS)).isEqualTo("v");
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertThat(invocations.get()).isEqualTo(1);
+    assertThat(SingleFlightCacheResultInterceptor.FLIGHTS).doesNotContainKey(key);
+    // the cache name, the key parameters and the refresh-ahead are resolved once per method
+    assertThat(SingleFlightCacheResultInterceptor.METHODS).containsKey(method);
+  }
+
+  @Test
+  public void testReentrantInvocation() throws Exception {
+    final Method method = Service.class.getMethod("reentrant", String.class);
+    final AtomicInteger invocations = new AtomicInteger();
+    final MethodInvoker invoker = new MethodInvoker() {
+      @Override
+      public Object invoke(Object target, Object[] args) {
+        if (invocations.incrementAndGet() > 1) {
+          return "inner";
+        }
+        try {
+          // the same key in the same thread
+          return interceptor.singleFlightInvocation(context(method, this, "k"));
+        } catch (Exception e) {
+          throw new CorantRuntimeException(e);
+        }
+      }
+    };
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Object> result =
+          executor.submit(() -> interceptor.singleFlightInvocation(context(method, invoker, "k")));
+      assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo("inner");
+    } finally {
+      executor.shutdownNow();
+    }
+    assertThat(invocations.get()).isEqualTo(2);
+  }
+
+  InvocationContext context(Method method, MethodInvoker invoker, Object... args) {
+    InvocationContext ctx = new InvocationContextImpl(Service.class, new Service(), method,
+        invoker, args, Collections.emptyList());
+    ctx.getContextData().put(Contexts.WELD_INTERCEPTOR_BINDINGS_KEY,
+        Set.of(SingleFlightCacheResult.INSTANCE));
+    return ctx;
+  }
+
+  /**
+   * corant-modules-jcache-shared
+   *
+   * @author bingo 下午5:50:34
+   *
+   */
+  public static class Service {
+
+    @CacheResult(cacheName = "single-flight-keyed")
+    public String keyed(String ignored, @CacheKey String key) {
+      return key;
+    }
+
+    @CacheResult(cacheName = "single-flight-parallel")
+    public String parallel(String key) {
+      return key;
+    }
+
+    @CacheResult(cacheName = "single-flight-reentrant")
+    public String reentrant(String key) {
+      return key;
+    }
+  }
+}
@@ -57,6 +57,48 @@ public @interface MessageDriven {
    */
   String acknowledge() default "2";
 
+  /**
+   * The maximum number of messages received and handled in one batch, if the value is greater than
+   * 1 the batch receiving mode is enabled. In batch receiving mode, up to the batch size messages
+   * are received using the same message consumer and are committed or acknowledged once per batch,
+   * which means that in JTA XA, each batch is a separate transaction; in SESSION_TRANSACTED, each
+   * batch is committed once; in CLIENT_ACKNOWLEDGE, each batch is acknowledged once. If the first
+   * parameter of the receiving method is a {@link java.util.List}, the message payloads of a batch
+   * are handed to the method as a list and the method can't be configured with a reply, otherwise
+   * the method is invoked for each message of the batch. If a batch fails, the redelivered messages
+   * are received in halved batches until the failing message is isolated. The batch receiving mode
+   * requires {@link #xa()}, SESSION_TRANSACTED or CLIENT_ACKNOWLEDGE, since in AUTO_ACKNOWLEDGE or
+   * DUPS_OK_ACKNOWLEDGE the messages are acknowledged on receipt and a failed batch can't be
+   * redelivered. Default value is 1.
+   *
+   * <p>
+   * <b>Note:</b> The final value type is <b>integer</b> type; in order to support configurability,
+   * the string is used as the value type of annotation property, and the value will eventually be
+   * converted to integer type. If the value of this property uses the <b>"${...}"</b> expression,
+   * the specific value can be obtained from the system property or configuration, and then convert
+   * it to integer value.
+   *
+   * @see #batchWaitMs()
+   * @return batchSize
+   */
+  String batchSize() default "1";
+
+  /**
+   * The maximum time in milliseconds to wait for assembling a batch in batch receiving mode, when
+   * exceeds, the received messages are handled as a batch even if the batch is not full. Only works
+   * if {@link #batchSize()} greater than 1, default is 1000.
+   *
+   * <p>
+   * <b>Note:</b> The final value type is <b>long</b> type; in order to support configurability, the
+   * string is used as the value type of annotation property, and the value will eventually be
+   * converted to long type. If the value of this property uses the <b>"${...}"</b> expression, the
+   * specific value can be obtained from the system property or configuration, and then convert it
+   * to long value.
+   *
+   * @return batchWaitMs
+   */
+  String batchWaitMs() default "1000";
+
   /**
    * Returns the Back-off Algorithm, default is {@link BackoffAlgorithm#FIXED}
    * <p>
@@ -129,6 +171,27 @@ public @interface MessageDriven {
    */
   String failureThreshold() default "16";
 
+  /**
+   * Whether to receive the messages through a message listener registered on the message consumer
+   * instead of polling the message consumer in the scheduled receiving task. In listener mode, the
+   * messages are pushed by the JMS provider and handled in the provider's delivery threads, the
+   * scheduled receiving task only maintains the message listener and the circuit break state, so
+   * it doesn't occupy a thread while waiting for messages. The number of messages handled
+   * concurrently per connection factory is limited by the receiving executor config. The listener
+   * mode doesn't support {@link #xa()} and {@link #batchSize()}, since the message delivered to a
+   * listener can't be enlisted in a transaction that begins after delivery. Default is false.
+   *
+   * <p>
+   * Note: The final value type is <b>boolean</b> type; in order to support configurability, the
+   * string is used as the value type of annotation property, and the value will eventually be
+   * converted to boolean type. If the value of this property uses the <b>"${...}"</b> expression,
+   * the specific value can be obtained from the system property or configuration, and then convert
+   * it to boolean value.
+   *
+   * @return listenerMode
+   */
+  String listenerMode() default "false";
+
   /**
    * When the task breaks itself, the scheduler can still schedule the task, but the task execution
    * only sleeps for a short time and then returns directly. The sleep short time is loopIntervalMs.
@@ -160,7 +223,8 @@ public @interface MessageDriven {
    * receipt has its own message acknowledgement, which means that in JTA XA, each message received
    * and processed is a separate transaction; in SESSION_TRANSACTED, each message received and
    * processed is committed independently; in CLIENT_ACKNOWLEDGE, each receive processing is
-   * acknowledged independently. Default value is 1.
+   * acknowledged independently. In batch receiving mode, it is the number of batches received per
+   * execution. Default value is 1.
    *
    * <p>
    * <b>Note:</b> The final value type is <b>integer</b> type; in order to support configurability,
@@ -49,6 +49,10 @@ public class MessageDrivenMetaData {
 
   private final int acknowledge;
 
+  private final int batchSize;
+
+  private final long batchWaitMs;
+
   private final BackoffAlgorithm brokenBackoffAlgo;
 
   private final double brokenBackoffFactor;
@@ -59,6 +63,8 @@ public class MessageDrivenMetaData {
 
   private final int failureThreshold;
 
+  private final boolean listenerMode;
+
   private final long loopIntervalMs;
 
   private final String maxBrokenDuration;
@@ -85,16 +91,31 @@ public class MessageDrivenMetaData {
       String maxBrokenDuration, int receiveThreshold, long receiveTimeout,
       Collection<MessageReplyMetaData> reply, String selector, String[] specifiedSelectors,
       int tryThreshold, int txTimeout, boolean xa) {
+    this(beanClass, beanQualifiers, beanMethod, acknowledge, 1, 0L, brokenBackoffAlgo,
+        brokenBackoffFactor, brokenDuration, cacheLevel, failureThreshold, false, loopIntervalMs,
+        maxBrokenDuration, receiveThreshold, receiveTimeout, reply, selector, specifiedSelectors,
+        tryThreshold, txTimeout, xa);
+  }
+
+  public MessageDrivenMetaData(Class<?> beanClass, Annotation[] beanQualifiers, Method beanMethod,
+      int acknowledge, int batchSize, long batchWaitMs, BackoffAlgorithm brokenBackoffAlgo,
+      double brokenBackoffFactor, String brokenDuration, int cacheLevel, int failureThreshold,
+      boolean listenerMode, long loopIntervalMs, String maxBrokenDuration, int receiveThreshold,
+      long receiveTimeout, Collection<MessageReplyMetaData> reply, String selector,
+      String[] specifiedSelectors, int tryThreshold, int txTimeout, boolean xa) {
     this.beanClass = beanClass;
     this.beanQualifiers =
         beanQualifiers == null ? EMPTY_ARRAY : Arrays.copyOf(beanQualifiers, beanQualifiers.length);
     this.beanMethod = beanMethod;
     this.acknowledge = acknowledge;
+    this.batchSize = batchSize;
+    this.batchWaitMs = batchWaitMs;
     this.brokenBackoffAlgo = brokenBackoffAlgo;
     this.brokenBackoffFactor = brokenBackoffFactor;
     this.brokenDuration = MetaDataPropertyResolver.get(brokenDuration, String.class);
     this.cacheLevel = cacheLevel;
     this.failureThreshold = failureThreshold;
+    this.listenerMode = listenerMode;
     this.loopIntervalMs = loopIntervalMs;
     this.maxBrokenDuration = MetaDataPropertyResolver.get(maxBrokenDuration, String.class);
     this.receiveThreshold = receiveThreshold;
@@ -115,21 +136,31 @@ public class MessageDrivenMetaData {
     Method beanMethod = shouldNotNull(method);
     MessageDriven annotation = shouldNotNull(method.getAnnotation(MessageDriven.class));
     return new MessageDrivenMetaData(beanMethod.getDeclaringClass(), qualifiers, beanMethod,
-        getInt(annotation.acknowledge()),
+        getInt(annotation.acknowledge()), getInt(annotation.batchSize()),
+        getLong(annotation.batchWaitMs()),
         get(annotation.brokenBackoffAlgo(), BackoffAlgorithm.class),
         getDouble(annotation.brokenBackoffFactor()), getString(annotation.brokenDuration()),
         getInt(annotation.cacheLevel()), getInt(annotation.failureThreshold()),
-        getLong(annotation.loopIntervalMs()), getString(annotation.maxBrokenDuration()),
-        getInt(annotation.receiveThreshold()), getLong(annotation.receiveTimeout()),
-        MessageReplyMetaData.of(annotation.reply()), getString(annotation.selector()),
-        annotation.specifiedSelectors(), getInt(annotation.tryThreshold()),
-        getInt(annotation.txTimeout()), getBoolean(annotation.xa()));
+        getBoolean(annotation.listenerMode()), getLong(annotation.loopIntervalMs()),
+        getString(annotation.maxBrokenDuration()), getInt(annotation.receiveThreshold()),
+        getLong(annotation.receiveTimeout()), MessageReplyMetaData.of(annotation.reply()),
+        getString(annotation.selector()), annotation.specifiedSelectors(),
+        getInt(annotation.tryThreshold()), getInt(annotation.txTimeout()),
+        getBoolean(annotation.xa()));
   }
 
   public int getAcknowledge() {
     return acknowledge;
   }
 
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public long getBatchWaitMs() {
+    return batchWaitMs;
+  }
+
   public Class<?> getBeanClass() {
     return beanClass;
   }
@@ -198,6 +229,10 @@ public class MessageDrivenMetaData {
     return txTimeout;
   }
 
+  public boolean isListenerMode() {
+    return listenerMode;
+  }
+
   public boolean isXa() {
     return xa;
   }
@@ -13,6 +13,8 @@
  */
 package org.corant.modules.jms.receive;
 
+import java.util.ArrayList;
+import java.util.List;
 import javax.jms.Message;
 import javax.jms.Session;
 
@@ -30,4 +32,21 @@ public interface ManagedMessageReceivingHandler {
 
   Object onMessage(Message message, Session session);
 
+  /**
+   * Handle a batch of messages that are received in the same transaction or acknowledgement, and
+   * returns the handling results corresponding to the messages, or returns null if there are no
+   * separate handling results for each message. The default implementation handles the messages
+   * one by one.
+   *
+   * @param messages the batch messages
+   * @param session the session that received the messages
+   */
+  default List<Object> onMessages(List<Message> messages, Session session) {
+    List<Object> results = new ArrayList<>(messages.size());
+    for (Message message : messages) {
+      results.add(onMessage(message, session));
+    }
+    return results;
+  }
+
 }
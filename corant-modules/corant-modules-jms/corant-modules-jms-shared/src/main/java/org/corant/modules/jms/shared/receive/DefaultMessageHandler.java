@@ -15,7 +15,13 @@ package org.corant.modules.jms.shared.receive;
 
 import static org.corant.context.Beans.find;
 import static org.corant.shared.util.Assertions.shouldNotBlank;
+import static org.corant.shared.util.Objects.forceCast;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.jms.JMSException;
@@ -45,27 +51,28 @@ public class DefaultMessageHandler implements ManagedMessageReceivingHandler {
   final Class<?> messageClass;
   final MessageReceivingExecutorConfig config;
   final boolean propagateSecurityContext;
+  final boolean batchPayload;
 
   protected DefaultMessageHandler(MessageReceivingMetaData meta,
       MessageReceivingMediator mediator) {
     method = meta.getMethod();
     config = MessageReceivingExecutorConfig.getExecutorConfig(meta.getConnectionFactoryId());
-    messageClass = method.getMethod().getParameterTypes()[0];
+    batchPayload = meta.isBatchPayload();
+    messageClass = batchPayload ? resolveBatchPayloadClass(method)
+        : method.getMethod().getParameterTypes()[0];
     propagateSecurityContext = AbstractJMSExtension.getConfig(config.getConnectionFactoryId())
         .isPropagateSecurityContext();
     this.mediator = mediator;
   }
 
-  @SuppressWarnings("resource")
   @Override
   public Object onMessage(Message message, Session session) {
     try {
       resolveSecurityContext(message);
-      if (method.getMethod().getParameterCount() > 1) {
-        return method.invoke(resolvePayload(message), new MessageReceivingSession(session, config));
-      } else {
-        return method.invoke(resolvePayload(message));
+      if (batchPayload) {
+        return invoke(Collections.singletonList(resolvePayload(message)), session);
       }
+      return invoke(resolvePayload(message), session);
     } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException
         | JMSException e) {
       throw new CorantRuntimeException(e);
@@ -74,6 +81,58 @@ public class DefaultMessageHandler implements ManagedMessageReceivingHandler {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * If the first parameter of the receiving method is a list, the method is invoked once with the
+   * message payloads list, and the security context is resolved from the first message.
+   */
+  @Override
+  public List<Object> onMessages(List<Message> messages, Session session) {
+    if (!batchPayload) {
+      return ManagedMessageReceivingHandler.super.onMessages(messages, session);
+    }
+    try {
+      resolveSecurityContext(messages.get(0));
+      List<Object> payloads = new ArrayList<>(messages.size());
+      for (Message message : messages) {
+        payloads.add(resolvePayload(message));
+      }
+      invoke(payloads, session);
+      return null;
+    } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException
+        | JMSException e) {
+      throw new CorantRuntimeException(e);
+    } finally {
+      SecurityContexts.setCurrent(null);
+    }
+  }
+
+  @SuppressWarnings("resource")
+  protected Object invoke(Object payload, Session session)
+      throws IllegalAccessException, InvocationTargetException {
+    if (method.getMethod().getParameterCount() > 1) {
+      return method.invoke(payload, new MessageReceivingSession(session, config));
+    } else {
+      return method.invoke(payload);
+    }
+  }
+
+  protected Class<?> resolveBatchPayloadClass(ContextualMethodHandler method) {
+    Type type = method.getMethod().getGenericParameterTypes()[0];
+    if (type instanceof ParameterizedType) {
+      Type argType = ((ParameterizedType) type).getActualTypeArguments()[0];
+      if (argType instanceof Class) {
+        return forceCast(argType);
+      } else if (argType instanceof ParameterizedType) {
+        return forceCast(((ParameterizedType) argType).getRawType());
+      }
+    }
+    throw new CorantRuntimeException(
+        "The message receiving method %s receives batch payloads, the list element type must be specified.",
+        method.getMethod());
+  }
+
   protected Object resolvePayload(Message message) throws JMSException {
     if (!Message.class.isAssignableFrom(messageClass)) {
       String marshallerName = shouldNotBlank(message.getStringProperty(JMSNames.MSG_MARSHAL_SCHEMA),
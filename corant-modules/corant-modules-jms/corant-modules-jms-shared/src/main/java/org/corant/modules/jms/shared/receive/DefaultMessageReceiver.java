@@ -16,6 +16,8 @@ package org.corant.modules.jms.shared.receive;
 import static org.corant.context.Beans.resolve;
 import static org.corant.context.Beans.select;
 import static org.corant.shared.util.Strings.isNotBlank;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.jms.Connection;
@@ -51,6 +53,13 @@ import org.corant.shared.ubiquity.Sortable;
  * Unfinish: use connection or session pool
  *
  * <p>
+ * In batch receiving mode, the messages are received and committed or acknowledged in batches. If
+ * a batch fails, the messages of the batch will be redelivered by the broker, the receiver then
+ * receives the suspect messages with halved batch sizes until the failing message is isolated in a
+ * single message batch, the batches without the failing message are committed, and the full batch
+ * size is restored when all suspect messages have been received.
+ *
+ * <p>
  * <a href = "https://developer.jboss.org/wiki/ShouldICacheJMSConnectionsAndJMSSessions"> Should I
  * cache JMS connections and JMS sessions</a>
  *
@@ -65,6 +74,8 @@ public class DefaultMessageReceiver implements ManagedMessageReceiver {
   protected final MessageReceivingMetaData meta;
   protected final int receiveThreshold;
   protected final long receiveTimeout;
+  protected final int batchSize;
+  protected final long batchWaitMs;
 
   // workhorse
   protected final ManagedMessageReceivingHandler messageHandler;
@@ -73,6 +84,10 @@ public class DefaultMessageReceiver implements ManagedMessageReceiver {
   protected volatile Session session;
   protected volatile MessageConsumer messageConsumer;
 
+  // batch failure isolation
+  protected int suspectBatchSize;
+  protected int suspectRemaining;
+
   protected DefaultMessageReceiver(MessageReceivingMetaData metaData,
       ManagedMessageReceivingHandler messageHandler, MessageReceivingMediator mediator) {
     meta = metaData;
@@ -80,7 +95,9 @@ public class DefaultMessageReceiver implements ManagedMessageReceiver {
     this.mediator = mediator;
     receiveThreshold = metaData.getReceiveThreshold();
     receiveTimeout = metaData.getReceiveTimeout();
-
+    batchSize = metaData.getBatchSize();
+    batchWaitMs = metaData.getBatchWaitMs();
+    suspectBatchSize = batchSize;
   }
 
   @Override
@@ -149,13 +166,22 @@ public class DefaultMessageReceiver implements ManagedMessageReceiver {
     try {
       if (initialize()) {
         int rt = receiveThreshold;
-        while (--rt >= 0) {
-          preConsume();
-          Message message = consume();
-          postConsume(message);
-          if (message == null) {
-            logger.log(Level.FINE, () -> String.format("No message for now, %s.", meta));
-            break;
+        if (meta.isBatch()) {
+          while (--rt >= 0) {
+            if (!receiveBatch()) {
+              logger.log(Level.FINE, () -> String.format("No message for now, %s.", meta));
+              break;
+            }
+          }
+        } else {
+          while (--rt >= 0) {
+            preConsume();
+            Message message = consume();
+            postConsume(message);
+            if (message == null) {
+              logger.log(Level.FINE, () -> String.format("No message for now, %s.", meta));
+              break;
+            }
           }
         }
       }
@@ -223,6 +249,42 @@ public class DefaultMessageReceiver implements ManagedMessageReceiver {
     return message;
   }
 
+  /**
+   * Receive and handle a batch of messages, the size of the batch is limited by the batch size or
+   * the suspect batch size if there are suspect messages, the waiting time for assembling the batch
+   * is limited by the batch wait milliseconds.
+   *
+   * @param messages the list used to collect the received messages
+   * @throws JMSException if occurred error
+   */
+  protected void consumeBatch(List<Message> messages) throws JMSException {
+    final int size =
+        suspectRemaining > 0 ? Math.min(suspectBatchSize, suspectRemaining) : batchSize;
+    Message message = receiveTimeout <= 0 ? messageConsumer.receiveNoWait()
+        : messageConsumer.receive(receiveTimeout);
+    if (message != null) {
+      messages.add(message);
+      final long deadline = System.currentTimeMillis() + batchWaitMs;
+      while (messages.size() < size) {
+        long waitMs = deadline - System.currentTimeMillis();
+        message = waitMs > 0 ? messageConsumer.receive(waitMs) : messageConsumer.receiveNoWait();
+        if (message == null) {
+          break;
+        }
+        messages.add(message);
+      }
+      logger.log(Level.FINE, () -> String.format("Received %s messages start handling, [%s]",
+          messages.size(), meta));
+      List<Object> results = messageHandler.onMessages(messages, session);
+      if (results != null) {
+        for (int i = 0; i < messages.size(); i++) {
+          mediator.onPostMessageHandled(messages.get(i), session, results.get(i));
+        }
+      }
+      logger.log(Level.FINE, () -> String.format("Complete batch messages handling, [%s]", meta));
+    }
+  }
+
   protected JMSException generateJMSException(Exception t) {
     if (t instanceof JMSException) {
       return (JMSException) t;
@@ -292,6 +354,40 @@ public class DefaultMessageReceiver implements ManagedMessageReceiver {
     }
   }
 
+  /**
+   * Receive, handle and commit a batch of messages, if the handling fails, the next batch size is
+   * halved until the failing message is isolated.
+   *
+   * @return true if any messages were received
+   * @throws JMSException if occurred error
+   */
+  protected boolean receiveBatch() throws JMSException {
+    preConsume();
+    final List<Message> messages = new ArrayList<>(batchSize);
+    try {
+      consumeBatch(messages);
+      postConsume(messages.isEmpty() ? null : messages.get(messages.size() - 1));
+    } catch (JMSException | RuntimeException e) {
+      if (!messages.isEmpty()) {
+        // the messages of the failed batch are going to be redelivered
+        final int failed = messages.size();
+        suspectRemaining = failed;
+        suspectBatchSize = Math.max(1, failed >> 1);
+        logger.log(Level.WARNING, () -> String.format(
+            "The batch of %s messages failed, isolate them with batch size %s, [%s]", failed,
+            suspectBatchSize, meta));
+      }
+      throw e;
+    }
+    if (suspectRemaining > 0) {
+      suspectRemaining = Math.max(0, suspectRemaining - messages.size());
+      if (suspectRemaining == 0) {
+        suspectBatchSize = batchSize;
+      }
+    }
+    return !messages.isEmpty();
+  }
+
   /**
    * Related work before starting to consume, begin transaction if necessary
    *
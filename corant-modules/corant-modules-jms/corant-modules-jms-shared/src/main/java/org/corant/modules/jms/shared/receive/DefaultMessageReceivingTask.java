@@ -109,7 +109,7 @@ public class DefaultMessageReceivingTask
     tryThreshold = metaData.getTryThreshold();
     messageReplier = new DefaultMessageReplier(meta, this);
     messageHandler = new DefaultMessageHandler(meta, this);
-    messageReceiver = new DefaultMessageReceiver(metaData, messageHandler, this);
+    messageReceiver = createMessageReceiver(messageHandler);
     logger.log(Level.FINE, () -> String.format("Create message receive task for %s.", metaData));
   }
 
@@ -186,6 +186,11 @@ public class DefaultMessageReceivingTask
     }
   }
 
+  protected ManagedMessageReceiver createMessageReceiver(
+      ManagedMessageReceivingHandler messageHandler) {
+    return new DefaultMessageReceiver(meta, messageHandler, this);
+  }
+
   protected void postRun() {
     try {
       if (state == STATE_RUN) {
@@ -21,6 +21,9 @@ public class DefaultMessageReceivingTaskFactory implements MessageReceivingTaskF
 
   @Override
   public ManagedMessageReceivingTask create(MessageReceivingMetaData metaData) {
+    if (metaData.isListenerMode()) {
+      return new MessageListenerReceivingTask(metaData);
+    }
     return new DefaultMessageReceivingTask(metaData);
   }
 
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jms.shared.receive;
+
+import static org.corant.shared.util.Objects.defaultObject;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import org.corant.modules.jms.receive.ManagedMessageReceivingHandler;
+
+/**
+ * corant-modules-jms-shared
+ *
+ * <p>
+ * A message receiver that receives the messages through a message listener registered on the
+ * message consumer. The {@link #receive()} only initializes the message consumer and registers the
+ * message listener if necessary, the messages are pushed by the JMS provider and handled in the
+ * provider's delivery threads, each message is committed or acknowledged in the delivery thread.
+ *
+ * <p>
+ * The messages handled concurrently by the listeners of a connection factory are limited by the
+ * credits of the connection factory, when there are no credits the delivery thread is blocked
+ * until a credit is returned, so the messages are backlogged in the consumer buffer or the broker.
+ *
+ * @author bingo 下午4:52:06
+ *
+ */
+public class MessageListenerReceiver extends DefaultMessageReceiver implements MessageListener {
+
+  static final Map<String, Semaphore> credits = new ConcurrentHashMap<>();
+
+  protected final Semaphore credit;
+  protected final AtomicInteger inFlight = new AtomicInteger();
+  protected volatile boolean listening;
+
+  protected MessageListenerReceiver(MessageReceivingMetaData metaData,
+      ManagedMessageReceivingHandler messageHandler, MessageReceivingMediator mediator) {
+    super(metaData, messageHandler, mediator);
+    credit = credits.computeIfAbsent(defaultObject(meta.getConnectionFactoryId(), ""),
+        k -> new Semaphore(Math.max(1, MessageReceivingExecutorConfig
+            .getExecutorConfig(meta.getConnectionFactoryId()).getListenerMaxConcurrency())));
+  }
+
+  /**
+   * Returns the number of the messages that are being handled.
+   */
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  public boolean isListening() {
+    return listening;
+  }
+
+  @Override
+  public void onMessage(Message message) {
+    try {
+      credit.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      onException(e);
+      return;
+    }
+    inFlight.incrementAndGet();
+    try {
+      preConsume();
+      logger.log(Level.FINE, () -> String.format("Received message start handling, [%s]", meta));
+      Object result = messageHandler.onMessage(message, session);
+      mediator.onPostMessageHandled(message, session, result);
+      logger.log(Level.FINE, () -> String.format("Complete message handling, [%s]", meta));
+      postConsume(message);
+    } catch (Exception e) {
+      onException(e);
+    } finally {
+      inFlight.decrementAndGet();
+      credit.release();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Initialize the message consumer and register the message listener if necessary, don't wait for
+   * the messages.
+   */
+  @Override
+  public synchronized boolean receive() {
+    try {
+      if (initialize() && !listening) {
+        messageConsumer.setMessageListener(this);
+        listening = true;
+        logger.log(Level.INFO, () -> String.format("Registered message listener, %s.", meta));
+      }
+      return true;
+    } catch (Exception e) {
+      onException(e);
+      return false;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The message consumer and session are kept while the message listener is working, they are
+   * released only when stopping. The message listener isn't removed from the releasing thread,
+   * since changing the message listener of an asynchronous session from other threads is not
+   * allowed, the message consumer and the session are closed instead, closing them stops the
+   * delivery and waits for the message listener to complete the current handling.
+   */
+  @Override
+  public void release(boolean stop) {
+    if (stop) {
+      listening = false;
+      super.release(true);
+    }
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.jms.shared.receive;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+import org.corant.modules.jms.receive.ManagedMessageReceiver;
+import org.corant.modules.jms.receive.ManagedMessageReceivingHandler;
+import org.corant.shared.retry.BackoffStrategy;
+
+/**
+ * corant-modules-jms-shared
+ *
+ * <p>
+ * The message receiving task in listener mode. The messages are pushed to a message listener, the
+ * scheduled execution of this task doesn't wait for messages, it only maintains the message
+ * listener and the circuit break state: in running or trying mode the message listener is
+ * registered if necessary; when the failures reach the threshold, the message listener is removed
+ * and the task enters breaking mode, and it is registered again as soon as the broken duration
+ * expires.
+ *
+ * @see MessageListenerReceiver
+ * @author bingo 下午4:58:17
+ *
+ */
+public class MessageListenerReceivingTask extends DefaultMessageReceivingTask {
+
+  public MessageListenerReceivingTask(MessageReceivingMetaData metaData) {
+    super(metaData);
+  }
+
+  public MessageListenerReceivingTask(MessageReceivingMetaData metaData,
+      BackoffStrategy backoffStrategy) {
+    super(metaData, backoffStrategy);
+  }
+
+  /**
+   * Returns the number of the messages that are being handled by the message listener.
+   */
+  public int getInFlight() {
+    return ((MessageListenerReceiver) messageReceiver).getInFlight();
+  }
+
+  public MessageReceivingMetaData getMeta() {
+    return meta;
+  }
+
+  @Override
+  public boolean isInProgress() {
+    return super.isInProgress() || getInFlight() > 0;
+  }
+
+  @Override
+  public void onPostMessageHandled(Message message, Session session, Object result)
+      throws JMSException {
+    super.onPostMessageHandled(message, session, result);
+    lastExecutionSuccessfully = true;
+  }
+
+  @Override
+  public void onReceivingException(Exception e) {
+    super.onReceivingException(e);
+    lastExecutionSuccessfully = false;
+  }
+
+  @Override
+  public synchronized void run() {
+    if (checkCancelled()) {
+      return;
+    }
+    // don't sleep if the task is broken, the scheduler will check it again in the next execution
+    if (preRun()) {
+      inProgress = true;
+      if (!messageReceiver.receive()) {
+        lastExecutionSuccessfully = false;
+      }
+      inProgress = false;
+      postRun();
+    }
+  }
+
+  @Override
+  protected ManagedMessageReceiver createMessageReceiver(
+      ManagedMessageReceivingHandler messageHandler) {
+    return new MessageListenerReceiver(meta, messageHandler, this);
+  }
+
+}
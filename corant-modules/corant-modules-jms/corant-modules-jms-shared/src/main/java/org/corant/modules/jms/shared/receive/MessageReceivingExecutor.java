@@ -23,6 +23,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.TreeMap;
 import java.util.Set;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -79,6 +80,28 @@ public class MessageReceivingExecutor implements ManagedMessageReceivingExecutor
 
   protected final List<MessageReceivingTaskExecution> receiveExecutions = new ArrayList<>();
 
+  /**
+   * Returns the number of the messages that are being handled by the message listeners of each
+   * destination, the key is the destination name prefixed with the connection factory id and '#'
+   * if the connection factory id is not blank. Only the receiving tasks in listener mode are
+   * counted.
+   *
+   * @see MessageListenerReceivingTask#getInFlight()
+   */
+  public Map<String, Integer> getInFlightCounts() {
+    Map<String, Integer> counts = new TreeMap<>();
+    for (MessageReceivingTaskExecution execution : new ArrayList<>(receiveExecutions)) {
+      if (execution.getTask() instanceof MessageListenerReceivingTask) {
+        MessageListenerReceivingTask task = (MessageListenerReceivingTask) execution.getTask();
+        MessageReceivingMetaData meta = task.getMeta();
+        String key = isBlank(meta.getConnectionFactoryId()) ? meta.getDestination()
+            : meta.getConnectionFactoryId() + "#" + meta.getDestination();
+        counts.merge(key, task.getInFlight(), Integer::sum);
+      }
+    }
+    return counts;
+  }
+
   @Override
   public void start() {
     Set<Pair<String, String>> anycasts = new HashSet<>();
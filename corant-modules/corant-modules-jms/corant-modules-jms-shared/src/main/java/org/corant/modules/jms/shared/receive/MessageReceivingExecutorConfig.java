@@ -75,6 +75,9 @@ public class MessageReceivingExecutorConfig
   @ConfigKeyItem(name = "receive-executor-cor-pool-size", defaultValue = "2")
   protected Integer corePoolSize = max(2, Runtime.getRuntime().availableProcessors());
 
+  @ConfigKeyItem(name = "receive-listener-max-concurrency", defaultValue = "64")
+  protected Integer listenerMaxConcurrency = 64;
+
   public static MessageReceivingExecutorConfig getExecutorConfig(AbstractJMSConfig config) {
     return CONFIGS.getOrDefault(config.getConnectionFactoryId(),
         MessageReceivingExecutorConfig.DFLT_INST);
@@ -108,6 +111,15 @@ public class MessageReceivingExecutorConfig
     return initialDelay;
   }
 
+  /**
+   * Returns the maximum number of messages handled concurrently by the message listeners of the
+   * connection factory, the JMS provider's delivery threads are blocked when exceeds, so that the
+   * messages are backlogged in the consumer buffers or the brokers.
+   */
+  public int getListenerMaxConcurrency() {
+    return listenerMaxConcurrency;
+  }
+
   @Override
   public String getName() {
     return connectionFactoryId;
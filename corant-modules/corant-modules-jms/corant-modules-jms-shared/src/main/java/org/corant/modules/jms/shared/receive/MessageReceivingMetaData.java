@@ -24,9 +24,11 @@ import static org.corant.shared.util.Strings.isBlank;
 import java.time.Duration;
 import java.util.Collection;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Logger;
+import javax.jms.Session;
 import org.corant.context.proxy.ContextualMethodHandler;
 import org.corant.context.qualifier.Qualifiers;
 import org.corant.modules.jms.annotation.MessageDestination;
@@ -64,6 +66,10 @@ public class MessageReceivingMetaData {
   private final long loopIntervalMs;
   private final boolean xa;
   private final int txTimeout;
+  private final int batchSize;
+  private final long batchWaitMs;
+  private final boolean batchPayload;
+  private final boolean listenerMode;
   private final Collection<MessageReplyMetaData> replies;
 
   MessageReceivingMetaData(ContextualMethodHandler method, MessageDestinationMetaData dest,
@@ -93,6 +99,25 @@ public class MessageReceivingMetaData {
         .factor(driven.getBrokenBackoffFactor()).build();
     xa = driven.isXa();
     txTimeout = driven.getTxTimeout();
+    batchSize = max(1, driven.getBatchSize());
+    batchWaitMs = max(0L, driven.getBatchWaitMs());
+    // the messages of a failed batch are redelivered only if the session is transacted or client
+    // acknowledged, an auto or dups ok acknowledged session acknowledges each received message
+    shouldBeFalse(
+        batchSize > 1 && !xa && acknowledge != Session.SESSION_TRANSACTED
+            && acknowledge != Session.CLIENT_ACKNOWLEDGE,
+        "The message receiving method %s in batch receiving mode requires xa, a transacted session or a client acknowledged session.",
+        method.getMethod());
+    // only the batch receiving methods receive the payloads list, the non-batch receiving methods
+    // whose first parameter is a list still receive the message payload as a whole
+    batchPayload =
+        batchSize > 1 && List.class.equals(method.getMethod().getParameterTypes()[0]);
+    listenerMode = driven.isListenerMode();
+    if (listenerMode) {
+      shouldBeFalse(xa || batchSize > 1,
+          "The message receiving method %s in listener mode doesn't support xa or batch receiving.",
+          method.getMethod());
+    }
     replies = driven.getReply();
     shouldBeTrue(setOf(replies).size() == replies.size(),
         "The reply destination in annotation must be unique.");
@@ -104,6 +129,9 @@ public class MessageReceivingMetaData {
       }
     }
     if (isNotEmpty(replies)) {
+      shouldBeFalse(batchPayload,
+          "The message receiving method %s receives batch payloads and can't be configured with a reply.",
+          method.getMethod());
       shouldBeFalse(method.getMethod().getReturnType().equals(Void.TYPE),
           "The message receiving method %s requires a return type because the method is configured with a reply.",
           method.getMethod());
@@ -187,6 +215,14 @@ public class MessageReceivingMetaData {
     return acknowledge;
   }
 
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public long getBatchWaitMs() {
+    return batchWaitMs;
+  }
+
   public BackoffStrategy getBrokenBackoffStrategy() {
     return brokenBackoffStrategy;
   }
@@ -253,6 +289,33 @@ public class MessageReceivingMetaData {
     return prime * result + (selector == null ? 0 : selector.hashCode());
   }
 
+  /**
+   * Returns whether to enable the batch receiving mode.
+   *
+   * @see MessageDriven#batchSize()
+   */
+  public boolean isBatch() {
+    return batchSize > 1;
+  }
+
+  /**
+   * Returns whether the batch receiving mode is enabled and the first parameter of the receiving
+   * method is a list, which means the message payloads of a batch are handed to the method as a
+   * list.
+   */
+  public boolean isBatchPayload() {
+    return batchPayload;
+  }
+
+  /**
+   * Returns whether to receive messages through a message listener.
+   *
+   * @see MessageDriven#listenerMode()
+   */
+  public boolean isListenerMode() {
+    return listenerMode;
+  }
+
   public boolean isMulticast() {
     return multicast;
   }
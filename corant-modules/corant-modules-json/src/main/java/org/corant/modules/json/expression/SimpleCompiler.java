@@ -0,0 +1,557 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.json.expression;
+
+import static org.corant.shared.util.Conversions.toBoolean;
+import static org.corant.shared.util.Conversions.toObject;
+import static org.corant.shared.util.Objects.areEqual;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.MonthDay;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.Year;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import org.corant.modules.json.expression.ast.ASTComparisonNode.ASTBetweenNode;
+import org.corant.modules.json.expression.ast.ASTComparisonNode.ASTEqualNode;
+import org.corant.modules.json.expression.ast.ASTComparisonNode.ASTGreaterThanEqualNode;
+import org.corant.modules.json.expression.ast.ASTComparisonNode.ASTGreaterThanNode;
+import org.corant.modules.json.expression.ast.ASTComparisonNode.ASTInNode;
+import org.corant.modules.json.expression.ast.ASTComparisonNode.ASTLessThanEqualNode;
+import org.corant.modules.json.expression.ast.ASTComparisonNode.ASTLessThanNode;
+import org.corant.modules.json.expression.ast.ASTComparisonNode.ASTNoEqualNode;
+import org.corant.modules.json.expression.ast.ASTComparisonNode.ASTNoInNode;
+import org.corant.modules.json.expression.ast.ASTComparisonNode.ASTRegexNode;
+import org.corant.modules.json.expression.ast.ASTFunctionNode.ASTDefaultFunctionNode;
+import org.corant.modules.json.expression.ast.ASTLogicNode.ASTLogicAndNode;
+import org.corant.modules.json.expression.ast.ASTLogicNode.ASTLogicNorNode;
+import org.corant.modules.json.expression.ast.ASTLogicNode.ASTLogicNotNode;
+import org.corant.modules.json.expression.ast.ASTLogicNode.ASTLogicOrNode;
+import org.corant.modules.json.expression.ast.ASTLogicNode.ASTLogicXorNode;
+import org.corant.modules.json.expression.ast.ASTNode.ASTTernaryNode;
+import org.corant.modules.json.expression.ast.ASTValueNode;
+import org.corant.shared.exception.NotSupportedException;
+
+/**
+ * corant-modules-json
+ *
+ * <p>
+ * Compiles a parsed expression node tree into a tree of pre-bound closures, the compiled node can
+ * be evaluated repeatedly with different evaluation contexts without walking the syntax tree.
+ * <ul>
+ * <li>The sub trees that only contain value nodes are folded into constants, the functions are not
+ * folded since they may be nondeterministic.</li>
+ * <li>The functions are resolved once at compile time if a function resolving context is given,
+ * otherwise they are resolved by the evaluation context on each evaluation.</li>
+ * <li>The comparators of the comparison nodes are specialized by the operand classes seen at
+ * runtime, so the number comparison ladder only runs when the operand classes change.</li>
+ * </ul>
+ * Only the default node implementations are compiled, the other nodes (e.g. customized by an
+ * {@link org.corant.modules.json.expression.ast.ASTNodeBuilder}) are evaluated by themselves, the
+ * variable nodes are always resolved by the evaluation context.
+ *
+ * @author bingo 下午3:26:17
+ *
+ */
+public class SimpleCompiler {
+
+  private SimpleCompiler() {}
+
+  /**
+   * Compile the given node, the functions are resolved by the evaluation context on each
+   * evaluation.
+   *
+   * @param <T> the value type
+   * @param node the node to be compiled
+   */
+  public static <T> CompiledNode<T> compile(Node<T> node) {
+    return compile(node, null);
+  }
+
+  /**
+   * Compile the given node, if the given function context is not null then the functions are
+   * resolved through it at compile time, so the function resolution of the function context must
+   * not depend on the evaluation state.
+   *
+   * @param <T> the value type
+   * @param node the node to be compiled
+   * @param functionContext the context used to resolve the functions at compile time, can be null
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> CompiledNode<T> compile(Node<T> node, EvaluationContext functionContext) {
+    if (node instanceof CompiledNode) {
+      return (CompiledNode<T>) node;
+    }
+    return new CompiledNode<>(node, doCompile(node, functionContext));
+  }
+
+  static Evaluator[] compileChildren(Node<?> node, EvaluationContext fctx) {
+    List<? extends Node<?>> children = node.getChildren();
+    Evaluator[] evaluators = new Evaluator[children.size()];
+    for (int i = 0; i < evaluators.length; i++) {
+      evaluators[i] = doCompile(children.get(i), fctx);
+    }
+    return evaluators;
+  }
+
+  static Evaluator doCompile(Node<?> node, EvaluationContext fctx) {
+    final Class<?> nodeClass = node.getClass();
+    if (nodeClass == ASTValueNode.class) {
+      return new Constant(((ASTValueNode) node).value());
+    } else if (nodeClass == ASTDefaultFunctionNode.class) {
+      return compileFunction((ASTDefaultFunctionNode) node, fctx);
+    } else if (nodeClass == ASTTernaryNode.class) {
+      return compileTernary(node, fctx);
+    } else if (nodeClass == ASTLogicAndNode.class || nodeClass == ASTLogicOrNode.class
+        || nodeClass == ASTLogicNorNode.class) {
+      return compileLogic(node, fctx);
+    } else if (nodeClass == ASTLogicNotNode.class) {
+      Predicate<EvaluationContext> p = toPredicate(doCompile(node.getChildren().get(0), fctx));
+      return fold(new Test(ctx -> !p.test(ctx)), p);
+    } else if (nodeClass == ASTLogicXorNode.class) {
+      Predicate<EvaluationContext> l = toPredicate(doCompile(node.getChildren().get(0), fctx));
+      Predicate<EvaluationContext> r = toPredicate(doCompile(node.getChildren().get(1), fctx));
+      return fold(new Test(ctx -> Boolean.logicalXor(l.test(ctx), r.test(ctx))), l, r);
+    } else if (nodeClass == ASTRegexNode.class) {
+      final Evaluator left = doCompile(node.getChildren().get(0), fctx);
+      final Pattern pattern =
+          Pattern.compile(((ASTValueNode) node.getChildren().get(1)).value().toString());
+      return fold(new Test(ctx -> {
+        Object value = left.evaluate(ctx);
+        return value != null && pattern.matcher(value.toString()).matches();
+      }), left);
+    } else if (nodeClass == ASTBetweenNode.class || nodeClass == ASTEqualNode.class
+        || nodeClass == ASTNoEqualNode.class || nodeClass == ASTGreaterThanNode.class
+        || nodeClass == ASTGreaterThanEqualNode.class || nodeClass == ASTLessThanNode.class
+        || nodeClass == ASTLessThanEqualNode.class || nodeClass == ASTInNode.class
+        || nodeClass == ASTNoInNode.class) {
+      return compileComparison(node, fctx);
+    }
+    // variable nodes and customized nodes
+    return node::getValue;
+  }
+
+  @SuppressWarnings({"rawtypes"})
+  static Evaluator compileComparison(Node<?> node, EvaluationContext fctx) {
+    final Evaluator[] children = compileChildren(node, fctx);
+    final Evaluator left = children[0];
+    final Evaluator right = children.length > 1 ? children[1] : null;
+    final Class<?> nodeClass = node.getClass();
+    final Test test;
+    if (nodeClass == ASTBetweenNode.class) {
+      final ComparatorSite lower = new ComparatorSite(false);
+      final ComparatorSite upper = new ComparatorSite(false);
+      final Evaluator max = children[2];
+      test = new Test(ctx -> {
+        Object mid = left.evaluate(ctx);
+        return lower.compare(right.evaluate(ctx), mid) <= 0
+            && upper.compare(mid, max.evaluate(ctx)) <= 0;
+      });
+    } else if (nodeClass == ASTEqualNode.class) {
+      final ComparatorSite site = new ComparatorSite(false);
+      test = new Test(ctx -> {
+        Object l = left.evaluate(ctx);
+        Object r = right.evaluate(ctx);
+        if (l instanceof Number && r instanceof Number) {
+          return site.compare(l, r) == 0;
+        }
+        return l != null && l.equals(r);
+      });
+    } else if (nodeClass == ASTNoEqualNode.class) {
+      final ComparatorSite site = new ComparatorSite(false);
+      test = new Test(ctx -> {
+        Object l = left.evaluate(ctx);
+        Object r = right.evaluate(ctx);
+        if (l instanceof Number && r instanceof Number) {
+          return site.compare(l, r) != 0;
+        }
+        return !areEqual(l, r);
+      });
+    } else if (nodeClass == ASTGreaterThanNode.class) {
+      final ComparatorSite site = new ComparatorSite(true);
+      test = new Test(ctx -> site.compare(left.evaluate(ctx), right.evaluate(ctx)) > 0);
+    } else if (nodeClass == ASTGreaterThanEqualNode.class) {
+      final ComparatorSite site = new ComparatorSite(true);
+      test = new Test(ctx -> site.compare(left.evaluate(ctx), right.evaluate(ctx)) >= 0);
+    } else if (nodeClass == ASTLessThanNode.class) {
+      final ComparatorSite site = new ComparatorSite(true);
+      test = new Test(ctx -> site.compare(left.evaluate(ctx), right.evaluate(ctx)) < 0);
+    } else if (nodeClass == ASTLessThanEqualNode.class) {
+      final ComparatorSite site = new ComparatorSite(true);
+      test = new Test(ctx -> site.compare(left.evaluate(ctx), right.evaluate(ctx)) <= 0);
+    } else {
+      final boolean in = nodeClass == ASTInNode.class;
+      test = new Test(ctx -> {
+        Object l = left.evaluate(ctx);
+        Object r = right.evaluate(ctx);
+        if (r instanceof Collection) {
+          return ((Collection) r).contains(l) == in;
+        } else if (r instanceof String && l instanceof String) {
+          return ((String) r).contains((String) l) == in;
+        }
+        return !in;
+      });
+    }
+    return fold(test, children);
+  }
+
+  static Evaluator compileFunction(ASTDefaultFunctionNode node, EvaluationContext fctx) {
+    final Evaluator[] args = compileChildren(node, fctx);
+    final int size = args.length;
+    if (fctx != null) {
+      final Function<Object[], Object> function = fctx.resolveFunction(node);
+      return ctx -> {
+        Object[] values = new Object[size];
+        for (int i = 0; i < size; i++) {
+          values[i] = args[i].evaluate(ctx);
+        }
+        return function.apply(values);
+      };
+    }
+    return ctx -> {
+      Object[] values = new Object[size];
+      for (int i = 0; i < size; i++) {
+        values[i] = args[i].evaluate(ctx);
+      }
+      return ctx.resolveFunction(node).apply(values);
+    };
+  }
+
+  static Evaluator compileLogic(Node<?> node, EvaluationContext fctx) {
+    final Class<?> nodeClass = node.getClass();
+    // the absorbing element of the operation, and the result of the operation if it appears
+    final boolean absorbing = nodeClass != ASTLogicAndNode.class;
+    final boolean absorbed = nodeClass == ASTLogicOrNode.class;
+    final List<Predicate<EvaluationContext>> list = new ArrayList<>();
+    for (Evaluator child : compileChildren(node, fctx)) {
+      if (child instanceof Constant) {
+        if (toPredicate(child).test(null) == absorbing) {
+          return new Constant(absorbed);
+        }
+        // the identity element can be removed
+      } else {
+        list.add(toPredicate(child));
+      }
+    }
+    if (list.isEmpty()) {
+      return new Constant(!absorbed);
+    }
+    @SuppressWarnings("unchecked")
+    final Predicate<EvaluationContext>[] predicates = list.toArray(new Predicate[list.size()]);
+    if (predicates.length == 1) {
+      final Predicate<EvaluationContext> predicate = predicates[0];
+      return absorbed == absorbing ? new Test(predicate) : new Test(ctx -> !predicate.test(ctx));
+    }
+    return new Test(ctx -> {
+      for (Predicate<EvaluationContext> predicate : predicates) {
+        if (predicate.test(ctx) == absorbing) {
+          return absorbed;
+        }
+      }
+      return !absorbed;
+    });
+  }
+
+  static Evaluator compileTernary(Node<?> node, EvaluationContext fctx) {
+    final Evaluator[] children = compileChildren(node, fctx);
+    final Evaluator condition = children[0];
+    final Evaluator positive = children[1];
+    final Evaluator negative = children[2];
+    if (condition instanceof Constant) {
+      return toBoolean(condition.evaluate(null)) ? positive : negative;
+    }
+    return ctx -> toBoolean(condition.evaluate(ctx)) ? positive.evaluate(ctx)
+        : negative.evaluate(ctx);
+  }
+
+  /**
+   * Fold the given test into a constant if all its operands are constants, if the test fails at
+   * compile time it is kept so that the failure occurs at evaluation time.
+   */
+  static Evaluator fold(Test test, Object... operands) {
+    for (Object operand : operands) {
+      if (!(operand instanceof Constant) && !(operand instanceof ConstantTest)) {
+        return test;
+      }
+    }
+    try {
+      return new Constant(test.evaluate(null));
+    } catch (RuntimeException e) {
+      return test;
+    }
+  }
+
+  static Predicate<EvaluationContext> toPredicate(Evaluator evaluator) {
+    if (evaluator instanceof Test) {
+      return ((Test) evaluator).predicate;
+    } else if (evaluator instanceof Constant) {
+      final boolean value = (Boolean) evaluator.evaluate(null);
+      return new ConstantTest(value);
+    }
+    return ctx -> (Boolean) evaluator.evaluate(ctx);
+  }
+
+  /**
+   * corant-modules-json
+   *
+   * <p>
+   * The compiled node, evaluates the value through the pre-bound closures.
+   *
+   * @author bingo 下午3:28:42
+   *
+   */
+  public static class CompiledNode<T> implements Node<T> {
+
+    protected final Node<T> source;
+    final Evaluator evaluator;
+
+    CompiledNode(Node<T> source, Evaluator evaluator) {
+      this.source = source;
+      this.evaluator = evaluator;
+    }
+
+    @Override
+    public boolean addChild(Node<?> child) {
+      throw new NotSupportedException("Can't add child to the compiled node!");
+    }
+
+    @Override
+    public List<? extends Node<?>> getChildren() {
+      return source.getChildren();
+    }
+
+    /**
+     * Returns the source node of this compiled node
+     */
+    public Node<T> getSource() {
+      return source;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T getValue(EvaluationContext ctx) {
+      return (T) evaluator.evaluate(ctx);
+    }
+
+    /**
+     * Returns whether this compiled node was folded into a constant at compile time.
+     */
+    public boolean isConstant() {
+      return evaluator instanceof Constant;
+    }
+  }
+
+  /**
+   * corant-modules-json
+   *
+   * <p>
+   * A comparator call site that caches the comparators specialized for the recently seen operand
+   * class pairs, at most {@link #MAX_SPECIALIZATIONS} pairs are cached and the least recently
+   * specialized pair is dropped when a new pair is seen, so the call sites whose operand classes
+   * alternate among a few pairs don't re-specialize. The comparison semantics are the same as
+   * {@code ASTComparisonNode.AbstractASTComparisonNode#compare(Object, Object)}.
+   *
+   * @author bingo 下午3:31:06
+   *
+   */
+  static class ComparatorSite {
+
+    static final int MAX_SPECIALIZATIONS = 4;
+    static final Specialization[] EMPTY_SPECIALIZATIONS = {};
+
+    final boolean comparableRequired;
+    // copy on write, the most recently specialized first
+    volatile Specialization[] specializations = EMPTY_SPECIALIZATIONS;
+
+    ComparatorSite(boolean comparableRequired) {
+      this.comparableRequired = comparableRequired;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Comparator<Object> specialize(Class<?> left, Class<?> right) {
+      if (Number.class.isAssignableFrom(left) && Number.class.isAssignableFrom(right)) {
+        if (isEither(BigDecimal.class, left, right)) {
+          return (l, r) -> toObject(l, BigDecimal.class).compareTo(toObject(r, BigDecimal.class));
+        } else if (isEither(Double.class, left, right)) {
+          return (l, r) -> Double.compare(((Number) l).doubleValue(), ((Number) r).doubleValue());
+        } else if (isEither(Float.class, left, right)) {
+          return (l, r) -> Float.compare(((Number) l).floatValue(), ((Number) r).floatValue());
+        } else if (isEither(BigInteger.class, left, right)) {
+          return (l, r) -> toObject(l, BigInteger.class).compareTo(toObject(r, BigInteger.class));
+        } else if (isEither(Long.class, left, right)) {
+          return (l, r) -> Long.compare(((Number) l).longValue(), ((Number) r).longValue());
+        } else if (isEither(Integer.class, left, right)) {
+          return (l, r) -> Integer.compare(((Number) l).intValue(), ((Number) r).intValue());
+        } else if (isEither(Short.class, left, right)) {
+          return (l, r) -> Short.compare(((Number) l).shortValue(), ((Number) r).shortValue());
+        } else if (isEither(Byte.class, left, right)) {
+          return (l, r) -> Byte.compare(((Number) l).byteValue(), ((Number) r).byteValue());
+        }
+        return (l, r) -> toObject(l, Double.class).compareTo(toObject(r, Double.class));
+      } else if (TemporalAccessor.class.isAssignableFrom(left)
+          && TemporalAccessor.class.isAssignableFrom(right)) {
+        if (isBoth(Instant.class, left, right) || isBoth(ZonedDateTime.class, left, right)
+            || isBoth(LocalTime.class, left, right) || isBoth(LocalDate.class, left, right)
+            || isBoth(LocalDateTime.class, left, right) || isBoth(MonthDay.class, left, right)
+            || isBoth(OffsetDateTime.class, left, right) || isBoth(OffsetTime.class, left, right)
+            || isBoth(Year.class, left, right) || isBoth(YearMonth.class, left, right)
+            || isBoth(ZoneOffset.class, left, right)) {
+          return (l, r) -> ((Comparable) l).compareTo(r);
+        }
+      } else if (isBoth(String.class, left, right) || isBoth(Duration.class, left, right)
+          || areEqual(left, right)) {
+        return (l, r) -> ((Comparable) l).compareTo(r);
+      }
+      return (l, r) -> {
+        throw new NotSupportedException();
+      };
+    }
+
+    static boolean isBoth(Class<?> type, Class<?> left, Class<?> right) {
+      return type.isAssignableFrom(left) && type.isAssignableFrom(right);
+    }
+
+    static boolean isEither(Class<?> type, Class<?> left, Class<?> right) {
+      return type.isAssignableFrom(left) || type.isAssignableFrom(right);
+    }
+
+    int compare(Object left, Object right) {
+      if (left == null || right == null || comparableRequired
+          && (!(left instanceof Comparable) || !(right instanceof Comparable))) {
+        throw new NotSupportedException();
+      }
+      final Class<?> leftClass = left.getClass();
+      final Class<?> rightClass = right.getClass();
+      final Specialization[] cached = specializations;
+      for (Specialization specialization : cached) {
+        if (specialization.left == leftClass && specialization.right == rightClass) {
+          return specialization.comparator.compare(left, right);
+        }
+      }
+      final Specialization specialization =
+          new Specialization(leftClass, rightClass, specialize(leftClass, rightClass));
+      final int retained = Math.min(cached.length, MAX_SPECIALIZATIONS - 1);
+      final Specialization[] updated = new Specialization[retained + 1];
+      updated[0] = specialization;
+      System.arraycopy(cached, 0, updated, 1, retained);
+      specializations = updated;
+      return specialization.comparator.compare(left, right);
+    }
+  }
+
+  /**
+   * corant-modules-json
+   *
+   * @author bingo 下午3:27:35
+   *
+   */
+  static class Constant implements Evaluator {
+
+    final Object value;
+
+    Constant(Object value) {
+      this.value = value;
+    }
+
+    @Override
+    public Object evaluate(EvaluationContext ctx) {
+      return value;
+    }
+  }
+
+  /**
+   * corant-modules-json
+   *
+   * @author bingo 下午3:35:46
+   *
+   */
+  static class ConstantTest implements Predicate<EvaluationContext> {
+
+    final boolean value;
+
+    ConstantTest(boolean value) {
+      this.value = value;
+    }
+
+    @Override
+    public boolean test(EvaluationContext ctx) {
+      return value;
+    }
+  }
+
+  /**
+   * corant-modules-json
+   *
+   * @author bingo 下午3:27:12
+   *
+   */
+  @FunctionalInterface
+  interface Evaluator {
+    Object evaluate(EvaluationContext ctx);
+  }
+
+  /**
+   * corant-modules-json
+   *
+   * @author bingo 下午3:30:18
+   *
+   */
+  static class Specialization {
+
+    final Class<?> left;
+    final Class<?> right;
+    final Comparator<Object> comparator;
+
+    Specialization(Class<?> left, Class<?> right, Comparator<Object> comparator) {
+      this.left = left;
+      this.right = right;
+      this.comparator = comparator;
+    }
+  }
+
+  /**
+   * corant-modules-json
+   *
+   * @author bingo 下午3:29:05
+   *
+   */
+  static class Test implements Evaluator {
+
+    final Predicate<EvaluationContext> predicate;
+
+    Test(Predicate<EvaluationContext> predicate) {
+      this.predicate = predicate;
+    }
+
+    @Override
+    public Object evaluate(EvaluationContext ctx) {
+      return predicate.test(ctx);
+    }
+  }
+}
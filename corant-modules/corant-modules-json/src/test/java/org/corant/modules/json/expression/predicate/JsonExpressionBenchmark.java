@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.json.expression.predicate;
+
+import static org.corant.shared.util.Lists.listOf;
+import static org.corant.shared.util.Maps.mapOf;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.corant.modules.json.expression.EvaluationContext;
+import org.corant.modules.json.expression.Node;
+import org.corant.modules.json.expression.SimpleCompiler;
+import org.corant.modules.json.expression.SimpleCompiler.CompiledNode;
+import org.corant.modules.json.expression.SimpleParser;
+import org.corant.modules.json.expression.ast.ASTFunctionNode;
+import org.corant.modules.json.expression.ast.ASTVariableNode;
+import org.corant.shared.exception.CorantRuntimeException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * corant-modules-json
+ *
+ * <p>
+ * Compares the interpreted evaluation of the parsed expression nodes with the compiled nodes of
+ * {@link SimpleCompiler}. With the 'mixed' rows the operands have the different classes, so the
+ * compiled comparators switch among the cached specializations, with the 'uniform' rows the
+ * operands have the same classes, so only the first specialization is used.
+ *
+ * @author bingo 上午10:12:36
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonExpressionBenchmark {
+
+  @Param({"{\"$and\":[{\"$eq\":[\"@r.id\",123]},{\"$gte\":[\"@r.a\",100]}]}",
+      "{\"$or\":[{\"$in\":[\"@r.name\",\"@r.names\"]},{\"$regex\":[\"@r.name\",\"bingo.*\"]}]}",
+      "{\"$eq\":[{\"#add\":[\"@r.a\",{\"#convert\":[\"@r.b\",\"java.lang.Integer\"]},13]},123]}"})
+  String expression;
+
+  @Param({"mixed", "uniform"})
+  String rows;
+
+  Node<?> interpreted;
+  CompiledNode<?> compiled;
+  CompiledNode<?> compiledWithFunctions;
+  EvaluationContext[] contexts;
+
+  public static void main(String... args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(JsonExpressionBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+
+  @Benchmark
+  public void compiled(Blackhole blackhole) {
+    for (EvaluationContext ctx : contexts) {
+      blackhole.consume(compiled.getValue(ctx));
+    }
+  }
+
+  @Benchmark
+  public void compiledWithFunctions(Blackhole blackhole) {
+    for (EvaluationContext ctx : contexts) {
+      blackhole.consume(compiledWithFunctions.getValue(ctx));
+    }
+  }
+
+  @Benchmark
+  public void interpreted(Blackhole blackhole) {
+    for (EvaluationContext ctx : contexts) {
+      blackhole.consume(interpreted.getValue(ctx));
+    }
+  }
+
+  @Setup
+  public void setup() {
+    if ("uniform".equals(rows)) {
+      contexts = new EvaluationContext[] {
+          context(mapOf("r.id", 123, "r.name", "bingo.chen", "r.a", 100, "r.b", "10", "r.c",
+              99.5d, "r.names", listOf("bingo", "chen"))),
+          context(mapOf("r.id", 456, "r.name", "chen", "r.a", 101, "r.b", "20", "r.c", 101.5d,
+              "r.names", listOf("bingo.chen"))),
+          context(mapOf("r.id", 789, "r.name", "bingo", "r.a", 99, "r.b", "10", "r.c", 100d,
+              "r.names", listOf()))};
+    } else {
+      contexts = new EvaluationContext[] {
+          context(mapOf("r.id", 123, "r.name", "bingo.chen", "r.a", 100L, "r.b", "10", "r.c",
+              new BigDecimal("99.5"), "r.names", listOf("bingo", "chen"))),
+          context(mapOf("r.id", 456L, "r.name", "chen", "r.a", 100, "r.b", "20", "r.c", 101.5d,
+              "r.names", listOf("bingo.chen"))),
+          context(mapOf("r.id", 123.0f, "r.name", "bingo", "r.a", (short) 99, "r.b", "10", "r.c",
+              100, "r.names", listOf()))};
+    }
+    interpreted = SimpleParser.parse(expression);
+    compiled = SimpleCompiler.compile(interpreted);
+    compiledWithFunctions = SimpleCompiler.compile(interpreted, contexts[0]);
+  }
+
+  EvaluationContext context(Map<String, Object> row) {
+    return new EvaluationContext() {
+      @Override
+      public Function<Object[], Object> resolveFunction(Node<?> node) {
+        ASTFunctionNode fn = (ASTFunctionNode) node;
+        return SimpleParser.resolveFunction().filter(p -> p.supports(fn.getName())).findFirst()
+            .orElseThrow(() -> new CorantRuntimeException("Can't find function %s", fn.getName()))
+            .resolve(fn.getName());
+      }
+
+      @Override
+      public Object resolveVariableValue(Node<?> node) {
+        return row.get(((ASTVariableNode) node).getName());
+      }
+    };
+  }
+}
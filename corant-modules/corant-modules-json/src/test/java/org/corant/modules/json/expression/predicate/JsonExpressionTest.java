@@ -13,14 +13,19 @@
  */
 package org.corant.modules.json.expression.predicate;
 
+import static org.corant.shared.util.Lists.listOf;
 import static org.corant.shared.util.Maps.mapOf;
+import java.math.BigDecimal;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
 import org.corant.modules.json.expression.EvaluationContext;
 import org.corant.modules.json.expression.FunctionResolver;
 import org.corant.modules.json.expression.Node;
+import org.corant.modules.json.expression.SimpleCompiler;
+import org.corant.modules.json.expression.SimpleCompiler.CompiledNode;
 import org.corant.modules.json.expression.SimpleParser;
 import org.corant.modules.json.expression.ast.ASTFunctionNode;
 import org.corant.modules.json.expression.ast.ASTVariableNode;
@@ -36,6 +41,53 @@ import junit.framework.TestCase;
  */
 public class JsonExpressionTest extends TestCase {
 
+  @Test
+  public void testCompile() {
+    List<Map<String, Object>> rows = listOf(
+        mapOf("r.id", 123, "r.name", "bingo.chen", "r.a", 100L, "r.b", "10", "r.c",
+            new BigDecimal("99.5"), "r.names", listOf("bingo", "chen")),
+        mapOf("r.id", 456L, "r.name", "chen", "r.a", 100, "r.b", "20", "r.c", 101.5d, "r.names",
+            listOf("bingo.chen")),
+        mapOf("r.id", 123.0f, "r.name", "bingo", "r.a", (short) 99, "r.b", "10", "r.c", 100,
+            "r.names", listOf()));
+    String[] exps = {"{\"$eq\":[\"@r.id\",123]}", "{\"$ne\":[\"@r.id\",123]}",
+        "{\"$gt\":[\"@r.a\",\"@r.c\"]}", "{\"$gte\":[\"@r.a\",100]}",
+        "{\"$lt\":[\"@r.c\",100.5]}", "{\"$lte\":[\"@r.name\",\"bingo\"]}",
+        "{\"$in\":[\"@r.name\",\"@r.names\"]}", "{\"$nin\":[\"@r.name\",\"@r.names\"]}",
+        "{\"$regex\":[\"@r.name\",\"bingo.*\"]}",
+        "{\"$and\":[{\"$eq\":[1,1]},{\"$gt\":[\"@r.a\",99]}]}",
+        "{\"$or\":[{\"$eq\":[1,2]},{\"$eq\":[\"@r.b\",\"10\"]}]}",
+        "{\"$nor\":[{\"$eq\":[\"@r.b\",\"10\"]},{\"$lt\":[\"@r.a\",100]}]}",
+        "{\"$not\":{\"$eq\":[\"@r.name\",\"chen\"]}}",
+        "{\"$xor\":[{\"$eq\":[\"@r.b\",\"10\"]},{\"$gte\":[\"@r.c\",100]}]}",
+        "{\"$?\":[{\"$gt\":[{\"#sizeOf\":\"@r.name\"},4]},\"long\",\"short\"]}",
+        "{\"$eq\":[{\"#add\":[\"@r.a\",{\"#convert\":[\"@r.b\",\"java.lang.Integer\"]},13]},123]}"};
+    for (Map<String, Object> row : rows) {
+      EvaluationContext ec = new EvaluationContext() {
+        @Override
+        public Function<Object[], Object> resolveFunction(Node<?> node) {
+          ASTFunctionNode fn = (ASTFunctionNode) node;
+          return SimpleParser.resolveFunction().filter(p -> p.supports(fn.getName())).findFirst()
+              .orElseThrow(() -> new CorantRuntimeException("xxx")).resolve(fn.getName());
+        }
+
+        @Override
+        public Object resolveVariableValue(Node<?> node) {
+          return row.get(((ASTVariableNode) node).getName());
+        }
+      };
+      for (String exp : exps) {
+        Node<?> node = SimpleParser.parse(exp);
+        assertEquals(exp, node.getValue(ec), SimpleCompiler.compile(node).getValue(ec));
+        assertEquals(exp, node.getValue(ec), SimpleCompiler.compile(node, ec).getValue(ec));
+      }
+    }
+    CompiledNode<?> constant =
+        SimpleCompiler.compile(SimpleParser.parse("{\"$and\":[{\"$eq\":[1,1.0]},{\"$gt\":[2,1]}]}"));
+    assertTrue(constant.isConstant());
+    assertEquals(Boolean.TRUE, constant.getValue(null));
+  }
+
   @Test
   public void testFunc() {
     final Map<String, Object> r = mapOf("r.id", 123, "r.name", "bingo.chen", "r.a", 100, "r.b",
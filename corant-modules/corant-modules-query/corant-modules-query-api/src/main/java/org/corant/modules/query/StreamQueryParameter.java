@@ -51,6 +51,8 @@ public class StreamQueryParameter extends DefaultQueryParameter {
 
   protected boolean autoClose = false;
 
+  protected Object[] seekValues;
+
   public StreamQueryParameter() {}
 
   public StreamQueryParameter(QueryParameter other) {
@@ -60,7 +62,8 @@ public class StreamQueryParameter extends DefaultQueryParameter {
   public StreamQueryParameter(StreamQueryParameter other) {
     super(other);
     enhancer(other.enhancer).retryBackoffStrategy(other.retryBackoffStrategy)
-        .retryTimes(other.retryTimes).terminator(other.terminator).autoClose(other.autoClose);
+        .retryTimes(other.retryTimes).terminator(other.terminator).autoClose(other.autoClose)
+        .seek(other.seekValues);
   }
 
   public StreamQueryParameter autoClose(boolean autoClose) {
@@ -91,10 +94,18 @@ public class StreamQueryParameter extends DefaultQueryParameter {
     return this;
   }
 
+  /**
+   * Adjust this parameter for the next batch query. If the enhancer is set, it is used to adjust
+   * this parameter; otherwise if the seek values are set by the previous batch query, the next
+   * batch query continues after the seek values and the offset is kept; otherwise the offset is
+   * increased by the limit.
+   *
+   * @param current the last record of the previous batch query
+   */
   public StreamQueryParameter forward(Object current) {
     if (enhancer != null) {
       enhancer.accept(current, this);
-    } else {
+    } else if (seekValues == null) {
       offset(offset + getLimit());
     }
     return this;
@@ -125,6 +136,14 @@ public class StreamQueryParameter extends DefaultQueryParameter {
     return retryTimes;
   }
 
+  /**
+   * Returns the key values of the last record of the previous batch query, use for the seek
+   * (keyset) pagination, returns null if not set.
+   */
+  public Object[] getSeekValues() {
+    return seekValues;
+  }
+
   /**
    * The terminator use to terminate the stream, if not set the stream ends naturally.
    *
@@ -192,6 +211,18 @@ public class StreamQueryParameter extends DefaultQueryParameter {
     return this;
   }
 
+  /**
+   * Set the key values of the last record of the previous batch query, use for the seek (keyset)
+   * pagination, the query service that supports the seek pagination sets it automatically, and it
+   * is cleared when the parameter is used to start a new stream.
+   *
+   * @param seekValues the key values of the last record
+   */
+  public StreamQueryParameter seek(Object... seekValues) {
+    this.seekValues = seekValues;
+    return this;
+  }
+
   /**
    * Check whether to terminate the stream
    *
@@ -51,6 +51,10 @@ public class FetchQuery implements Serializable {
   private Script predicateScript = new Script();
   private Script injectionScript = new Script();
   private boolean eagerInject = true;
+  private String joinParentKey;
+  private String[] joinParentKeyPath = Strings.EMPTY_ARRAY;
+  private String joinFetchedKey;
+  private String[] joinFetchedKeyPath = Strings.EMPTY_ARRAY;
   private final String id = UUID.randomUUID().toString();
 
   public FetchQuery() {}
@@ -136,6 +140,40 @@ public class FetchQuery implements Serializable {
     return injectPropertyNamePath;
   }
 
+  /**
+   * Returns the property name of the fetch query result record which use to join with the parent
+   * query result record.
+   *
+   * @see #isJoinInject()
+   */
+  public String getJoinFetchedKey() {
+    return joinFetchedKey;
+  }
+
+  /**
+   * Returns the hierarchical property names of the join fetched key.
+   */
+  public String[] getJoinFetchedKeyPath() {
+    return joinFetchedKeyPath;
+  }
+
+  /**
+   * Returns the property name of the parent query result record which use to join with the fetch
+   * query result record.
+   *
+   * @see #isJoinInject()
+   */
+  public String getJoinParentKey() {
+    return joinParentKey;
+  }
+
+  /**
+   * Returns the hierarchical property names of the join parent key.
+   */
+  public String[] getJoinParentKeyPath() {
+    return joinParentKeyPath;
+  }
+
   /**
    * Returns the max fetch query result size, -1 means unlimited
    */
@@ -185,6 +223,16 @@ public class FetchQuery implements Serializable {
     return eagerInject;
   }
 
+  /**
+   * Returns true if both the join parent key and the join fetched key are specified, in this case
+   * the fetch query result records are injected into the parent query result records which have
+   * the same key value, instead of injecting all the fetch query result records into each parent
+   * query result record.
+   */
+  public boolean isJoinInject() {
+    return joinParentKeyPath.length > 0 && joinFetchedKeyPath.length > 0;
+  }
+
   /**
    * Returns true if the fetch query result set is multiple records, otherwise false.
    */
@@ -218,6 +266,16 @@ public class FetchQuery implements Serializable {
     injectPropertyNamePath = Names.splitNameSpace(injectPropertyName, true, false);
   }
 
+  protected void setJoinFetchedKey(String joinFetchedKey) {
+    this.joinFetchedKey = joinFetchedKey;
+    joinFetchedKeyPath = Names.splitNameSpace(joinFetchedKey, true, false);
+  }
+
+  protected void setJoinParentKey(String joinParentKey) {
+    this.joinParentKey = joinParentKey;
+    joinParentKeyPath = Names.splitNameSpace(joinParentKey, true, false);
+  }
+
   protected void setMaxSize(int maxSize) {
     this.maxSize = maxSize;
   }
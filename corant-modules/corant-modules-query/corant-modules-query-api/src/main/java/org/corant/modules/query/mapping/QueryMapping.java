@@ -127,6 +127,10 @@ public class QueryMapping {
           brokens.add(String.format(
               "The 'inject-property-name' attribute: [query-mappings > query(%s) > fetch-query(%s) -> inject-property-name(%s)] can not repeat! query file [%s]",
               q.getName(), fq.getReferenceQuery().getName(), fq.getInjectPropertyName(), getUrl()));
+        } else if (isBlank(fq.getJoinParentKey()) != isBlank(fq.getJoinFetchedKey())) {
+          brokens.add(String.format(
+              "The 'join-parent-key' and 'join-fetched-key' attributes: [query-mappings > query(%s) > fetch-query(%s)] must be specified together! query file [%s]",
+              q.getName(), fq.getReferenceQuery().getName(), getUrl()));
         } else if (fq.getInjectionScript().isValid()
             && fq.getInjectionScript().getType() == ScriptType.FM) {
           brokens.add(String.format(
@@ -212,6 +212,10 @@ public class QueryParseHandler extends DefaultHandler {
             fq.setResultClass(isBlank(atv) ? java.util.Map.class : asClass(atv));
           } else if (SchemaNames.FQE_ATT_MULT_RECORDS.equalsIgnoreCase(aqn)) {
             fq.setMultiRecords(isBlank(atv) ? true : toBoolean(atv));
+          } else if (SchemaNames.FQE_ATT_JOIN_PARENT_KEY.equalsIgnoreCase(aqn)) {
+            fq.setJoinParentKey(atv);
+          } else if (SchemaNames.FQE_ATT_JOIN_FETCHED_KEY.equalsIgnoreCase(aqn)) {
+            fq.setJoinFetchedKey(atv);
           }
         }
       }
@@ -62,6 +62,8 @@ public class SchemaNames {
   public static final String FQE_ATT_MAX_SIZE = "max-fetch-size";
   public static final String FQE_ATT_VER = "reference-query-version";
   public static final String FQE_ATT_MULT_RECORDS = "multi-records";
+  public static final String FQE_ATT_JOIN_PARENT_KEY = "join-parent-key";
+  public static final String FQE_ATT_JOIN_FETCHED_KEY = "join-fetched-key";
 
   private SchemaNames() {}
 
@@ -13,28 +13,48 @@
  */
 package org.corant.modules.query.cassandra;
 
+import static java.util.stream.Collectors.toList;
+import static org.corant.shared.util.Empties.isEmpty;
+import static org.corant.shared.util.Empties.isNotEmpty;
 import static org.corant.shared.util.Empties.sizeOf;
+import static org.corant.shared.util.Objects.max;
 import static org.corant.shared.util.Strings.isNotBlank;
 import static org.corant.shared.util.Strings.split;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import org.corant.modules.query.NamedQueryService;
 import org.corant.modules.query.Querier;
 import org.corant.modules.query.QueryParameter;
 import org.corant.modules.query.QueryRuntimeException;
 import org.corant.modules.query.mapping.FetchQuery;
+import org.corant.modules.query.mapping.FetchQuery.FetchQueryParameterSource;
 import org.corant.modules.query.shared.AbstractNamedQuerierResolver;
 import org.corant.modules.query.shared.AbstractNamedQueryService;
+import org.corant.shared.ubiquity.Tuple.Pair;
+import org.corant.shared.ubiquity.Tuple.Triple;
 
 /**
  * corant-modules-query-cassandra
  *
+ * <p>
+ * If parallel fetch is enabled, the fetch queries of the Cassandra named query services are
+ * executed asynchronously and the results are injected in the order of the fetch queries after all
+ * of them completed. At most {@link #getParallelFetchWindow()} fetch queries of a parent query are
+ * in flight at a time, the caller thread blocks until one of them completes before it issues the
+ * next one, so that a large parent result set doesn't flood the cluster with concurrent requests.
+ *
  * @author bingo 下午5:33:21
  *
  */
 public abstract class AbstractCasNamedQueryService extends AbstractNamedQueryService {
 
   public static final String PRO_KEY_KEYSPACE = "cassandra.query.keyspace";
+  public static final int DEFAULT_PARALLEL_FETCH_WINDOW = 32;
 
   @Override
   public FetchResult fetch(Object result, FetchQuery fetchQuery, Querier parentQuerier) {
@@ -62,6 +82,43 @@ public abstract class AbstractCasNamedQueryService extends AbstractNamedQuerySer
     }
   }
 
+  /**
+   * Execute the fetch query asynchronously.
+   *
+   * @param result the parent query result
+   * @param fetchQuery the fetch query
+   * @param parentQuerier the parent querier
+   */
+  public CompletableFuture<FetchResult> fetchAsync(Object result, FetchQuery fetchQuery,
+      Querier parentQuerier) {
+    final String refQueryName = fetchQuery.getReferenceQuery().getVersionedName();
+    try {
+      QueryParameter fetchParam = parentQuerier.resolveFetchQueryParameter(result, fetchQuery);
+      CasNamedQuerier querier = getQuerierResolver().resolve(refQueryName, fetchParam);
+      int maxFetchSize = querier.resolveMaxFetchSize(result, fetchQuery);
+      String cql = querier.getScript();
+      Duration timeout = querier.resolveTimeout();
+      String ks = resolveKeyspace(querier);
+      Object[] scriptParameter = querier.getScriptParameter();
+      log("fetch-> " + refQueryName, scriptParameter, cql);
+      return getExecutor().selectAsync(ks, cql, maxFetchSize, timeout, scriptParameter)
+          .thenApply(fetchedList -> new FetchResult(fetchQuery, querier, fetchedList));
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  protected FetchResult awaitFetch(CompletableFuture<FetchResult> future, FetchQuery fetchQuery) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause() != null ? e.getCause() : e;
+      throw new QueryRuntimeException(cause,
+          "An error occurred while executing the fetch query [%s], exception [%s].",
+          fetchQuery.getReferenceQuery().getVersionedName(), cause.getMessage());
+    }
+  }
+
   @Override
   protected <T> Forwarding<T> doForward(String queryName, Object parameter) throws Exception {
     CasNamedQuerier querier = getQuerierResolver().resolve(queryName, parameter);
@@ -141,11 +198,110 @@ public abstract class AbstractCasNamedQueryService extends AbstractNamedQuerySer
     return querier.handleResults(results);
   }
 
+  protected CompletableFuture<FetchResult> fetchAsync(NamedQueryService fetchQueryService,
+      Object result, FetchQuery fetchQuery, Querier parentQuerier) {
+    if (fetchQueryService instanceof AbstractCasNamedQueryService) {
+      return ((AbstractCasNamedQueryService) fetchQueryService).fetchAsync(result, fetchQuery,
+          parentQuerier);
+    }
+    try {
+      return CompletableFuture
+          .completedFuture(fetchQueryService.fetch(result, fetchQuery, parentQuerier));
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /**
+   * Execute the fetch query asynchronously within the given window, the caller thread blocks until
+   * a permit of the window is available, the permit is released when the returned future completes.
+   *
+   * @param window the permits of the in flight fetch queries
+   * @param fetchQueryService the fetch query service
+   * @param result the parent query result
+   * @param fetchQuery the fetch query
+   * @param parentQuerier the parent querier
+   */
+  protected CompletableFuture<FetchResult> fetchAsync(Semaphore window,
+      NamedQueryService fetchQueryService, Object result, FetchQuery fetchQuery,
+      Querier parentQuerier) {
+    try {
+      window.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return CompletableFuture.failedFuture(e);
+    }
+    final CompletableFuture<FetchResult> future;
+    try {
+      future = fetchAsync(fetchQueryService, result, fetchQuery, parentQuerier);
+    } catch (RuntimeException e) {
+      window.release();
+      throw e;
+    }
+    future.whenComplete((r, e) -> window.release());
+    return future;
+  }
+
   protected abstract CasQueryExecutor getExecutor();
 
+  /**
+   * Returns the maximum number of the in flight fetch queries of a parent query when parallel fetch
+   * is enabled.
+   */
+  protected int getParallelFetchWindow() {
+    return DEFAULT_PARALLEL_FETCH_WINDOW;
+  }
+
   @Override
   protected abstract AbstractNamedQuerierResolver<CasNamedQuerier> getQuerierResolver();
 
+  @Override
+  protected <T> void parallelFetch(List<T> results, Querier parentQuerier) {
+    List<Triple<CompletableFuture<FetchResult>, FetchQuery, Object>> futures = new ArrayList<>();
+    final Semaphore window = new Semaphore(max(getParallelFetchWindow(), 1));
+    for (FetchQuery fq : parentQuerier.getQuery().getFetchQueries()) {
+      NamedQueryService fetchQueryService = resolveFetchQueryService(fq);
+      if (fq.isEagerInject()) {
+        for (T result : results) {
+          if (parentQuerier.decideFetch(result, fq)) {
+            futures.add(Triple.of(
+                fetchAsync(window, fetchQueryService, result, fq, parentQuerier), fq, result));
+          }
+        }
+      } else {
+        List<T> decideResults =
+            results.stream().filter(r -> parentQuerier.decideFetch(r, fq)).collect(toList());
+        if (isEmpty(decideResults) && isNotEmpty(fq.getParameters())
+            && fq.getParameters().stream()
+                .noneMatch(fp -> fp.getSource() == FetchQueryParameterSource.C
+                    || fp.getSource() == FetchQueryParameterSource.P)) {
+          continue;
+        }
+        futures.add(Triple.of(
+            fetchAsync(window, fetchQueryService, decideResults, fq, parentQuerier), fq,
+            decideResults));
+      }
+    }
+    for (Triple<CompletableFuture<FetchResult>, FetchQuery, Object> future : futures) {
+      postFetch(awaitFetch(future.left(), future.middle()), parentQuerier, future.right());
+    }
+  }
+
+  @Override
+  protected <T> void parallelFetch(T result, Querier parentQuerier) {
+    List<Pair<CompletableFuture<FetchResult>, FetchQuery>> futures = new ArrayList<>();
+    final Semaphore window = new Semaphore(max(getParallelFetchWindow(), 1));
+    for (FetchQuery fq : parentQuerier.getQuery().getFetchQueries()) {
+      if (parentQuerier.decideFetch(result, fq)) {
+        futures.add(Pair.of(
+            fetchAsync(window, resolveFetchQueryService(fq), result, fq, parentQuerier), fq));
+      }
+    }
+    for (Pair<CompletableFuture<FetchResult>, FetchQuery> future : futures) {
+      postFetch(awaitFetch(future.key(), future.value()), parentQuerier, result);
+    }
+  }
+
   /**
    * Resolve key space from query parameter context or query object.
    *
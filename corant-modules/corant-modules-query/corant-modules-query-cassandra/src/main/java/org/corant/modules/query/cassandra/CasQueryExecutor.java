@@ -17,6 +17,7 @@ import static org.corant.shared.util.Maps.getMapInteger;
 import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import org.corant.modules.query.shared.dynamic.SqlHelper;
 
 /**
@@ -34,6 +35,26 @@ public interface CasQueryExecutor {
 
   List<Map<String, Object>> select(String keyspace, String cql, Duration timeout, Object... args);
 
+  /**
+   * Execute the query asynchronously, the default implementation executes the query in the caller
+   * thread and returns a completed future.
+   *
+   * @param keyspace the keyspace
+   * @param cql the query CQL
+   * @param limit the maximum number of the rows, less than 1 means unlimited
+   * @param timeout the query timeout
+   * @param args the query parameters
+   */
+  default CompletableFuture<List<Map<String, Object>>> selectAsync(String keyspace, String cql,
+      int limit, Duration timeout, Object... args) {
+    try {
+      return CompletableFuture.completedFuture(limit > 0
+          ? paging(keyspace, cql, 0, limit, timeout, args) : select(keyspace, cql, timeout, args));
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
   default int total(String keyspace, String cql, Duration timeout, Object... args) {
     String totalCql = "SELECT COUNT(*) AS total ".concat(SqlHelper.removeSelect(cql));
     return getMapInteger(get(keyspace, totalCql, timeout, args), "total", 0);
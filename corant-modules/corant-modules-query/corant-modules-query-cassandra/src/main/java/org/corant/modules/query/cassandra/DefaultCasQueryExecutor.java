@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2013-2018, Bingo.Chen (finesoft@gmail.com).
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
  * in compliance with the License. You may obtain a copy of the License at
@@ -16,49 +16,125 @@ package org.corant.modules.query.cassandra;
 import static org.corant.shared.util.Assertions.shouldNotNull;
 import static org.corant.shared.util.Empties.isEmpty;
 import static org.corant.shared.util.Objects.max;
+import static org.corant.shared.util.Strings.EMPTY;
+import static org.corant.shared.util.Strings.isBlank;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.corant.shared.exception.CorantRuntimeException;
 import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.PagingState;
+import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.Statement;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * corant-modules-query-cassandra
  *
- * Unfinish yet!
+ * <p>
+ * The default Cassandra query executor, the sessions are long-lived and cached per keyspace, the
+ * prepared statements are cached in a bounded least recently used cache keyed by the keyspace and
+ * the CQL text. The paging queries use the native paging, the paging state at the end of each
+ * served page is cached, so the following page that starts at that offset resumes from the paging
+ * state directly; otherwise the rows before the offset are fetched page by page with the default
+ * fetch size and skipped on the client side, so that a deep offset doesn't ask the coordinator for
+ * one oversized page.
  *
  * @author bingo 上午10:52:01
  *
  */
-public class DefaultCasQueryExecutor implements CasQueryExecutor {
+public class DefaultCasQueryExecutor implements CasQueryExecutor, AutoCloseable {
 
-  final Cluster cluster;
+  public static final int DEFAULT_PREPARED_STATEMENT_CACHE_SIZE = 512;
 
-  final int fetchSize;
+  protected final Logger logger = Logger.getLogger(getClass().getName());
+  protected final Cluster cluster;
+  protected final int fetchSize;
+  protected final Map<String, Session> sessions = new ConcurrentHashMap<>();
+  protected final Map<List<String>, PreparedStatement> preparedStatements;
+  protected final Map<List<Object>, PagingState> pagingStates;
 
   /**
-   * @param cluster
+   * @param cluster the cluster
+   * @param fetchSize the default fetch size
    */
   public DefaultCasQueryExecutor(Cluster cluster, int fetchSize) {
+    this(cluster, fetchSize, DEFAULT_PREPARED_STATEMENT_CACHE_SIZE);
+  }
+
+  /**
+   * @param cluster the cluster
+   * @param fetchSize the default fetch size
+   * @param cacheSize the maximum number of the cached prepared statements and paging states
+   */
+  public DefaultCasQueryExecutor(Cluster cluster, int fetchSize, int cacheSize) {
     this.cluster = shouldNotNull(cluster);
     this.fetchSize = max(fetchSize, 1);
+    preparedStatements = lruCache(cacheSize);
+    pagingStates = lruCache(cacheSize);
+  }
+
+  static <K, V> Map<K, V> lruCache(int maxSize) {
+    return Collections.synchronizedMap(new LinkedHashMap<K, V>(16, 0.75f, true) {
+      private static final long serialVersionUID = -6547126471567040236L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        return size() > maxSize;
+      }
+    });
+  }
+
+  static String limitCql(String cql, int limit) {
+    int af = cql.toUpperCase(Locale.ROOT).lastIndexOf("ALLOW FILTERING");
+    if (af != -1) {
+      return cql.substring(0, af) + " LIMIT " + limit + " ALLOW FILTERING";
+    }
+    return cql + " LIMIT " + limit;
+  }
+
+  /**
+   * Close all cached sessions and clear the caches
+   */
+  @Override
+  public void close() {
+    preparedStatements.clear();
+    pagingStates.clear();
+    sessions.values().forEach(session -> {
+      try {
+        session.close();
+      } catch (Exception e) {
+        logger.log(Level.WARNING, e, () -> "Close cassandra session occurred error!");
+      }
+    });
+    sessions.clear();
   }
 
   @Override
   public Map<String, Object> get(String keyspace, String cql, Duration timeout, Object... args) {
     Map<String, Object> map = new LinkedHashMap<>();
-    try (Session session = cluster.connect(keyspace)) {
-      final Statement stm = prepare(session, cql, timeout, args).setFetchSize(1);
+    try {
+      final Session session = getSession(keyspace);
+      final Statement stm = prepare(keyspace, cql, timeout, args).setFetchSize(1);
       ResultSet rs = session.execute(stm);
       if (rs != null) {
-        CasMapHandler.get(rs).forEach(x -> x.forEach((k, v) -> map.put(k.toString(), v)));
+        Row row = rs.one();
+        if (row != null) {
+          map.putAll(convert(row));
+        }
       }
     } catch (Exception e) {
       throw new CorantRuntimeException(e);
@@ -69,66 +145,57 @@ public class DefaultCasQueryExecutor implements CasQueryExecutor {
   @Override
   public List<Map<String, Object>> paging(String keyspace, String cql, int offset, int limit,
       Duration timeout, Object... args) {
-    if (offset <= 0) {
-      int af = cql.toUpperCase(Locale.ROOT).lastIndexOf("ALLOW FILTERING");
-      if (af != -1) {
-        return select(keyspace, cql.substring(0, af) + " LIMIT " + limit + " ALLOW FILTERING",
-            timeout, args);
+    List<Map<String, Object>> list = new ArrayList<>();
+    final int start = Math.max(offset, 0);
+    try {
+      final Session session = getSession(keyspace);
+      final PagingState state =
+          start > 0 ? pagingStates.get(pagingStateKey(keyspace, cql, start, args)) : null;
+      final Statement stm = prepare(keyspace, cql, timeout, args);
+      int skip = start;
+      if (state != null) {
+        // resume from the native paging state of the previous page
+        stm.setPagingState(state);
+        skip = 0;
       }
-      return select(keyspace, cql + " LIMIT " + limit, timeout, args);
-    } else {
-      List<Map<String, Object>> list = new ArrayList<>();
-      try (Session session = cluster.connect(keyspace)) {
-        final Statement stm = prepare(session, cql, timeout, args).setFetchSize(limit);
-        ResultSet rs = session.execute(stm);
-        if (rs != null) {
-          int currentRow = 0;
-          int fetchedSize = rs.getAvailableWithoutFetching();
-          byte[] nextState = rs.getExecutionInfo().getPagingStateUnsafe();
-          while (fetchedSize > 0 && nextState != null && currentRow + fetchedSize < offset) {
-            rs = session.execute(stm.setPagingStateUnsafe(nextState));
-            currentRow += fetchedSize;
-            fetchedSize = rs.getAvailableWithoutFetching();
-            nextState = rs.getExecutionInfo().getPagingStateUnsafe();
-          }
-          if (currentRow < offset) {
-            for (@SuppressWarnings("unused")
-            Row row : rs) {
-              if (++currentRow == offset) {
-                break;
-              }
-            }
-          }
-          int remaining = limit;
-          for (Row row : rs) {
-            Map<String, Object> map = new LinkedHashMap<>();
-            CasMapHandler.get(row).forEach((k, v) -> map.put(k.toString(), v));
-            list.add(map);
-            if (--remaining == 0) {
-              break;
-            }
+      // the skipped rows are fetched with the default fetch size and dropped on the client side
+      stm.setFetchSize(skip > 0 ? fetchSize : Math.min(limit, fetchSize));
+      ResultSet rs = session.execute(stm);
+      if (rs != null) {
+        while (skip > 0 && rs.one() != null) {
+          skip--;
+        }
+        int remaining = limit;
+        Row row;
+        while (remaining > 0 && (row = rs.one()) != null) {
+          list.add(convert(row));
+          remaining--;
+        }
+        if (remaining == 0 && rs.getAvailableWithoutFetching() == 0) {
+          PagingState next = rs.getExecutionInfo().getPagingState();
+          if (next != null) {
+            pagingStates.put(pagingStateKey(keyspace, cql, start + limit, args), next);
           }
         }
-      } catch (Exception e) {
-        throw new CorantRuntimeException(e);
       }
-      return list;
+    } catch (Exception e) {
+      throw new CorantRuntimeException(e);
     }
+    return list;
   }
 
   @Override
   public List<Map<String, Object>> select(String keyspace, String cql, Duration timeout,
       Object... args) {
     List<Map<String, Object>> list = new ArrayList<>();
-    try (Session session = cluster.connect(keyspace)) {
-      final Statement stm = prepare(session, cql, timeout, args).setFetchSize(fetchSize);
+    try {
+      final Session session = getSession(keyspace);
+      final Statement stm = prepare(keyspace, cql, timeout, args).setFetchSize(fetchSize);
       ResultSet rs = session.execute(stm);
       if (rs != null) {
-        CasMapHandler.get(rs).forEach(x -> {
-          Map<String, Object> map = new LinkedHashMap<>();
-          x.forEach((k, v) -> map.put(k.toString(), v));
-          list.add(map);
-        });
+        for (Row row : rs) {
+          list.add(convert(row));
+        }
       }
     } catch (Exception e) {
       throw new CorantRuntimeException(e);
@@ -136,13 +203,85 @@ public class DefaultCasQueryExecutor implements CasQueryExecutor {
     return list;
   }
 
-  protected Statement prepare(Session session, String cql, Duration timeout, Object... args) {
-    final Statement stm;
-    if (isEmpty(args)) {
-      stm = session.prepare(cql).bind();
-    } else {
-      stm = session.prepare(cql).bind(args);
+  @Override
+  public CompletableFuture<List<Map<String, Object>>> selectAsync(String keyspace, String cql,
+      int limit, Duration timeout, Object... args) {
+    final CompletableFuture<List<Map<String, Object>>> result = new CompletableFuture<>();
+    try {
+      final String useCql = limit > 0 ? limitCql(cql, limit) : cql;
+      final Statement stm = prepare(keyspace, useCql, timeout, args).setFetchSize(fetchSize);
+      collectAsync(getSession(keyspace).executeAsync(stm), new ArrayList<>(), result);
+    } catch (Exception e) {
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
+
+  /**
+   * Collect the rows of the result set asynchronously, the rows of the fetched page are consumed
+   * without blocking, then the next page is fetched asynchronously until all rows are fetched.
+   *
+   * @param future the result set future
+   * @param list the collected rows
+   * @param result the collecting result
+   */
+  protected void collectAsync(ListenableFuture<ResultSet> future, List<Map<String, Object>> list,
+      CompletableFuture<List<Map<String, Object>>> result) {
+    future.addListener(() -> {
+      try {
+        final ResultSet rs = future.get();
+        for (int i = rs.getAvailableWithoutFetching(); i > 0; i--) {
+          list.add(convert(rs.one()));
+        }
+        if (rs.isFullyFetched()) {
+          result.complete(list);
+        } else {
+          collectAsync(rs.fetchMoreResults(), list, result);
+        }
+      } catch (ExecutionException e) {
+        result.completeExceptionally(e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        result.completeExceptionally(e);
+      } catch (Exception e) {
+        result.completeExceptionally(e);
+      }
+    }, Runnable::run);
+  }
+
+  /**
+   * Convert the row to a map, the keys of the map are the column names.
+   *
+   * @param row the row to convert
+   */
+  protected Map<String, Object> convert(Row row) {
+    Map<String, Object> map = new LinkedHashMap<>();
+    CasMapHandler.get(row).forEach((k, v) -> map.put(k.toString(), v));
+    return map;
+  }
+
+  protected Session getSession(String keyspace) {
+    return sessions.computeIfAbsent(isBlank(keyspace) ? EMPTY : keyspace,
+        k -> k.isEmpty() ? cluster.connect() : cluster.connect(k));
+  }
+
+  protected List<Object> pagingStateKey(String keyspace, String cql, int offset, Object... args) {
+    List<Object> key = new ArrayList<>(args.length + 3);
+    key.add(keyspace);
+    key.add(cql);
+    key.add(offset);
+    key.addAll(Arrays.asList(args));
+    return key;
+  }
+
+  protected Statement prepare(String keyspace, String cql, Duration timeout, Object... args) {
+    final List<String> key = Arrays.asList(isBlank(keyspace) ? EMPTY : keyspace, cql);
+    PreparedStatement ps = preparedStatements.get(key);
+    if (ps == null) {
+      ps = getSession(keyspace).prepare(cql);
+      preparedStatements.put(key, ps);
     }
+    final Statement stm = isEmpty(args) ? ps.bind() : ps.bind(args);
     if (timeout != null) {
       stm.setReadTimeoutMillis((int) timeout.toMillis());
     }
@@ -20,6 +20,7 @@ import java.lang.annotation.Annotation;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
@@ -63,6 +64,15 @@ public class CasNamedQueryServiceManager implements NamedQueryServiceManager {
   @ConfigProperty(name = "corant.query.cassandra.fetch-size", defaultValue = "16")
   protected Integer fetchSize;
 
+  @Inject
+  @ConfigProperty(name = "corant.query.cassandra.prepared-statement-cache-size",
+      defaultValue = "512")
+  protected Integer preparedStatementCacheSize;
+
+  @Inject
+  @ConfigProperty(name = "corant.query.cassandra.parallel-fetch-window", defaultValue = "32")
+  protected Integer parallelFetchWindow;
+
   @Inject
   @ConfigProperty(name = "corant.query.cassandra.default-qualifier-value")
   protected Optional<String> defaultQualifierValue;
@@ -86,6 +96,15 @@ public class CasNamedQueryServiceManager implements NamedQueryServiceManager {
 
   @PreDestroy
   protected synchronized void onPreDestroy() {
+    services.values().forEach(service -> {
+      if (service instanceof DefaultCasNamedQueryService) {
+        try {
+          ((DefaultCasNamedQueryService) service).close();
+        } catch (Exception e) {
+          logger.log(Level.WARNING, e, () -> "Close cassandra named query service occurred error!");
+        }
+      }
+    });
     services.clear();
     logger.fine(() -> "Clear cached named query services.");
   }
@@ -119,6 +138,7 @@ public class CasNamedQueryServiceManager implements NamedQueryServiceManager {
 
     protected final AbstractNamedQuerierResolver<CasNamedQuerier> resolver;
     protected final CasQueryExecutor executor;
+    protected final int parallelFetchWindow;
 
     /**
      * @param clusterName
@@ -126,11 +146,12 @@ public class CasNamedQueryServiceManager implements NamedQueryServiceManager {
      */
     public DefaultCasNamedQueryService(String clusterName, CasNamedQueryServiceManager manager) {
       resolver = manager.resolver;
+      parallelFetchWindow = manager.parallelFetchWindow;
       executor = new DefaultCasQueryExecutor(
           findNamed(Cluster.class, clusterName).orElseThrow(() -> new CorantRuntimeException(
               "Can't build default cassandra named query, the cluster named %s not found.",
               clusterName)),
-          manager.fetchSize);
+          manager.fetchSize, manager.preparedStatementCacheSize);
     }
 
     /**
@@ -141,14 +162,33 @@ public class CasNamedQueryServiceManager implements NamedQueryServiceManager {
     protected DefaultCasNamedQueryService(Cluster cluster, int fetchSize,
         AbstractNamedQuerierResolver<CasNamedQuerier> resolver) {
       this.resolver = resolver;
+      parallelFetchWindow = DEFAULT_PARALLEL_FETCH_WINDOW;
       executor = new DefaultCasQueryExecutor(cluster, fetchSize);
     }
 
+    /**
+     * Close the executor, the cached sessions of the executor are closed.
+     */
+    public void close() {
+      if (executor instanceof AutoCloseable) {
+        try {
+          ((AutoCloseable) executor).close();
+        } catch (Exception e) {
+          throw new CorantRuntimeException(e);
+        }
+      }
+    }
+
     @Override
     protected CasQueryExecutor getExecutor() {
       return executor;
     }
 
+    @Override
+    protected int getParallelFetchWindow() {
+      return parallelFetchWindow;
+    }
+
     @Override
     protected AbstractNamedQuerierResolver<CasNamedQuerier> getQuerierResolver() {
       return resolver;
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.query.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.corant.modules.query.NamedQueryService;
+import org.corant.modules.query.Querier;
+import org.corant.modules.query.QueryRuntimeException;
+import org.corant.modules.query.mapping.FetchQuery;
+import org.corant.modules.query.mapping.Query;
+import org.corant.modules.query.shared.AbstractNamedQuerierResolver;
+import org.corant.shared.exception.NotSupportedException;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-query-cassandra
+ *
+ * @author bingo 下午3:05:12
+ *
+ */
+public class AbstractCasNamedQueryServiceTest extends TestCase {
+
+  static final int WINDOW = 4;
+
+  @Test
+  public void testParallelFetchIsBoundedByWindow() throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(16);
+    try {
+      WindowedService service = new WindowedService(pool, false);
+      List<Object> results = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+      service.parallelFetch(results, querier(new FetchQuery(), new FetchQuery()));
+      assertThat(service.calls.get()).isEqualTo(200);
+      assertThat(service.maxInFlight.get()).isBetween(1, WINDOW);
+      assertThat(service.inFlight.get()).isZero();
+    } finally {
+      pool.shutdownNow();
+      pool.awaitTermination(1, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  public void testParallelFetchReleasesFailedPermits() throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(16);
+    try {
+      WindowedService service = new WindowedService(pool, true);
+      List<Object> results = IntStream.range(0, 20).boxed().collect(Collectors.toList());
+      // all fetches are issued even though each of them fails, then the first failure is thrown
+      assertThatThrownBy(() -> service.parallelFetch(results, querier(new FetchQuery())))
+          .isInstanceOf(QueryRuntimeException.class);
+      assertThat(service.calls.get()).isEqualTo(20);
+      assertThat(service.maxInFlight.get()).isBetween(1, WINDOW);
+    } finally {
+      pool.shutdownNow();
+      pool.awaitTermination(1, TimeUnit.SECONDS);
+    }
+  }
+
+  Querier querier(FetchQuery... fetchQueries) {
+    Query query = new Query() {
+      private static final long serialVersionUID = -4416528830567126431L;
+      {
+        for (FetchQuery fq : fetchQueries) {
+          addFetchQuery(fq);
+        }
+      }
+    };
+    return (Querier) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] {Querier.class}, (p, m, args) -> {
+          switch (m.getName()) {
+            case "getQuery":
+              return query;
+            case "decideFetch":
+            case "parallelFetch":
+              return true;
+            default:
+              throw new NotSupportedException();
+          }
+        });
+  }
+
+  /**
+   * corant-modules-query-cassandra
+   *
+   * @author bingo 下午3:07:45
+   *
+   */
+  static class WindowedService extends AbstractCasNamedQueryService {
+
+    final ExecutorService pool;
+    final boolean fail;
+    final AtomicInteger calls = new AtomicInteger();
+    final AtomicInteger inFlight = new AtomicInteger();
+    final AtomicInteger maxInFlight = new AtomicInteger();
+
+    WindowedService(ExecutorService pool, boolean fail) {
+      this.pool = pool;
+      this.fail = fail;
+    }
+
+    @Override
+    public CompletableFuture<FetchResult> fetchAsync(Object result, FetchQuery fetchQuery,
+        Querier parentQuerier) {
+      calls.incrementAndGet();
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      return CompletableFuture.supplyAsync(() -> {
+        try {
+          Thread.sleep(2);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        inFlight.decrementAndGet();
+        if (fail) {
+          throw new IllegalStateException("fetch failed");
+        }
+        return new FetchResult(fetchQuery, parentQuerier, List.of());
+      }, pool);
+    }
+
+    @Override
+    protected CasQueryExecutor getExecutor() {
+      throw new NotSupportedException();
+    }
+
+    @Override
+    protected int getParallelFetchWindow() {
+      return WINDOW;
+    }
+
+    @Override
+    protected AbstractNamedQuerierResolver<CasNamedQuerier> getQuerierResolver() {
+      throw new NotSupportedException();
+    }
+
+    @Override
+    protected NamedQueryService resolveFetchQueryService(FetchQuery fq) {
+      return this;
+    }
+  }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.query.cassandra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.corant.shared.exception.NotSupportedException;
+import org.junit.Test;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.ExecutionInfo;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.Statement;
+import com.google.common.util.concurrent.Futures;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-query-cassandra
+ *
+ * @author bingo 下午2:18:37
+ *
+ */
+public class DefaultCasQueryExecutorTest extends TestCase {
+
+  static final String CQL = "SELECT id FROM t";
+  static final int FETCH_SIZE = 16;
+
+  @Test
+  public void testPagingFirstPage() {
+    CqlStandIn standIn = new CqlStandIn(100);
+    List<Map<String, Object>> rows =
+        new StandInExecutor(standIn).paging("ks", CQL, 0, 10, Duration.ofSeconds(1));
+    assertThat(ids(rows)).isEqualTo(range(0, 10));
+    assertThat(standIn.fetchSizes).containsExactly(10);
+  }
+
+  @Test
+  public void testPagingLimitAboveFetchSize() {
+    CqlStandIn standIn = new CqlStandIn(100);
+    List<Map<String, Object>> rows = new StandInExecutor(standIn).paging("ks", CQL, 0, 40, null);
+    assertThat(ids(rows)).isEqualTo(range(0, 40));
+    assertThat(standIn.fetchSizes).containsOnly(FETCH_SIZE).hasSize(3);
+  }
+
+  @Test
+  public void testPagingSkipsOnClientSide() {
+    CqlStandIn standIn = new CqlStandIn(100);
+    List<Map<String, Object>> rows = new StandInExecutor(standIn).paging("ks", CQL, 50, 10, null);
+    assertThat(ids(rows)).isEqualTo(range(50, 60));
+    // the skipped rows never ask for a page larger than the default fetch size
+    assertThat(standIn.fetchSizes).containsOnly(FETCH_SIZE).hasSize(4);
+  }
+
+  @Test
+  public void testPagingTail() {
+    CqlStandIn standIn = new CqlStandIn(100);
+    StandInExecutor executor = new StandInExecutor(standIn);
+    assertThat(ids(executor.paging("ks", CQL, 95, 10, null))).isEqualTo(range(95, 100));
+    assertThat(executor.paging("ks", CQL, 120, 10, null)).isEmpty();
+  }
+
+  @Test
+  public void testSelect() {
+    CqlStandIn standIn = new CqlStandIn(50);
+    List<Map<String, Object>> rows = new StandInExecutor(standIn).select("ks", CQL, null);
+    assertThat(ids(rows)).isEqualTo(range(0, 50));
+    assertThat(standIn.fetchSizes).containsOnly(FETCH_SIZE).hasSize(4);
+  }
+
+  @Test
+  public void testSelectAsync() {
+    CqlStandIn standIn = new CqlStandIn(50);
+    StandInExecutor executor = new StandInExecutor(standIn);
+    assertThat(ids(executor.selectAsync("ks", CQL, 0, null).join())).isEqualTo(range(0, 50));
+    assertThat(ids(executor.selectAsync("ks", CQL, 20, null).join())).isEqualTo(range(0, 20));
+    assertThat(executor.statements).contains(CQL + " LIMIT 20");
+  }
+
+  static List<Integer> ids(List<Map<String, Object>> rows) {
+    return rows.stream().map(r -> (Integer) r.get("id")).collect(Collectors.toList());
+  }
+
+  static List<Integer> range(int from, int to) {
+    return IntStream.range(from, to).boxed().collect(Collectors.toList());
+  }
+
+  /**
+   * corant-modules-query-cassandra
+   *
+   * <p>
+   * An in-process stand-in of a Cassandra session that serves the single integer column table
+   * {@code id} page by page with the fetch size of the executed statements, and records the fetch
+   * size of each round trip. The {@code LIMIT} clause of the CQL is honored.
+   *
+   * @author bingo 下午2:21:06
+   *
+   */
+  static class CqlStandIn {
+
+    static final Pattern LIMIT = Pattern.compile("LIMIT (\\d+)");
+
+    final List<Integer> table;
+    final List<Integer> fetchSizes = new ArrayList<>();
+    final ExecutionInfo executionInfo = mock(ExecutionInfo.class);
+
+    CqlStandIn(int size) {
+      table = range(0, size);
+    }
+
+    ResultSet execute(Statement statement) {
+      List<Integer> rows = table;
+      Matcher matcher = LIMIT.matcher(((SimpleStatement) statement).getQueryString());
+      if (matcher.find()) {
+        rows = rows.subList(0, Math.min(rows.size(), Integer.parseInt(matcher.group(1))));
+      }
+      return new Cursor(rows, statement.getFetchSize()).resultSet;
+    }
+
+    Row row(Integer id) {
+      return (Row) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Row.class},
+          (p, m, args) -> {
+            if ("getInt".equals(m.getName()) && "id".equals(args[0])) {
+              return id;
+            }
+            throw new NotSupportedException();
+          });
+    }
+
+    Session session() {
+      return (Session) Proxy.newProxyInstance(getClass().getClassLoader(),
+          new Class<?>[] {Session.class}, (p, m, args) -> {
+            switch (m.getName()) {
+              case "execute":
+                return execute((Statement) args[0]);
+              case "executeAsync":
+                return future(execute((Statement) args[0]));
+              default:
+                throw new NotSupportedException();
+            }
+          });
+    }
+
+    ResultSetFuture future(ResultSet rs) {
+      return (ResultSetFuture) Proxy.newProxyInstance(getClass().getClassLoader(),
+          new Class<?>[] {ResultSetFuture.class}, (p, m, args) -> {
+            switch (m.getName()) {
+              case "addListener":
+                ((Executor) args[1]).execute((Runnable) args[0]);
+                return null;
+              case "get":
+              case "getUninterruptibly":
+                return rs;
+              case "isDone":
+                return true;
+              case "isCancelled":
+              case "cancel":
+                return false;
+              default:
+                throw new NotSupportedException();
+            }
+          });
+    }
+
+    /**
+     * corant-modules-query-cassandra
+     *
+     * @author bingo 下午2:24:53
+     *
+     */
+    class Cursor {
+      final List<Integer> rows;
+      final int fetchSize;
+      final ResultSet resultSet;
+      int position;
+      int pageEnd;
+
+      Cursor(List<Integer> rows, int fetchSize) {
+        this.rows = rows;
+        this.fetchSize = fetchSize > 0 ? fetchSize : 5000;
+        resultSet = (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] {ResultSet.class}, (p, m, args) -> {
+              switch (m.getName()) {
+                case "one":
+                  return one();
+                case "all":
+                  List<Row> all = new ArrayList<>();
+                  Row row;
+                  while ((row = one()) != null) {
+                    all.add(row);
+                  }
+                  return all;
+                case "iterator":
+                  return iterator();
+                case "getAvailableWithoutFetching":
+                  return pageEnd - position;
+                case "isFullyFetched":
+                  return pageEnd == rows.size();
+                case "isExhausted":
+                  return position == rows.size();
+                case "fetchMoreResults":
+                  if (pageEnd < rows.size()) {
+                    fetchPage();
+                  }
+                  return Futures.immediateFuture((ResultSet) p);
+                case "getExecutionInfo":
+                  return executionInfo;
+                default:
+                  throw new NotSupportedException();
+              }
+            });
+        fetchPage();
+      }
+
+      void fetchPage() {
+        fetchSizes.add(fetchSize);
+        pageEnd = Math.min(pageEnd + fetchSize, rows.size());
+      }
+
+      Iterator<Row> iterator() {
+        return new Iterator<>() {
+          Row next = one();
+
+          @Override
+          public boolean hasNext() {
+            return next != null;
+          }
+
+          @Override
+          public Row next() {
+            if (next == null) {
+              throw new NoSuchElementException();
+            }
+            Row current = next;
+            next = one();
+            return current;
+          }
+        };
+      }
+
+      Row one() {
+        if (position == pageEnd && pageEnd < rows.size()) {
+          fetchPage();
+        }
+        return position < pageEnd ? row(rows.get(position++)) : null;
+      }
+    }
+  }
+
+  /**
+   * corant-modules-query-cassandra
+   *
+   * @author bingo 下午2:29:10
+   *
+   */
+  static class StandInExecutor extends DefaultCasQueryExecutor {
+
+    final CqlStandIn standIn;
+    final List<String> statements = new ArrayList<>();
+
+    StandInExecutor(CqlStandIn standIn) {
+      super(mock(Cluster.class), FETCH_SIZE);
+      this.standIn = standIn;
+    }
+
+    @Override
+    protected Map<String, Object> convert(Row row) {
+      Map<String, Object> map = new LinkedHashMap<>();
+      map.put("id", row.getInt("id"));
+      return map;
+    }
+
+    @Override
+    protected Session getSession(String keyspace) {
+      return standIn.session();
+    }
+
+    @Override
+    protected Statement prepare(String keyspace, String cql, Duration timeout, Object... args) {
+      statements.add(cql);
+      Statement stm = new SimpleStatement(cql, args);
+      if (timeout != null) {
+        stm.setReadTimeoutMillis((int) timeout.toMillis());
+      }
+      return stm;
+    }
+  }
+}
@@ -39,6 +39,7 @@ public abstract class AbstractEsNamedQueryService extends AbstractNamedQueryServ
     implements EsNamedQueryService {
 
   public static final String PRO_KEY_INDEX_NAME = ".index-name";
+  public static final String PRO_KEY_SCROLL_SLICES = ".scroll-slices";
 
   @Override
   public Map<String, Object> aggregate(String queryName, Object parameter) {
@@ -75,24 +76,26 @@ public abstract class AbstractEsNamedQueryService extends AbstractNamedQueryServ
     }
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * If the query property {@link #PRO_KEY_SCROLL_SLICES} is greater than 1 then the search is split
+   * into sliced scrolls and the returned stream is parallel, so the terminal operation runs the
+   * slices, the fetch queries and the result handling concurrently on the common fork join pool
+   * (or on the fork join pool of the caller thread), and the results are unordered. To keep the
+   * sequential behavior for such a query, use
+   * {@link #scrolledSearch(String, Object, TimeValue, int, int)} with one slice.
+   */
   @Override
   public <T> Stream<T> scrolledSearch(String q, Object param, TimeValue scrollKeepAlive,
       int batchSize) {
-    try {
-      EsNamedQuerier querier = getQuerierResolver().resolve(q, param);
-      String script = resolveScript(querier.getScript(), null, null);
-      log("scrolled search-> " + q, querier.getQueryParameter(), script);
-      return getExecutor()
-          .scrolledSearch(resolveIndexName(querier), script, scrollKeepAlive, batchSize)
-          .map(result -> {
-            this.fetch(result, querier);
-            return querier.handleResult(result);
-          });
-    } catch (Exception e) {
-      throw new QueryRuntimeException(e,
-          "An error occurred while executing the scrolled search [%s], exception [%s].", q,
-          e.getMessage());
-    }
+    return doScrolledSearch(q, param, scrollKeepAlive, batchSize, null);
+  }
+
+  @Override
+  public <T> Stream<T> scrolledSearch(String q, Object param, TimeValue scrollKeepAlive,
+      int batchSize, int slices) {
+    return doScrolledSearch(q, param, scrollKeepAlive, batchSize, slices);
   }
 
   @Override
@@ -141,6 +144,30 @@ public abstract class AbstractEsNamedQueryService extends AbstractNamedQueryServ
     return Paging.of(hits.getLeft().intValue(), result, offset, limit);
   }
 
+  protected <T> Stream<T> doScrolledSearch(String q, Object param, TimeValue scrollKeepAlive,
+      int batchSize, Integer slices) {
+    try {
+      EsNamedQuerier querier = getQuerierResolver().resolve(q, param);
+      String script = resolveScript(querier.getScript(), null, null);
+      int useSlices = slices != null ? slices
+          : querier.resolveProperty(PRO_KEY_SCROLL_SLICES, Integer.class, 1);
+      log("scrolled search-> " + q, querier.getQueryParameter(), script);
+      final Stream<Map<String, Object>> hits = useSlices > 1
+          ? getExecutor().scrolledSearch(resolveIndexName(querier), script, scrollKeepAlive,
+              batchSize, useSlices)
+          : getExecutor().scrolledSearch(resolveIndexName(querier), script, scrollKeepAlive,
+              batchSize);
+      return hits.map(result -> {
+        this.fetch(result, querier);
+        return querier.handleResult(result);
+      });
+    } catch (Exception e) {
+      throw new QueryRuntimeException(e,
+          "An error occurred while executing the scrolled search [%s], exception [%s].", q,
+          e.getMessage());
+    }
+  }
+
   @Override
   protected <T> List<T> doSelect(String queryName, Object parameter) throws Exception {
     EsNamedQuerier querier = getQuerierResolver().resolve(queryName, parameter);
@@ -40,6 +40,12 @@ public class DefaultEsNamedQuerierResolver extends AbstractNamedQuerierResolver<
   @Inject
   protected Logger logger;
 
+  @GuardedBy("QueryMappingService.rwl.writeLock")
+  @Override
+  public void afterQueryMappingInitialized(Collection<Query> queries, long initializedVersion) {
+    clearBuilders();
+  }
+
   @GuardedBy("QueryMappingService.rwl.writeLock")
   @Override
   public void beforeQueryMappingInitialize(Collection<Query> queries, long initializedVersion) {
@@ -50,7 +56,6 @@ public class DefaultEsNamedQuerierResolver extends AbstractNamedQuerierResolver<
   public EsNamedQuerier resolve(String name, Object param) {
     FreemarkerEsQuerierBuilder builder = builders.get(name);
     if (builder == null) {
-      // Note: this.builders & QueryMappingService.queries may cause dead lock
       Query query = resolveQuery(name);
       builder = builders.computeIfAbsent(name, k -> createBuilder(query));
     }
@@ -56,4 +56,12 @@ public class DefaultEsQueryExecutor implements EsQueryExecutor {
         scrollKeepAlive, batchSize, Functions.emptyConsumer()), false);
   }
 
+  @Override
+  public Stream<Map<String, Object>> scrolledSearch(String indexName, String script,
+      TimeValue scrollKeepAlive, int batchSize, int slices) throws Exception {
+    EsSlicedScrollSpliterator spliterator = new EsSlicedScrollSpliterator(transportClient,
+        indexName, script, scrollKeepAlive, batchSize, slices);
+    return StreamSupport.stream(spliterator, slices > 1).onClose(spliterator::close);
+  }
+
 }
@@ -16,6 +16,7 @@ package org.corant.modules.query.elastic;
 import java.util.Map;
 import java.util.stream.Stream;
 import org.corant.modules.query.NamedQueryService;
+import org.corant.shared.exception.NotSupportedException;
 import org.elasticsearch.common.unit.TimeValue;
 
 /**
@@ -32,8 +33,44 @@ public interface EsNamedQueryService extends NamedQueryService {
 
   Map<String, Object> aggregate(String q, Object param);
 
+  /**
+   * Returns a stream of the query results by scroll search, the implementation may split the
+   * search into sliced scrolls by the query properties, in this case the returned stream is
+   * parallel, see the implementation for details. The returned stream should be closed to release
+   * the scroll contexts that are still open.
+   *
+   * @param q the query name
+   * @param param the query parameter
+   * @param scrollKeepAlive the scroll context keep alive
+   * @param batchSize the number of hits per scroll request
+   */
   <T> Stream<T> scrolledSearch(String q, Object param, TimeValue scrollKeepAlive, int batchSize);
 
+  /**
+   * Returns a stream of the query results, the search is split into the given number of sliced
+   * scrolls and the slices are consumed in parallel, the returned stream should be closed to
+   * release the scroll contexts that are still open.
+   *
+   * <p>
+   * The default implementation delegates to the unsliced
+   * {@link #scrolledSearch(String, Object, TimeValue, int)} if the number of slices is less than 2,
+   * otherwise throws {@link NotSupportedException}.
+   *
+   * @param q the query name
+   * @param param the query parameter
+   * @param scrollKeepAlive the scroll context keep alive
+   * @param batchSize the number of hits per scroll request of each slice
+   * @param slices the number of slices
+   */
+  default <T> Stream<T> scrolledSearch(String q, Object param, TimeValue scrollKeepAlive,
+      int batchSize, int slices) {
+    if (slices > 1) {
+      throw new NotSupportedException("The sliced scrolled search isn't supported by %s.",
+          getClass().getName());
+    }
+    return scrolledSearch(q, param, scrollKeepAlive, batchSize);
+  }
+
   Map<String, Object> search(String q, Object param);
 
 }
@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
 import org.corant.modules.query.QueryRuntimeException;
+import org.corant.shared.exception.NotSupportedException;
 import org.corant.shared.ubiquity.Tuple.Pair;
 import org.corant.shared.util.Conversions;
 import org.elasticsearch.action.search.SearchRequest;
@@ -105,6 +106,32 @@ public interface EsQueryExecutor {
   Stream<Map<String, Object>> scrolledSearch(String indexName, String script,
       TimeValue scrollKeepAlive, int batchSize) throws Exception;
 
+  /**
+   * Returns a stream of the hits of the search that is split into the given number of sliced
+   * scrolls, if the number of slices is greater than 1 the returned stream is parallel and the
+   * slices are consumed concurrently. The returned stream should be closed to release the scroll
+   * contexts that are still open.
+   *
+   * <p>
+   * The default implementation delegates to the unsliced
+   * {@link #scrolledSearch(String, String, TimeValue, int)} if the number of slices is less than 2,
+   * otherwise throws {@link NotSupportedException}.
+   *
+   * @param indexName the index name
+   * @param script the search script
+   * @param scrollKeepAlive the scroll context keep alive
+   * @param batchSize the number of hits per scroll request of each slice
+   * @param slices the number of slices
+   */
+  default Stream<Map<String, Object>> scrolledSearch(String indexName, String script,
+      TimeValue scrollKeepAlive, int batchSize, int slices) throws Exception {
+    if (slices > 1) {
+      throw new NotSupportedException("The sliced scrolled search isn't supported by %s.",
+          getClass().getName());
+    }
+    return scrolledSearch(indexName, script, scrollKeepAlive, batchSize);
+  }
+
   default Map<String, Object> search(String indexName, String script,
       Map<String, String> properties) throws Exception {
     SearchResponse searchResponse = execute(indexName, script, properties);
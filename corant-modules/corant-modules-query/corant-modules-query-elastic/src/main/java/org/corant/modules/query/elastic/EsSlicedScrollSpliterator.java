@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.query.elastic;
+
+import static org.corant.shared.util.Assertions.shouldBeTrue;
+import static org.corant.shared.util.Objects.defaultObject;
+import static org.corant.shared.util.Objects.max;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.corant.shared.util.Streams.AbstractBatchHandlerSpliterator;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.transport.TransportClient;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.slice.SliceBuilder;
+
+/**
+ * corant-modules-query-elastic
+ *
+ * <p>
+ * A splittable scroll spliterator, the search is split into N sliced scrolls with
+ * {@link SliceBuilder}, each slice has its own scroll context and is consumed sequentially, the
+ * slices that haven't been opened are handed off by {@link #trySplit()}, so that the parallel
+ * stream consumes the slices concurrently. The scroll context of a slice is opened lazily on first
+ * advance and cleared as soon as the slice is exhausted; the scroll contexts that are still open
+ * when the stream is abandoned are cleared by {@link #close()}.
+ *
+ * <p>
+ * Use example:
+ *
+ * <pre>
+ * EsSlicedScrollSpliterator spliterator =
+ *     new EsSlicedScrollSpliterator(client, indexName, script, keepAlive, batchSize, slices);
+ * try (Stream&lt;Map&lt;String, Object&gt;&gt; stream = StreamSupport.stream(spliterator, true)
+ *     .onClose(spliterator::close)) {
+ *   stream.forEach(...);
+ * }
+ * </pre>
+ *
+ * <p>
+ * Note: The number of slices should not exceed the number of shards of the index for best
+ * performance, otherwise the slicing is expensive on the first scroll request.
+ *
+ * @author bingo 下午5:28:36
+ *
+ */
+public class EsSlicedScrollSpliterator extends AbstractBatchHandlerSpliterator<Map<String, Object>>
+    implements AutoCloseable {
+
+  protected static final Logger logger =
+      Logger.getLogger(EsSlicedScrollSpliterator.class.getName());
+
+  protected final TransportClient client;
+  protected final String indexName;
+  protected final TimeValue scrollKeepAlive;
+  protected final int batchSize;
+  protected final int slices;
+  protected final Consumer<SearchRequestBuilder> callback;
+  protected final Set<String> openedScrollIds;
+
+  protected int nextSlice;
+  protected int endSlice;
+  protected String scrollId;
+  protected SearchHit[] hits;
+  protected int seq;
+
+  public EsSlicedScrollSpliterator(TransportClient client, String indexName, String script,
+      TimeValue scrollKeepAlive, int batchSize, int slices) {
+    this(client, indexName, scrollKeepAlive, batchSize, slices, null,
+        request -> request.setSource(EsQueryExecutor.buildSearchSourceBuilder(script)));
+  }
+
+  /**
+   * @param client the transport client
+   * @param indexName the index name
+   * @param scrollKeepAlive the scroll context keep alive, default is one minute
+   * @param batchSize the number of hits per scroll request of each slice
+   * @param slices the number of slices, if less than 2 the search isn't sliced
+   * @param fn the batch handler
+   * @param callback the callback use to setup the search request
+   */
+  public EsSlicedScrollSpliterator(TransportClient client, String indexName,
+      TimeValue scrollKeepAlive, int batchSize, int slices, Consumer<Long> fn,
+      Consumer<SearchRequestBuilder> callback) {
+    this(client, indexName, defaultObject(scrollKeepAlive, () -> TimeValue.timeValueMinutes(1)),
+        max(batchSize, 1), max(slices, 1), fn, callback, 0, max(slices, 1),
+        ConcurrentHashMap.newKeySet());
+  }
+
+  protected EsSlicedScrollSpliterator(TransportClient client, String indexName,
+      TimeValue scrollKeepAlive, int batchSize, int slices, Consumer<Long> fn,
+      Consumer<SearchRequestBuilder> callback, int nextSlice, int endSlice,
+      Set<String> openedScrollIds) {
+    super(Long.MAX_VALUE, Spliterator.IMMUTABLE | Spliterator.NONNULL, batchSize, fn);
+    shouldBeTrue(nextSlice <= endSlice && endSlice <= slices);
+    this.client = client;
+    this.indexName = indexName;
+    this.scrollKeepAlive = scrollKeepAlive;
+    this.batchSize = batchSize;
+    this.slices = slices;
+    this.callback = callback;
+    this.nextSlice = nextSlice;
+    this.endSlice = endSlice;
+    this.openedScrollIds = openedScrollIds;
+  }
+
+  /**
+   * Clear all the scroll contexts that are still open, including those opened by the split
+   * spliterators.
+   */
+  @Override
+  public void close() {
+    for (String id : openedScrollIds.toArray(String[]::new)) {
+      clearScroll(id);
+    }
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super Map<String, Object>> action) {
+    while (true) {
+      if (hits != null && seq < hits.length) {
+        action.accept(hits[seq++].getSourceAsMap());
+        return true;
+      }
+      if (scrollId != null) {
+        nextBatch();
+      } else if (nextSlice < endSlice) {
+        openSlice(nextSlice++);
+      } else {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Hand off half of the slices that haven't been opened, if this spliterator is consuming a slice
+   * then all the unopened slices may be handed off. Returns null if there is nothing to split.
+   */
+  @Override
+  public Spliterator<Map<String, Object>> trySplit() {
+    final int pending = endSlice - nextSlice;
+    if (pending < (scrollId != null ? 1 : 2)) {
+      return null;
+    }
+    final int mid = nextSlice + (pending >> 1);
+    final int end = endSlice;
+    endSlice = mid;
+    return new EsSlicedScrollSpliterator(client, indexName, scrollKeepAlive, batchSize, slices,
+        getHandler(), callback, mid, end, openedScrollIds);
+  }
+
+  protected void clearScroll(String id) {
+    if (openedScrollIds.remove(id)) {
+      try {
+        client.prepareClearScroll().addScrollId(id).get();
+      } catch (RuntimeException e) {
+        // the scroll context will be released by the cluster after keep alive
+        logger.log(Level.WARNING, e, () -> "Clear scroll context occurred error!");
+      }
+    }
+  }
+
+  protected void handleResponse(SearchResponse response) {
+    final String id = response.getScrollId();
+    if (scrollId != null && !scrollId.equals(id)) {
+      openedScrollIds.remove(scrollId);
+    }
+    scrollId = id;
+    hits = response.getHits().getHits();
+    seq = 0;
+    if (hits.length == 0) {
+      hits = null;
+      scrollId = null;
+      clearScroll(id);
+    } else {
+      openedScrollIds.add(id);
+    }
+  }
+
+  protected void nextBatch() {
+    try {
+      handleResponse(client.prepareSearchScroll(scrollId).setScroll(scrollKeepAlive).get());
+    } catch (RuntimeException e) {
+      String id = scrollId;
+      scrollId = null;
+      hits = null;
+      clearScroll(id);
+      throw e;
+    }
+  }
+
+  protected void openSlice(int slice) {
+    SearchRequestBuilder request = client.prepareSearch(indexName);
+    if (callback != null) {
+      callback.accept(request);
+    }
+    if (slices > 1) {
+      request.slice(new SliceBuilder(slice, slices));
+    }
+    handleResponse(request.setScroll(scrollKeepAlive).setSize(batchSize).get());
+  }
+
+}
@@ -44,6 +44,12 @@ public class DefaultJpqlNamedQuerierResolver
   @Inject
   protected Logger logger;
 
+  @GuardedBy("QueryMappingService.rwl.writeLock")
+  @Override
+  public void afterQueryMappingInitialized(Collection<Query> queries, long initializedVersion) {
+    clearBuilders();
+  }
+
   @GuardedBy("QueryMappingService.rwl.writeLock")
   @Override
   public void beforeQueryMappingInitialize(Collection<Query> queries, long initializedVersion) {
@@ -54,7 +60,6 @@ public class DefaultJpqlNamedQuerierResolver
   public DefaultJpqlNamedQuerier resolve(String name, Object param) {
     DynamicQuerierBuilder builder = builders.get(name);
     if (builder == null) {
-      // Note: this.builders & QueryMappingService.queries may cause dead lock
       Query query = resolveQuery(name);
       builder = builders.computeIfAbsent(name, k -> createBuilder(query));
     }
@@ -38,20 +38,7 @@ public class JpqlTemplateMethodModelEx extends AbstractTemplateMethodModelEx<Obj
   @Override
   public Object exec(List arguments) throws TemplateModelException {
     if (isNotEmpty(arguments)) {
-      Object arg = getParamValue(arguments);
-      if (arg instanceof List) {
-        List argList = (List) arg;
-        int argSize = argList.size();
-        String[] placeHolders = new String[argSize];
-        for (int i = 0; i < argSize; i++) {
-          parameters.add(argList.get(i));
-          placeHolders[i] = getPlaceHolder();
-        }
-        return new SimpleScalar(String.join(",", placeHolders));
-      } else {
-        parameters.add(arg);
-        return getPlaceHolder();
-      }
+      return bindParamValue(getParamValue(arguments));
     }
     return arguments;
   }
@@ -61,6 +48,29 @@ public class JpqlTemplateMethodModelEx extends AbstractTemplateMethodModelEx<Obj
     return parameters.toArray(new Object[parameters.size()]);
   }
 
+  @Override
+  public boolean isReplayable() {
+    return true;
+  }
+
+  @SuppressWarnings({"rawtypes"})
+  @Override
+  protected Object bindParamValue(Object arg) {
+    if (arg instanceof List) {
+      List argList = (List) arg;
+      int argSize = argList.size();
+      String[] placeHolders = new String[argSize];
+      for (int i = 0; i < argSize; i++) {
+        parameters.add(argList.get(i));
+        placeHolders[i] = getPlaceHolder();
+      }
+      return new SimpleScalar(String.join(",", placeHolders));
+    } else {
+      parameters.add(arg);
+      return getPlaceHolder();
+    }
+  }
+
   String getPlaceHolder() {
     String pl = SQL_PS_PLACE_HOLDER + seq;
     seq++;
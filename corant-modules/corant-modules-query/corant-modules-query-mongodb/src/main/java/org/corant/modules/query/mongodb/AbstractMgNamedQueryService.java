@@ -17,6 +17,7 @@ import static java.util.stream.Collectors.toList;
 import static org.corant.shared.util.Conversions.toEnum;
 import static org.corant.shared.util.Lists.listOf;
 import static org.corant.shared.util.Maps.getMapEnum;
+import static org.corant.shared.util.Maps.getMapInteger;
 import static org.corant.shared.util.Maps.getOptMapObject;
 import static org.corant.shared.util.Objects.defaultObject;
 import static org.corant.shared.util.Objects.forceCast;
@@ -37,6 +38,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 import org.bson.Document;
 import org.bson.conversions.Bson;
+import org.corant.Corant;
 import org.corant.modules.query.Querier;
 import org.corant.modules.query.QueryParameter;
 import org.corant.modules.query.QueryRuntimeException;
@@ -46,8 +48,11 @@ import org.corant.modules.query.mongodb.MgNamedQuerier.MgOperator;
 import org.corant.modules.query.mongodb.converter.MongoIterableWrapper;
 import org.corant.modules.query.shared.AbstractNamedQuerierResolver;
 import org.corant.modules.query.shared.AbstractNamedQueryService;
+import org.corant.shared.retry.RetryStrategy.MaxAttemptsRetryStrategy;
+import org.corant.shared.retry.SynchronousRetryer;
 import org.corant.shared.util.Classes;
 import org.corant.shared.util.Conversions;
+import org.corant.shared.util.Retry;
 import com.mongodb.BasicDBObject;
 import com.mongodb.CursorType;
 import com.mongodb.ReadConcern;
@@ -59,12 +64,14 @@ import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.MongoIterable;
+import com.mongodb.client.model.Aggregates;
 import com.mongodb.client.model.Collation;
 import com.mongodb.client.model.CollationAlternate;
 import com.mongodb.client.model.CollationCaseFirst;
 import com.mongodb.client.model.CollationMaxVariable;
 import com.mongodb.client.model.CollationStrength;
 import com.mongodb.client.model.CountOptions;
+import com.mongodb.client.model.Filters;
 
 /**
  * corant-modules-query-mongodb
@@ -74,10 +81,15 @@ import com.mongodb.client.model.CountOptions;
 public abstract class AbstractMgNamedQueryService extends AbstractNamedQueryService
     implements MgNamedQueryService {
 
+  protected static final Cleaner CLEANER = Cleaner.create();
+
   public static final String PRO_KEY_COLLECTION_NAME = ".collection-name";
 
   public static final String PRO_KEY_AUTO_SET_ID_FIELD = ".mg.auto-set-id-field";
 
+  public static final String PRO_KEY_STREAM_BATCH_SIZE = ".mg.stream-batch-size";
+  public static final String PRO_KEY_STREAM_PARTITIONS = ".mg.stream-partitions";
+
   public static final String PRO_KEY_MAX_TIMEMS = "mg.maxTimeMs";
   public static final String PRO_KEY_MAX_AWAIT_TIMEMS = "mg.maxAwaitTimeMs";
   public static final String PRO_KEY_NO_CURSOR_TIMEOUT = "mg.noCursorTimeout";
@@ -276,6 +288,15 @@ public abstract class AbstractMgNamedQueryService extends AbstractNamedQueryServ
    * {@inheritDoc}
    *
    * <p>
+   * The documents are streamed through a single server cursor, the cursor batch size can be
+   * specified by {@link #PRO_KEY_STREAM_BATCH_SIZE}. For the find query, if the stream query
+   * parameter needs retry, the cursor resumes from the last returned document by keyset after a
+   * failure, see {@link MgResumableCursor}. If the {@link #PRO_KEY_STREAM_PARTITIONS} is greater
+   * than 1 and the find query is not sorted or sorted by {@code _id} only, without offset and
+   * terminator, then the collection scan is split into {@code _id} range partitions which are
+   * streamed in parallel, the returned stream is parallel and the documents are unordered.
+   *
+   * <p>
    * Note: Be careful about {@link FindIterable#noCursorTimeout(boolean)}
    *
    * @see #query(MgNamedQuerier)
@@ -288,71 +309,24 @@ public abstract class AbstractMgNamedQueryService extends AbstractNamedQueryServ
     }
     final MgNamedQuerier querier = getQuerierResolver().resolve(queryName, parameter);
     log("stream->" + queryName, querier.getQueryParameter(), querier.getOriginalScript());
-    final MongoIterable<Document> mi = query(querier);
-    final MongoCursor<Document> cursor = mi.batchSize(parameter.getLimit()).iterator();
-    final boolean autoClose = parameter.isAutoClose();
-    final Iterator<T> iterator = new Iterator<>() {
-      int counter = 0;
-      Forwarding<T> buffer = null;
-      T next = null;
-
-      @Override
-      public boolean hasNext() {
-        initialize();
-        boolean more = false;
-        if (!parameter.terminateIf(counter, next)) {
-          if (!buffer.hasResults()) {
-            if (buffer.hasNext()) {
-              buffer.with(doForward(cursor));
-              more = buffer.hasResults();
-            }
-          } else {
-            more = true;
-          }
-        }
-        if (!more && cursor != null) {
-          cursor.close();
-        }
-        return more;
-      }
-
-      @Override
-      public T next() {
-        initialize();
-        if (!buffer.hasResults()) {
-          throw new NoSuchElementException();
-        }
-        counter++;
-        next = buffer.getResults().remove(0);
-        return next;
+    final int batchSize = resolveStreamBatchSize(querier, parameter);
+    if (querier.getRootOperator() == MgOperator.FILTER) {
+      final Bson sort = forceCast(querier.getScript().get(MgOperator.SORT));
+      final Map<String, Boolean> sortKeys = MgResumableCursor.resolveSortKeys(sort);
+      final int partitions = querier.resolveProperty(PRO_KEY_STREAM_PARTITIONS, Integer.class, 1);
+      if (partitions > 1 && sortKeys != null && sortKeys.size() == 1
+          && querier.resolveOffset() == 0 && parameter.getTerminator() == null) {
+        return streamPartitions(querier, parameter, batchSize, partitions);
       }
-
-      private Forwarding<T> doForward(MongoCursor<Document> it) {
-        int size = parameter.getLimit();
-        List<Object> list = new ArrayList<>(size);
-        while (it.hasNext() && --size >= 0) {
-          list.add(it.next());
-        }
-        fetch(list, querier);
-        return Forwarding.of(querier.handleResults(list), it.hasNext());
+      if (sortKeys != null && parameter.needRetry()) {
+        final MgResumableCursor cursor =
+            MgResumableCursor.of(sort, f -> handleFind(querier, f).batchSize(batchSize));
+        return stream(querier, parameter, cursor, cursor::close, parameter.isAutoClose());
       }
-
-      private void initialize() {
-        if (buffer == null) {
-          buffer = defaultObject(doForward(cursor), Forwarding::inst);
-          counter = buffer.hasResults() ? 1 : 0;
-        }
-      }
-    };
-    Stream<T> stream = streamOf(iterator).onClose(cursor::close);
-    if (autoClose) {
-      Cleaner.create().register(iterator, () -> {
-        if (cursor != null) {
-          cursor.close();
-        }
-      });// JDK9+
     }
-    return stream;
+    final MongoIterable<Document> mi = query(querier);
+    final MongoCursor<Document> cursor = mi.batchSize(batchSize).iterator();
+    return stream(querier, parameter, cursor, cursor::close, parameter.isAutoClose());
   }
 
   protected abstract MongoDatabase getDataBase();
@@ -503,6 +477,15 @@ public abstract class AbstractMgNamedQueryService extends AbstractNamedQueryServ
     return fi;
   }
 
+  protected FindIterable<Document> handleFind(MgNamedQuerier querier, Bson additionalFilter) {
+    FindIterable<Document> fi = handleFind(querier);
+    if (additionalFilter != null) {
+      Bson filter = forceCast(querier.getScript().get(MgOperator.FILTER));
+      fi.filter(filter == null ? additionalFilter : Filters.and(filter, additionalFilter)).skip(0);
+    }
+    return fi;
+  }
+
   protected boolean isAutoSetIdField(MgNamedQuerier querier) {
     return querier.resolveProperty(PRO_KEY_AUTO_SET_ID_FIELD, Boolean.class, Boolean.TRUE);
   }
@@ -520,6 +503,30 @@ public abstract class AbstractMgNamedQueryService extends AbstractNamedQueryServ
     }
   }
 
+  /**
+   * Read the documents from the given cursor into the given list until the list size reaches the
+   * given size, returns whether the cursor has more documents. If the cursor is a
+   * {@link MgResumableCursor} and an error occurred, the cursor is reset so that the reading can be
+   * retried from the last read document.
+   *
+   * @param cursor the cursor
+   * @param list the list receive the documents
+   * @param size the maximum size of the list
+   */
+  protected boolean read(Iterator<Document> cursor, List<Object> list, int size) {
+    try {
+      while (list.size() < size && cursor.hasNext()) {
+        list.add(cursor.next());
+      }
+      return cursor.hasNext();
+    } catch (RuntimeException e) {
+      if (cursor instanceof MgResumableCursor) {
+        ((MgResumableCursor) cursor).reset();
+      }
+      throw e;
+    }
+  }
+
   protected MongoCollection<Document> resolveCollection(MgNamedQuerier querier) {
     String colName =
         defaultBlank(querier.resolveProperty(PRO_KEY_COLLECTION_NAME, String.class, null),
@@ -538,6 +545,50 @@ public abstract class AbstractMgNamedQueryService extends AbstractNamedQueryServ
     return 1024;
   }
 
+  /**
+   * Split the collection scan of the given find querier into {@code _id} range partitions by the
+   * {@code $bucketAuto} aggregation, returns the range filters of the partitions. The {@code _id}
+   * values of the collection should be of the same type.
+   *
+   * @param querier the find querier
+   * @param partitions the expected number of partitions
+   */
+  protected List<Bson> resolveIdPartitions(MgNamedQuerier querier, int partitions) {
+    final Bson filter = forceCast(querier.getScript().get(MgOperator.FILTER));
+    final List<Bson> pipeline = new ArrayList<>(2);
+    if (filter != null) {
+      pipeline.add(Aggregates.match(filter));
+    }
+    pipeline.add(Aggregates.bucketAuto("$" + MgResumableCursor.ID_KEY, partitions));
+    final List<Document> buckets =
+        collect(resolveCollection(querier).aggregate(pipeline).allowDiskUse(true));
+    final int size = buckets.size();
+    final List<Bson> ranges = new ArrayList<>(max(size, 1));
+    for (int i = 0; i < size; i++) {
+      // the buckets are [min, max) and the max is the min of the next bucket
+      Document bounds = buckets.get(i).get(MgResumableCursor.ID_KEY, Document.class);
+      List<Bson> range = new ArrayList<>(2);
+      if (i > 0) {
+        range.add(Filters.gte(MgResumableCursor.ID_KEY, bounds.get("min")));
+      }
+      if (i < size - 1) {
+        range.add(Filters.lt(MgResumableCursor.ID_KEY, bounds.get("max")));
+      }
+      ranges.add(range.isEmpty() ? new Document() : range.size() == 1 ? range.get(0)
+          : Filters.and(range));
+    }
+    if (ranges.isEmpty()) {
+      ranges.add(new Document());
+    }
+    return ranges;
+  }
+
+  protected int resolveStreamBatchSize(MgNamedQuerier querier, StreamQueryParameter parameter) {
+    Integer batchSize = querier.resolveProperty(PRO_KEY_STREAM_BATCH_SIZE, Integer.class,
+        getMapInteger(querier.getQuery().getProperties(), PRO_KEY_BATCH_SIZE));
+    return batchSize != null && batchSize > 0 ? batchSize : parameter.getLimit();
+  }
+
   protected Optional<Collation> resovleCollation(MgNamedQuerier querier) {
     Map<String, String> pros = querier.getQuery().getProperties();
     if (pros.keySet().stream().anyMatch(t -> t.startsWith(PRO_KEY_CO_COLA))) {
@@ -564,4 +615,107 @@ public abstract class AbstractMgNamedQueryService extends AbstractNamedQueryServ
 
     return Optional.empty();
   }
+
+  /**
+   * Returns a stream of the documents of the given cursor, the documents are read in batches of the
+   * stream limit, the fetch queries and the result handling are applied to each batch. If the
+   * cursor is a {@link MgResumableCursor} and the stream query parameter needs retry, the failed
+   * reading is retried with the backoff strategy of the parameter.
+   *
+   * @param <T> the result record type
+   * @param querier the querier
+   * @param parameter the stream query parameter
+   * @param cursor the document cursor
+   * @param closer the cursor closer
+   * @param autoClose whether to close the cursor when the stream is unreachable
+   */
+  protected <T> Stream<T> stream(MgNamedQuerier querier, StreamQueryParameter parameter,
+      Iterator<Document> cursor, Runnable closer, boolean autoClose) {
+    final SynchronousRetryer retryer =
+        cursor instanceof MgResumableCursor && parameter.needRetry() ? Retry.synchronousRetryer()
+            .retryStrategy(new MaxAttemptsRetryStrategy(parameter.getRetryTimes() + 1))
+            .backoffStrategy(parameter.getRetryBackoffStrategy())
+            .retryPrecondition(c -> Corant.current() != null && Corant.current().isRunning())
+            : null;
+    final Iterator<T> iterator = new Iterator<>() {
+      int counter = 0;
+      Forwarding<T> buffer = null;
+      T next = null;
+
+      @Override
+      public boolean hasNext() {
+        initialize();
+        boolean more = false;
+        if (!parameter.terminateIf(counter, next)) {
+          if (!buffer.hasResults()) {
+            if (buffer.hasNext()) {
+              buffer.with(doForward(cursor));
+              more = buffer.hasResults();
+            }
+          } else {
+            more = true;
+          }
+        }
+        if (!more) {
+          closer.run();
+        }
+        return more;
+      }
+
+      @Override
+      public T next() {
+        initialize();
+        if (!buffer.hasResults()) {
+          throw new NoSuchElementException();
+        }
+        counter++;
+        next = buffer.getResults().remove(0);
+        return next;
+      }
+
+      private Forwarding<T> doForward(Iterator<Document> it) {
+        final int size = parameter.getLimit();
+        final List<Object> list = new ArrayList<>(size);
+        final boolean more = retryer != null
+            ? Boolean.TRUE.equals(retryer.execute(() -> read(it, list, size)))
+            : read(it, list, size);
+        fetch(list, querier);
+        return Forwarding.of(querier.handleResults(list), more);
+      }
+
+      private void initialize() {
+        if (buffer == null) {
+          buffer = defaultObject(doForward(cursor), Forwarding::inst);
+          counter = buffer.hasResults() ? 1 : 0;
+        }
+      }
+    };
+    Stream<T> stream = streamOf(iterator).onClose(closer);
+    if (autoClose) {
+      CLEANER.register(iterator, closer);
+    }
+    return stream;
+  }
+
+  /**
+   * Stream the given find querier by {@code _id} range partitions in parallel, each partition is
+   * streamed by a {@link MgResumableCursor}.
+   *
+   * @param <T> the result record type
+   * @param querier the find querier
+   * @param parameter the stream query parameter
+   * @param batchSize the cursor batch size
+   * @param partitions the expected number of partitions
+   *
+   * @see #resolveIdPartitions(MgNamedQuerier, int)
+   */
+  protected <T> Stream<T> streamPartitions(MgNamedQuerier querier, StreamQueryParameter parameter,
+      int batchSize, int partitions) {
+    final Bson sort = forceCast(querier.getScript().get(MgOperator.SORT));
+    return resolveIdPartitions(querier, partitions).stream().parallel().flatMap(range -> {
+      final MgResumableCursor cursor = MgResumableCursor.of(sort, f -> handleFind(querier,
+          f == null ? range : Filters.and(range, f)).batchSize(batchSize));
+      return this.<T>stream(querier, parameter, cursor, cursor::close, false);
+    });
+  }
 }
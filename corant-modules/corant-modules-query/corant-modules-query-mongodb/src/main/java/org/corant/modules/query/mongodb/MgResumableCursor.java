@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.query.mongodb;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.corant.modules.query.QueryRuntimeException;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+
+/**
+ * corant-modules-query-mongodb
+ *
+ * <p>
+ * A resumable find cursor use for streaming, it keeps a single server cursor open and records the
+ * sort key values of the last returned document. If the cursor is {@link #reset()} after a
+ * failure, the next iteration reopens the cursor with a keyset filter that starts after the last
+ * returned document, rather than skipping the consumed documents.
+ *
+ * <p>
+ * The keyset is the sort specification of the query with {@code _id} appended as the tie breaker,
+ * if the query doesn't specify the sort then the documents are sorted by {@code _id}. Only the
+ * ascending and descending sort keys are supported, the sort keys must be included in the
+ * projection and their values should not be null.
+ *
+ * <p>
+ * Note: This class is not thread safe.
+ *
+ * @author bingo 下午3:12:07
+ *
+ */
+public class MgResumableCursor implements Iterator<Document>, AutoCloseable {
+
+  public static final String ID_KEY = "_id";
+
+  protected final Function<Bson, FindIterable<Document>> opener;
+  protected final String[] keys;
+  protected final boolean[] ascending;
+  protected final Document sort;
+  protected Object[] lastValues;
+  protected MongoCursor<Document> cursor;
+  protected boolean closed;
+
+  protected MgResumableCursor(Map<String, Boolean> sortKeys,
+      Function<Bson, FindIterable<Document>> opener) {
+    this.opener = opener;
+    keys = sortKeys.keySet().toArray(String[]::new);
+    ascending = new boolean[keys.length];
+    sort = new Document();
+    for (int i = 0; i < keys.length; i++) {
+      ascending[i] = sortKeys.get(keys[i]);
+      sort.append(keys[i], ascending[i] ? 1 : -1);
+    }
+  }
+
+  /**
+   * Returns a resumable cursor, or null if the given sort specification is not supported.
+   *
+   * @param sort the sort specification of the query, may be null
+   * @param opener the function use to open the find iterable with the given additional filter, the
+   *        additional filter is null when the cursor is opened for the first time; the returned
+   *        find iterable is sorted by the keyset
+   */
+  public static MgResumableCursor of(Bson sort, Function<Bson, FindIterable<Document>> opener) {
+    Map<String, Boolean> sortKeys = resolveSortKeys(sort);
+    return sortKeys == null ? null : new MgResumableCursor(sortKeys, opener);
+  }
+
+  /**
+   * Returns the keyset of the given sort specification, the key is the field name and the value
+   * indicates whether the field is sorted in ascending order, the {@code _id} is appended if absent
+   * and the fields after the {@code _id} are dropped since the {@code _id} is unique. Returns null
+   * if the sort specification contains a sort key that isn't in ascending or descending order.
+   *
+   * @param sort the sort specification of the query, may be null
+   */
+  public static Map<String, Boolean> resolveSortKeys(Bson sort) {
+    Map<String, Boolean> sortKeys = new LinkedHashMap<>();
+    if (sort != null) {
+      BsonDocument doc =
+          sort.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+      for (Entry<String, BsonValue> entry : doc.entrySet()) {
+        if (!entry.getValue().isNumber()) {
+          return null;
+        }
+        sortKeys.put(entry.getKey(), entry.getValue().asNumber().intValue() >= 0);
+        if (ID_KEY.equals(entry.getKey())) {
+          return sortKeys;
+        }
+      }
+    }
+    sortKeys.put(ID_KEY, Boolean.TRUE);
+    return sortKeys;
+  }
+
+  static Object resolveValue(Document doc, String key) {
+    if (key.indexOf('.') == -1) {
+      return doc.get(key);
+    }
+    Object value = doc;
+    for (String name : key.split("\\.")) {
+      if (!(value instanceof Document)) {
+        return null;
+      }
+      value = ((Document) value).get(name);
+    }
+    return value;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    reset();
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (closed) {
+      return false;
+    }
+    if (cursor == null) {
+      cursor = open();
+    }
+    return cursor.hasNext();
+  }
+
+  @Override
+  public Document next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    Document doc = cursor.next();
+    if (lastValues == null) {
+      lastValues = new Object[keys.length];
+    }
+    for (int i = 0; i < keys.length; i++) {
+      lastValues[i] = resolveValue(doc, keys[i]);
+    }
+    return doc;
+  }
+
+  /**
+   * Close the current server cursor, the next iteration reopens the cursor after the last returned
+   * document.
+   */
+  public void reset() {
+    MongoCursor<Document> current = cursor;
+    cursor = null;
+    if (current != null) {
+      try {
+        current.close();
+      } catch (RuntimeException e) {
+        // the server cursor may be unavailable, the server will reclaim it
+      }
+    }
+  }
+
+  /**
+   * Returns the filter that matches the documents after the last returned document, for the
+   * keyset k0..kn the filter is {@code (k0 > v0) or (k0 = v0 and k1 > v1) or ...}, the {@code >} is
+   * replaced with {@code <} for the descending keys.
+   */
+  protected Bson keysetFilter() {
+    List<Bson> ors = new ArrayList<>(keys.length);
+    for (int i = 0; i < keys.length; i++) {
+      if (lastValues[i] == null) {
+        throw new QueryRuntimeException(
+            "Can't resume the cursor, the sort key [%s] of the last document is null or missing.",
+            keys[i]);
+      }
+      List<Bson> ands = new ArrayList<>(i + 1);
+      for (int j = 0; j < i; j++) {
+        ands.add(Filters.eq(keys[j], lastValues[j]));
+      }
+      ands.add(ascending[i] ? Filters.gt(keys[i], lastValues[i])
+          : Filters.lt(keys[i], lastValues[i]));
+      ors.add(ands.size() == 1 ? ands.get(0) : Filters.and(ands));
+    }
+    return ors.size() == 1 ? ors.get(0) : Filters.or(ors);
+  }
+
+  protected MongoCursor<Document> open() {
+    return opener.apply(lastValues == null ? null : keysetFilter()).sort(sort).iterator();
+  }
+}
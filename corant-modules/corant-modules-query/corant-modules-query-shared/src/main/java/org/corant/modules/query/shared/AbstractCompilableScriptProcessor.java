@@ -15,9 +15,13 @@ package org.corant.modules.query.shared;
 
 import static org.corant.shared.util.Assertions.shouldBeTrue;
 import static org.corant.shared.util.Assertions.shouldNotBlank;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
+import javax.inject.Inject;
 import javax.script.Bindings;
 import javax.script.Compilable;
 import javax.script.CompiledScript;
@@ -26,20 +30,78 @@ import javax.script.SimpleBindings;
 import org.corant.modules.query.QueryRuntimeException;
 import org.corant.modules.query.mapping.FetchQuery;
 import org.corant.modules.query.mapping.FetchQuery.FetchQueryParameter;
+import org.corant.modules.query.mapping.Query;
 import org.corant.modules.query.mapping.QueryHint;
 import org.corant.modules.query.mapping.Script;
 import org.corant.modules.query.mapping.Script.ScriptType;
 import org.corant.modules.query.shared.ScriptProcessor.AbstractScriptProcessor;
+import org.corant.modules.query.shared.cdi.QueryExtension;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import net.jcip.annotations.GuardedBy;
 
 /**
  *
  * corant-modules-query-shared
  *
+ * <p>
+ * The compiled scripts are shared by all threads, each script has a bounded pool of compiled
+ * scripts, see {@link CompiledScriptPool}. The pool size can be configured by
+ * 'corant.query.script-pool.max-idle', 'corant.query.script-pool.min-idle' and
+ * 'corant.query.script-pool.max-total' (non-positive means 4 times the available processors), and
+ * all scripts are pre-compiled after the query mappings were initialized unless
+ * 'corant.query.script-pool.eager-compile' is false.
+ *
  * @author bingo 下午2:34:03
  *
  */
 public abstract class AbstractCompilableScriptProcessor extends AbstractScriptProcessor {
 
+  protected final Map<Object, CompiledScriptPool> pools = new ConcurrentHashMap<>();
+  protected final Map<Object, Function<ParameterAndResult, Object>> paramResultFunctions =
+      new ConcurrentHashMap<>();
+  protected final Map<Object, Function<ParameterAndResultPair, Object>> paramResultPairFunctions =
+      new ConcurrentHashMap<>();
+  protected volatile long initializedVersion;
+
+  @Inject
+  @ConfigProperty(name = "corant.query.script-pool.max-idle", defaultValue = "8")
+  protected int compiledScriptMaxIdle = 8;
+
+  @Inject
+  @ConfigProperty(name = "corant.query.script-pool.min-idle", defaultValue = "1")
+  protected int compiledScriptMinIdle = 1;
+
+  @Inject
+  @ConfigProperty(name = "corant.query.script-pool.max-total", defaultValue = "0")
+  protected int compiledScriptMaxTotal = 0;
+
+  @Inject
+  @ConfigProperty(name = "corant.query.script-pool.eager-compile", defaultValue = "true")
+  protected boolean eagerCompile = true;
+
+  @GuardedBy("QueryMappingService.rwl.writeLock")
+  @Override
+  public void afterQueryMappingInitialized(Collection<Query> queries, long initializedVersion) {
+    synchronized (this) {
+      clearCompiledScripts();
+      this.initializedVersion = initializedVersion;
+    }
+    if (isEagerCompile()) {
+      logger.info(() -> String.format("Start %s query scripts pre-compiling.",
+          getClass().getSimpleName()));
+      int cs = resolveAll(queries, initializedVersion);
+      logger.info(() -> String.format("Complete %s %s query scripts pre-compiling.", cs,
+          getClass().getSimpleName()));
+    }
+  }
+
+  /**
+   * Returns the compiled script pools of this processor, the key of the map is the script id.
+   */
+  public Map<Object, CompiledScriptPool> getCompiledScriptPools() {
+    return Collections.unmodifiableMap(pools);
+  }
+
   @Override
   public Function<ParameterAndResultPair, Object> resolveFetchInjections(FetchQuery fetchQuery) {
     final Script script = fetchQuery.getInjectionScript();
@@ -83,75 +145,140 @@ public abstract class AbstractCompilableScriptProcessor extends AbstractScriptPr
     return null;
   }
 
+  protected void clearCompiledScripts() {
+    paramResultFunctions.clear();
+    paramResultPairFunctions.clear();
+    pools.values().forEach(CompiledScriptPool::clear);
+    pools.clear();
+  }
+
   protected Function<ParameterAndResult, Object> compileFunction(Script script,
       String parameterPName, String resultPName) {
-    return getParamResultFunctions().computeIfAbsent(script.getId(), k -> {
-      try {
-        logger.fine(() -> String.format(
-            "Compile the query consumer script, id is %s, the thread name is %s id is %s",
-            script.getId(), Thread.currentThread().getName(), Thread.currentThread().getId()));
-        final Compilable se = getCompilable(script.getType());
-        final CompiledScript cs = se.compile(shouldNotBlank(script.getCode()));
-        return pns -> {
-          Bindings bindings = new SimpleBindings();
-          try {
-            bindings.put(parameterPName, pns.parameter);
-            bindings.put(resultPName, pns.result);
-            return cs.eval(bindings);
-          } catch (ScriptException e) {
-            throw new QueryRuntimeException(e);
-          } finally {
-            bindings.clear();
-          }
-        };
-      } catch (ScriptException e) {
-        throw new QueryRuntimeException(e);
-      }
+    checkVersion();
+    return paramResultFunctions.computeIfAbsent(script.getId(), k -> {
+      final CompiledScriptPool pool = resolveCompiledScriptPool(script);
+      return pns -> {
+        Bindings bindings = new SimpleBindings();
+        CompiledScript cs = pool.borrow();
+        try {
+          bindings.put(parameterPName, pns.parameter);
+          bindings.put(resultPName, pns.result);
+          return cs.eval(bindings);
+        } catch (ScriptException e) {
+          throw new QueryRuntimeException(e);
+        } finally {
+          bindings.clear();
+          pool.release(cs);
+        }
+      };
     });
   }
 
   protected Function<ParameterAndResultPair, Object> compileFunction(Script script,
       String parameterPName, String parentResultPName, String fetchResultPName) {
-    return getParamResultPairFunctions().computeIfAbsent(script.getId(), k -> {
-      try {
-        logger.fine(() -> String.format(
-            "Compile the query consumer script, id is %s, the thread name is %s id is %s",
-            script.getId(), Thread.currentThread().getName(), Thread.currentThread().getId()));
-        final Compilable se = getCompilable(script.getType());
-        final CompiledScript cs = se.compile(shouldNotBlank(script.getCode()));
-        return pns -> {
-          Bindings bindings = new SimpleBindings();
-          try {
-            if (parameterPName != null) {
-              bindings.put(parameterPName, pns.parameter);
-            }
-            bindings.put(parentResultPName, pns.parentResult);
-            bindings.put(fetchResultPName, pns.fetchedResult);
-            return cs.eval(bindings);
-          } catch (ScriptException e) {
-            throw new QueryRuntimeException(e);
-          } finally {
-            bindings.clear();
+    checkVersion();
+    return paramResultPairFunctions.computeIfAbsent(script.getId(), k -> {
+      final CompiledScriptPool pool = resolveCompiledScriptPool(script);
+      return pns -> {
+        Bindings bindings = new SimpleBindings();
+        CompiledScript cs = pool.borrow();
+        try {
+          if (parameterPName != null) {
+            bindings.put(parameterPName, pns.parameter);
           }
-        };
-      } catch (ScriptException e) {
-        throw new QueryRuntimeException(e);
-      }
+          bindings.put(parentResultPName, pns.parentResult);
+          bindings.put(fetchResultPName, pns.fetchedResult);
+          return cs.eval(bindings);
+        } catch (ScriptException e) {
+          throw new QueryRuntimeException(e);
+        } finally {
+          bindings.clear();
+          pool.release(cs);
+        }
+      };
     });
   }
 
   protected abstract Compilable getCompilable(ScriptType type);
 
-  protected abstract ThreadLocalExecution<Object, Function<ParameterAndResult, Object>> getParamResultFunctions();
+  /**
+   * Not used any more, returns null.
+   *
+   * @deprecated the compiled scripts are shared by all threads through {@link CompiledScriptPool},
+   *             the subclasses don't need to implement it any more.
+   */
+  @Deprecated
+  protected ThreadLocalExecution<Object, Function<ParameterAndResult, Object>> getParamResultFunctions() {
+    return null;
+  }
+
+  /**
+   * Not used any more, returns null.
+   *
+   * @deprecated the compiled scripts are shared by all threads through {@link CompiledScriptPool},
+   *             the subclasses don't need to implement it any more.
+   */
+  @Deprecated
+  protected ThreadLocalExecution<Object, Function<ParameterAndResultPair, Object>> getParamResultPairFunctions() {
+    return null;
+  }
 
-  protected abstract ThreadLocalExecution<Object, Function<ParameterAndResultPair, Object>> getParamResultPairFunctions();
+  /**
+   * Returns whether to pre-compile all the scripts of the queries eagerly after the query mappings
+   * were initialized.
+   */
+  protected boolean isEagerCompile() {
+    return eagerCompile || QueryExtension.verifyDeployment;
+  }
+
+  /**
+   * Returns a compiled script pool for the given script, the compiled script pool is shared by all
+   * threads. When creating a pool, at least one compiled script is compiled immediately.
+   *
+   * @param script the script to compile
+   */
+  protected CompiledScriptPool resolveCompiledScriptPool(Script script) {
+    return pools.computeIfAbsent(script.getId(), k -> {
+      logger.fine(() -> String.format(
+          "Create the query script compiled pool, id is %s, the thread name is %s id is %s",
+          script.getId(), Thread.currentThread().getName(), Thread.currentThread().getId()));
+      final String code = shouldNotBlank(script.getCode());
+      CompiledScriptPool pool = new CompiledScriptPool(k, () -> {
+        try {
+          return getCompilable(script.getType()).compile(code);
+        } catch (ScriptException e) {
+          throw new QueryRuntimeException(e);
+        }
+      }, compiledScriptMaxIdle, compiledScriptMaxTotal > 0 ? compiledScriptMaxTotal
+          : Runtime.getRuntime().availableProcessors() * 4);
+      pool.prepare(Math.max(compiledScriptMinIdle, 1));
+      return pool;
+    });
+  }
+
+  void checkVersion() {
+    final long cv = QueryMappingService.getInitializedVersion();
+    if (initializedVersion < cv) {
+      synchronized (this) {
+        if (initializedVersion < cv) {
+          clearCompiledScripts();
+          initializedVersion = cv;
+          logger.info(() -> String.format(
+              "Clean shared script executions cache, current initialized version: %s",
+              initializedVersion));
+        }
+      }
+    }
+  }
 
   /**
    * corant-modules-query-shared
    *
    * @author bingo 下午3:11:18
    *
+   * @deprecated the compiled scripts are shared by all threads through {@link CompiledScriptPool}
    */
+  @Deprecated
   public static class ThreadLocalExecution<K, V> {
     long initializedVersion;
     Map<K, V> executions = new HashMap<>();
@@ -13,12 +13,14 @@
  */
 package org.corant.modules.query.shared;
 
+import java.util.Collection;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import org.corant.modules.query.FetchQueryHandler;
 import org.corant.modules.query.QueryHandler;
 import org.corant.modules.query.QueryRuntimeException;
 import org.corant.modules.query.mapping.Query;
+import org.corant.modules.query.shared.QueryMappingService.AfterQueryMappingInitializedHandler;
 import org.corant.modules.query.shared.QueryMappingService.BeforeQueryMappingInitializeHandler;
 import org.corant.modules.query.shared.dynamic.DynamicQuerier;
 import net.jcip.annotations.GuardedBy;
@@ -31,7 +33,8 @@ import net.jcip.annotations.GuardedBy;
  */
 @ApplicationScoped
 public abstract class AbstractNamedQuerierResolver<Q extends DynamicQuerier<?, ?>>
-    implements NamedQuerierResolver<String, Object, Q>, BeforeQueryMappingInitializeHandler {
+    implements NamedQuerierResolver<String, Object, Q>, BeforeQueryMappingInitializeHandler,
+    AfterQueryMappingInitializedHandler {
 
   @Inject
   protected QueryMappingService mappingService;
@@ -42,6 +45,17 @@ public abstract class AbstractNamedQuerierResolver<Q extends DynamicQuerier<?, ?
   @Inject
   protected FetchQueryHandler fetchQueryHandler;
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Note: The query mapping lookups are not blocked during the query mapping re-initialization,
+   * the queries resolved during the re-initialization may come from the previous query mapping
+   * snapshot, so the state that derived from them should be discarded here too.
+   */
+  @GuardedBy("QueryMappingService.rwl.writeLock")
+  @Override
+  public void afterQueryMappingInitialized(Collection<Query> queries, long initializedVersion) {}
+
   @Override
   public FetchQueryHandler getFetchQueryHandler() {
     return fetchQueryHandler;
@@ -57,7 +71,6 @@ public abstract class AbstractNamedQuerierResolver<Q extends DynamicQuerier<?, ?
     return queryHandler;
   }
 
-  @GuardedBy("QueryMappingService.rwl.readLock")
   protected Query resolveQuery(String name) {
     Query query = getMappingService().getQuery(name);
     if (query == null) {
@@ -132,6 +132,8 @@ public abstract class AbstractNamedQueryService implements NamedQueryService {
     StreamQueryParameter useQueryParam;
     if (queryParam instanceof StreamQueryParameter) {
       useQueryParam = (StreamQueryParameter) queryParam;
+      // the seek values of the previous stream are stale, the new stream starts at the offset
+      useQueryParam.seek((Object[]) null);
     } else {
       useQueryParam = new StreamQueryParameter(queryParam);
     }
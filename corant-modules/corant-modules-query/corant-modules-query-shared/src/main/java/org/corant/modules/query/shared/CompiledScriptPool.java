@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2013-2018, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.query.shared;
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import javax.script.CompiledScript;
+import org.corant.modules.query.QueryRuntimeException;
+
+/**
+ * corant-modules-query-shared
+ *
+ * <p>
+ * A bounded pool of compiled scripts of a query script, shared by all threads. Since the compiled
+ * scripts of most script engines are bound to a script engine context that can't be used by
+ * multiple threads concurrently, each pooled compiled script is compiled by its own script engine
+ * and is borrowed by only one thread at a time.
+ *
+ * <p>
+ * The number of the compiled scripts that are borrowed at the same time is bounded by the maximum
+ * total size, if it's reached the borrowing thread waits until a compiled script is returned. If
+ * there are no idle compiled scripts when borrowing, a new one is compiled; when a compiled script
+ * is returned and the number of idle compiled scripts has reached the maximum idle size, the
+ * returned one is evicted. So the number of compiled scripts is bounded by the maximum total size
+ * and the idle memory is bounded by the maximum idle size.
+ *
+ * @author bingo 上午10:21:35
+ *
+ */
+public class CompiledScriptPool {
+
+  protected final Object id;
+  protected final Supplier<CompiledScript> compiler;
+  protected final int maxIdle;
+  protected final int maxTotal;
+  protected final Semaphore permits;
+  protected final Deque<CompiledScript> idles = new ConcurrentLinkedDeque<>();
+  protected final AtomicInteger idleSize = new AtomicInteger();
+  protected final LongAdder borrows = new LongAdder();
+  protected final LongAdder compilations = new LongAdder();
+  protected final LongAdder evictions = new LongAdder();
+
+  /**
+   * Create a compiled script pool
+   *
+   * @param id the script id
+   * @param compiler the compiler use to compile a new compiled script with a new script engine
+   * @param maxIdle the maximum number of the idle compiled scripts, at least 1
+   * @param maxTotal the maximum number of the compiled scripts, at least the maximum idle size
+   */
+  public CompiledScriptPool(Object id, Supplier<CompiledScript> compiler, int maxIdle,
+      int maxTotal) {
+    this.id = id;
+    this.compiler = compiler;
+    this.maxIdle = Math.max(maxIdle, 1);
+    this.maxTotal = Math.max(maxTotal, this.maxIdle);
+    permits = new Semaphore(this.maxTotal);
+  }
+
+  /**
+   * Borrow a compiled script from this pool, if the maximum total size of the borrowed compiled
+   * scripts is reached then wait until a compiled script is returned; if there are no idle compiled
+   * scripts then compile a new one. The borrowed compiled script must be returned by
+   * {@link #release(CompiledScript)}.
+   */
+  public CompiledScript borrow() {
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new QueryRuntimeException(e);
+    }
+    borrows.increment();
+    CompiledScript cs = idles.pollFirst();
+    if (cs != null) {
+      idleSize.decrementAndGet();
+      return cs;
+    }
+    try {
+      return compile();
+    } catch (RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Evict all idle compiled scripts
+   */
+  public void clear() {
+    CompiledScript cs;
+    while ((cs = idles.pollFirst()) != null) {
+      idleSize.decrementAndGet();
+      evictions.increment();
+    }
+  }
+
+  /**
+   * Returns the number of borrowing
+   */
+  public long getBorrows() {
+    return borrows.sum();
+  }
+
+  /**
+   * Returns the number of compilation
+   */
+  public long getCompilations() {
+    return compilations.sum();
+  }
+
+  /**
+   * Returns the number of the evicted compiled scripts
+   */
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  public Object getId() {
+    return id;
+  }
+
+  /**
+   * Returns the current number of the idle compiled scripts
+   */
+  public int getIdleSize() {
+    return idleSize.get();
+  }
+
+  public int getMaxIdle() {
+    return maxIdle;
+  }
+
+  public int getMaxTotal() {
+    return maxTotal;
+  }
+
+  /**
+   * Compile the given number of compiled scripts in advance, the number is bounded by the maximum
+   * idle size.
+   *
+   * @param size the number of the compiled scripts to be prepared
+   */
+  public void prepare(int size) {
+    for (int i = getIdleSize(); i < Math.min(size, maxIdle); i++) {
+      offer(compile());
+    }
+  }
+
+  /**
+   * Return the borrowed compiled script to this pool.
+   *
+   * @param cs the compiled script to be returned
+   */
+  public void release(CompiledScript cs) {
+    if (cs != null) {
+      // offer before releasing the permit, so the next borrower can reuse it
+      offer(cs);
+      permits.release();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "CompiledScriptPool [id=" + id + ", maxIdle=" + maxIdle + ", maxTotal=" + maxTotal
+        + ", idleSize=" + getIdleSize()
+        + ", borrows=" + getBorrows() + ", compilations=" + getCompilations() + ", evictions="
+        + getEvictions() + "]";
+  }
+
+  protected CompiledScript compile() {
+    CompiledScript cs = compiler.get();
+    compilations.increment();
+    return cs;
+  }
+
+  protected void offer(CompiledScript cs) {
+    if (idleSize.incrementAndGet() <= maxIdle) {
+      idles.offerFirst(cs);
+    } else {
+      idleSize.decrementAndGet();
+      evictions.increment();
+    }
+  }
+}
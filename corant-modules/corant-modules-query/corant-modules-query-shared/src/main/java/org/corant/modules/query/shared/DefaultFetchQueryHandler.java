@@ -113,6 +113,8 @@ public class DefaultFetchQueryHandler implements FetchQueryHandler {
     Function<ParameterAndResultPair, Object> fun = scriptEngines.resolveFetchInjections(fetchQuery);
     if (fun != null) {
       fun.apply(new ParameterAndResultPair(parameter, listOf(result), fetchedResults));
+    } else if (fetchQuery.isJoinInject()) {
+      joinFetchedResults(listOf(result), fetchedResults, fetchQuery);
     } else {
       String[] injectProNamePath = shouldNotEmpty(fetchQuery.getInjectPropertyNamePath());
       if (isEmpty(fetchedResults)) {
@@ -135,6 +137,8 @@ public class DefaultFetchQueryHandler implements FetchQueryHandler {
     if (fun != null) {
       fun.apply(new ParameterAndResultPair(parameter, results,
           defaultObject(fetchedResults, ArrayList::new)));
+    } else if (fetchQuery.isJoinInject()) {
+      joinFetchedResults(results, fetchedResults, fetchQuery);
     } else {
       String[] injectProNamePath = shouldNotEmpty(fetchQuery.getInjectPropertyNamePath());
       if (isEmpty(fetchedResults)) {
@@ -185,6 +189,39 @@ public class DefaultFetchQueryHandler implements FetchQueryHandler {
     return map;
   }
 
+  /**
+   * Inject the fetched results into the parent results which have the same join key value, the
+   * fetched results are indexed once by the join fetched key. The parent results which have no
+   * matched fetched results are injected with null.
+   *
+   * @param results the parent query results
+   * @param fetchedResults the fetch query results
+   * @param fetchQuery the fetch query
+   */
+  protected void joinFetchedResults(List<?> results, List<?> fetchedResults,
+      FetchQuery fetchQuery) {
+    final String[] injectProNamePath = shouldNotEmpty(fetchQuery.getInjectPropertyNamePath());
+    final String[] parentKeyPath = fetchQuery.getJoinParentKeyPath();
+    final boolean multi = fetchQuery.isMultiRecords();
+    final FetchQueryJoinIndex index = isEmpty(fetchedResults) ? null
+        : FetchQueryJoinIndex.build(fetchedResults, fetchQuery.getJoinFetchedKeyPath(),
+            objectMapper);
+    for (Object result : results) {
+      if (result == null) {
+        continue;
+      }
+      List<Object> matched =
+          index == null ? null : index.get(objectMapper.getMappedValue(result, parentKeyPath));
+      if (isEmpty(matched)) {
+        objectMapper.putMappedValue(result, injectProNamePath, null);
+      } else if (multi) {
+        objectMapper.putMappedValue(result, injectProNamePath, matched);
+      } else {
+        objectMapper.putMappedValue(result, injectProNamePath, matched.get(0));
+      }
+    }
+  }
+
   @PreDestroy
   protected synchronized void onPreDestroy() {
     logger.fine(() -> "Clear default fetch query handler caches.");
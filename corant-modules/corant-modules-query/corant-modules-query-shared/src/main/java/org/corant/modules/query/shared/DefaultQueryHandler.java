@@ -206,7 +206,8 @@ public class DefaultQueryHandler implements QueryHandler {
    * @param expectedClass the excepted class
    */
   protected <T> T convertRecord(Object result, Class<T> expectedClass) {
-    final boolean needConvert = !Map.class.isAssignableFrom(expectedClass);
+    final boolean needConvert = !Map.class.isAssignableFrom(expectedClass)
+        && !expectedClass.isInstance(result);// the record may be mapped by executor
     if (needConvert) {
       if (isSimpleClass(expectedClass)) {
         return convertSimpleRecord(result, expectedClass);
@@ -226,7 +227,8 @@ public class DefaultQueryHandler implements QueryHandler {
    * @param expectedClass the excepted class
    */
   protected <T> List<T> convertRecords(List<Object> records, Class<T> expectedClass) {
-    final boolean needConvert = !Map.class.isAssignableFrom(expectedClass);
+    final boolean needConvert = !Map.class.isAssignableFrom(expectedClass)
+        && !expectedClass.isInstance(records.get(0));// the records may be mapped by executor
     if (needConvert) {
       if (isSimpleClass(expectedClass)) {
         records.replaceAll(e -> convertSimpleRecord(e, expectedClass));
@@ -18,18 +18,15 @@ import static org.corant.shared.util.Maps.putMapKeyPathValue;
 import static org.corant.shared.util.Objects.forceCast;
 import static org.corant.shared.util.Primitives.isSimpleClass;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import javax.enterprise.context.ApplicationScoped;
-import org.apache.commons.beanutils.BeanUtils;
 import org.corant.modules.json.Jsons;
 import org.corant.modules.query.QueryObjectMapper;
 import org.corant.modules.query.QueryRuntimeException;
 import org.corant.shared.exception.CorantRuntimeException;
-import org.corant.shared.normal.Names;
 import org.corant.shared.ubiquity.TypeLiteral;
 import org.corant.shared.util.Conversions;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -93,13 +90,10 @@ public class DefaultQueryObjectMapper implements QueryObjectMapper {
       } else {
         return ((Map) object).get(keyPath[0]);
       }
-    } else {
-      try {
-        return BeanUtils.getProperty(object, String.join(".", keyPath));
-      } catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
-        throw new QueryRuntimeException(e);
-      }
+    } else if (object != null) {
+      return PropertyPathAccessor.of(object.getClass(), keyPath).get(object);
     }
+    return null;
   }
 
   @Override
@@ -125,12 +119,7 @@ public class DefaultQueryObjectMapper implements QueryObjectMapper {
     if (object instanceof Map) {
       putMapKeyPathValue((Map) object, keyPath, value);
     } else if (object != null) {
-      try {
-        BeanUtils.setProperty(object, String.join(Names.NAME_SPACE_SEPARATORS, keyPath), value);
-      } catch (IllegalAccessException | InvocationTargetException e) {
-        throw new QueryRuntimeException(e, "Inject fetched result occurred error %s.",
-            e.getMessage());
-      }
+      PropertyPathAccessor.of(object.getClass(), keyPath).set(object, value);
     }
   }
 
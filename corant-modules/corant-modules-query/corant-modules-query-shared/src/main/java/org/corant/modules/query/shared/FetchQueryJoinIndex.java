@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.query.shared;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.corant.modules.query.QueryObjectMapper;
+import com.carrotsearch.hppc.LongObjectHashMap;
+
+/**
+ * corant-modules-query-shared
+ *
+ * <p>
+ * A hash index of the fetch query result records by the join fetched key, use to join the fetch
+ * query results into the parent query results in O(n+m). The integral number keys are normalized
+ * to long, so that the keys of different numeric types (for example Integer and Long or BigDecimal
+ * returned by different databases) can match, if all the keys are integral numbers a primitive
+ * long keyed index is used.
+ *
+ * @author bingo 上午10:32:16
+ *
+ */
+class FetchQueryJoinIndex {
+
+  final LongObjectHashMap<List<Object>> longIndex;
+  final Map<Object, List<Object>> objectIndex;
+
+  FetchQueryJoinIndex(LongObjectHashMap<List<Object>> longIndex,
+      Map<Object, List<Object>> objectIndex) {
+    this.longIndex = longIndex;
+    this.objectIndex = objectIndex;
+  }
+
+  /**
+   * Build an index for the given fetch query result records.
+   *
+   * @param fetchedResults the fetch query result records
+   * @param keyPath the join fetched key path
+   * @param mapper the object mapper use to extract the key values
+   */
+  static FetchQueryJoinIndex build(List<?> fetchedResults, String[] keyPath,
+      QueryObjectMapper mapper) {
+    final int size = fetchedResults.size();
+    final Object[] keys = new Object[size];
+    boolean allLong = true;
+    for (int i = 0; i < size; i++) {
+      Object fetched = fetchedResults.get(i);
+      Object key = fetched == null ? null : normalize(mapper.getMappedValue(fetched, keyPath));
+      keys[i] = key;
+      allLong &= key == null || key instanceof Long;
+    }
+    if (allLong) {
+      LongObjectHashMap<List<Object>> index = new LongObjectHashMap<>(size);
+      for (int i = 0; i < size; i++) {
+        if (keys[i] != null) {
+          long key = (Long) keys[i];
+          List<Object> bucket = index.get(key);
+          if (bucket == null) {
+            index.put(key, bucket = new ArrayList<>(1));
+          }
+          bucket.add(fetchedResults.get(i));
+        }
+      }
+      return new FetchQueryJoinIndex(index, null);
+    } else {
+      Map<Object, List<Object>> index = new HashMap<>(size << 1);
+      for (int i = 0; i < size; i++) {
+        if (keys[i] != null) {
+          index.computeIfAbsent(keys[i], k -> new ArrayList<>(1)).add(fetchedResults.get(i));
+        }
+      }
+      return new FetchQueryJoinIndex(null, index);
+    }
+  }
+
+  static Object normalize(Object key) {
+    if (key instanceof Long || key instanceof Integer || key instanceof Short
+        || key instanceof Byte) {
+      return ((Number) key).longValue();
+    } else if (key instanceof BigInteger) {
+      BigInteger bi = (BigInteger) key;
+      return bi.bitLength() < Long.SIZE ? (Object) bi.longValue() : bi;
+    } else if (key instanceof BigDecimal) {
+      BigDecimal bd = (BigDecimal) key;
+      try {
+        return bd.longValueExact();
+      } catch (ArithmeticException e) {
+        return bd.stripTrailingZeros();
+      }
+    }
+    return key;
+  }
+
+  /**
+   * Returns the matched fetch query result records of the given parent key value, if the parent
+   * key value is a collection, returns the records that matched any of its elements. Returns null
+   * if not found.
+   *
+   * @param parentKey the parent key value
+   */
+  List<Object> get(Object parentKey) {
+    if (parentKey instanceof Collection) {
+      List<Object> matched = null;
+      for (Object key : (Collection<?>) parentKey) {
+        List<Object> bucket = lookup(key);
+        if (bucket != null) {
+          if (matched == null) {
+            matched = new ArrayList<>(bucket);
+          } else {
+            matched.addAll(bucket);
+          }
+        }
+      }
+      return matched;
+    }
+    return lookup(parentKey);
+  }
+
+  List<Object> lookup(Object key) {
+    Object useKey = normalize(key);
+    if (useKey == null) {
+      return null;
+    }
+    if (longIndex != null) {
+      return useKey instanceof Long ? longIndex.get((Long) useKey) : null;
+    }
+    return objectIndex.get(useKey);
+  }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.query.shared;
+
+import static org.corant.shared.util.Primitives.wrap;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.corant.modules.query.QueryRuntimeException;
+import org.corant.shared.util.Conversions;
+
+/**
+ * corant-modules-query-shared
+ *
+ * <p>
+ * A compiled property path accessor use to extract values from or inject values into the query
+ * result objects (Java beans), the accessors are cached by the root class and the property name
+ * path, each segment of the path holds the getter and setter method handles of the property, the
+ * handles are resolved once for the runtime class of the segment owner and re-resolved only if the
+ * owner class changed.
+ *
+ * <p>
+ * The intermediate values of the path can be Java beans, maps, iterables or arrays, the iterables
+ * and arrays are iterated and the values are flattened like
+ * {@link org.corant.shared.util.Maps#getMapKeyPathValues(Object, Object[])}. The properties are
+ * discovered by {@link Introspector}, the same as commons-beanutils.
+ *
+ * @author bingo 下午2:36:20
+ *
+ */
+public class PropertyPathAccessor {
+
+  static final ClassValue<Map<String, BeanProperty>> beanProperties = new ClassValue<>() {
+    @Override
+    protected Map<String, BeanProperty> computeValue(Class<?> type) {
+      return BeanProperty.resolveAll(type);
+    }
+  };
+
+  static final ClassValue<Map<List<String>, PropertyPathAccessor>> accessors =
+      new ClassValue<>() {
+        @Override
+        protected Map<List<String>, PropertyPathAccessor> computeValue(Class<?> type) {
+          return new ConcurrentHashMap<>();
+        }
+      };
+
+  protected final String[] names;
+  protected final Segment[] segments;
+
+  protected PropertyPathAccessor(String[] names) {
+    this.names = names;
+    segments = new Segment[names.length];
+    for (int i = 0; i < names.length; i++) {
+      segments[i] = new Segment(names[i]);
+    }
+  }
+
+  /**
+   * Returns the cached property path accessor of the given root class and the name path.
+   *
+   * @param rootClass the root object class
+   * @param namePath the property name path
+   */
+  public static PropertyPathAccessor of(Class<?> rootClass, String[] namePath) {
+    Map<List<String>, PropertyPathAccessor> cached = accessors.get(rootClass);
+    PropertyPathAccessor accessor = cached.get(Arrays.asList(namePath));
+    if (accessor == null) {
+      String[] names = namePath.clone();
+      accessor = cached.computeIfAbsent(List.of(names), k -> new PropertyPathAccessor(names));
+    }
+    return accessor;
+  }
+
+  /**
+   * Returns the value of the property path of the given root object, if the values are collected
+   * from the intermediate collections or arrays then returns a list, returns null if not found.
+   *
+   * @param root the root object
+   */
+  public Object get(Object root) {
+    if (names.length == 1 && !(root instanceof Iterable) && !root.getClass().isArray()) {
+      return getProperty(root, 0);
+    }
+    List<Object> holder = new ArrayList<>();
+    collect(root, 0, holder);
+    return holder.isEmpty() ? null : holder.size() == 1 ? holder.get(0) : holder;
+  }
+
+  /**
+   * Set the value of the property path of the given root object, if there are intermediate
+   * collections or arrays then the value is set to each element of them.
+   *
+   * <p>
+   * Note: Like the commons-beanutils {@code BeanUtils.setProperty}, if the property of the path
+   * can't be found or isn't writable, or an intermediate value of the path is null, the setting is
+   * skipped silently.
+   *
+   * @param root the root object
+   * @param value the value to set
+   */
+  public void set(Object root, Object value) {
+    implant(root, 0, value);
+  }
+
+  @SuppressWarnings("rawtypes")
+  protected void collect(Object value, int deep, List<Object> holder) {
+    if (value == null) {
+      return;
+    }
+    if (deep < names.length) {
+      if (value instanceof Iterable) {
+        for (Object next : (Iterable) value) {
+          collect(next, deep, holder);
+        }
+      } else if (value.getClass().isArray()) {
+        for (int i = 0, len = Array.getLength(value); i < len; i++) {
+          collect(Array.get(value, i), deep, holder);
+        }
+      } else {
+        collect(getProperty(value, deep), deep + 1, holder);
+      }
+    } else if (value instanceof Collection) {
+      holder.addAll((Collection) value);
+    } else if (value instanceof Iterable) {
+      ((Iterable) value).forEach(holder::add);
+    } else if (value.getClass().isArray()) {
+      for (int i = 0, len = Array.getLength(value); i < len; i++) {
+        holder.add(Array.get(value, i));
+      }
+    } else {
+      holder.add(value);
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  protected Object getProperty(Object owner, int deep) {
+    if (owner instanceof Map) {
+      return ((Map) owner).get(names[deep]);
+    }
+    MethodHandle getter = segments[deep].resolve(owner.getClass()).getter;
+    if (getter == null) {
+      throw new QueryRuntimeException("Can't find the readable property [%s] in %s.",
+          names[deep], owner.getClass());
+    }
+    try {
+      return getter.invokeExact(owner);
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new QueryRuntimeException(e);
+    }
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  protected void implant(Object owner, int deep, Object value) {
+    if (owner == null) {
+      return;
+    }
+    if (owner instanceof Iterable) {
+      for (Object next : (Iterable) owner) {
+        implant(next, deep, value);
+      }
+    } else if (owner.getClass().isArray()) {
+      for (int i = 0, len = Array.getLength(owner); i < len; i++) {
+        implant(Array.get(owner, i), deep, value);
+      }
+    } else if (deep == names.length - 1) {
+      setProperty(owner, deep, value);
+    } else if (owner instanceof Map) {
+      implant(((Map) owner).computeIfAbsent(names[deep], k -> new HashMap<>()), deep + 1, value);
+    } else if (segments[deep].resolve(owner.getClass()).getter != null) {
+      // the null intermediate value is skipped by the implant
+      implant(getProperty(owner, deep), deep + 1, value);
+    }
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  protected void setProperty(Object owner, int deep, Object value) {
+    if (owner instanceof Map) {
+      ((Map) owner).put(names[deep], value);
+      return;
+    }
+    BeanProperty property = segments[deep].resolve(owner.getClass());
+    if (property.setter == null) {
+      return;
+    }
+    Object useValue = value;
+    if (useValue == null) {
+      if (property.type.isPrimitive()) {
+        return;
+      }
+    } else if (!property.wrappedType.isInstance(useValue)) {
+      useValue = Conversions.toObject(useValue, property.wrappedType);
+    }
+    try {
+      property.setter.invokeExact(owner, useValue);
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new QueryRuntimeException(e);
+    }
+  }
+
+  /**
+   * corant-modules-query-shared
+   *
+   * @author bingo 下午2:39:47
+   *
+   */
+  static class BeanProperty {
+    static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    static final MethodType SETTER_TYPE =
+        MethodType.methodType(void.class, Object.class, Object.class);
+
+    final Class<?> owner;
+    final MethodHandle getter;
+    final MethodHandle setter;
+    final Class<?> type;
+    final Class<?> wrappedType;
+
+    BeanProperty(Class<?> owner, MethodHandle getter, MethodHandle setter, Class<?> type) {
+      this.owner = owner;
+      this.getter = getter;
+      this.setter = setter;
+      this.type = type;
+      wrappedType = wrap(type);
+    }
+
+    static Map<String, BeanProperty> resolveAll(Class<?> type) {
+      final Map<String, BeanProperty> properties = new HashMap<>();
+      try {
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (PropertyDescriptor pd : Introspector.getBeanInfo(type).getPropertyDescriptors()) {
+          if (pd.getPropertyType() == null) {
+            continue; // indexed property only
+          }
+          MethodHandle getter = unreflect(lookup, pd.getReadMethod(), GETTER_TYPE);
+          MethodHandle setter = unreflect(lookup, pd.getWriteMethod(), SETTER_TYPE);
+          if (getter != null || setter != null) {
+            properties.put(pd.getName(),
+                new BeanProperty(type, getter, setter, pd.getPropertyType()));
+          }
+        }
+      } catch (IntrospectionException e) {
+        throw new QueryRuntimeException(e);
+      }
+      return Collections.unmodifiableMap(properties);
+    }
+
+    static MethodHandle unreflect(MethodHandles.Lookup lookup, Method method, MethodType type) {
+      if (method == null || !method.trySetAccessible()) {
+        return null;
+      }
+      try {
+        return lookup.unreflect(method).asType(type);
+      } catch (IllegalAccessException e) {
+        return null;
+      }
+    }
+  }
+
+  /**
+   * corant-modules-query-shared
+   *
+   * @author bingo 下午2:41:15
+   *
+   */
+  static class Segment {
+    final String name;
+    volatile BeanProperty cached;
+
+    Segment(String name) {
+      this.name = name;
+    }
+
+    BeanProperty resolve(Class<?> ownerClass) {
+      BeanProperty property = cached;
+      if (property == null || property.owner != ownerClass) {
+        property = beanProperties.get(ownerClass).get(name);
+        if (property == null) {
+          property = new BeanProperty(ownerClass, null, null, Object.class);
+        }
+        cached = property;
+      }
+      return property;
+    }
+  }
+}
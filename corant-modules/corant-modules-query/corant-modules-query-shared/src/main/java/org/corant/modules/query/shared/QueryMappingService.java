@@ -14,6 +14,7 @@
 package org.corant.modules.query.shared;
 
 import static java.util.Collections.unmodifiableCollection;
+import static java.util.Collections.unmodifiableMap;
 import static org.corant.context.Beans.findNamed;
 import static org.corant.shared.util.Empties.isEmpty;
 import static org.corant.shared.util.Empties.isNotEmpty;
@@ -57,6 +58,7 @@ import org.corant.modules.query.spi.ResultHintResolver;
 import org.corant.shared.ubiquity.Experimental;
 import org.corant.shared.ubiquity.Sortable;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+import net.jcip.annotations.GuardedBy;
 
 /**
  * corant-modules-query-shared
@@ -73,7 +75,8 @@ public class QueryMappingService {
   protected final static ReadWriteLock rwl = new ReentrantReadWriteLock();
   protected final static AtomicLong initializedVersion = new AtomicLong(0);
 
-  protected final Map<String, Query> queries = new HashMap<>();
+  // Immutable snapshot, replaced as a whole under the write lock, the readers never lock.
+  protected volatile QueryMappingSnapshot snapshot = QueryMappingSnapshot.EMPTY;
   protected volatile boolean initialized = false;
 
   @Inject
@@ -108,29 +111,29 @@ public class QueryMappingService {
   }
 
   public Collection<Query> getQueries() {
-    Lock l = rwl.readLock();
-    try {
-      l.lock();
-      return unmodifiableCollection(queries.values());
-    } finally {
-      l.unlock();
-    }
+    return snapshot.getQueries();
   }
 
   public Query getQuery(String name) {
-    Lock l = rwl.readLock();
-    try {
-      l.lock();
-      return queries.get(name);
-    } finally {
-      l.unlock();
-    }
+    return snapshot.getQuery(name);
+  }
+
+  /**
+   * Returns the current immutable query mapping snapshot, the snapshot will not be changed by the
+   * re-initialization, the re-initialization replaces it with a new one.
+   */
+  public QueryMappingSnapshot getSnapshot() {
+    return snapshot;
   }
 
   public boolean isInitialized() {
     return initialized;
   }
 
+  /**
+   * Re-initialize the query mappings, the readers are not blocked during the re-initialization,
+   * they see the previous snapshot until the new one is published.
+   */
   @Experimental // NOTE since the query scripts may be cached in thread local
   public void reinitialize() {
     Lock l = rwl.writeLock();
@@ -143,7 +146,7 @@ public class QueryMappingService {
     } catch (Exception ex) {
       throwable = ex;
       initialized = false;
-      queries.clear();
+      snapshot = QueryMappingSnapshot.EMPTY;
     } finally {
       l.unlock();
       if (throwable != null) {
@@ -152,6 +155,7 @@ public class QueryMappingService {
     }
   }
 
+  @GuardedBy("rwl.writeLock")
   protected void doInitialize() {
     initialized = false;
     if (!preInitializeHandlers.isUnsatisfied()) {
@@ -159,7 +163,7 @@ public class QueryMappingService {
       final long civn = getInitializedVersion();
       preInitializeHandlers.forEach(l -> l.beforeQueryMappingInitialize(oldQueries, civn));
     }
-    queries.clear();
+    final Map<String, Query> queries = new HashMap<>();
     new QueryParser().parse(resolveMappingFilePaths()).forEach(m -> {
       List<String> broken = m.selfValidate();
       if (!broken.isEmpty()) {
@@ -250,8 +254,8 @@ public class QueryMappingService {
       // FIXME CIRCULAR NO CHECK!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!! bingo
       queryProviders.forEach(qp -> qp.provide().forEach(q -> queries.put(q.getVersionedName(), q)));
     }
+    snapshot = new QueryMappingSnapshot(queries, initializedVersion.incrementAndGet());
     initialized = true;
-    initializedVersion.incrementAndGet();
     if (!postInitializedHandlers.isUnsatisfied()) {
       final Collection<Query> newQueries = getQueries();
       final long civn = getInitializedVersion();
@@ -272,7 +276,7 @@ public class QueryMappingService {
     } catch (Exception ex) {
       throwable = ex;
       initialized = false;
-      queries.clear();
+      snapshot = QueryMappingSnapshot.EMPTY;
     } finally {
       l.unlock();
       if (throwable != null) {
@@ -324,7 +328,7 @@ public class QueryMappingService {
     try {
       l.lock();
       logger.info("Start query mapping un-initialization.");
-      queries.clear();
+      snapshot = QueryMappingSnapshot.EMPTY;
       initialized = false;
       logger.info("Completed query mapping un-initialization.");
     } finally {
@@ -346,4 +350,49 @@ public class QueryMappingService {
   public interface QueryMappingClient {
     Set<String> getMappingFilePaths();
   }
+
+  /**
+   * corant-modules-query-shared
+   *
+   * <p>
+   * An immutable snapshot of the query mappings with the initialized version, the lookups on the
+   * snapshot need not any locks.
+   *
+   * @author bingo 下午2:06:31
+   *
+   */
+  public static class QueryMappingSnapshot {
+
+    public static final QueryMappingSnapshot EMPTY =
+        new QueryMappingSnapshot(Collections.emptyMap(), 0);
+
+    protected final Map<String, Query> queries;
+    protected final Collection<Query> values;
+    protected final long version;
+
+    protected QueryMappingSnapshot(Map<String, Query> queries, long version) {
+      this.queries = unmodifiableMap(new HashMap<>(queries));
+      values = unmodifiableCollection(this.queries.values());
+      this.version = version;
+    }
+
+    public Collection<Query> getQueries() {
+      return values;
+    }
+
+    public Query getQuery(String name) {
+      return queries.get(name);
+    }
+
+    /**
+     * Returns the initialized version of this snapshot, the empty snapshot returns 0.
+     */
+    public long getVersion() {
+      return version;
+    }
+
+    public int size() {
+      return queries.size();
+    }
+  }
 }
@@ -41,7 +41,8 @@ public class QueryScriptEngines {
   protected Instance<ScriptProcessor> processors;
 
   /**
-   * NOTE: Don't share the complied function in multi threads.
+   * NOTE: The compiled functions of the compilable script processors can be shared in multi
+   * threads, but it is not guaranteed for all script processors.
    *
    * @see ScriptProcessor#resolveFetchInjections(FetchQuery)
    */
@@ -53,7 +54,8 @@ public class QueryScriptEngines {
   }
 
   /**
-   * NOTE: Don't share the complied function in multi threads.
+   * NOTE: The compiled functions of the compilable script processors can be shared in multi
+   * threads, but it is not guaranteed for all script processors.
    *
    * @see ScriptProcessor#resolveFetchParameter(FetchQueryParameter)
    */
@@ -64,7 +66,8 @@ public class QueryScriptEngines {
   }
 
   /**
-   * NOTE: Don't share the complied function in multi threads.
+   * NOTE: The compiled functions of the compilable script processors can be shared in multi
+   * threads, but it is not guaranteed for all script processors.
    *
    * @see ScriptProcessor#resolveFetchPredicates(FetchQuery)
    */
@@ -76,7 +79,8 @@ public class QueryScriptEngines {
   }
 
   /**
-   * NOTE: Don't share the complied function in multi threads.
+   * NOTE: The compiled functions of the compilable script processors can be shared in multi
+   * threads, but it is not guaranteed for all script processors.
    *
    * @see ScriptProcessor#resolveQueryHintResultScriptMappers(QueryHint)
    */
@@ -27,9 +27,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import org.corant.modules.query.QueryRuntimeException;
+import org.corant.modules.query.shared.dynamic.freemarker.FreemarkerRenderedScriptCache.BindingRecorder;
 import org.corant.shared.conversion.Converter;
 import org.corant.shared.conversion.ConverterHints;
 import org.corant.shared.exception.CorantRuntimeException;
+import org.corant.shared.exception.NotSupportedException;
 import freemarker.ext.util.WrapperTemplateModel;
 import freemarker.template.TemplateBooleanModel;
 import freemarker.template.TemplateCollectionModel;
@@ -49,6 +51,58 @@ import freemarker.template.TemplateSequenceModel;
  */
 public abstract class AbstractTemplateMethodModelEx<P> implements DynamicTemplateMethodModelEx<P> {
 
+  protected BindingRecorder bindingRecorder;
+
+  /**
+   * Returns whether this template method model supports binding replay, the template method model
+   * that supports binding replay must use placeholders in the rendered script instead of the
+   * parameter values.
+   *
+   * @see #replay(Object, Class, Map)
+   * @see FreemarkerRenderedScriptCache
+   */
+  public boolean isReplayable() {
+    return false;
+  }
+
+  /**
+   * Replay a template method invocation without template rendering, the given value will be
+   * converted and bound to this template method model as if it was passed from the template.
+   *
+   * @param value the original parameter value
+   * @param expectedType the expected parameter type
+   * @param convertHints the conversion hints
+   * @throws TemplateModelException if the value can't be bound
+   */
+  public void replay(Object value, Class<?> expectedType, Map<String, ?> convertHints)
+      throws TemplateModelException {
+    bindParamValue(convertParamValue(value, expectedType, convertHints));
+  }
+
+  /**
+   * Set the binding recorder, the recorder is used to record the values passed to this template
+   * method model during the template rendering.
+   *
+   * @param bindingRecorder the binding recorder or null
+   */
+  public void setBindingRecorder(BindingRecorder bindingRecorder) {
+    this.bindingRecorder = bindingRecorder;
+  }
+
+  /**
+   * Bind the extracted and converted parameter value and returns the script segment which will be
+   * rendered, only the template method model that supports binding replay should implement this
+   * method.
+   *
+   * @param value the extracted and converted parameter value
+   * @return the script segment
+   * @throws TemplateModelException if the value can't be bound
+   */
+  protected Object bindParamValue(Object value) throws TemplateModelException {
+    throw new NotSupportedException("The template method model %s can't bind parameter value.",
+        getClass().getName());
+  }
+
   /**
    * Convert parameter values using parameter types and hints. If the expected parameter type passed
    * in is null then use {@link #defaultConvertParamValue(Object)} to convert.
@@ -167,6 +221,9 @@ public abstract class AbstractTemplateMethodModelEx<P> implements DynamicTemplat
           }
         }).toArray(Object[]::new));
       }
+      if (bindingRecorder != null) {
+        bindingRecorder.record(extVal, extTyp, extHints);
+      }
       return convertParamValue(extVal, extTyp, extHints);
     }
     return null;
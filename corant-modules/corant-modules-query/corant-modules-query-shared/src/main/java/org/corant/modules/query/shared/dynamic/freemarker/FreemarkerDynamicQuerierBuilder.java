@@ -14,16 +14,23 @@
 package org.corant.modules.query.shared.dynamic.freemarker;
 
 import static org.corant.context.Beans.select;
+import static org.corant.shared.util.Conversions.toInteger;
 import static org.corant.shared.util.Empties.isNotEmpty;
+import static org.corant.shared.util.Objects.defaultObject;
 import java.io.StringWriter;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.logging.Logger;
 import org.corant.modules.query.FetchQueryHandler;
 import org.corant.modules.query.QueryHandler;
 import org.corant.modules.query.QueryParameter;
 import org.corant.modules.query.QueryRuntimeException;
 import org.corant.modules.query.mapping.Query;
+import org.corant.modules.query.mapping.QueryHint;
+import org.corant.modules.query.mapping.QueryHint.QueryHintParameter;
 import org.corant.modules.query.shared.dynamic.AbstractDynamicQuerierBuilder;
 import org.corant.modules.query.shared.dynamic.DynamicQuerier;
 import org.corant.modules.query.spi.ParameterReviser;
@@ -48,12 +55,35 @@ import freemarker.template.TemplateModelException;
 public abstract class FreemarkerDynamicQuerierBuilder<P, S, Q extends DynamicQuerier<P, S>>
     extends AbstractDynamicQuerierBuilder<P, S, Q> {
 
+  /**
+   * The query property key use to enable the rendered script cache, the value is a boolean.
+   *
+   * @see FreemarkerRenderedScriptCache
+   */
+  public static final String PRO_KEY_RENDERED_SCRIPT_CACHE = ".fm-rendered-script-cache";
+
+  /**
+   * The query property key use to specify the maximum number of the cached parameter shapes.
+   */
+  public static final String PRO_KEY_RENDERED_SCRIPT_CACHE_SIZE = ".fm-rendered-script-cache-size";
+
+  /**
+   * The query hint key use to enable the rendered script cache, the hint may contain a parameter
+   * named 'max-size' to specify the maximum number of the cached parameter shapes.
+   *
+   * @see FreemarkerRenderedScriptCache
+   */
+  public static final String HINT_RENDERED_SCRIPT_CACHE = "fm-rendered-script-cache";
+  public static final String HINT_PARA_MAX_SIZE = "max-size";
+
   protected final Template execution;
 
   protected final String syntheticScript;
 
   protected final Logger logger = Logger.getLogger(this.getClass().getName());
 
+  protected final FreemarkerRenderedScriptCache renderedScriptCache;
+
   /**
    * Create a free marker dynamic querier builder
    *
@@ -67,6 +97,7 @@ public abstract class FreemarkerDynamicQuerierBuilder<P, S, Q extends DynamicQue
     Pair<Template, String> exes = FreemarkerExecutions.resolveExecution(query);
     execution = exes.left();
     syntheticScript = exes.right();
+    renderedScriptCache = resolveRenderedScriptCache();
   }
 
   @Override
@@ -74,23 +105,56 @@ public abstract class FreemarkerDynamicQuerierBuilder<P, S, Q extends DynamicQue
     return build(execute(resolveParameter(param)));
   }
 
+  /**
+   * Returns the rendered script cache of this builder or null if the rendered script cache is not
+   * enabled.
+   *
+   * @see #PRO_KEY_RENDERED_SCRIPT_CACHE
+   * @see #HINT_RENDERED_SCRIPT_CACHE
+   */
+  public FreemarkerRenderedScriptCache getRenderedScriptCache() {
+    return renderedScriptCache;
+  }
+
   protected abstract Q build(Triple<QueryParameter, P, String> processed);
 
   protected Triple<QueryParameter, P, String> execute(QueryParameter param) {
+    DynamicTemplateMethodModelEx<P> tmm = getTemplateMethodModelEx();
+    if (renderedScriptCache != null && renderedScriptCache.isApplicable(tmm)) {
+      return renderedScriptCache.resolve(param, tmm, this::render);
+    }
+    String script = render(param, tmm);
+    return Triple.of(param, tmm.getParameters(), script);
+  }
+
+  /**
+   * Returns a template method model use for variables handling. The "extended method" template
+   * language data type: Objects that act like functions.
+   */
+  protected abstract DynamicTemplateMethodModelEx<P> getTemplateMethodModelEx();
+
+  /**
+   * Render the template with the given query parameter and template method model, returns the
+   * rendered script.
+   *
+   * @param param the query parameter
+   * @param tmm the template method model
+   */
+  protected String render(QueryParameter param, DynamicTemplateMethodModelEx<P> tmm) {
     try (StringWriter sw = new StringWriter()) {
       // Inject query criteria
       Environment e = execution.createProcessingEnvironment(param.getCriteria(), sw);
+      Set<String> varNames = new HashSet<>(e.getKnownVariableNames());
 
       // Inject default template method model
-      DynamicTemplateMethodModelEx<P> tmm = getTemplateMethodModelEx();
       String tmmTyp = tmm.getType();
-      checkVarNames(e, tmmTyp);
+      checkVarNames(varNames, tmmTyp);
       e.setVariable(tmmTyp, tmm);
 
       // Inject configuration retrieve template method model
       DynamicTemplateMethodModelEx<Object> cmm = DynamicTemplateMethodModelEx.CONFIG_TMM_INST;
       String cmmTyp = cmm.getType();
-      checkVarNames(e, cmmTyp);
+      checkVarNames(varNames, cmmTyp);
       e.setVariable(cmmTyp, cmm);
 
       // Inject query limit & offset
@@ -100,8 +164,7 @@ public abstract class FreemarkerDynamicQuerierBuilder<P, S, Q extends DynamicQue
       // e.setVariable(QueryParameter.LIMIT_PARAM_NME, new SimpleNumber(param.getLimit()));
       // }
 
-      if (param.getLimit() != null
-          && !e.getKnownVariableNames().contains(QueryParameter.LIMIT_PARAM_NME)) {
+      if (param.getLimit() != null && varNames.add(QueryParameter.LIMIT_PARAM_NME)) {
         // For compatibility issues, temporarily use this
         e.setVariable(QueryParameter.LIMIT_PARAM_NME, new SimpleNumber(param.getLimit()));
       }
@@ -111,8 +174,7 @@ public abstract class FreemarkerDynamicQuerierBuilder<P, S, Q extends DynamicQue
       // e.setVariable(QueryParameter.OFFSET_PARAM_NME, new SimpleNumber(param.getOffset()));
       // }
 
-      if (param.getOffset() != null
-          && !e.getKnownVariableNames().contains(QueryParameter.OFFSET_PARAM_NME)) {
+      if (param.getOffset() != null && varNames.add(QueryParameter.OFFSET_PARAM_NME)) {
         // For compatibility issues, temporarily use this
         e.setVariable(QueryParameter.OFFSET_PARAM_NME, new SimpleNumber(param.getOffset()));
       }
@@ -121,7 +183,7 @@ public abstract class FreemarkerDynamicQuerierBuilder<P, S, Q extends DynamicQue
       ObjectWrapper ow = execution.getObjectWrapper();
       if (isNotEmpty(param.getContext())) {
         for (Entry<String, Object> ctx : param.getContext().entrySet()) {
-          checkVarNames(e, ctx.getKey());
+          checkVarNames(varNames, ctx.getKey());
           TemplateModel val = ctx.getValue() == null ? new SimpleHash(ow) : ow.wrap(ctx.getValue());
           e.setVariable(ctx.getKey(), val);
         }
@@ -130,7 +192,7 @@ public abstract class FreemarkerDynamicQuerierBuilder<P, S, Q extends DynamicQue
       // Inject parameter reviser
       // setEnvironmentVariables(e, ow); deprecated since 1.6.2
       e.process();
-      return Triple.of(param, tmm.getParameters(), sw.toString());
+      return sw.toString();
     } catch (TemplateException te) {
       throw new QueryRuntimeException(te,
           "Freemarker dynamic querier builder [%s] execute occurred error! %s",
@@ -143,10 +205,33 @@ public abstract class FreemarkerDynamicQuerierBuilder<P, S, Q extends DynamicQue
   }
 
   /**
-   * Returns a template method model use for variables handling. The "extended method" template
-   * language data type: Objects that act like functions.
+   * Returns a rendered script cache if the query enables it through query property
+   * {@link #PRO_KEY_RENDERED_SCRIPT_CACHE} or query hint {@link #HINT_RENDERED_SCRIPT_CACHE},
+   * otherwise returns null.
    */
-  protected abstract DynamicTemplateMethodModelEx<P> getTemplateMethodModelEx();
+  protected FreemarkerRenderedScriptCache resolveRenderedScriptCache() {
+    Integer maxSize = null;
+    boolean enabled = query.getProperty(PRO_KEY_RENDERED_SCRIPT_CACHE, Boolean.class, false);
+    if (enabled) {
+      maxSize = query.getProperty(PRO_KEY_RENDERED_SCRIPT_CACHE_SIZE, Integer.class);
+    } else {
+      for (QueryHint hint : query.getHints()) {
+        if (HINT_RENDERED_SCRIPT_CACHE.equals(hint.getKey())) {
+          enabled = true;
+          List<QueryHintParameter> sizes = hint.getParameters(HINT_PARA_MAX_SIZE);
+          if (isNotEmpty(sizes)) {
+            maxSize = toInteger(sizes.get(0).getValue());
+          }
+          break;
+        }
+      }
+    }
+    if (enabled) {
+      return new FreemarkerRenderedScriptCache(query.getVersionedName(),
+          defaultObject(maxSize, FreemarkerRenderedScriptCache.DEFAULT_MAX_SIZE));
+    }
+    return null;
+  }
 
   @Deprecated
   protected void setEnvironmentVariables(Environment env, ObjectWrapper ow) {
@@ -177,13 +262,11 @@ public abstract class FreemarkerDynamicQuerierBuilder<P, S, Q extends DynamicQue
         });
   }
 
-  void checkVarNames(Environment e, String... varNames) throws TemplateModelException {
-    for (String varName : varNames) {
-      if (e.getKnownVariableNames().contains(varName)) {
-        throw new QueryRuntimeException(
-            "Freemarker dynamic querier buildr [%s] error, the key [%s] name conflict.",
-            query.getName(), varName);
-      }
+  void checkVarNames(Set<String> knownVarNames, String varName) {
+    if (!knownVarNames.add(varName)) {
+      throw new QueryRuntimeException(
+          "Freemarker dynamic querier buildr [%s] error, the key [%s] name conflict.",
+          query.getName(), varName);
     }
   }
 
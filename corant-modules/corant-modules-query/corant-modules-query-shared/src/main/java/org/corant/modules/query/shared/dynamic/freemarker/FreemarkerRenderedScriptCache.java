@@ -0,0 +1,452 @@
+/*
+ * Copyright (c) 2013-2018, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.query.shared.dynamic.freemarker;
+
+import static java.util.Collections.unmodifiableList;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.logging.Logger;
+import org.corant.modules.query.QueryParameter;
+import org.corant.modules.query.QueryRuntimeException;
+import org.corant.modules.query.shared.QueryMappingService;
+import org.corant.shared.ubiquity.Tuple.Triple;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import freemarker.template.TemplateModelException;
+
+/**
+ * corant-modules-query-shared
+ *
+ * <p>
+ * An opt-in cache of rendered query scripts for freemarker dynamic querier builders, the cache key
+ * is the shape of the query parameter, the shape includes which criteria keys are present, whether
+ * their values are null, the boolean values and the sizes of the collections, as well as the keys
+ * of the query context and whether the limit and offset are present.
+ *
+ * <p>
+ * On a cache miss the template is rendered normally, meanwhile the values passed to the template
+ * method model are traced back to the criteria or context entries that they come from, the
+ * rendered script and the traced bindings form the binding plan of the shape. On a cache hit the
+ * template is not rendered, only the binding plan is replayed against the current parameter to
+ * bind the parameter values. If a value passed to the template method model can not be traced, for
+ * example a value computed in the template, the shape is marked as uncacheable and will always be
+ * rendered.
+ *
+ * <p>
+ * Note: The cache can only be used for templates whose rendered text depends only on the shape of
+ * the parameter, all values must be passed through the template method model, and only the
+ * template method models that use placeholders (such as SQL) support the binding replay. The cache
+ * is cleared when the query mapping service is reinitialized. The number of the cached shapes is
+ * bounded by the max size, when the bound is exceeded the shapes that are rarely or not recently
+ * used are evicted.
+ *
+ * @author bingo 下午3:12:08
+ *
+ */
+public class FreemarkerRenderedScriptCache {
+
+  public static final int DEFAULT_MAX_SIZE = 128;
+  static final int MAX_SHAPE_DEPTH = 8;
+  static final Object AMBIGUOUS = new Object();
+
+  protected static final Logger logger =
+      Logger.getLogger(FreemarkerRenderedScriptCache.class.getCanonicalName());
+
+  protected final String queryName;
+  protected final int maxSize;
+  protected final Cache<String, RenderedScript> scripts;
+  protected final LongAdder hits = new LongAdder();
+  protected final LongAdder misses = new LongAdder();
+  protected final LongAdder bypasses = new LongAdder();
+  protected volatile long initializedVersion;
+
+  public FreemarkerRenderedScriptCache(String queryName, int maxSize) {
+    this.queryName = queryName;
+    this.maxSize = maxSize > 0 ? maxSize : DEFAULT_MAX_SIZE;
+    scripts = Caffeine.newBuilder().maximumSize(this.maxSize).executor(Runnable::run).build();
+    initializedVersion = QueryMappingService.getInitializedVersion();
+  }
+
+  static void appendShape(StringBuilder sb, Object value, int depth) {
+    if (depth > MAX_SHAPE_DEPTH) {
+      throw new IllegalStateException();
+    }
+    if (value == null) {
+      sb.append('n');
+    } else if (value instanceof Boolean) {
+      sb.append((Boolean) value ? 't' : 'f');
+    } else if (value instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) value;
+      String[] entries = new String[map.size()];
+      int i = 0;
+      for (Entry<?, ?> entry : map.entrySet()) {
+        StringBuilder esb = new StringBuilder().append(entry.getKey()).append('=');
+        appendShape(esb, entry.getValue(), depth + 1);
+        entries[i++] = esb.toString();
+      }
+      Arrays.sort(entries, 0, i);
+      sb.append('{');
+      for (int j = 0; j < i; j++) {
+        sb.append(entries[j]).append(';');
+      }
+      sb.append('}');
+    } else if (value instanceof Collection || value.getClass().isArray()) {
+      Iterator<?> it = value instanceof Collection ? ((Collection<?>) value).iterator()
+          : new ArrayIterator(value);
+      StringBuilder esb = new StringBuilder();
+      int size = 0;
+      boolean plain = true;
+      while (it.hasNext()) {
+        int before = esb.length();
+        appendShape(esb, it.next(), depth + 1);
+        plain &= esb.length() - before == 1 && esb.charAt(before) == 'v';
+        size++;
+      }
+      sb.append('[').append(size);
+      if (!plain) {
+        sb.append(':').append(esb);
+      }
+      sb.append(']');
+    } else {
+      sb.append('v');
+    }
+  }
+
+  static void traceSources(Map<Object, Object> sources, Object value, List<Object> path,
+      int depth) {
+    if (value == null || value instanceof Boolean || depth > MAX_SHAPE_DEPTH) {
+      return;
+    }
+    Object[] segments = path.toArray();
+    sources.merge(value, segments, (o, n) -> o == AMBIGUOUS || !Arrays.equals((Object[]) o, n)
+        ? AMBIGUOUS
+        : o);
+    if (value instanceof Map) {
+      for (Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        path.add(entry.getKey());
+        traceSources(sources, entry.getValue(), path, depth + 1);
+        path.remove(path.size() - 1);
+      }
+    } else if (value instanceof Collection || value.getClass().isArray()
+        && !value.getClass().getComponentType().isPrimitive()) {
+      Iterator<?> it = value instanceof Collection ? ((Collection<?>) value).iterator()
+          : new ArrayIterator(value);
+      int index = 0;
+      while (it.hasNext()) {
+        path.add(index++);
+        traceSources(sources, it.next(), path, depth + 1);
+        path.remove(path.size() - 1);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of the parameter shapes that can't be cached or the parameters that can't be
+   * resolved to shape.
+   */
+  public long getBypasses() {
+    return bypasses.sum();
+  }
+
+  /**
+   * Returns the number of cache hits since this cache was created.
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Returns the number of cache misses since this cache was created.
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public String getQueryName() {
+    return queryName;
+  }
+
+  /**
+   * Returns the number of the cached parameter shapes.
+   */
+  public int getSize() {
+    return (int) scripts.estimatedSize();
+  }
+
+  /**
+   * Returns whether the given template method model supports binding replay.
+   *
+   * @param tmm the template method model to check
+   */
+  public boolean isApplicable(DynamicTemplateMethodModelEx<?> tmm) {
+    return tmm instanceof AbstractTemplateMethodModelEx
+        && ((AbstractTemplateMethodModelEx<?>) tmm).isReplayable();
+  }
+
+  /**
+   * Resolve the processed query parameter, the resolved parameters and the rendered script, use
+   * the cached script and binding plan if the shape of the given parameter was cached otherwise
+   * render the template with the given renderer.
+   *
+   * @param <P> the resolved parameters type
+   * @param param the query parameter
+   * @param tmm the template method model, must be {@link #isApplicable(DynamicTemplateMethodModelEx)}
+   * @param renderer the template renderer that renders the template with the parameter and the
+   *        template method model
+   */
+  public <P> Triple<QueryParameter, P, String> resolve(QueryParameter param,
+      DynamicTemplateMethodModelEx<P> tmm,
+      BiFunction<QueryParameter, DynamicTemplateMethodModelEx<P>, String> renderer) {
+    final AbstractTemplateMethodModelEx<P> atmm = (AbstractTemplateMethodModelEx<P>) tmm;
+    final String shape = resolveShape(param);
+    if (shape == null) {
+      bypasses.increment();
+      String script = renderer.apply(param, tmm);
+      return Triple.of(param, tmm.getParameters(), script);
+    }
+    checkVersion();
+    RenderedScript cached = scripts.getIfPresent(shape);
+    if (cached == null) {
+      misses.increment();
+      BindingTracer tracer = new BindingTracer(param);
+      String script;
+      atmm.setBindingRecorder(tracer);
+      try {
+        script = renderer.apply(param, tmm);
+      } finally {
+        atmm.setBindingRecorder(null);
+      }
+      if (!tracer.ambiguous) {
+        scripts.asMap().putIfAbsent(shape,
+            tracer.traceable ? new RenderedScript(script, tracer.bindings) : RenderedScript.NONE);
+      }
+      return Triple.of(param, tmm.getParameters(), script);
+    } else if (cached == RenderedScript.NONE) {
+      bypasses.increment();
+      String script = renderer.apply(param, tmm);
+      return Triple.of(param, tmm.getParameters(), script);
+    } else {
+      hits.increment();
+      try {
+        for (Binding binding : cached.bindings) {
+          atmm.replay(binding.resolve(param), binding.expectedType, binding.convertHints);
+        }
+      } catch (TemplateModelException e) {
+        throw new QueryRuntimeException(e,
+            "Freemarker rendered script cache [%s] replay bindings occurred error!", queryName);
+      }
+      return Triple.of(param, tmm.getParameters(), cached.script);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "FreemarkerRenderedScriptCache [queryName=" + queryName + ", size=" + getSize()
+        + ", hits=" + getHits() + ", misses=" + getMisses() + ", bypasses=" + getBypasses() + "]";
+  }
+
+  protected void checkVersion() {
+    long current = QueryMappingService.getInitializedVersion();
+    if (initializedVersion != current) {
+      synchronized (this) {
+        if (initializedVersion != current) {
+          scripts.invalidateAll();
+          initializedVersion = current;
+          logger.fine(() -> String.format(
+              "Clear rendered script cache of query [%s] since the query mapping version changed.",
+              queryName));
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the shape of the given query parameter or null if the criteria is neither null nor a
+   * map or is too deep.
+   */
+  protected String resolveShape(QueryParameter param) {
+    Object criteria = param.getCriteria();
+    if (criteria != null && !(criteria instanceof Map)) {
+      return null;
+    }
+    try {
+      StringBuilder sb = new StringBuilder(64);
+      appendShape(sb, criteria, 0);
+      sb.append('|');
+      Map<String, Object> context = param.getContext();
+      if (context != null) {
+        for (Entry<String, Object> ctx : context.entrySet()) {
+          sb.append(ctx.getKey()).append(ctx.getValue() == null ? 'n' : 'v').append(';');
+        }
+      }
+      return sb.append('|').append(param.getLimit() == null ? 'n' : 'v')
+          .append(param.getOffset() == null ? 'n' : 'v').toString();
+    } catch (IllegalStateException e) {
+      return null;
+    }
+  }
+
+  /**
+   * corant-modules-query-shared
+   *
+   * <p>
+   * Used to record the values passed to the template method model during the template rendering.
+   *
+   * @author bingo 下午3:12:08
+   *
+   */
+  @FunctionalInterface
+  public interface BindingRecorder {
+    void record(Object value, Class<?> expectedType, Map<String, ?> convertHints);
+  }
+
+  /**
+   * corant-modules-query-shared
+   *
+   * @author bingo 下午3:12:08
+   *
+   */
+  static class ArrayIterator implements Iterator<Object> {
+    final Object array;
+    final int length;
+    int index = 0;
+
+    ArrayIterator(Object array) {
+      this.array = array;
+      length = Array.getLength(array);
+    }
+
+    @Override
+    public boolean hasNext() {
+      return index < length;
+    }
+
+    @Override
+    public Object next() {
+      return Array.get(array, index++);
+    }
+  }
+
+  /**
+   * corant-modules-query-shared
+   *
+   * <p>
+   * A binding of the binding plan, represents a template method model invocation, the value of the
+   * binding is located by the path from the query criteria or the query context.
+   *
+   * @author bingo 下午3:12:08
+   *
+   */
+  static class Binding {
+    static final Object CRITERIA = new Object();
+    static final Object CONTEXT = new Object();
+
+    final Object[] path;
+    final Class<?> expectedType;
+    final Map<String, ?> convertHints;
+
+    Binding(Object[] path, Class<?> expectedType, Map<String, ?> convertHints) {
+      this.path = path;
+      this.expectedType = expectedType;
+      this.convertHints = convertHints;
+    }
+
+    Object resolve(QueryParameter param) {
+      Object value = path[0] == CRITERIA ? param.getCriteria() : param.getContext();
+      for (int i = 1; i < path.length && value != null; i++) {
+        Object segment = path[i];
+        if (value instanceof Map) {
+          value = ((Map<?, ?>) value).get(segment);
+        } else if (value instanceof List) {
+          value = ((List<?>) value).get((Integer) segment);
+        } else if (value.getClass().isArray()) {
+          value = Array.get(value, (Integer) segment);
+        } else if (value instanceof Collection) {
+          Iterator<?> it = ((Collection<?>) value).iterator();
+          for (int j = (Integer) segment; j > 0; j--) {
+            it.next();
+          }
+          value = it.next();
+        } else {
+          throw new QueryRuntimeException("Can't resolve binding value from %s.", value);
+        }
+      }
+      return value;
+    }
+  }
+
+  /**
+   * corant-modules-query-shared
+   *
+   * @author bingo 下午3:12:08
+   *
+   */
+  static class BindingTracer implements BindingRecorder {
+    final Map<Object, Object> sources = new IdentityHashMap<>();
+    final List<Binding> bindings = new ArrayList<>();
+    boolean traceable = true;
+    boolean ambiguous = false;
+
+    BindingTracer(QueryParameter param) {
+      List<Object> path = new ArrayList<>();
+      path.add(Binding.CRITERIA);
+      traceSources(sources, param.getCriteria(), path, 0);
+      path.set(0, Binding.CONTEXT);
+      traceSources(sources, param.getContext(), path, 0);
+    }
+
+    @Override
+    public void record(Object value, Class<?> expectedType, Map<String, ?> convertHints) {
+      Object source = value == null ? null : sources.get(value);
+      if (source == AMBIGUOUS) {
+        ambiguous = true;
+      } else if (source == null) {
+        traceable = false;
+      } else {
+        bindings.add(new Binding((Object[]) source, expectedType, convertHints));
+      }
+    }
+  }
+
+  /**
+   * corant-modules-query-shared
+   *
+   * @author bingo 下午3:12:08
+   *
+   */
+  static class RenderedScript {
+    static final RenderedScript NONE = new RenderedScript(null, new ArrayList<>());
+
+    final String script;
+    final List<Binding> bindings;
+
+    RenderedScript(String script, List<Binding> bindings) {
+      this.script = script;
+      this.bindings = unmodifiableList(bindings);
+    }
+  }
+}
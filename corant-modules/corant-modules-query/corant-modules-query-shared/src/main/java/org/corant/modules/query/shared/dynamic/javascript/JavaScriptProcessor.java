@@ -13,22 +13,17 @@
  */
 package org.corant.modules.query.shared.dynamic.javascript;
 
-import java.util.Collection;
 import java.util.Optional;
-import java.util.function.Function;
 import java.util.logging.Logger;
 import javax.inject.Singleton;
 import javax.script.Compilable;
 import org.corant.modules.lang.shared.ScriptEngineService;
 import org.corant.modules.lang.shared.ScriptLang;
-import org.corant.modules.query.mapping.Query;
 import org.corant.modules.query.mapping.Script;
 import org.corant.modules.query.mapping.Script.ScriptType;
 import org.corant.modules.query.shared.AbstractCompilableScriptProcessor;
-import org.corant.modules.query.shared.cdi.QueryExtension;
 import org.corant.shared.exception.NotSupportedException;
 import org.corant.shared.util.Services;
-import net.jcip.annotations.GuardedBy;
 
 /**
  * corant-modules-query-shared
@@ -41,25 +36,6 @@ public class JavaScriptProcessor extends AbstractCompilableScriptProcessor {
 
   static final Logger logger = Logger.getLogger(JavaScriptProcessor.class.getName());
 
-  protected static final ThreadLocal<ThreadLocalExecution<Object, Function<ParameterAndResult, Object>>> PARAM_RESULT_FUNCTIONS =
-      ThreadLocal.withInitial(ThreadLocalExecution::new);
-
-  protected static final ThreadLocal<ThreadLocalExecution<Object, Function<ParameterAndResultPair, Object>>> PARAM_RESULT_PAIR_FUNCTIONS =
-      ThreadLocal.withInitial(ThreadLocalExecution::new);
-
-  @GuardedBy("QueryMappingService.rwl.writeLock")
-  @Override
-  public void afterQueryMappingInitialized(Collection<Query> queries, long initializedVersion) {
-    // FIXME TODO the script was cached in thread local
-    PARAM_RESULT_FUNCTIONS.get().clear();
-    PARAM_RESULT_PAIR_FUNCTIONS.get().clear();
-    if (QueryExtension.verifyDeployment) {
-      logger.info("Start javascript query scripts pre-compiling.");
-      int cs = resolveAll(queries, initializedVersion);
-      logger.info("Complete " + cs + " javascript query scripts pre-compiling.");
-    }
-  }
-
   @Override
   public boolean supports(Script script) {
     return script != null && script.getType() == ScriptType.JS;
@@ -74,14 +50,4 @@ public class JavaScriptProcessor extends AbstractCompilableScriptProcessor {
     }
     return (Compilable) service.get().createEngine();
   }
-
-  @Override
-  protected ThreadLocalExecution<Object, Function<ParameterAndResult, Object>> getParamResultFunctions() {
-    return PARAM_RESULT_FUNCTIONS.get();
-  }
-
-  @Override
-  protected ThreadLocalExecution<Object, Function<ParameterAndResultPair, Object>> getParamResultPairFunctions() {
-    return PARAM_RESULT_PAIR_FUNCTIONS.get();
-  }
 }
@@ -44,6 +44,7 @@ import org.corant.modules.json.Jsons;
 import org.corant.modules.json.expression.EvaluationContext;
 import org.corant.modules.json.expression.FunctionResolver;
 import org.corant.modules.json.expression.Node;
+import org.corant.modules.json.expression.SimpleCompiler;
 import org.corant.modules.json.expression.SimpleParser;
 import org.corant.modules.json.expression.ast.ASTFunctionNode;
 import org.corant.modules.json.expression.ast.ASTNode;
@@ -101,6 +102,9 @@ public class JsonExpressionScriptProcessor extends AbstractScriptProcessor {
       new ConcurrentHashMap<>();
   protected static final List<FunctionResolver> functionResolvers =
       SimpleParser.resolveFunction().collect(Collectors.toList());
+  // the function resolution of the evaluation context doesn't depend on the evaluation state
+  protected static final EvaluationContext functionContext =
+      new MyEvaluationContext(null, null, functionResolvers);
 
   @Inject
   protected QueryObjectMapper mapper;
@@ -200,7 +204,8 @@ public class JsonExpressionScriptProcessor extends AbstractScriptProcessor {
   protected Function<ParameterAndResult, Object> createPreFetchFuns(FetchQuery fetchQuery,
       Script script) {
     final String code = script.getCode();
-    final Node<Boolean> ast = (Node<Boolean>) SimpleParser.parse(code, MyASTNodeBuilder.INST);
+    final Node<Boolean> ast = SimpleCompiler.compile(
+        (Node<Boolean>) SimpleParser.parse(code, MyASTNodeBuilder.INST), functionContext);
     return p -> {
       Map<Object, Object> r = (Map<Object, Object>) p.result;
       MyEvaluationContext evalCtx = new MyEvaluationContext(mapper, p.parameter, functionResolvers);
@@ -260,13 +265,15 @@ public class JsonExpressionScriptProcessor extends AbstractScriptProcessor {
     Node<Boolean> filter = null;
     Projector projector = null;
     if (filterMap != null) {
-      filter = forceCast(SimpleParser.parse(filterMap, MyASTNodeBuilder.INST));
+      filter = SimpleCompiler.compile(
+          forceCast(SimpleParser.parse(filterMap, MyASTNodeBuilder.INST)), functionContext);
     }
     if (projectionMap != null) {
       projector = resolveInjectProjector(projectionMap, single);
     }
     if (filter == null && projector == null) {
-      filter = forceCast(SimpleParser.parse(root, MyASTNodeBuilder.INST));
+      filter = SimpleCompiler.compile(forceCast(SimpleParser.parse(root, MyASTNodeBuilder.INST)),
+          functionContext);
     }
     return Pair.of(filter, projector);
   }
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.query.shared;
+
+import static org.corant.shared.util.Strings.split;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.beanutils.BeanUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * corant-modules-query-shared
+ *
+ * <p>
+ * Compares the property path access of the query result beans by commons-beanutils, as the query
+ * object mapper did before, with the compiled {@link PropertyPathAccessor}, for the paths of one,
+ * two and three segments.
+ *
+ * @author bingo 下午3:14:52
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PropertyPathBenchmark {
+
+  @Param({"name", "customer.name", "customer.address.city"})
+  String path;
+
+  String[] namePath;
+  Order order;
+
+  public static void main(String... args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(PropertyPathBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+
+  @Benchmark
+  public Object beanUtilsGet() throws Exception {
+    return BeanUtils.getProperty(order, path);
+  }
+
+  @Benchmark
+  public Order beanUtilsSet() throws Exception {
+    BeanUtils.setProperty(order, path, "value");
+    return order;
+  }
+
+  @Benchmark
+  public Object compiledGet() {
+    return PropertyPathAccessor.of(Order.class, namePath).get(order);
+  }
+
+  @Benchmark
+  public Order compiledSet() {
+    PropertyPathAccessor.of(Order.class, namePath).set(order, "value");
+    return order;
+  }
+
+  @Setup
+  public void setup() {
+    namePath = split(path, ".");
+    order = new Order();
+    order.setName("order");
+    order.setCustomer(new Customer());
+    order.getCustomer().setName("customer");
+    order.getCustomer().setAddress(new Address());
+    order.getCustomer().getAddress().setCity("city");
+  }
+
+  /**
+   * corant-modules-query-shared
+   *
+   * @author bingo 下午3:16:05
+   *
+   */
+  public static class Address {
+    String city;
+
+    public String getCity() {
+      return city;
+    }
+
+    public void setCity(String city) {
+      this.city = city;
+    }
+  }
+
+  /**
+   * corant-modules-query-shared
+   *
+   * @author bingo 下午3:16:38
+   *
+   */
+  public static class Customer {
+    String name;
+    Address address;
+
+    public Address getAddress() {
+      return address;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setAddress(Address address) {
+      this.address = address;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+  }
+
+  /**
+   * corant-modules-query-shared
+   *
+   * @author bingo 下午3:17:12
+   *
+   */
+  public static class Order {
+    String name;
+    Customer customer;
+
+    public Customer getCustomer() {
+      return customer;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setCustomer(Customer customer) {
+      this.customer = customer;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+  }
+}
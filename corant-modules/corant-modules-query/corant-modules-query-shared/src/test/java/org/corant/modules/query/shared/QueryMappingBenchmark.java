@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.query.shared;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.corant.modules.query.mapping.Query;
+import org.corant.modules.query.shared.QueryMappingService.QueryMappingSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * corant-modules-query-shared
+ *
+ * <p>
+ * Compares the query mapping lookup under the read lock, as the query mapping service did before,
+ * with the lookup on the volatile immutable snapshot, under the contention of 64 threads by
+ * default, use the JMH option '-t' to change the number of threads.
+ *
+ * @author bingo 下午2:31:05
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(64)
+@Fork(1)
+public class QueryMappingBenchmark {
+
+  @Param({"500"})
+  int queries;
+
+  final ReadWriteLock rwl = new ReentrantReadWriteLock();
+  final Map<String, Query> lockedQueries = new HashMap<>();
+  volatile QueryMappingSnapshot snapshot;
+  String[] names;
+
+  public static void main(String... args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(QueryMappingBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+
+  @Benchmark
+  public Query readLocked() {
+    final String name = names[ThreadLocalRandom.current().nextInt(names.length)];
+    Lock l = rwl.readLock();
+    try {
+      l.lock();
+      return lockedQueries.get(name);
+    } finally {
+      l.unlock();
+    }
+  }
+
+  @Setup
+  public void setup() {
+    names = new String[queries];
+    Map<String, Query> map = new HashMap<>();
+    for (int i = 0; i < queries; i++) {
+      names[i] = "QueryService.query" + i;
+      map.put(names[i], new Query());
+    }
+    lockedQueries.putAll(map);
+    snapshot = new QueryMappingSnapshot(map, 1);
+  }
+
+  @Benchmark
+  public Query snapshot() {
+    final String name = names[ThreadLocalRandom.current().nextInt(names.length)];
+    return snapshot.getQuery(name);
+  }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.query.shared.dynamic.freemarker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.corant.shared.util.Lists.listOf;
+import static org.corant.shared.util.Maps.mapOf;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import org.corant.modules.query.QueryParameter;
+import org.corant.modules.query.QueryParameter.DefaultQueryParameter;
+import org.corant.modules.query.shared.dynamic.freemarker.FreemarkerRenderedScriptCache.BindingTracer;
+import org.corant.shared.exception.CorantRuntimeException;
+import org.junit.Test;
+import freemarker.ext.util.WrapperTemplateModel;
+import freemarker.template.TemplateModelException;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-query-shared
+ *
+ * @author bingo 上午11:06:27
+ *
+ */
+public class FreemarkerRenderedScriptCacheTest extends TestCase {
+
+  final AtomicInteger renders = new AtomicInteger();
+
+  // renders the criteria entries in key order, binds the values through the template method model
+  final BiFunction<QueryParameter, DynamicTemplateMethodModelEx<List<Object>>, String> renderer =
+      (param, tmm) -> {
+        renders.incrementAndGet();
+        StringBuilder sql = new StringBuilder("SELECT * FROM t WHERE 1=1");
+        Map<?, ?> criteria = new TreeMap<>((Map<?, ?>) param.getCriteria());
+        criteria.forEach((k, v) -> {
+          if (v != null) {
+            sql.append(" AND ").append(k).append(" = ").append(bind(tmm, v));
+          }
+        });
+        return sql.toString();
+      };
+
+  static Object bind(DynamicTemplateMethodModelEx<?> tmm, Object value) {
+    try {
+      return tmm.exec(listOf((WrapperTemplateModel) () -> value));
+    } catch (TemplateModelException e) {
+      throw new CorantRuntimeException(e);
+    }
+  }
+
+  @Test
+  public void testAmbiguousValuesAreNotCached() {
+    FreemarkerRenderedScriptCache cache = new FreemarkerRenderedScriptCache("q", 8);
+    Object shared = new Object();
+    QueryParameter param = param(mapOf("a", shared, "b", shared));
+    BindingTracer tracer = new BindingTracer(param);
+    tracer.record(shared, null, null);
+    assertThat(tracer.ambiguous).isTrue();
+
+    cache.resolve(param, new PlaceholderTmm(), renderer);
+    cache.resolve(param, new PlaceholderTmm(), renderer);
+    assertThat(renders.get()).isEqualTo(2);
+    assertThat(cache.getSize()).isZero();
+  }
+
+  @Test
+  public void testBoundedShapes() {
+    FreemarkerRenderedScriptCache cache = new FreemarkerRenderedScriptCache("q", 2);
+    for (int i = 0; i < 8; i++) {
+      cache.resolve(param(mapOf("k" + i, new Object())), new PlaceholderTmm(), renderer);
+    }
+    // the new shapes are still admitted after the cache is full
+    QueryParameter param = param(mapOf("x", new Object()));
+    cache.resolve(param, new PlaceholderTmm(), renderer);
+    long hits = cache.getHits();
+    cache.resolve(param(mapOf("x", new Object())), new PlaceholderTmm(), renderer);
+    assertThat(cache.getHits()).isEqualTo(hits + 1);
+    assertThat(cache.getSize()).isLessThanOrEqualTo(2);
+  }
+
+  @Test
+  public void testReplayBindings() {
+    FreemarkerRenderedScriptCache cache = new FreemarkerRenderedScriptCache("q", 8);
+    PlaceholderTmm first = new PlaceholderTmm();
+    String script = cache.resolve(param(mapOf("name", "bingo", "ids", listOf(1L, 2L), "age", null)),
+        first, renderer).getRight();
+    assertThat(script).isEqualTo("SELECT * FROM t WHERE 1=1 AND ids = ? AND name = ?");
+    assertThat(first.getParameters()).containsExactly(listOf(1L, 2L), "bingo");
+
+    PlaceholderTmm second = new PlaceholderTmm();
+    assertThat(cache.resolve(param(mapOf("age", null, "name", "chen", "ids", listOf(3L, 4L))),
+        second, renderer).getRight()).isEqualTo(script);
+    assertThat(second.getParameters()).containsExactly(listOf(3L, 4L), "chen");
+    assertThat(renders.get()).isEqualTo(1);
+    assertThat(cache.getHits()).isEqualTo(1);
+    assertThat(cache.getMisses()).isEqualTo(1);
+
+    // the null value and the collection size are parts of the shape
+    cache.resolve(param(mapOf("name", "chen", "ids", listOf(3L, 4L, 5L), "age", null)),
+        new PlaceholderTmm(), renderer);
+    cache.resolve(param(mapOf("name", "chen", "ids", listOf(3L, 4L), "age", 30)),
+        new PlaceholderTmm(), renderer);
+    assertThat(renders.get()).isEqualTo(3);
+    assertThat(cache.getMisses()).isEqualTo(3);
+  }
+
+  @Test
+  public void testShape() {
+    FreemarkerRenderedScriptCache cache = new FreemarkerRenderedScriptCache("q", 8);
+    String shape = cache.resolveShape(param(mapOf("a", 1, "b", "x", "c", listOf(1, 2))));
+    assertThat(cache.resolveShape(param(mapOf("c", listOf(3, 4), "b", "y", "a", 2))))
+        .isEqualTo(shape);
+    assertThat(cache.resolveShape(param(mapOf("a", 1, "b", null, "c", listOf(1, 2)))))
+        .isNotEqualTo(shape);
+    assertThat(cache.resolveShape(param(mapOf("a", 1, "b", "x", "c", listOf(1)))))
+        .isNotEqualTo(shape);
+    assertThat(cache.resolveShape(param(mapOf("a", 1, "b", "x", "c", listOf(1, 2), "d", 1))))
+        .isNotEqualTo(shape);
+    assertThat(cache.resolveShape(param(mapOf("a", true)))).isNotEqualTo(
+        cache.resolveShape(param(mapOf("a", false))));
+    assertThat(cache.resolveShape(param(mapOf("a", 1)).limit(10)))
+        .isNotEqualTo(cache.resolveShape(param(mapOf("a", 1))));
+    // the criteria that is not a map or is too deep has no shape
+    assertThat(cache.resolveShape(param("criteria"))).isNull();
+    Object deep = 1;
+    for (int i = 0; i <= FreemarkerRenderedScriptCache.MAX_SHAPE_DEPTH; i++) {
+      deep = Collections.singletonMap("n", deep);
+    }
+    assertThat(cache.resolveShape(param(deep))).isNull();
+  }
+
+  @Test
+  public void testTracePaths() {
+    Object name = new Object();
+    Object id = new Object();
+    QueryParameter param =
+        param(mapOf("name", name, "ids", listOf(new Object(), id))).context(mapOf("tenant", 1L));
+    BindingTracer tracer = new BindingTracer(param);
+    tracer.record(id, Long.class, null);
+    tracer.record(name, null, null);
+    assertThat(tracer.traceable).isTrue();
+    assertThat(tracer.ambiguous).isFalse();
+    assertThat(tracer.bindings).hasSize(2);
+    assertThat(tracer.bindings.get(0).resolve(param)).isSameAs(id);
+    assertThat(tracer.bindings.get(0).expectedType).isEqualTo(Long.class);
+    assertThat(tracer.bindings.get(1).resolve(param)).isSameAs(name);
+    // the value computed in the template can't be traced
+    tracer.record(new Object(), null, null);
+    assertThat(tracer.traceable).isFalse();
+  }
+
+  DefaultQueryParameter param(Object criteria) {
+    return new DefaultQueryParameter().criteria(criteria);
+  }
+
+  /**
+   * corant-modules-query-shared
+   *
+   * @author bingo 上午11:06:27
+   *
+   */
+  static class PlaceholderTmm extends AbstractTemplateMethodModelEx<List<Object>> {
+
+    final List<Object> parameters = new ArrayList<>();
+
+    @Override
+    public Object exec(@SuppressWarnings("rawtypes") List arguments)
+        throws TemplateModelException {
+      return bindParamValue(getParamValue(arguments));
+    }
+
+    @Override
+    public List<Object> getParameters() {
+      return parameters;
+    }
+
+    @Override
+    public boolean isReplayable() {
+      return true;
+    }
+
+    @Override
+    protected Object bindParamValue(Object value) {
+      parameters.add(value);
+      return "?";
+    }
+  }
+}
@@ -13,32 +13,69 @@
  */
 package org.corant.modules.query.sql;
 
+import static org.corant.modules.query.QueryParameter.CTX_QHH_DONT_CONVERT_RESULT;
+import static org.corant.shared.util.Empties.isEmpty;
 import static org.corant.shared.util.Empties.sizeOf;
+import static org.corant.shared.util.Maps.getMapBoolean;
 import static org.corant.shared.util.Maps.getMapInteger;
 import static org.corant.shared.util.Objects.max;
+import static org.corant.shared.util.Primitives.isSimpleClass;
 import static org.corant.shared.util.Streams.batchStream;
+import static org.corant.shared.util.Strings.isBlank;
+import static org.corant.shared.util.Strings.split;
 import java.sql.SQLException;
 import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.stream.Stream;
+import org.corant.config.Configs;
 import org.corant.modules.query.Querier;
 import org.corant.modules.query.QueryParameter;
 import org.corant.modules.query.QueryRuntimeException;
 import org.corant.modules.query.StreamQueryParameter;
 import org.corant.modules.query.mapping.FetchQuery;
+import org.corant.modules.query.mapping.Query;
 import org.corant.modules.query.shared.AbstractNamedQuerierResolver;
 import org.corant.modules.query.shared.AbstractNamedQueryService;
 import org.corant.modules.query.sql.dialect.Dialect;
+import org.corant.shared.ubiquity.Tuple.Pair;
 
 /**
  * corant-modules-query-sql
  *
+ * <p>
+ * If the bean row mapper is enabled, globally by configuration
+ * {@code corant.query.sql.use-bean-row-mapper=true} or by the query property
+ * {@code .use-bean-row-mapper=true}, and the result class of the query is a java bean class and
+ * the query has no fetch queries and no result hints, the get, select, forward, page and stream
+ * queries map the result set rows to the beans directly without the intermediate maps. It's
+ * disabled by default, since the bean row mapper converts the column values by the column labels
+ * and the bean property types, it doesn't apply the customized object mapper configurations (e.g.
+ * the naming strategy or the custom deserializers) used by the result conversion of the query
+ * handler.
+ *
+ * <p>
+ * If the query property {@code .seek-keys} is specified, the forward queries use the seek (keyset)
+ * pagination instead of the offset pagination, the property value is the comma separated ordered
+ * keys, each key is a column label of the query result optionally followed by ASC or DESC, for
+ * example {@code created_time DESC, id}, the last key must be unique. The first forward query
+ * starts at the offset, the following forward queries start after the key values of the last
+ * record of the previous query, which are carried by the {@link StreamQueryParameter}
+ * automatically.
+ *
  * @author bingo 下午5:33:21
  *
  */
 public abstract class AbstractSqlNamedQueryService extends AbstractNamedQueryService {
 
+  public static final String PRO_KEY_USE_BEAN_ROW_MAPPER = ".use-bean-row-mapper";
+  public static final String PRO_KEY_SEEK_KEYS = ".seek-keys";
+
+  protected static final boolean USE_BEAN_ROW_MAPPER =
+      Configs.getValue("corant.query.sql.use-bean-row-mapper", Boolean.class, Boolean.FALSE);
+
   @Override
   public FetchResult fetch(Object result, FetchQuery fetchQuery, Querier parentQuerier) {
     try {
@@ -89,13 +126,17 @@ public abstract class AbstractSqlNamedQueryService extends AbstractNamedQuerySer
       String sql = querier.getScript();
       Duration timeout = querier.resolveTimeout();
       log(queryName, scriptParameter, sql);
-      return batchStream(querier.resolveStreamLimit(), getExecutor().stream(sql,
-          useQueryParam.getTerminator(), timeout, useQueryParam.isAutoClose(), scriptParameter))
-              .flatMap(list -> {
-                this.fetch(list, querier);
-                List<T> results = querier.handleResults(list);
-                return results.stream();
-              });
+      final Stream<Object> rows = useBeanRowMapper(querier)
+          ? getExecutor().stream(sql, querier.getQuery().getResultClass(),
+              useQueryParam.getTerminator(), timeout, useQueryParam.isAutoClose(),
+              scriptParameter)
+          : getExecutor().stream(sql, useQueryParam.getTerminator(), timeout,
+              useQueryParam.isAutoClose(), scriptParameter).map(Object.class::cast);
+      return batchStream(querier.resolveStreamLimit(), rows).flatMap(list -> {
+        this.fetch(list, querier);
+        List<T> results = querier.handleResults(list);
+        return results.stream();
+      });
     }
   }
 
@@ -108,16 +149,33 @@ public abstract class AbstractSqlNamedQueryService extends AbstractNamedQuerySer
     int limit = querier.resolveLimit();
     Duration timeout = querier.resolveTimeout();
     Map<String, String> properties = querier.getQuery().getProperties();
-    String limitSql = getDialect().getLimitSql(sql, offset, limit + 1, properties);
+    Map<String, Boolean> seekKeys = resolveSeekKeys(querier);
+    String limitSql;
+    if (seekKeys != null) {
+      QueryParameter queryParam = querier.getQueryParameter();
+      Object[] seekValues = queryParam instanceof StreamQueryParameter
+          ? ((StreamQueryParameter) queryParam).getSeekValues()
+          : null;
+      Pair<String, Object[]> seek = getDialect().getSeekSql(sql, scriptParameter, seekKeys,
+          seekValues, offset, limit + 1, properties);
+      limitSql = seek.getLeft();
+      scriptParameter = seek.getRight();
+    } else {
+      limitSql = getDialect().getLimitSql(sql, offset, limit + 1, properties);
+    }
     log(queryName, scriptParameter, sql, "Limit script: " + limitSql);
     Forwarding<T> result = Forwarding.inst();
-    List<Map<String, Object>> list = getExecutor().select(limitSql, timeout, scriptParameter);
+    List<?> list = select(querier, limitSql, 0, timeout, scriptParameter);
     int size = sizeOf(list);
     if (size > 0) {
       if (size > limit) {
         list.remove(limit);
         result.withHasNext(true);
       }
+      if (seekKeys != null && querier.getQueryParameter() instanceof StreamQueryParameter) {
+        ((StreamQueryParameter) querier.getQueryParameter())
+            .seek(resolveSeekValues(list.get(list.size() - 1), seekKeys));
+      }
       this.fetch(list, querier);
     }
     return result.withResults(querier.handleResults(list));
@@ -131,7 +189,9 @@ public abstract class AbstractSqlNamedQueryService extends AbstractNamedQuerySer
     String sql = querier.getScript();
     Duration timeout = querier.resolveTimeout();
     log(queryName, scriptParameter, sql);
-    Map<String, Object> result = getExecutor().get(sql, timeout, scriptParameter);
+    Object result = useBeanRowMapper(querier)
+        ? getExecutor().get(sql, querier.getQuery().getResultClass(), timeout, scriptParameter)
+        : getExecutor().get(sql, timeout, scriptParameter);
     this.fetch(result, querier);
     return querier.handleResult(result);
 
@@ -148,7 +208,7 @@ public abstract class AbstractSqlNamedQueryService extends AbstractNamedQuerySer
     Map<String, String> properties = querier.getQuery().getProperties();
     String limitSql = getDialect().getLimitSql(sql, offset, limit, properties);
     log(queryName, scriptParameter, sql, "Limit script: " + limitSql);
-    List<Map<String, Object>> list = getExecutor().select(limitSql, timeout, scriptParameter);
+    List<?> list = select(querier, limitSql, 0, timeout, scriptParameter);
     Paging<T> result = Paging.of(offset, limit);
     int size = sizeOf(list);
     if (size > 0) {
@@ -174,8 +234,7 @@ public abstract class AbstractSqlNamedQueryService extends AbstractNamedQuerySer
     Duration timeout = querier.resolveTimeout();
     // sql = getDialect().getLimitSql(sql, maxSelectSize + 1);
     log(queryName, scriptParameter, sql);
-    List<Map<String, Object>> results =
-        getExecutor().select(sql, maxSelectSize + 1, timeout, scriptParameter);
+    List<?> results = select(querier, sql, maxSelectSize + 1, timeout, scriptParameter);
     if (querier.handleResultSize(results) > 0) {
       this.fetch(results, querier);
     }
@@ -191,4 +250,113 @@ public abstract class AbstractSqlNamedQueryService extends AbstractNamedQuerySer
   @Override
   protected abstract AbstractNamedQuerierResolver<SqlNamedQuerier> getQuerierResolver();
 
+  /**
+   * Returns the ordered seek keys of the given querier, the key is the column label resolved by
+   * {@link Dialect#resolveSeekKey(String)} and the value indicates whether the column is sorted in
+   * ascending order, returns null if the seek pagination is not specified.
+   *
+   * @param querier the querier
+   *
+   * @see #PRO_KEY_SEEK_KEYS
+   */
+  protected Map<String, Boolean> resolveSeekKeys(SqlNamedQuerier querier) {
+    String seekKeys = querier.resolveProperty(PRO_KEY_SEEK_KEYS, String.class, null);
+    if (isBlank(seekKeys)) {
+      return null;
+    }
+    Map<String, Boolean> keys = new LinkedHashMap<>();
+    for (String key : split(seekKeys, ",", true, true)) {
+      String[] parts = split(key, true, true, Character::isWhitespace);
+      if (parts.length > 2 || parts.length == 2
+          && !"ASC".equalsIgnoreCase(parts[1]) && !"DESC".equalsIgnoreCase(parts[1])) {
+        throw new QueryRuntimeException("The seek key [%s] of query [%s] is illegal.", key,
+            querier.getQuery().getVersionedName());
+      }
+      keys.put(getDialect().resolveSeekKey(parts[0]),
+          parts.length == 1 || "ASC".equalsIgnoreCase(parts[1]));
+    }
+    return keys;
+  }
+
+  /**
+   * Returns the seek key values of the given record, the record can be a map or a java bean. The
+   * seek keys are the resolved column labels, the quotes of the labels are removed to look up the
+   * record. For the map record, if the key is not found then the key is matched ignoring case,
+   * since some databases return the upper case column labels. Since the seek condition can't match
+   * the null key values, throws exception if any key value is null, the seek keys should be not
+   * null columns.
+   *
+   * @param record the last record of the forward query
+   * @param seekKeys the ordered seek keys
+   */
+  @SuppressWarnings("rawtypes")
+  protected Object[] resolveSeekValues(Object record, Map<String, Boolean> seekKeys) {
+    final Object[] values = new Object[seekKeys.size()];
+    int i = 0;
+    for (String key : seekKeys.keySet()) {
+      String name = key.replaceAll("[\"`\\[\\]]", "");
+      if (record instanceof Map) {
+        Map map = (Map) record;
+        Object value = map.get(name);
+        if (value == null && !map.containsKey(name)) {
+          final String upperName = name.toUpperCase(Locale.ROOT);
+          for (Object entry : map.entrySet()) {
+            Object label = ((Map.Entry) entry).getKey();
+            if (label != null && label.toString().toUpperCase(Locale.ROOT).equals(upperName)) {
+              value = ((Map.Entry) entry).getValue();
+              break;
+            }
+          }
+        }
+        values[i++] = value;
+      } else {
+        values[i++] = getQuerierResolver().getQueryHandler().getObjectMapper()
+            .getMappedValue(record, new String[] {name});
+      }
+      if (values[i - 1] == null) {
+        throw new QueryRuntimeException(
+            "Can't seek the next batch, the seek key [%s] of the last record is null or missing.",
+            key);
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Execute the query, if the rows can be mapped to the result class directly then returns the
+   * result objects else returns the maps.
+   *
+   * @param querier the querier
+   * @param sql the query script
+   * @param expectRows the expected rows
+   * @param timeout the query timeout
+   * @param scriptParameter the query script parameters
+   * @throws SQLException if a database access error occurs
+   */
+  protected List<?> select(SqlNamedQuerier querier, String sql, int expectRows, Duration timeout,
+      Object[] scriptParameter) throws SQLException {
+    if (useBeanRowMapper(querier)) {
+      return getExecutor().select(sql, querier.getQuery().getResultClass(), expectRows, timeout,
+          scriptParameter);
+    }
+    return getExecutor().select(sql, expectRows, timeout, scriptParameter);
+  }
+
+  /**
+   * Returns whether the rows can be mapped to the result class directly, the result conversion of
+   * the query handler is skipped for the mapped results.
+   *
+   * @param querier the querier
+   */
+  protected boolean useBeanRowMapper(SqlNamedQuerier querier) {
+    final Query query = querier.getQuery();
+    final Class<?> resultClass = query.getResultClass();
+    return resultClass != null && resultClass != Object.class
+        && !Map.class.isAssignableFrom(resultClass) && !isSimpleClass(resultClass)
+        && isEmpty(query.getFetchQueries()) && isEmpty(query.getHints())
+        && !getMapBoolean(querier.getQueryParameter().getContext(), CTX_QHH_DONT_CONVERT_RESULT,
+            false)
+        && querier.resolveProperty(PRO_KEY_USE_BEAN_ROW_MAPPER, Boolean.class, USE_BEAN_ROW_MAPPER);
+  }
+
 }
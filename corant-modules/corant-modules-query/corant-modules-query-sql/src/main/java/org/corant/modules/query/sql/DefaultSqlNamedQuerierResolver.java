@@ -52,6 +52,12 @@ public class DefaultSqlNamedQuerierResolver extends AbstractNamedQuerierResolver
   @ConfigProperty(name = "corant.query.sql.mapping-file.paths")
   protected Optional<String> mappingFilePaths;
 
+  @GuardedBy("QueryMappingService.rwl.writeLock")
+  @Override
+  public void afterQueryMappingInitialized(Collection<Query> queries, long initializedVersion) {
+    clearBuilders();
+  }
+
   @GuardedBy("QueryMappingService.rwl.writeLock")
   @Override
   public void beforeQueryMappingInitialize(Collection<Query> queries, long initializedVersion) {
@@ -70,7 +76,6 @@ public class DefaultSqlNamedQuerierResolver extends AbstractNamedQuerierResolver
   public DefaultSqlNamedQuerier resolve(String name, Object param) {
     DynamicQuerierBuilder builder = builders.get(name);
     if (builder == null) {
-      // Note: this.builders & QueryMappingService.queries may cause dead lock
       Query query = resolveQuery(name);
       builder = builders.computeIfAbsent(name, k -> createBuilder(query));
     }
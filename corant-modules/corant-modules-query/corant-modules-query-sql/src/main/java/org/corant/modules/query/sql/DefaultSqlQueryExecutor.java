@@ -27,6 +27,8 @@ import javax.sql.DataSource;
 import org.apache.commons.dbutils.handlers.MapHandler;
 import org.apache.commons.dbutils.handlers.MapListHandler;
 import org.corant.modules.datasource.shared.util.DbUtilBasicRowProcessor;
+import org.corant.modules.datasource.shared.util.DbUtilBeanHandler;
+import org.corant.modules.datasource.shared.util.DbUtilBeanListHandler;
 import org.corant.modules.query.QueryRuntimeException;
 import org.corant.modules.query.sql.dialect.Dialect;
 import org.corant.shared.exception.CorantRuntimeException;
@@ -83,6 +85,16 @@ public class DefaultSqlQueryExecutor implements SqlQueryExecutor {
     return forceCast(result);
   }
 
+  @Override
+  public Object get(String sql, Class<?> resultClass, Duration timeout, Object... args)
+      throws SQLException {
+    DbUtilBeanHandler handler = new DbUtilBeanHandler(resultClass);
+    if (args.length > 0) {
+      return getRunner().select(sql, handler, 1, timeout, args);
+    }
+    return getRunner().select(sql, handler, 1, timeout);
+  }
+
   @Override
   public Dialect getDialect() {
     return dialect;
@@ -100,6 +112,16 @@ public class DefaultSqlQueryExecutor implements SqlQueryExecutor {
     return forceCast(result);
   }
 
+  @Override
+  public List<Object> select(String sql, Class<?> resultClass, int expectRows, Duration timeout,
+      Object... args) throws SQLException {
+    DbUtilBeanListHandler handler = new DbUtilBeanListHandler(resultClass);
+    if (args.length > 0) {
+      return getRunner().select(sql, handler, expectRows, timeout, args);
+    }
+    return getRunner().select(sql, handler, expectRows, timeout);
+  }
+
   @Override
   public Stream<Map<String, Object>> stream(String sql, BiPredicate<Integer, Object> terminater,
       Duration timeout, boolean autoClose, Object... args) {
@@ -112,6 +134,19 @@ public class DefaultSqlQueryExecutor implements SqlQueryExecutor {
     }
   }
 
+  @Override
+  public Stream<Object> stream(String sql, Class<?> resultClass,
+      BiPredicate<Integer, Object> terminater, Duration timeout, boolean autoClose,
+      Object... args) {
+    try {
+      return new StreamableQueryRunner(confiuration, timeout).streamQuery(
+          confiuration.getDataSource().getConnection(), true, sql,
+          new DbUtilBeanHandler(resultClass), terminater, autoClose, args);
+    } catch (SQLException e) {
+      throw new CorantRuntimeException(e);
+    }
+  }
+
   protected DefaultQueryRunner getRunner() {
     return runner;
   }
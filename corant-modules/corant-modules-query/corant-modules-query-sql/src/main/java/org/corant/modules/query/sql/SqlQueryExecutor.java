@@ -15,6 +15,7 @@ package org.corant.modules.query.sql;
 
 import java.sql.SQLException;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.function.BiPredicate;
@@ -31,6 +32,22 @@ public interface SqlQueryExecutor {
 
   Map<String, Object> get(String sql, Duration timeout, Object... args) throws SQLException;
 
+  /**
+   * Execute the query and map the first row to the given result class directly without the
+   * intermediate map. If the result class is not supported by the implementation, the row is
+   * returned as a map, the caller should check the result.
+   *
+   * @param sql the query SQL
+   * @param resultClass the expected result class
+   * @param timeout the query timeout
+   * @param args the query parameters
+   * @throws SQLException if a database access error occurs
+   */
+  default Object get(String sql, Class<?> resultClass, Duration timeout, Object... args)
+      throws SQLException {
+    return get(sql, timeout, args);
+  }
+
   Dialect getDialect();
 
   default List<Map<String, Object>> select(String sql, Duration timeout, Object... args)
@@ -41,7 +58,42 @@ public interface SqlQueryExecutor {
   List<Map<String, Object>> select(String sql, int expectRows, Duration timeout, Object... args)
       throws SQLException;
 
+  /**
+   * Execute the query and map the rows to the given result class directly without the intermediate
+   * maps. If the result class is not supported by the implementation, the rows are returned as
+   * maps, the caller should check the results.
+   *
+   * @param sql the query SQL
+   * @param resultClass the expected result class
+   * @param expectRows the expected rows
+   * @param timeout the query timeout
+   * @param args the query parameters
+   * @throws SQLException if a database access error occurs
+   */
+  default List<Object> select(String sql, Class<?> resultClass, int expectRows, Duration timeout,
+      Object... args) throws SQLException {
+    return new ArrayList<>(select(sql, expectRows, timeout, args));
+  }
+
   Stream<Map<String, Object>> stream(String sql, BiPredicate<Integer, Object> terminater,
       Duration timeout, boolean autoClose, Object... args);
 
+  /**
+   * Execute the streaming query and map the rows to the given result class directly without the
+   * intermediate maps. If the result class is not supported by the implementation, the rows are
+   * returned as maps, the caller should check the results.
+   *
+   * @param sql the query SQL
+   * @param resultClass the expected result class
+   * @param terminater the stream terminater
+   * @param timeout the query timeout
+   * @param autoClose whether to close the stream automatically
+   * @param args the query parameters
+   */
+  default Stream<Object> stream(String sql, Class<?> resultClass,
+      BiPredicate<Integer, Object> terminater, Duration timeout, boolean autoClose,
+      Object... args) {
+    return stream(sql, terminater, timeout, autoClose, args).map(Object.class::cast);
+  }
+
 }
@@ -61,20 +61,7 @@ public class SqlTemplateMethodModelEx extends AbstractTemplateMethodModelEx<Obje
   @Override
   public Object exec(List arguments) throws TemplateModelException {
     if (isNotEmpty(arguments)) {
-      Object arg = getParamValue(arguments);
-      if (arg instanceof List) {
-        List argList = (List) arg;
-        int argSize = argList.size();
-        String[] placeHolders = new String[argSize];
-        for (int i = 0; i < argSize; i++) {
-          parameters.add(argList.get(i));
-          placeHolders[i] = SQL_PS_PLACE_HOLDER;
-        }
-        return new SimpleScalar(String.join(",", placeHolders));
-      } else {
-        parameters.add(arg);
-        return SQL_SS_PLACE_HOLDER;
-      }
+      return bindParamValue(getParamValue(arguments));
     }
     return arguments;
   }
@@ -84,4 +71,27 @@ public class SqlTemplateMethodModelEx extends AbstractTemplateMethodModelEx<Obje
     return parameters.toArray(new Object[parameters.size()]);
   }
 
+  @Override
+  public boolean isReplayable() {
+    return true;
+  }
+
+  @SuppressWarnings({"rawtypes"})
+  @Override
+  protected Object bindParamValue(Object arg) {
+    if (arg instanceof List) {
+      List argList = (List) arg;
+      int argSize = argList.size();
+      String[] placeHolders = new String[argSize];
+      for (int i = 0; i < argSize; i++) {
+        parameters.add(argList.get(i));
+        placeHolders[i] = SQL_PS_PLACE_HOLDER;
+      }
+      return new SimpleScalar(String.join(",", placeHolders));
+    } else {
+      parameters.add(arg);
+      return SQL_SS_PLACE_HOLDER;
+    }
+  }
+
 }
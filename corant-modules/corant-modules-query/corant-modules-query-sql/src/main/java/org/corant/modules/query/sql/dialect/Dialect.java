@@ -15,11 +15,18 @@ package org.corant.modules.query.sql.dialect;
 
 import static org.corant.shared.util.Lists.immutableListOf;
 import static org.corant.shared.util.Maps.getMapBoolean;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import org.corant.modules.datasource.shared.SqlStatements;
+import org.corant.modules.query.QueryRuntimeException;
 import org.corant.modules.query.shared.dynamic.SqlHelper;
+import org.corant.shared.ubiquity.Tuple.Pair;
 
 /**
  * corant-modules-query-sql
@@ -34,6 +41,7 @@ public interface Dialect {
   String COUNT_FIELD_NAME = "total_";
   String COUNT_TEMP_TABLE_NAME = "tmp_count_";
   String USE_DEFAULT_COUNT_SQL_HINT_KEY = "_use_default_count_sql";
+  String SEEK_TEMP_TABLE_NAME = "seek_";
 
   default Collection<String> getAggregationFunctionNames() {
     return AGGREGATE_FUNCTIONS;
@@ -100,6 +108,150 @@ public interface Dialect {
     return SqlHelper.removeOrderBy(sql);
   }
 
+  /**
+   * Convert SQL statement to the seek (keyset) paging SQL. The SQL statement is wrapped as a
+   * derived table, the rows after the given last key values are filtered by the seek condition and
+   * ordered by the keys, the original ORDER BY clause is replaced, so that the database can seek
+   * the page start by the index of the keys instead of scanning and discarding the rows before the
+   * offset. The keys reference the column labels of the SQL statement result, since the derived
+   * table hides the table qualifiers, the keys are resolved by {@link #resolveSeekKey(String)}
+   * before use. The last key must be unique, and the keys should be not null columns, since the
+   * seek condition can't match the null key values, the null last key values are rejected.
+   *
+   * @param sql to convert SQL
+   * @param parameters the SQL statement parameters
+   * @param keys the ordered keys, the key is the column label and the value indicates whether the
+   *        column is sorted in ascending order
+   * @param lastValues the key values of the last row of the previous page, null for the first page
+   * @param offset begin offset, only used for the first page
+   * @param limit the fetched size
+   * @param hints the hints use to improve the execution process
+   * @return the seek paging SQL statement and its parameters, the parameters are the given SQL
+   *         statement parameters followed by the seek condition parameters
+   */
+  default Pair<String, Object[]> getSeekSql(String sql, Object[] parameters,
+      Map<String, Boolean> keys, Object[] lastValues, int offset, int limit,
+      Map<String, ?> hints) {
+    final Map<String, Boolean> seekKeys = new LinkedHashMap<>();
+    keys.forEach((k, v) -> seekKeys.put(resolveSeekKey(k), v));
+    StringBuilder seekSql = new StringBuilder(sql.length() + 128).append("SELECT * FROM ( ")
+        .append(getNonOrderByPart(sql)).append(" ) ").append(SEEK_TEMP_TABLE_NAME);
+    List<Object> seekParameters = new ArrayList<>();
+    if (parameters != null) {
+      seekParameters.addAll(Arrays.asList(parameters));
+    }
+    if (lastValues != null) {
+      if (lastValues.length != seekKeys.size()) {
+        throw new QueryRuntimeException("The seek values %s don't match the seek keys %s.",
+            Arrays.toString(lastValues), seekKeys.keySet());
+      }
+      int i = 0;
+      for (String key : seekKeys.keySet()) {
+        if (lastValues[i++] == null) {
+          throw new QueryRuntimeException(
+              "The seek value of the key [%s] is null, the seek condition can't match the null.",
+              key);
+        }
+      }
+      seekSql.append(" WHERE ");
+      resolveSeekCondition(seekSql, seekParameters, seekKeys, lastValues);
+    }
+    seekSql.append(" ORDER BY ");
+    Iterator<Entry<String, Boolean>> it = seekKeys.entrySet().iterator();
+    while (it.hasNext()) {
+      Entry<String, Boolean> key = it.next();
+      seekSql.append(key.getKey()).append(key.getValue() ? " ASC" : " DESC");
+      if (it.hasNext()) {
+        seekSql.append(", ");
+      }
+    }
+    return Pair.of(
+        getLimitSql(seekSql.toString(), lastValues == null ? offset : 0, limit, hints),
+        seekParameters.toArray());
+  }
+
+  /**
+   * Append the row value seek condition {@code (k1,k2...kn) > (?,?...?)} to the given SQL if all
+   * the keys are sorted in the same direction, returns false if not appended.
+   *
+   * @param sql the SQL to append
+   * @param parameters the parameters to append
+   * @param keys the ordered keys
+   * @param lastValues the key values of the last row of the previous page
+   */
+  default boolean resolveRowValueSeekCondition(StringBuilder sql, List<Object> parameters,
+      Map<String, Boolean> keys, Object[] lastValues) {
+    if (keys.size() < 2 || keys.containsValue(Boolean.TRUE) && keys.containsValue(Boolean.FALSE)) {
+      return false;
+    }
+    sql.append('(').append(String.join(", ", keys.keySet())).append(')')
+        .append(keys.containsValue(Boolean.TRUE) ? " > (" : " < (");
+    for (int i = 0; i < lastValues.length; i++) {
+      sql.append(i > 0 ? ", ?" : "?");
+      parameters.add(lastValues[i]);
+    }
+    sql.append(')');
+    return true;
+  }
+
+  /**
+   * Returns the key used in the seek paging SQL of the given seek key. Since the SQL statement is
+   * wrapped as a derived table, only the column labels of the derived table can be referenced, the
+   * table qualifier of the given key is removed and the quotes are kept, for example the
+   * {@code t."createdTime"} is resolved to {@code "createdTime"}.
+   *
+   * @param key the seek key
+   */
+  default String resolveSeekKey(String key) {
+    int dot = -1;
+    char quote = 0;
+    for (int i = 0; i < key.length(); i++) {
+      char c = key.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '"' || c == '`') {
+        quote = c;
+      } else if (c == '[') {
+        quote = ']';
+      } else if (c == '.') {
+        dot = i;
+      }
+    }
+    return key.substring(dot + 1).trim();
+  }
+
+  /**
+   * Append the seek condition that matches the rows after the given last key values to the given
+   * SQL and append the condition parameters to the given parameters. For the keys k1,k2...kn, the
+   * default condition is {@code (k1 > ?) OR (k1 = ? AND k2 > ?) OR ...}, the {@code >} is replaced
+   * with {@code <} for the descending keys, it works for all databases and mixed sort directions.
+   *
+   * @param sql the SQL to append
+   * @param parameters the parameters to append
+   * @param keys the ordered keys
+   * @param lastValues the key values of the last row of the previous page
+   */
+  default void resolveSeekCondition(StringBuilder sql, List<Object> parameters,
+      Map<String, Boolean> keys, Object[] lastValues) {
+    String[] names = keys.keySet().toArray(String[]::new);
+    sql.append('(');
+    for (int i = 0; i < names.length; i++) {
+      if (i > 0) {
+        sql.append(" OR ");
+      }
+      sql.append('(');
+      for (int j = 0; j < i; j++) {
+        sql.append(names[j]).append(" = ? AND ");
+        parameters.add(lastValues[j]);
+      }
+      sql.append(names[i]).append(keys.get(names[i]) ? " > ?" : " < ?").append(')');
+      parameters.add(lastValues[i]);
+    }
+    sql.append(')');
+  }
+
   /**
    * Return whether the underling data base supports limitation sql.
    *
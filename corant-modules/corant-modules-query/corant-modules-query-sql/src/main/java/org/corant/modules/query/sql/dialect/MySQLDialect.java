@@ -106,6 +106,21 @@ public class MySQLDialect implements Dialect {
     return sql;
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>
+   * If all the keys are sorted in the same direction, the row value comparison is used, it can be
+   * satisfied by a range scan of the composite index of the keys in MySQL.
+   */
+  @Override
+  public void resolveSeekCondition(StringBuilder sql, List<Object> parameters,
+      Map<String, Boolean> keys, Object[] lastValues) {
+    if (!resolveRowValueSeekCondition(sql, parameters, keys, lastValues)) {
+      Dialect.super.resolveSeekCondition(sql, parameters, keys, lastValues);
+    }
+  }
+
   @Override
   public boolean supportsLimit() {
     return true;
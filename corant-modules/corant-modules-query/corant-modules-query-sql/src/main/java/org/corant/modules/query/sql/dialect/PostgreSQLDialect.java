@@ -13,6 +13,7 @@
  */
 package org.corant.modules.query.sql.dialect;
 
+import java.util.List;
 import java.util.Map;
 import org.corant.modules.query.shared.dynamic.SqlHelper;
 
@@ -60,6 +61,21 @@ public class PostgreSQLDialect implements Dialect {
     return sql;
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>
+   * If all the keys are sorted in the same direction, the row value comparison is used, it can be
+   * satisfied by a range scan of the composite index of the keys in PostgreSQL.
+   */
+  @Override
+  public void resolveSeekCondition(StringBuilder sql, List<Object> parameters,
+      Map<String, Boolean> keys, Object[] lastValues) {
+    if (!resolveRowValueSeekCondition(sql, parameters, keys, lastValues)) {
+      Dialect.super.resolveSeekCondition(sql, parameters, keys, lastValues);
+    }
+  }
+
   @Override
   public boolean supportsLimit() {
     return true;
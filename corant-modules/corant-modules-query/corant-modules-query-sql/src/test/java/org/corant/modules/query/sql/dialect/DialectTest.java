@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.query.sql.dialect;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.corant.modules.query.QueryRuntimeException;
+import org.corant.shared.ubiquity.Tuple.Pair;
+import org.junit.Test;
+import junit.framework.TestCase;
+
+/**
+ * corant-modules-query-sql
+ *
+ * @author bingo 下午4:36:18
+ *
+ */
+public class DialectTest extends TestCase {
+
+  static final String SQL = "SELECT * FROM t WHERE a = ?";
+
+  @Test
+  public void testResolveSeekCondition() {
+    StringBuilder sql = new StringBuilder();
+    List<Object> parameters = new ArrayList<>();
+    H2Dialect.INSTANCE.resolveSeekCondition(sql, parameters,
+        keys("a", true, "b", true, "c", false), new Object[] {1, 2, 3});
+    assertThat(sql.toString())
+        .isEqualTo("((a > ?) OR (a = ? AND b > ?) OR (a = ? AND b = ? AND c < ?))");
+    assertThat(parameters).containsExactly(1, 1, 2, 1, 2, 3);
+  }
+
+  @Test
+  public void testResolveSeekConditionRowValue() {
+    StringBuilder sql = new StringBuilder();
+    List<Object> parameters = new ArrayList<>();
+    MySQLDialect.INSTANCE.resolveSeekCondition(sql, parameters, keys("a", false, "b", false),
+        new Object[] {1, 2});
+    assertThat(sql.toString()).isEqualTo("(a, b) < (?, ?)");
+    assertThat(parameters).containsExactly(1, 2);
+    // the mixed sort directions fall back to the expanded condition
+    sql.setLength(0);
+    parameters.clear();
+    MySQLDialect.INSTANCE.resolveSeekCondition(sql, parameters, keys("a", true, "b", false),
+        new Object[] {1, 2});
+    assertThat(sql.toString()).isEqualTo("((a > ?) OR (a = ? AND b < ?))");
+    assertThat(parameters).containsExactly(1, 1, 2);
+  }
+
+  @Test
+  public void testResolveSeekKey() {
+    Dialect dialect = H2Dialect.INSTANCE;
+    assertThat(dialect.resolveSeekKey("id")).isEqualTo("id");
+    assertThat(dialect.resolveSeekKey("t.id")).isEqualTo("id");
+    assertThat(dialect.resolveSeekKey("s.t.\"created.time\"")).isEqualTo("\"created.time\"");
+    assertThat(dialect.resolveSeekKey("`t`.`id`")).isEqualTo("`id`");
+    assertThat(dialect.resolveSeekKey("[dbo].[t].[id]")).isEqualTo("[id]");
+  }
+
+  @Test
+  public void testSeekSqlFirstPage() {
+    Pair<String, Object[]> seek = MySQLDialect.INSTANCE.getSeekSql(SQL, new Object[] {"x"},
+        keys("t.created_time", false, "t.id", false), null, 5, 11, null);
+    assertThat(seek.getLeft()).isEqualTo("SELECT * FROM ( " + SQL
+        + " ) seek_ ORDER BY created_time DESC, id DESC LIMIT 5,11");
+    assertThat(seek.getRight()).containsExactly("x");
+  }
+
+  @Test
+  public void testSeekSqlNextPage() {
+    Pair<String, Object[]> seek = MySQLDialect.INSTANCE.getSeekSql(SQL, new Object[] {"x"},
+        keys("t.created_time", false, "t.id", false), new Object[] {100L, 9}, 5, 11, null);
+    // the offset is ignored and the qualified keys are resolved to the derived table labels
+    assertThat(seek.getLeft()).isEqualTo("SELECT * FROM ( " + SQL
+        + " ) seek_ WHERE (created_time, id) < (?, ?)"
+        + " ORDER BY created_time DESC, id DESC LIMIT 11");
+    assertThat(seek.getRight()).containsExactly("x", 100L, 9);
+    seek = H2Dialect.INSTANCE.getSeekSql(SQL, null, keys("\"Name\"", true, "id", false),
+        new Object[] {"n", 9}, 0, 11, null);
+    assertThat(seek.getLeft())
+        .contains(" seek_ WHERE ((\"Name\" > ?) OR (\"Name\" = ? AND id < ?))")
+        .contains(" ORDER BY \"Name\" ASC, id DESC");
+    assertThat(seek.getRight()).containsExactly("n", "n", 9);
+  }
+
+  @Test
+  public void testSeekSqlRejectsIllegalValues() {
+    Map<String, Boolean> keys = keys("a", true, "b", true);
+    assertThatThrownBy(() -> MySQLDialect.INSTANCE.getSeekSql(SQL, null, keys,
+        new Object[] {1, null}, 0, 10, null)).isInstanceOf(QueryRuntimeException.class);
+    assertThatThrownBy(() -> MySQLDialect.INSTANCE.getSeekSql(SQL, null, keys, new Object[] {1},
+        0, 10, null)).isInstanceOf(QueryRuntimeException.class);
+  }
+
+  static Map<String, Boolean> keys(Object... keyAndAscendings) {
+    Map<String, Boolean> keys = new LinkedHashMap<>();
+    for (int i = 0; i < keyAndAscendings.length; i += 2) {
+      keys.put((String) keyAndAscendings[i], (Boolean) keyAndAscendings[i + 1]);
+    }
+    return keys;
+  }
+}
@@ -28,9 +28,25 @@ import static org.corant.shared.util.Strings.defaultString;
 import static org.corant.shared.util.Strings.isBlank;
 import static org.corant.shared.util.Strings.isNotBlank;
 import static org.corant.shared.util.Strings.join;
+import java.io.EOFException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Collections;
@@ -38,13 +54,19 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.logging.Logger;
 import org.corant.modules.servlet.ContentDispositions.ContentDisposition;
 import org.corant.modules.servlet.HttpRanges.HttpRange;
 import org.corant.shared.normal.Defaults;
+import org.corant.shared.resource.FileSystemResource;
 import org.corant.shared.resource.LimitedStream.RangedInputStream;
+import org.corant.shared.resource.PathResource;
 import org.corant.shared.resource.Resource;
 import org.corant.shared.util.FileUtils;
 import org.corant.shared.util.Randoms;
@@ -85,9 +107,15 @@ public class HttpStreamOutput {
   public static final String MULTIPART_BYTE_RANGES_FMT = "multipart/byteranges; boundary=%s";
   public static final String NOT_SATISFIABLE_FMT = HEADER_VALUE_BYTE_RANGE_UNIT + " */%d";
   public static final String EMPTY_LINE = "\r\n";
+  public static final int MAX_EMPTY_TRANSFERS = 8;
+  public static final long MAX_WRITE_STALL_MILLIS = 30000L;
 
   protected final static Logger logger = Logger.getLogger(HttpStreamOutput.class.getName());
 
+  // the output stream classes and their transferFrom(FileChannel) methods
+  protected static final Map<Class<?>, Optional<Method>> transferFromMethods =
+      new ConcurrentHashMap<>();
+
   protected Function<String, String> requestHeaders;
   protected String contentType;
   protected String outputType;
@@ -123,6 +151,171 @@ public class HttpStreamOutput {
     return new HttpStreamOutputBuilder();
   }
 
+  /**
+   * Returns a readable file channel of the given resource if the resource is backed by a file of
+   * the default file system, otherwise returns null.
+   *
+   * @param resource the resource to open
+   * @throws IOException if an I/O error occurs
+   */
+  public static FileChannel openFileChannel(Resource resource) throws IOException {
+    if (resource instanceof FileSystemResource) {
+      return ((FileSystemResource) resource).openReadableChannel();
+    } else if (resource instanceof PathResource) {
+      Path path = ((PathResource) resource).getPath();
+      if (path.getFileSystem() == FileSystems.getDefault()) {
+        return FileChannel.open(path, StandardOpenOption.READ);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the writable channel of the given output stream. If the output stream provides a public
+   * {@code transferFrom(FileChannel)} method, e.g. the servlet output stream of Undertow, then
+   * returns a {@link FileTransferChannel} that hands the file channel to the container, so that the
+   * container can send the file content without copying it through the heap; if the output stream
+   * implements {@link WritableByteChannel} then returns it directly, otherwise returns a channel
+   * that writes to the output stream. The returned channel should not be closed by the caller.
+   *
+   * <p>
+   * Note: The container-aware transfer requires the container output stream itself, the output
+   * streams that wrap it, e.g. the JAX-RS entity stream, are written through the heap.
+   *
+   * @param os the output stream
+   */
+  public static WritableByteChannel toWritableChannel(OutputStream os) {
+    Optional<Method> transferFrom =
+        transferFromMethods.computeIfAbsent(os.getClass(), HttpStreamOutput::resolveTransferFrom);
+    if (transferFrom.isPresent()) {
+      return new OutputStreamFileTransferChannel(os, transferFrom.get());
+    }
+    if (os instanceof WritableByteChannel) {
+      return (WritableByteChannel) os;
+    }
+    return Channels.newChannel(os);
+  }
+
+  /**
+   * Transfer the given number of bytes from the given position of the file channel to the target
+   * channel, the position of the file channel is not modified. If the target channel is a
+   * {@link FileTransferChannel}, the transfer is delegated to it, otherwise the bytes are
+   * transferred with {@link FileChannel#transferTo(long, long, WritableByteChannel)}, if the target
+   * channel doesn't accept any bytes for {@link #MAX_EMPTY_TRANSFERS} successive transfers, the
+   * remaining bytes are copied through a heap buffer.
+   *
+   * @param source the source file channel
+   * @param position the position within the file at which the transfer is to begin
+   * @param count the number of bytes to transfer
+   * @param target the target channel
+   * @throws IOException if an I/O error occurs or the file is shorter than expected
+   */
+  public static void transfer(FileChannel source, long position, long count,
+      WritableByteChannel target) throws IOException {
+    if (target instanceof FileTransferChannel) {
+      if (source.size() < position + count) {
+        throw new EOFException(format("Unexpected end of file at %d, expected %d more bytes.",
+            source.size(), position + count - source.size()));
+      }
+      ((FileTransferChannel) target).transferFrom(source, position, count);
+      return;
+    }
+    long pos = position;
+    long remaining = count;
+    int emptyTransfers = 0;
+    while (remaining > 0) {
+      long transferred = source.transferTo(pos, remaining, target);
+      if (transferred <= 0) {
+        if (pos >= source.size()) {
+          throw new EOFException(format("Unexpected end of file at %d, expected %d more bytes.",
+              pos, remaining));
+        }
+        if (++emptyTransfers >= MAX_EMPTY_TRANSFERS) {
+          transferBuffered(source, pos, remaining, target);
+          return;
+        }
+        continue;
+      }
+      emptyTransfers = 0;
+      pos += transferred;
+      remaining -= transferred;
+    }
+  }
+
+  /**
+   * Copy the given number of bytes from the given position of the file channel to the target
+   * channel through a heap buffer, the position of the file channel is not modified.
+   *
+   * @param source the source file channel
+   * @param position the position within the file at which the copying is to begin
+   * @param count the number of bytes to copy
+   * @param target the target channel
+   * @throws IOException if an I/O error occurs or the file is shorter than expected
+   */
+  static void transferBuffered(FileChannel source, long position, long count,
+      WritableByteChannel target) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(count, Defaults.SIXTEEN_KBS));
+    long pos = position;
+    long remaining = count;
+    while (remaining > 0) {
+      buffer.clear().limit((int) Math.min(remaining, buffer.capacity()));
+      int read = source.read(buffer, pos);
+      if (read < 0) {
+        throw new EOFException(format("Unexpected end of file at %d, expected %d more bytes.",
+            pos, remaining));
+      }
+      buffer.flip();
+      writeFully(target, buffer, MAX_WRITE_STALL_MILLIS);
+      pos += read;
+      remaining -= read;
+    }
+  }
+
+  static Optional<Method> resolveTransferFrom(Class<?> outputStreamClass) {
+    try {
+      Method method = outputStreamClass.getMethod("transferFrom", FileChannel.class);
+      if (Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+        return Optional.of(method);
+      }
+    } catch (NoSuchMethodException | SecurityException e) {
+      // the output stream can't transfer from the file channel
+    }
+    return Optional.empty();
+  }
+
+  static void writeFully(WritableByteChannel target, byte[] bytes) throws IOException {
+    writeFully(target, ByteBuffer.wrap(bytes), MAX_WRITE_STALL_MILLIS);
+  }
+
+  /**
+   * Write all the remaining bytes of the given buffer to the target channel, if the target channel
+   * doesn't accept any bytes, the writing is retried with a short pause until the given stall
+   * duration elapsed, then an I/O exception is thrown.
+   *
+   * @param target the target channel
+   * @param buffer the buffer to write
+   * @param maxStallMillis the maximum milliseconds that the target channel can make no progress
+   * @throws IOException if an I/O error occurs or the target channel stalls
+   */
+  static void writeFully(WritableByteChannel target, ByteBuffer buffer, long maxStallMillis)
+      throws IOException {
+    long stalledSince = 0;
+    while (buffer.hasRemaining()) {
+      if (target.write(buffer) > 0) {
+        stalledSince = 0;
+        continue;
+      }
+      long now = System.currentTimeMillis();
+      if (stalledSince == 0) {
+        stalledSince = now;
+      } else if (now - stalledSince >= maxStallMillis) {
+        throw new IOException(format("The target channel accepted no bytes in %d ms, %d remain.",
+            now - stalledSince, buffer.remaining()));
+      }
+      LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+  }
+
   public Map<String, Object> getAdditionalHeaders() {
     return unmodifiableMap(additionalHeaders);
   }
@@ -236,7 +429,8 @@ public class HttpStreamOutput {
     logger.fine("Handle full output result!");
     Map<String, Object> headers = resolveOutputHeaders();
     headers.put(HEADER_NAME_ACCEPT_RANGES, HEADER_VALUE_ACCEPT_RANGES);
-    return new HttpStreamOutputResult(STATUS_OF_OK, headers, uncheckedBiConsumer(Streams::copy));
+    return new HttpStreamOutputResult(STATUS_OF_OK, headers, uncheckedBiConsumer(Streams::copy),
+        uncheckedBiConsumer((fc, ch) -> transfer(fc, 0, fc.size(), ch)));
   }
 
   protected HttpStreamOutputResult resolveMultiRangesOutputResult(List<HttpRange> ranges) {
@@ -251,20 +445,30 @@ public class HttpStreamOutput {
     return new HttpStreamOutputResult(STATUS_OF_PARTIAL_CONTENT, headers,
         uncheckedBiConsumer((is, os) -> {
           long lastPos = 0;
-          final String rangeLineFmt = CONTENT_RANGE_LINE_FMT.concat(EMPTY_LINE);
           for (HttpRange range : ranges) {
-            os.write(format(BOUNDARY_LINE_FMT.concat(EMPTY_LINE), boundary).getBytes());
-            os.write(format(CONTENT_TYPE_LINE_FMT.concat(EMPTY_LINE), contentType).getBytes());
-            os.write(format(rangeLineFmt, range.start(), range.end(), size).getBytes());
-            os.write(EMPTY_LINE.getBytes());
+            os.write(resolveMultiRangesPartHeader(boundary, range));
             copy(new RangedInputStream(is, range.start() - lastPos, range.size()), os);
             os.write(EMPTY_LINE.getBytes());
             lastPos = range.end() + 1;
           }
           os.write(format(BOUNDARY_LINE_FMT, boundary + "--").getBytes());
+        }), uncheckedBiConsumer((fc, ch) -> {
+          for (HttpRange range : ranges) {
+            writeFully(ch, resolveMultiRangesPartHeader(boundary, range));
+            transfer(fc, range.start(), range.size(), ch);
+            writeFully(ch, EMPTY_LINE.getBytes());
+          }
+          writeFully(ch, format(BOUNDARY_LINE_FMT, boundary + "--").getBytes());
         }));
   }
 
+  protected byte[] resolveMultiRangesPartHeader(String boundary, HttpRange range) {
+    return (format(BOUNDARY_LINE_FMT.concat(EMPTY_LINE), boundary)
+        + format(CONTENT_TYPE_LINE_FMT.concat(EMPTY_LINE), contentType)
+        + format(CONTENT_RANGE_LINE_FMT.concat(EMPTY_LINE), range.start(), range.end(), size)
+        + EMPTY_LINE).getBytes();
+  }
+
   protected HttpStreamOutputResult resolveNotSatisfiableRangeOutputResult() {
     logger.fine("Handle not satisfiable range output result!");
     Map<String, Object> headers = new HashMap<>();
@@ -287,8 +491,10 @@ public class HttpStreamOutput {
     if (additionalHeaders != null) {
       headers.putAll(additionalHeaders);
     }
-    return new HttpStreamOutputResult(STATUS_OF_PARTIAL_CONTENT, headers, uncheckedBiConsumer(
-        (is, os) -> copy(new RangedInputStream(is, range.start(), range.size()), os)));
+    return new HttpStreamOutputResult(STATUS_OF_PARTIAL_CONTENT, headers,
+        uncheckedBiConsumer(
+            (is, os) -> copy(new RangedInputStream(is, range.start(), range.size()), os)),
+        uncheckedBiConsumer((fc, ch) -> transfer(fc, range.start(), range.size(), ch)));
   }
 
   /**
@@ -392,6 +598,182 @@ public class HttpStreamOutput {
     }
   }
 
+  /**
+   * corant-modules-servlet
+   *
+   * <p>
+   * A read-only view of the given region of a file channel, the size of the view is the end of the
+   * region and the position starts at the beginning of the region, so that a consumer that reads or
+   * transfers the channel from its position to its size reads the region only. The positional
+   * reads and transfers are delegated to the underlying file channel, which isn't closed with the
+   * view.
+   *
+   * @author bingo 下午3:12:45
+   *
+   */
+  protected static class FileChannelRegion extends FileChannel {
+
+    protected final FileChannel source;
+    protected final long end;
+    protected long position;
+
+    protected FileChannelRegion(FileChannel source, long position, long count) {
+      this.source = source;
+      this.position = position;
+      end = position + count;
+    }
+
+    @Override
+    public void force(boolean metaData) {}
+
+    @Override
+    public FileLock lock(long position, long size, boolean shared) throws IOException {
+      return source.lock(position, size, shared);
+    }
+
+    @Override
+    public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+      if (mode != MapMode.READ_ONLY) {
+        throw new NonWritableChannelException();
+      }
+      if (position + size > end) {
+        throw new IllegalArgumentException("The mapped region exceeds the end of the view.");
+      }
+      return source.map(mode, position, size);
+    }
+
+    @Override
+    public long position() {
+      return position;
+    }
+
+    @Override
+    public FileChannel position(long newPosition) {
+      if (newPosition < 0) {
+        throw new IllegalArgumentException();
+      }
+      position = newPosition;
+      return this;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+      int read = read(dst, position);
+      if (read > 0) {
+        position += read;
+      }
+      return read;
+    }
+
+    @Override
+    public int read(ByteBuffer dst, long position) throws IOException {
+      if (position >= end) {
+        return -1;
+      }
+      final int limit = dst.limit();
+      if (dst.remaining() > end - position) {
+        dst.limit(dst.position() + (int) (end - position));
+      }
+      try {
+        return source.read(dst, position);
+      } finally {
+        dst.limit(limit);
+      }
+    }
+
+    @Override
+    public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+      long total = 0;
+      for (int i = offset; i < offset + length; i++) {
+        if (!dsts[i].hasRemaining()) {
+          continue;
+        }
+        int read = read(dsts[i]);
+        if (read < 0) {
+          return total == 0 ? -1 : total;
+        }
+        total += read;
+        if (dsts[i].hasRemaining()) {
+          break;
+        }
+      }
+      return total;
+    }
+
+    @Override
+    public long size() {
+      return end;
+    }
+
+    @Override
+    public long transferFrom(ReadableByteChannel src, long position, long count) {
+      throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target)
+        throws IOException {
+      if (position >= end) {
+        return 0;
+      }
+      return source.transferTo(position, Math.min(count, end - position), target);
+    }
+
+    @Override
+    public FileChannel truncate(long size) {
+      throw new NonWritableChannelException();
+    }
+
+    @Override
+    public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+      return source.tryLock(position, size, shared);
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+      throw new NonWritableChannelException();
+    }
+
+    @Override
+    public int write(ByteBuffer src, long position) {
+      throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) {
+      throw new NonWritableChannelException();
+    }
+
+    @Override
+    protected void implCloseChannel() {
+      // the source is closed by its owner
+    }
+  }
+
+  /**
+   * corant-modules-servlet
+   *
+   * <p>
+   * A writable channel that can transfer the content of a file channel to its destination, e.g.
+   * through the zero-copy transfer of the container.
+   *
+   * @author bingo 下午3:06:18
+   *
+   */
+  public interface FileTransferChannel extends WritableByteChannel {
+
+    /**
+     * Transfer the given number of bytes from the given position of the file channel, the
+     * position of the file channel is not modified.
+     *
+     * @param source the source file channel
+     * @param position the position within the file at which the transfer is to begin
+     * @param count the number of bytes to transfer
+     * @throws IOException if an I/O error occurs
+     */
+    void transferFrom(FileChannel source, long position, long count) throws IOException;
+  }
+
   /**
    * corant-modules-servlet
    *
@@ -402,9 +784,23 @@ public class HttpStreamOutput {
     protected final Map<String, Object> headers;
     protected final int status;
     protected final BiConsumer<InputStream, OutputStream> writer;
+    protected final BiConsumer<FileChannel, WritableByteChannel> channelWriter;
 
     public HttpStreamOutputResult(int status, Map<String, Object> headers,
         BiConsumer<InputStream, OutputStream> writer) {
+      this(status, headers, writer, null);
+    }
+
+    /**
+     * @param status the response status
+     * @param headers the response headers
+     * @param writer the writer use to write the content from the input stream
+     * @param channelWriter the writer use to transfer the content from the file channel, may be
+     *        null
+     */
+    public HttpStreamOutputResult(int status, Map<String, Object> headers,
+        BiConsumer<InputStream, OutputStream> writer,
+        BiConsumer<FileChannel, WritableByteChannel> channelWriter) {
       if (headers != null) {
         this.headers = unmodifiableMap(headers);
       } else {
@@ -416,12 +812,20 @@ public class HttpStreamOutput {
       } else {
         this.writer = emptyBiConsumer();
       }
+      this.channelWriter = channelWriter;
     }
 
     public HttpStreamOutputResult(Map<String, Object> headers, int status) {
       this(status, headers, null);
     }
 
+    /**
+     * Returns the writer use to transfer the content from the file channel, may be null.
+     */
+    public BiConsumer<FileChannel, WritableByteChannel> getChannelWriter() {
+      return channelWriter;
+    }
+
     public Map<String, Object> getHeaders() {
       return headers;
     }
@@ -433,6 +837,90 @@ public class HttpStreamOutput {
     public BiConsumer<InputStream, OutputStream> getWriter() {
       return writer;
     }
+
+    /**
+     * Write the content of the given resource to the given output stream. If the resource is backed
+     * by a file and the channel writer is present, the content is transferred from the file channel
+     * with {@link FileChannel#transferTo(long, long, WritableByteChannel)}, each range is read from
+     * its position rather than skipping; otherwise the content is copied from the input stream of
+     * the resource.
+     *
+     * @param resource the resource to write
+     * @param os the output stream to write to, it isn't closed by this method
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(Resource resource, OutputStream os) throws IOException {
+      if (channelWriter != null) {
+        try (FileChannel fc = openFileChannel(resource)) {
+          if (fc != null) {
+            channelWriter.accept(fc, toWritableChannel(os));
+            return;
+          }
+        }
+      }
+      try (InputStream is = resource.openInputStream()) {
+        writer.accept(is, os);
+      }
+    }
   }
 
+  /**
+   * corant-modules-servlet
+   *
+   * <p>
+   * The file transfer channel of an output stream that provides a public
+   * {@code transferFrom(FileChannel)} method, e.g. the servlet output stream of Undertow, the
+   * method transfers the file channel from its position to its size, so each transfer hands a
+   * {@link FileChannelRegion} of the transferred region to it. The other bytes are written to the
+   * output stream, so that the order of the bytes is kept.
+   *
+   * @author bingo 下午3:19:31
+   *
+   */
+  protected static class OutputStreamFileTransferChannel implements FileTransferChannel {
+
+    protected final OutputStream os;
+    protected final Method transferFrom;
+    protected final WritableByteChannel channel;
+
+    protected OutputStreamFileTransferChannel(OutputStream os, Method transferFrom) {
+      this.os = os;
+      this.transferFrom = transferFrom;
+      channel = Channels.newChannel(os);
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+
+    @Override
+    public boolean isOpen() {
+      return channel.isOpen();
+    }
+
+    @Override
+    public void transferFrom(FileChannel source, long position, long count) throws IOException {
+      try (FileChannel region = new FileChannelRegion(source, position, count)) {
+        transferFrom.invoke(os, region);
+      } catch (IllegalAccessException e) {
+        throw new IOException(e);
+      } catch (InvocationTargetException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        } else if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new IOException(cause);
+      }
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+      return channel.write(src);
+    }
+  }
 }
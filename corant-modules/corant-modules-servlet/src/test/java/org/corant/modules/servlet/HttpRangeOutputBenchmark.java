@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.modules.servlet;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import org.corant.modules.servlet.HttpStreamOutput.HttpStreamOutputResult;
+import org.corant.shared.resource.FileSystemResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * corant-modules-servlet
+ *
+ * <p>
+ * Serves the given number of 1 KB ranges spread across a sparse 1 GB file as a multipart response,
+ * with the input stream copying of the range writer, the file channel transferring to a plain
+ * output stream, to a file channel and to an output stream that transfers from the file channel
+ * like the Undertow servlet output stream does.
+ *
+ * @author bingo 下午3:45:16
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpRangeOutputBenchmark {
+
+  static final long FILE_SIZE = 1L << 30;
+  static final int RANGE_SIZE = 1024;
+
+  @Param({"16", "256", "4096"})
+  int ranges;
+
+  File file;
+  FileSystemResource resource;
+  HttpStreamOutputResult result;
+  FileChannel sink;
+
+  public static void main(String... args) throws RunnerException {
+    new Runner(
+        new OptionsBuilder().include(HttpRangeOutputBenchmark.class.getSimpleName()).build())
+            .run();
+  }
+
+  @Benchmark
+  public void channelTransfer() throws IOException {
+    result.write(resource, OutputStream.nullOutputStream());
+  }
+
+  @Benchmark
+  public void fileChannelTransfer() throws IOException {
+    try (FileChannel source = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      result.getChannelWriter().accept(source, sink);
+    }
+  }
+
+  @Benchmark
+  public void fileTransferFrom() throws IOException {
+    result.write(resource, new NullTransferableOutputStream(sink));
+  }
+
+  @Setup
+  public void setup() throws IOException {
+    file = File.createTempFile("corant-range-output", ".bin");
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(FILE_SIZE);
+    }
+    resource = new FileSystemResource(file);
+    sink = FileChannel.open(new File("/dev/null").toPath(), StandardOpenOption.WRITE);
+    StringBuilder header = new StringBuilder("bytes=");
+    long step = FILE_SIZE / ranges;
+    for (int i = 0; i < ranges; i++) {
+      long start = i * step;
+      header.append(i == 0 ? "" : ",").append(start).append('-').append(start + RANGE_SIZE - 1);
+    }
+    String range = header.toString();
+    result = HttpStreamOutput.builder().size(FILE_SIZE)
+        .requestHeaders(n -> HttpStreamOutput.HEADER_NAME_RANGE.equals(n) ? range : null).build()
+        .resolveRangeOutputResult();
+  }
+
+  @Benchmark
+  public void streamCopy() throws IOException {
+    try (InputStream is = new FileInputStream(file)) {
+      result.getWriter().accept(is, OutputStream.nullOutputStream());
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    sink.close();
+    file.delete();
+  }
+
+  /**
+   * corant-modules-servlet
+   *
+   * <p>
+   * An output stream that discards the written bytes and transfers the file channel from its
+   * position to its size to the given sink like the Undertow servlet output stream does.
+   *
+   * @author bingo 下午3:48:39
+   *
+   */
+  public static class NullTransferableOutputStream extends OutputStream {
+
+    final FileChannel sink;
+
+    NullTransferableOutputStream(FileChannel sink) {
+      this.sink = sink;
+    }
+
+    public void transferFrom(FileChannel source) throws IOException {
+      long position = source.position();
+      while (position < source.size()) {
+        position += source.transferTo(position, source.size() - position, sink);
+      }
+      source.position(position);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {}
+
+    @Override
+    public void write(int b) {}
+  }
+}
@@ -14,15 +14,28 @@ package org.corant.modules.servlet;
  */
 
 import static org.corant.shared.ubiquity.Throwing.uncheckedFunction;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 import java.util.stream.Collectors;
 import org.corant.modules.servlet.HttpRanges.HttpRange;
+import org.corant.modules.servlet.HttpStreamOutput.FileTransferChannel;
+import org.corant.modules.servlet.HttpStreamOutput.HttpStreamOutputResult;
+import org.corant.shared.resource.FileSystemResource;
 import org.corant.shared.resource.LimitedStream.RangedInputStream;
 import org.corant.shared.util.FileUtils;
 import org.corant.shared.util.Streams;
@@ -37,6 +50,101 @@ import junit.framework.TestCase;
  */
 public class HttpRangeOutputTest extends TestCase {
 
+  @Test
+  public void testChannelOutput() throws IOException {
+    File file = File.createTempFile("corant-range-output", ".bin");
+    try {
+      byte[] data = new byte[1 << 20];
+      new Random(1L).nextBytes(data);
+      Files.write(file.toPath(), data);
+      for (String ranges : new String[] {null, "bytes=0-", "bytes=100-8191", "bytes=-1000",
+          "bytes=0-99,1000-1999,5000-5000,65536-131071,1048000-"}) {
+        HttpStreamOutputResult result = HttpStreamOutput.builder().size((long) data.length)
+            .requestHeaders(n -> HttpStreamOutput.HEADER_NAME_RANGE.equals(n) ? ranges : null)
+            .build().resolveRangeOutputResult();
+        assertNotNull(result.getChannelWriter());
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        try (InputStream is = new FileInputStream(file)) {
+          result.getWriter().accept(is, streamed);
+        }
+        ByteArrayOutputStream transferred = new ByteArrayOutputStream();
+        result.write(new FileSystemResource(file), transferred);
+        assertTrue(ranges, Arrays.equals(streamed.toByteArray(), transferred.toByteArray()));
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testEmptyTransfers() throws IOException {
+    File file = File.createTempFile("corant-range-output", ".bin");
+    try {
+      byte[] data = new byte[100000];
+      new Random(2L).nextBytes(data);
+      Files.write(file.toPath(), data);
+      ByteArrayOutputStream os = new ByteArrayOutputStream();
+      // the target accepts nothing for a while, the transfer falls back to the buffered copying
+      WritableByteChannel target = new WritableByteChannel() {
+        int writes;
+
+        @Override
+        public void close() {}
+
+        @Override
+        public boolean isOpen() {
+          return true;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+          if (writes++ < HttpStreamOutput.MAX_EMPTY_TRANSFERS * 2) {
+            return 0;
+          }
+          int size = src.remaining();
+          byte[] bytes = new byte[size];
+          src.get(bytes);
+          os.write(bytes, 0, size);
+          return size;
+        }
+      };
+      try (FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+        HttpStreamOutput.transfer(fc, 100, data.length - 200, target);
+      }
+      assertTrue(Arrays.equals(Arrays.copyOfRange(data, 100, data.length - 100), os.toByteArray()));
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testFileTransferOutput() throws IOException {
+    File file = File.createTempFile("corant-range-output", ".bin");
+    try {
+      byte[] data = new byte[1 << 20];
+      new Random(3L).nextBytes(data);
+      Files.write(file.toPath(), data);
+      for (String ranges : new String[] {"bytes=100-8191",
+          "bytes=0-99,1000-1999,5000-5000,65536-131071,1048000-"}) {
+        HttpStreamOutputResult result = HttpStreamOutput.builder().size((long) data.length)
+            .requestHeaders(n -> HttpStreamOutput.HEADER_NAME_RANGE.equals(n) ? ranges : null)
+            .build().resolveRangeOutputResult();
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        try (InputStream is = new FileInputStream(file)) {
+          result.getWriter().accept(is, streamed);
+        }
+        TransferableOutputStream transferred = new TransferableOutputStream();
+        assertTrue(HttpStreamOutput.toWritableChannel(transferred) instanceof FileTransferChannel);
+        result.write(new FileSystemResource(file), transferred);
+        assertEquals(ranges, ranges.split(",").length, transferred.transfers);
+        assertTrue(ranges,
+            Arrays.equals(streamed.toByteArray(), transferred.bytes.toByteArray()));
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
   @Test
   public void testRangeSplit() throws IOException {
     long lastPos = 0;
@@ -65,4 +173,59 @@ public class HttpRangeOutputTest extends TestCase {
     new File(md).delete();
   }
 
+  @Test
+  public void testStalledWrites() {
+    // the target never accepts any bytes, the writing fails after the stall duration
+    WritableByteChannel target = new WritableByteChannel() {
+      @Override
+      public void close() {}
+
+      @Override
+      public boolean isOpen() {
+        return true;
+      }
+
+      @Override
+      public int write(ByteBuffer src) {
+        return 0;
+      }
+    };
+    try {
+      HttpStreamOutput.writeFully(target, ByteBuffer.wrap(new byte[16]), 20L);
+      fail("The stalled writing should fail");
+    } catch (IOException e) {
+      assertTrue(e.getMessage().contains("16 remain"));
+    }
+  }
+
+  /**
+   * corant-modules-servlet
+   *
+   * <p>
+   * An output stream that transfers the file channel from its position to its size like the
+   * Undertow servlet output stream does.
+   *
+   * @author bingo 下午3:36:52
+   *
+   */
+  public static class TransferableOutputStream extends OutputStream {
+
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    int transfers;
+
+    public void transferFrom(FileChannel source) throws IOException {
+      transfers++;
+      WritableByteChannel target = Channels.newChannel(bytes);
+      long position = source.position();
+      while (position < source.size()) {
+        position += source.transferTo(position, source.size() - position, target);
+      }
+      source.position(position);
+    }
+
+    @Override
+    public void write(int b) {
+      bytes.write(b);
+    }
+  }
 }
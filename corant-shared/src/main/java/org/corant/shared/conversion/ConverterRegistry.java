@@ -81,6 +81,7 @@ public class ConverterRegistry {
   public static synchronized <S, T> void deregister(Converter<S, T> converter) {
     Class[] type = resolveTypes(converter);
     deregister(ConverterType.of(type[0], type[1])); // FIXME consider other ways
+    Converters.invalidateDispatchCache();
   }
 
   /**
@@ -99,6 +100,7 @@ public class ConverterRegistry {
     SUPPORT_CONVERTER_FACTORIES.entrySet().stream()
         .filter(e -> areEqual(e.getValue(), converterFactory)).map(Entry::getKey)
         .forEach(ConverterRegistry::deregister);
+    Converters.invalidateDispatchCache();
   }
 
   /**
@@ -134,6 +136,7 @@ public class ConverterRegistry {
   public static synchronized <S, T> void register(Converter<S, T> converter) {
     Class[] types = resolveTypes(converter);
     register(types[0], types[1], converter);
+    Converters.invalidateDispatchCache();
   }
 
   /**
@@ -147,6 +150,7 @@ public class ConverterRegistry {
     if (converterFactory != null && !CONVERTER_FACTORIES.contains(converterFactory)) {
       CONVERTER_FACTORIES.add(converterFactory);
       CONVERTER_FACTORIES.sort(Sortable::compare);
+      Converters.invalidateDispatchCache();
     }
   }
 
@@ -167,11 +171,13 @@ public class ConverterRegistry {
    * @param converterType the converter that we don't support
    */
   public static synchronized void registerNotSupportType(ConverterType converterType) {
-    if (!NOT_SUPPORT_TYPES.contains(converterType) && NOT_SUPPORT_TYPES.add(converterType)
-        && NOT_SUPPORT_TYPES.size() > 128) {
-      ConverterType first = NOT_SUPPORT_TYPES.iterator().next();
-      NOT_SUPPORT_TYPES.remove(first);
-      deregister(converterType);
+    if (!NOT_SUPPORT_TYPES.contains(converterType) && NOT_SUPPORT_TYPES.add(converterType)) {
+      if (NOT_SUPPORT_TYPES.size() > 128) {
+        ConverterType first = NOT_SUPPORT_TYPES.iterator().next();
+        NOT_SUPPORT_TYPES.remove(first);
+        deregister(converterType);
+      }
+      Converters.invalidateDispatchCache();
     }
   }
 
@@ -186,6 +192,7 @@ public class ConverterRegistry {
     SUPPORT_CONVERTER_PIPE_TYPES.clear();
     NOT_SUPPORT_TYPES.clear();
     load();
+    Converters.invalidateDispatchCache();
   }
 
   static synchronized void deregister(ConverterType<?, ?> converterType) {
@@ -34,13 +34,60 @@ import org.corant.shared.ubiquity.Tuple.Pair;
  * of converter factory supported.
  * </pre>
  *
+ * <p>
+ * The lookup results are cached in a two-level class value dispatch cache keyed by the source class
+ * and the target class, so that the steady-state lookup doesn't allocate and doesn't probe the
+ * registry. The dispatch cache is invalidated when the converters or the converter factories are
+ * registered or deregistered through {@link ConverterRegistry}.
+ *
  * @author bingo 下午2:12:57
  */
 @SuppressWarnings({"unchecked", "rawtypes"})
 public class Converters {
 
+  static volatile DispatchCache dispatchCache = new DispatchCache();
+
   public static <S, T> Optional<Converter<S, T>> lookup(Class<S> sourceClass,
       Class<T> targetClass) {
+    return forceCast(dispatchCache.get(sourceClass).get(targetClass));
+  }
+
+  static synchronized Converter getMatchedConverter(Class<?> sourceClass, Class<?> targetClass) {
+    return streamOf(ConverterRegistry.getConverters())
+        .filter(e -> match(e.getKey(), sourceClass, targetClass)).map(Entry::getValue).findFirst()
+        .orElse(null);
+  }
+
+  static Pair<Converter, ConverterFactory> getMatchedConverterFromFactory(Class<?> sourceClass,
+      Class<?> targetClass) {
+    ConverterFactory factory = ConverterRegistry.getConverterFactories().stream()
+        .filter(f -> f.isSupports(sourceClass, targetClass)).min(Sortable::compare).orElse(null);
+    if (factory != null) {
+      // FIXME initialize parameter
+      return Pair.of(factory.create(targetClass, null, true), factory);
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * Discard all cached lookup results, the subsequent lookups are resolved from the registry.
+   */
+  static void invalidateDispatchCache() {
+    dispatchCache = new DispatchCache();
+  }
+
+  static boolean match(Class<?> a, Class<?> b) {
+    return a.isAssignableFrom(b);
+  }
+
+  static boolean match(ConverterType<?, ?> converterType, Class<?> sourceClass,
+      Class<?> targetClass) {
+    return targetClass.isAssignableFrom(converterType.getTargetClass())
+        && converterType.getSourceClass().isAssignableFrom(sourceClass);
+  }
+
+  static <S, T> Optional<Converter<S, T>> resolve(Class<S> sourceClass, Class<T> targetClass) {
     if (targetClass.isAssignableFrom(sourceClass)) {
       return optional((Converter<S, T>) IdentityConverter.INSTANCE);
     } else if (ConverterRegistry.isSupportType(sourceClass, targetClass)) {
@@ -80,32 +127,27 @@ public class Converters {
     }
   }
 
-  static synchronized Converter getMatchedConverter(Class<?> sourceClass, Class<?> targetClass) {
-    return streamOf(ConverterRegistry.getConverters())
-        .filter(e -> match(e.getKey(), sourceClass, targetClass)).map(Entry::getValue).findFirst()
-        .orElse(null);
-  }
+  /**
+   * corant-shared
+   *
+   * <p>
+   * The two-level dispatch cache, the first level is keyed by the source class and the second
+   * level is keyed by the target class, the cached values are the lookup results.
+   *
+   * @author bingo 下午4:06:32
+   *
+   */
+  static class DispatchCache extends ClassValue<ClassValue<Optional<Converter>>> {
 
-  static Pair<Converter, ConverterFactory> getMatchedConverterFromFactory(Class<?> sourceClass,
-      Class<?> targetClass) {
-    ConverterFactory factory = ConverterRegistry.getConverterFactories().stream()
-        .filter(f -> f.isSupports(sourceClass, targetClass)).min(Sortable::compare).orElse(null);
-    if (factory != null) {
-      // FIXME initialize parameter
-      return Pair.of(factory.create(targetClass, null, true), factory);
-    } else {
-      return null;
+    @Override
+    protected ClassValue<Optional<Converter>> computeValue(Class<?> sourceClass) {
+      return new ClassValue<>() {
+        @Override
+        protected Optional<Converter> computeValue(Class<?> targetClass) {
+          return forceCast(resolve(sourceClass, targetClass));
+        }
+      };
     }
   }
 
-  static boolean match(Class<?> a, Class<?> b) {
-    return a.isAssignableFrom(b);
-  }
-
-  static boolean match(ConverterType<?, ?> converterType, Class<?> sourceClass,
-      Class<?> targetClass) {
-    return targetClass.isAssignableFrom(converterType.getTargetClass())
-        && converterType.getSourceClass().isAssignableFrom(sourceClass);
-  }
-
 }
@@ -78,6 +78,21 @@ public class Identifiers {
    * The general snowflake UUID generator, Use time increment as a prefix, use numerical increment
    * as a suffix, support multi-segment infix, return 64-bit unsigned long UUID.
    *
+   * <p>
+   * The generator is lock-free, the last timestamp and the last sequence are packed into a single
+   * {@link AtomicLong} and advanced with compare-and-set. If the time goes backwards, the last
+   * timestamp is kept and the sequence continues to increase, the generator only waits for the
+   * next time unit when the sequence of the last timestamp is exhausted.
+   *
+   * <p>
+   * If the block size is greater than 1, each thread reserves a block of consecutive sequence
+   * numbers at a time and hands out the identifiers from its block without any contention, the
+   * identifiers are still unique but the identifiers of different threads in the same time unit are
+   * not strictly ordered by the generation time. The block of a thread is dropped when the time unit
+   * advances (or when the delayed timing expires in the delayed timing mode), so the timestamp of an
+   * identifier is never older than the time unit it was generated in, and the identifiers are still
+   * ordered across the time units.
+   *
    * @author bingo 下午8:31:09
    *
    */
@@ -96,10 +111,13 @@ public class Identifiers {
     protected final long[] workerIds;
     protected final long[] workerBits;
     protected final long[] workerSegms;
+    protected final int blockSize;
+    protected final ThreadLocal<long[]> blocks;
 
-    protected volatile long lastTimestamp = -1L;
     protected volatile long localLastTimestamp = -1L;
-    protected final AtomicLong sequence = new AtomicLong(0L);
+    // the packed last timestamp (relative to the epoch) and the last sequence, the initial sequence
+    // is exhausted so that the timestamp is retrieved on the first generation.
+    protected final AtomicLong state;
 
     /**
      * Construct a generator without delay
@@ -129,6 +147,23 @@ public class Identifiers {
      */
     public GeneralSnowflakeUUIDGenerator(ChronoUnit unit, long delayedTimingMs,
         List<Pair<Long, Long>> workers, long sequenceBits) {
+      this(unit, delayedTimingMs, workers, sequenceBits, 1);
+    }
+
+    /**
+     * Construct a generator
+     *
+     * @param unit The prefix segment epoch time unit, current we only support MILLIS and SECOND
+     * @param delayedTimingMs less than 1 means no delay, see
+     *        {@link #GeneralSnowflakeUUIDGenerator(ChronoUnit, long, List, long)}
+     * @param workers The infix segments, use an ordered pairs, every pair contains two values, one
+     *        is the worker bits the other is the worker id
+     * @param sequenceBits The last suffix bits
+     * @param blockSize The number of sequence numbers reserved by a thread at a time, less than 2
+     *        means no reservation
+     */
+    public GeneralSnowflakeUUIDGenerator(ChronoUnit unit, long delayedTimingMs,
+        List<Pair<Long, Long>> workers, long sequenceBits, int blockSize) {
       if (isEmpty(workers) || workers.stream().anyMatch(w -> w.getLeft() < 0 || w.getRight() < 0)
           || sequenceBits < 0) {
         throw new IllegalArgumentException(
@@ -170,6 +205,9 @@ public class Identifiers {
       epoch = unit == ChronoUnit.SECONDS
           ? Instant.ofEpochMilli(Identifiers.TIME_EPOCH_MILLS).getEpochSecond()
           : Identifiers.TIME_EPOCH_MILLS;
+      this.blockSize = blockSize > 1 ? (int) Math.min(blockSize, sequenceMask + 1) : 1;
+      blocks = this.blockSize > 1 ? ThreadLocal.withInitial(() -> new long[3]) : null;
+      state = new AtomicLong(sequenceMask);
     }
 
     public String description() {
@@ -185,6 +223,9 @@ public class Identifiers {
       if (delayedTimingMs > 0) {
         sb.append("delayed timing ").append(delayedTimingMs).append("ms, ");
       }
+      if (blockSize > 1) {
+        sb.append("block size ").append(blockSize).append(", ");
+      }
       sb.append("support up to ").append(getExpirationTime());
       return sb.toString();
     }
@@ -221,11 +262,32 @@ public class Identifiers {
 
     @Override
     public Long generate(Supplier<?> timeGener) {
-      if (delayedTimingMs > 0) {
-        return doGenerateWithCache(timeGener);
-      } else {
-        return doGenerateWithoutCache(timeGener);
+      if (blockSize > 1) {
+        // block[0] is the next identifier, block[1] is the remaining count of the block, block[2]
+        // is the timestamp of the block or the local time when the block was reserved in the
+        // delayed timing mode
+        final long[] block = blocks.get();
+        if (block[1] > 0 && !isExpired(timeGener, block[2])) {
+          block[1]--;
+          return block[0]++;
+        }
+        final long base = reserve(timeGener, blockSize);
+        final long timestamp = (base >>> sequenceBits) + epoch;
+        final long first = nextId(timestamp, base & sequenceMask);
+        block[0] = first + 1;
+        block[1] = Math.min(blockSize, sequenceMask - (base & sequenceMask) + 1) - 1;
+        block[2] = delayedTimingMs > 0 ? System.currentTimeMillis() : timestamp;
+        return first;
       }
+      final long base = reserve(timeGener, 1);
+      return nextId((base >>> sequenceBits) + epoch, base & sequenceMask);
+    }
+
+    /**
+     * Returns the number of sequence numbers reserved by a thread at a time.
+     */
+    public int getBlockSize() {
+      return blockSize;
     }
 
     /**
@@ -328,29 +390,20 @@ public class Identifiers {
       return parseGeneratedWorkerId(id, -1);
     }
 
-    protected synchronized Long doGenerateWithCache(Supplier<?> timeGener) {
-      resetSequenceIfNecessary();
-      int cursor = Identifiers.handleSequence(sequence, sequenceMask, false);
-      if (cursor == 0) {
-        lastTimestamp = Identifiers.tills(timeGener, lastTimestamp, false);
-        localLastTimestamp = System.currentTimeMillis();
-      }
-      return nextId(lastTimestamp, cursor);
-    }
-
-    protected synchronized Long doGenerateWithoutCache(Supplier<?> timeGener) {
-      long timestamp = Identifiers.tills(timeGener, lastTimestamp, true);
-      if (lastTimestamp == timestamp) {
-        int currentSeq = Identifiers.handleSequence(sequence, sequenceMask, true);
-        if (currentSeq == 0) {
-          timestamp = Identifiers.tills(timeGener, lastTimestamp, false);
-        }
-      } else {
-        sequence.set(0L);
+    /**
+     * Returns whether the block with the given block time is expired, that is the time unit has
+     * advanced since the block was reserved, in the delayed timing mode the time is not retrieved
+     * and the block is expired if the delayed timing is expired.
+     *
+     * @param timeGener the time generator
+     * @param blockTime the timestamp of the block or the local time when the block was reserved in
+     *        the delayed timing mode
+     */
+    protected boolean isExpired(Supplier<?> timeGener, long blockTime) {
+      if (delayedTimingMs > 0) {
+        return System.currentTimeMillis() - blockTime > delayedTimingMs;
       }
-      lastTimestamp = timestamp;
-      localLastTimestamp = System.currentTimeMillis();
-      return nextId(timestamp, sequence.get());
+      return toLong(timeGener.get()) > blockTime;
     }
 
     protected long nextId(long timestamp, long seq) {
@@ -361,10 +414,49 @@ public class Identifiers {
       return next | seq;
     }
 
-    private void resetSequenceIfNecessary() {
-      if (delayedTimingMs > 0 && localLastTimestamp != -1
-          && System.currentTimeMillis() - localLastTimestamp > delayedTimingMs) {
-        sequence.set(0);
+    /**
+     * Reserve at most the given number of consecutive sequence numbers and returns the packed
+     * timestamp and sequence of the first reserved one, the reserved count is
+     * {@code min(size, sequenceMask - firstSequence + 1)}.
+     *
+     * @param timeGener the time generator
+     * @param size the expected number of the sequence numbers to reserve
+     */
+    protected long reserve(Supplier<?> timeGener, int size) {
+      while (true) {
+        final long current = state.get();
+        final long lastTimestamp = current >>> sequenceBits;
+        final long lastSequence = current & sequenceMask;
+        boolean retrieved = false;
+        long base;
+        if (delayedTimingMs > 0) {
+          // retrieve the time only if the sequence is exhausted or the delay is expired
+          if (lastSequence >= sequenceMask
+              || System.currentTimeMillis() - localLastTimestamp > delayedTimingMs) {
+            base = Identifiers.tills(timeGener, lastTimestamp + epoch, false) - epoch;
+            base <<= sequenceBits;
+            retrieved = true;
+          } else {
+            base = current + 1;
+          }
+        } else {
+          final long timestamp = toLong(timeGener.get()) - epoch;
+          if (timestamp > lastTimestamp) {
+            base = timestamp << sequenceBits;
+          } else if (lastSequence < sequenceMask) {
+            base = current + 1;
+          } else {
+            base = Identifiers.tills(timeGener, lastTimestamp + epoch, false) - epoch;
+            base <<= sequenceBits;
+          }
+        }
+        final long count = Math.min(size, sequenceMask - (base & sequenceMask) + 1);
+        if (state.compareAndSet(current, base + count - 1)) {
+          if (retrieved) {
+            localLastTimestamp = System.currentTimeMillis();
+          }
+          return base;
+        }
       }
     }
   }
@@ -424,9 +516,14 @@ public class Identifiers {
     }
 
     public SnowflakeD5W5S12UUIDGenerator(long dataCenterId, long workerId, long delayedTimingMs) {
+      this(dataCenterId, workerId, delayedTimingMs, 1);
+    }
+
+    public SnowflakeD5W5S12UUIDGenerator(long dataCenterId, long workerId, long delayedTimingMs,
+        int blockSize) {
       super(ChronoUnit.MILLIS, delayedTimingMs,
           listOf(Pair.of(DATACENTER_ID_BITS, dataCenterId), Pair.of(WORKER_ID_BITS, workerId)),
-          SEQUENCE_BITS);
+          SEQUENCE_BITS, blockSize);
       this.dataCenterId = dataCenterId;
       this.workerId = workerId;
     }
@@ -479,10 +576,14 @@ public class Identifiers {
     }
 
     public SnowflakeIpv4HostUUIDGenerator(Inet4Address ip, long delayedTimingMs) {
+      this(ip, delayedTimingMs, 1);
+    }
+
+    public SnowflakeIpv4HostUUIDGenerator(Inet4Address ip, long delayedTimingMs, int blockSize) {
       super(ChronoUnit.SECONDS, delayedTimingMs,
           listOf(Pair.of(8L, toLong(ip.getAddress()[2] & 0xff)),
               Pair.of(8L, toLong(ip.getAddress()[3] & 0xff))),
-          16);
+          16, blockSize);
       this.ip = ip;
     }
 
@@ -490,10 +591,18 @@ public class Identifiers {
       this(resolveIpAddress(null), delayedTimingMs);
     }
 
+    public SnowflakeIpv4HostUUIDGenerator(long delayedTimingMs, int blockSize) {
+      this(resolveIpAddress(null), delayedTimingMs, blockSize);
+    }
+
     public SnowflakeIpv4HostUUIDGenerator(String ip, long delayedTimingMs) {
       this(resolveIpAddress(ip), delayedTimingMs);
     }
 
+    public SnowflakeIpv4HostUUIDGenerator(String ip, long delayedTimingMs, int blockSize) {
+      this(resolveIpAddress(ip), delayedTimingMs, blockSize);
+    }
+
     static Inet4Address resolveIpAddress(String ip) {
       try {
         return isNotBlank(ip) ? (Inet4Address) InetAddress.getByName(ip)
@@ -565,8 +674,12 @@ public class Identifiers {
     }
 
     public SnowflakeW10S12UUIDGenerator(long workerId, long cacheExpiration) {
+      this(workerId, cacheExpiration, 1);
+    }
+
+    public SnowflakeW10S12UUIDGenerator(long workerId, long cacheExpiration, int blockSize) {
       super(ChronoUnit.MILLIS, cacheExpiration, listOf(Pair.of(WORKER_ID_BITS, workerId)),
-          SEQUENCE_BITS);
+          SEQUENCE_BITS, blockSize);
       this.workerId = workerId;
     }
 
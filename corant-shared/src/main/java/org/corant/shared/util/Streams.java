@@ -526,5 +526,12 @@ public class Streams {
       throw new IllegalStateException();
     }
 
+    /**
+     * Returns the batch handler, never null.
+     */
+    protected Consumer<Long> getHandler() {
+      return handler;
+    }
+
   }
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.shared.conversion;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.corant.shared.util.Conversions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * corant-shared
+ *
+ * <p>
+ * Compares the converter lookup through the class keyed dispatch cache with the lookup resolved
+ * from the converter registry on each call, as the conversions did before the dispatch cache, and
+ * measures the whole conversion, for the String to Long, the Number to BigDecimal and the
+ * Timestamp to Instant conversions.
+ *
+ * @author bingo 上午10:18:46
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class ConverterDispatchBenchmark {
+
+  @Param({"String-Long", "Number-BigDecimal", "Timestamp-Instant"})
+  String conversion;
+
+  Object value;
+  Class sourceClass;
+  Class targetClass;
+
+  public static void main(String... args) throws RunnerException {
+    new Runner(
+        new OptionsBuilder().include(ConverterDispatchBenchmark.class.getSimpleName()).build())
+            .run();
+  }
+
+  @Benchmark
+  public Optional cachedLookup() {
+    return Converters.lookup(sourceClass, targetClass);
+  }
+
+  @Benchmark
+  public Object convert() {
+    return Conversions.toObject(value, targetClass);
+  }
+
+  @Benchmark
+  public Optional registryResolve() {
+    return Converters.resolve(sourceClass, targetClass);
+  }
+
+  @Setup
+  public void setup() {
+    switch (conversion) {
+      case "String-Long":
+        value = "1234567890";
+        targetClass = Long.class;
+        break;
+      case "Number-BigDecimal":
+        value = 1234567890;
+        targetClass = BigDecimal.class;
+        break;
+      default:
+        value = new Timestamp(System.currentTimeMillis());
+        targetClass = Instant.class;
+        break;
+    }
+    sourceClass = value.getClass();
+    if (Converters.lookup(sourceClass, targetClass).isEmpty()) {
+      throw new IllegalStateException("Can't find converter for " + conversion);
+    }
+  }
+}
@@ -55,7 +55,10 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.regex.Pattern;
+import org.corant.shared.conversion.Converter;
 import org.corant.shared.conversion.ConverterHints;
+import org.corant.shared.conversion.ConverterRegistry;
+import org.corant.shared.conversion.Converters;
 import org.corant.shared.conversion.converter.AbstractTemporalConverter;
 import org.corant.shared.conversion.converter.AbstractTemporalConverter.TemporalFormatter;
 import org.corant.shared.conversion.converter.StringDateConverter;
@@ -76,6 +79,22 @@ import junit.framework.TestCase;
  */
 public class ConversionsTest extends TestCase {
 
+  @Test
+  public void testConverterRegistration() {
+    assertFalse(Converters.lookup(Cents.class, Money.class).isPresent());
+    CentsMoneyConverter converter = new CentsMoneyConverter();
+    ConverterRegistry.register(converter);
+    try {
+      assertSame(converter, Converters.lookup(Cents.class, Money.class).orElse(null));
+      assertSame(Converters.lookup(Cents.class, Money.class).orElse(null),
+          Converters.lookup(Cents.class, Money.class).orElse(null));
+      assertEquals(new BigDecimal("12.34"), toObject(new Cents(1234), Money.class).amount);
+    } finally {
+      ConverterRegistry.deregister(converter);
+    }
+    assertFalse(Converters.lookup(Cents.class, Money.class).isPresent());
+  }
+
   @Test
   public void testDateInstant() {
     Date date = new Date();
@@ -385,4 +404,27 @@ public class ConversionsTest extends TestCase {
         setOf(Integer.class, Double.class));
   }
 
+  public static class Cents {
+    final long value;
+
+    public Cents(long value) {
+      this.value = value;
+    }
+  }
+
+  public static class CentsMoneyConverter implements Converter<Cents, Money> {
+    @Override
+    public Money convert(Cents t, Map<String, ?> hints) {
+      return new Money(BigDecimal.valueOf(t.value, 2));
+    }
+  }
+
+  public static class Money {
+    final BigDecimal amount;
+
+    public Money(BigDecimal amount) {
+      this.amount = amount;
+    }
+  }
+
 }
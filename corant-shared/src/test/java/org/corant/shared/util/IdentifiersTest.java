@@ -24,9 +24,14 @@ import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import org.corant.shared.ubiquity.Tuple.Pair;
 import org.corant.shared.util.Identifiers.GeneralSnowflakeUUIDGenerator;
+import org.corant.shared.util.Identifiers.SnowflakeD5W5S12UUIDGenerator;
 import org.corant.shared.util.Identifiers.SnowflakeIpv4HostUUIDGenerator;
+import org.corant.shared.util.Identifiers.SnowflakeW10S12UUIDGenerator;
 import org.junit.Test;
 import junit.framework.TestCase;
 
@@ -45,6 +50,58 @@ public class IdentifiersTest extends TestCase {
     System.out.println(new SnowflakeIpv4HostUUIDGenerator(16L).getExpirationTime());
   }
 
+  @Test
+  public void testBlockReservationUniqueness() throws Exception {
+    SnowflakeW10S12UUIDGenerator generator = new SnowflakeW10S12UUIDGenerator(1023, 16L, 64);
+    assertEquals(generator.getBlockSize(), 64);
+    Set<Long> ids = generateConcurrently(
+        () -> generator.generate(System::currentTimeMillis), 64, 4096);
+    assertEquals(ids.size(), 64 * 4096);
+    ids.forEach(id -> assertEquals(generator.parseGeneratedWorkersId(id), 1023));
+  }
+
+  @Test
+  public void testBlockTimeOrdering() {
+    SnowflakeW10S12UUIDGenerator generator = new SnowflakeW10S12UUIDGenerator(1, -1L, 64);
+    AtomicLong time = new AtomicLong(System.currentTimeMillis());
+    long last = generator.generate(time::get);
+    for (int i = 0; i < 16; i++) {
+      time.incrementAndGet();
+      // the block is dropped since the time unit advanced, the id is in the current time unit
+      long id = generator.generate(time::get);
+      assertTrue(id > last);
+      assertEquals(generator.parseGeneratedInstant(id).toEpochMilli(), time.get());
+      last = id;
+    }
+  }
+
+  @Test
+  public void testConcurrentUniqueness() throws Exception {
+    SnowflakeD5W5S12UUIDGenerator generator = new SnowflakeD5W5S12UUIDGenerator(3, 17);
+    for (int threads : new int[] {1, 8, 64}) {
+      Set<Long> ids = generateConcurrently(
+          () -> generator.generate(System::currentTimeMillis), threads, 65536 / threads * 4);
+      assertEquals(ids.size(), 65536 * 4);
+      ids.forEach(id -> {
+        assertEquals(generator.parseGeneratedWorkerId(id, 0), 3);
+        assertEquals(generator.parseGeneratedWorkerId(id, 1), 17);
+      });
+    }
+  }
+
+  @Test
+  public void testDelayedTimingUniqueness() throws Exception {
+    SnowflakeIpv4HostUUIDGenerator generator =
+        new SnowflakeIpv4HostUUIDGenerator("192.168.1.2", 60);
+    Set<Long> ids = generateConcurrently(
+        () -> generator.generate(() -> System.currentTimeMillis() / 1000 + 1), 8, 16384);
+    assertEquals(ids.size(), 8 * 16384);
+    ids.forEach(id -> {
+      assertEquals(generator.parseGeneratedWorkerId(id, 0), 1);
+      assertEquals(generator.parseGeneratedWorkerId(id, 1), 2);
+    });
+  }
+
   @Test
   public void test() throws InterruptedException {
     int workers = 4, times = 65536 * 2, size = workers * times;
@@ -96,4 +153,38 @@ public class IdentifiersTest extends TestCase {
     System.out.println("Completed: " + set.size());
 
   }
+
+  Set<Long> generateConcurrently(Supplier<Long> generator, int threads, int times)
+      throws Exception {
+    final long[][] arr = new long[threads][times];
+    final ExecutorService es = Executors.newFixedThreadPool(threads);
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Future<?>> futures = new ArrayList<>(threads);
+    for (int t = 0; t < threads; t++) {
+      final long[] ids = arr[t];
+      futures.add(es.submit(() -> {
+        start.await();
+        for (int i = 0; i < times; i++) {
+          ids[i] = generator.get();
+        }
+        return null;
+      }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    es.shutdown();
+    Set<Long> set = new HashSet<>(threads * times << 1);
+    for (long[] ids : arr) {
+      for (int i = 0; i < ids.length; i++) {
+        set.add(ids[i]);
+        if (i > 0) {
+          // the identifiers generated by a thread are increasing
+          assertTrue(ids[i] > ids[i - 1]);
+        }
+      }
+    }
+    return set;
+  }
 }
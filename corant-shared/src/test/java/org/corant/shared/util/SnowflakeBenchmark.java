@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2013-2021, Bingo.Chen (finesoft@gmail.com).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.corant.shared.util;
+
+import java.util.concurrent.TimeUnit;
+import org.corant.shared.util.Identifiers.SnowflakeW10S12UUIDGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * corant-shared
+ *
+ * <p>
+ * Measures the snowflake identifier generation shared by 1, 8 and 64 threads, with and without the
+ * per thread sequence block reservation, and with the time retrieved on each generation or
+ * delayed. The W10S12 layout yields at most 4096 identifiers per millisecond, so the aggregate
+ * throughput is bounded by the clock and the contention shows as the gap to that bound.
+ *
+ * @author bingo 下午3:41:27
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnowflakeBenchmark {
+
+  @Param({"1", "64"})
+  int blockSize;
+
+  @Param({"-1", "16"})
+  long delayedTimingMs;
+
+  SnowflakeW10S12UUIDGenerator generator;
+
+  public static void main(String... args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(SnowflakeBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public long generateWith01Thread() {
+    return generator.generate(System::currentTimeMillis);
+  }
+
+  @Benchmark
+  @Threads(8)
+  public long generateWith08Threads() {
+    return generator.generate(System::currentTimeMillis);
+  }
+
+  @Benchmark
+  @Threads(64)
+  public long generateWith64Threads() {
+    return generator.generate(System::currentTimeMillis);
+  }
+
+  @Setup
+  public void setup() {
+    generator = new SnowflakeW10S12UUIDGenerator(1, delayedTimingMs, blockSize);
+  }
+}